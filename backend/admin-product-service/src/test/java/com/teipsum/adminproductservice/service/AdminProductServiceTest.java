@@ -35,6 +35,7 @@ import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -350,7 +351,7 @@ class AdminProductServiceTest {
     void shouldGetAllProductsWithPagination() {
         // Given
         ProductFilterRequest filter = new ProductFilterRequest(
-                null, null, null, null, null, null, null, null, null, null, null
+                null, null, null, null, null, null, null, null, null, null, null, null
         );
         Pageable pageable = Pageable.ofSize(10);
         Page<Product> productPage = new PageImpl<>(List.of(testProduct));
@@ -377,7 +378,7 @@ class AdminProductServiceTest {
     void shouldHandleEmptyProductList() {
         // Given
         ProductFilterRequest filter = new ProductFilterRequest(
-                null, null, null, null, null, null, null, null, null, null, null
+                null, null, null, null, null, null, null, null, null, null, null, null
         );
         Pageable pageable = Pageable.ofSize(10);
         Page<Product> emptyPage = new PageImpl<>(List.of());
@@ -405,15 +406,16 @@ class AdminProductServiceTest {
         // Given
         ProductFilterRequest filter = new ProductFilterRequest(
                 "Test",
-                ProductCategory.TOPS,
-                ProductSubcategory.T_SHIRTS,
-                Gender.UNISEX,
+                Set.of(ProductCategory.TOPS),
+                Set.of(ProductSubcategory.T_SHIRTS),
+                Set.of(Gender.UNISEX),
                 new BigDecimal("50"),
                 new BigDecimal("150"),
                 null,
                 null,
                 true,
                 null,
+                null,
                 null
         );
         Pageable pageable = Pageable.ofSize(10);
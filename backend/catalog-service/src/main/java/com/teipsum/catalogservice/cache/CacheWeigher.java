@@ -0,0 +1,72 @@
+package com.teipsum.catalogservice.cache;
+
+import com.github.benmanes.caffeine.cache.Weigher;
+import com.teipsum.catalogservice.dto.CatalogProductDTO;
+import com.teipsum.catalogservice.model.CatalogProduct;
+import org.springframework.data.domain.Slice;
+
+import java.util.Collection;
+
+/**
+ * Rough retained-size estimate in bytes, used to bound the local cache tier by
+ * memory rather than by entry count. Product descriptions vary from a few bytes
+ * to a kilobyte, so a count bound would be either wasteful or unsafe.
+ */
+public final class CacheWeigher implements Weigher<Object, Object> {
+
+    private static final int ENTRY_OVERHEAD = 64;
+    private static final int OBJECT_OVERHEAD = 16;
+    private static final int REFERENCE = 8;
+    private static final int UNKNOWN = 256;
+
+    @Override
+    public int weigh(Object key, Object value) {
+        long estimate = ENTRY_OVERHEAD + estimate(key) + estimate(value);
+        return (int) Math.min(Integer.MAX_VALUE, estimate);
+    }
+
+    static long estimate(Object value) {
+        if (value == null) {
+            return 0;
+        }
+        if (value instanceof String string) {
+            return 40 + 2L * string.length();
+        }
+        if (value instanceof byte[] bytes) {
+            return OBJECT_OVERHEAD + bytes.length;
+        }
+        if (value instanceof Number || value instanceof Boolean || value instanceof Enum<?>) {
+            return 24;
+        }
+        if (value instanceof Collection<?> collection) {
+            long size = OBJECT_OVERHEAD + (long) REFERENCE * collection.size();
+            for (Object element : collection) {
+                size += estimate(element);
+            }
+            return size;
+        }
+        if (value instanceof CatalogProductDTO product) {
+            return OBJECT_OVERHEAD + 11L * REFERENCE
+                    + estimate(product.getId())
+                    + estimate(product.getTitle())
+                    + estimate(product.getDescription())
+                    + estimate(product.getPrice())
+                    + estimate(product.getDiscount())
+                    + estimate(product.getImageUrls())
+                    + estimate(product.getSizes());
+        }
+        if (value instanceof CatalogProduct product) {
+            // Id, prices, discount and timestamps count as fixed-size values
+            return OBJECT_OVERHEAD + 15L * REFERENCE
+                    + estimate(product.getTitle())
+                    + estimate(product.getDescription())
+                    + estimate(product.getImageUrls())
+                    + estimate(product.getSizes())
+                    + 5L * 24;
+        }
+        if (value instanceof Slice<?> slice) {
+            return 4L * OBJECT_OVERHEAD + estimate(slice.getContent());
+        }
+        return UNKNOWN;
+    }
+}
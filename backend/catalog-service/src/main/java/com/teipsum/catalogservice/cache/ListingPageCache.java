@@ -0,0 +1,196 @@
+package com.teipsum.catalogservice.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.teipsum.catalogservice.dto.CountMode;
+import com.teipsum.catalogservice.event.CatalogProductChangedEvent;
+import com.teipsum.catalogservice.index.CatalogIndex;
+import com.teipsum.catalogservice.model.CatalogProduct;
+import com.teipsum.catalogservice.util.FilterSignature;
+import com.teipsum.catalogservice.util.ListingSort;
+import com.teipsum.shared.product.dto.ProductFilterRequest;
+import com.teipsum.shared.product.enums.ProductCategory;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.Sort;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.util.unit.DataSize;
+
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Whole listing pages, keyed by filter signature, sort, position and count mode and
+ * bounded by memory. Every page is tagged with the categories its filter selects; a
+ * product change evicts only the pages of the product's previous and new category, and
+ * the pages that are not filtered by category. The previous category is read from the
+ * catalog index before it applies the change, and the same pages are evicted again once
+ * it has, since a page read from the index in between still shows the product as it was.
+ * While the index is not ready a change clears every page.
+ * Estimated totals are owned by ListingCountEstimator and are not cached here.
+ */
+@Component
+public class ListingPageCache implements MeterBinder {
+
+    private static final Logger logger = LogManager.getLogger(ListingPageCache.class);
+
+    private final CatalogIndex catalogIndex;
+    private final boolean enabled;
+    private final Cache<PageKey, Slice<CatalogProduct>> pages;
+
+    // Bumped before every eviction; a page loaded under an older generation may predate the change
+    private final AtomicLong generation = new AtomicLong();
+    private final LongAdder invalidated = new LongAdder();
+    // Categories evicted for a change the index has not applied yet, by product
+    private final Map<UUID, Set<ProductCategory>> applying = new ConcurrentHashMap<>();
+
+    public ListingPageCache(CatalogIndex catalogIndex,
+                            @Value("${catalog.listing.page-cache.enabled:true}") boolean enabled,
+                            @Value("${catalog.listing.page-cache.max-weight:16MB}") DataSize maxWeight) {
+        this.catalogIndex = catalogIndex;
+        this.enabled = enabled;
+        this.pages = Caffeine.newBuilder()
+                .maximumWeight(maxWeight.toBytes())
+                .weigher(new CacheWeigher())
+                .recordStats()
+                .build();
+        if (enabled) {
+            logger.info("Listing page cache bounded to {}", maxWeight);
+        }
+    }
+
+    /** Null categories stand for a page that is not filtered by category, i.e. touches all of them. */
+    record PageKey(ProductFilterRequest signature, Sort sort, long offset, int size, CountMode countMode) {
+
+        boolean touches(Set<ProductCategory> changed) {
+            return signature.category() == null || !Collections.disjoint(signature.category(), changed);
+        }
+    }
+
+    public boolean contains(ProductFilterRequest filter, Pageable pageable, CountMode countMode) {
+        return enabled && pageable.isPaged() && pages.getIfPresent(new PageKey(FilterSignature.of(filter),
+                ListingSort.resolve(filter, pageable), pageable.getOffset(), pageable.getPageSize(), countMode)) != null;
+    }
+
+    /**
+     * The cached page for the request, or the one the loader returns, which is cached
+     * unless a product changed while it was loading.
+     */
+    @SuppressWarnings("unchecked")
+    public <S extends Slice<CatalogProduct>> S get(ProductFilterRequest filter, Pageable pageable,
+                                                  CountMode countMode, Supplier<S> loader) {
+        if (!enabled || pageable.isUnpaged() || countMode == CountMode.ESTIMATE) {
+            return loader.get();
+        }
+        PageKey key = new PageKey(FilterSignature.of(filter), ListingSort.resolve(filter, pageable),
+                pageable.getOffset(), pageable.getPageSize(), countMode);
+        // Pages of one count mode are always of the same type
+        S cached = (S) pages.getIfPresent(key);
+        if (cached != null) {
+            return cached;
+        }
+
+        long loadedAt = generation.get();
+        S loaded = loader.get();
+        pages.put(key, loaded);
+        if (generation.get() != loadedAt) {
+            pages.invalidate(key);
+        }
+        return loaded;
+    }
+
+    /** Runs before CatalogIndex applies the change, so the index still holds the previous category. */
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onProductChanged(CatalogProductChangedEvent event) {
+        if (!enabled) {
+            return;
+        }
+        if (!catalogIndex.isReady()) {
+            clear();
+            return;
+        }
+        Set<ProductCategory> changed = EnumSet.noneOf(ProductCategory.class);
+        catalogIndex.category(event.productId()).ifPresent(changed::add);
+        addNewCategory(event, changed);
+        applying.merge(event.productId(), changed, (pending, added) -> {
+            Set<ProductCategory> merged = EnumSet.copyOf(pending);
+            merged.addAll(added);
+            return merged;
+        });
+        evict(changed);
+    }
+
+    /** Runs after CatalogIndex applied the change and evicts the pages read from it in between. */
+    @Order(CatalogIndex.CHANGE_ORDER + 1)
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onProductChangeApplied(CatalogProductChangedEvent event) {
+        if (!enabled) {
+            return;
+        }
+        Set<ProductCategory> changed = EnumSet.noneOf(ProductCategory.class);
+        // Absent when the index was not ready, or a concurrent change of the product took it
+        Set<ProductCategory> pending = applying.remove(event.productId());
+        if (pending != null) {
+            changed.addAll(pending);
+        }
+        addNewCategory(event, changed);
+        evict(changed);
+    }
+
+    private static void addNewCategory(CatalogProductChangedEvent event, Set<ProductCategory> categories) {
+        if (!event.deleted() && event.product().getCategory() != null) {
+            categories.add(event.product().getCategory());
+        }
+    }
+
+    /** Evicts the pages that may list a product of one of the categories. */
+    public void evict(Set<ProductCategory> categories) {
+        generation.incrementAndGet();
+        pages.asMap().keySet().removeIf(key -> {
+            boolean touched = key.touches(categories);
+            if (touched) {
+                invalidated.increment();
+            }
+            return touched;
+        });
+    }
+
+    /** Drops every page, for when this replica may have missed changes. */
+    public void clear() {
+        generation.incrementAndGet();
+        invalidated.add(pages.estimatedSize());
+        pages.invalidateAll();
+    }
+
+    public long size() {
+        pages.cleanUp();
+        return pages.estimatedSize();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        CaffeineCacheMetrics.monitor(registry, pages, "listings");
+        FunctionCounter.builder("catalog.listing.pages.invalidated", invalidated, LongAdder::sum)
+                .description("Cached listing pages dropped because a product they may list changed")
+                .register(registry);
+    }
+}
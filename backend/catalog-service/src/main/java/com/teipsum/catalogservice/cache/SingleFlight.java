@@ -0,0 +1,102 @@
+package com.teipsum.catalogservice.cache;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Coalesces concurrent loads of the same key: the first caller runs the loader and
+ * callers arriving while it runs share its result, or its exception. Waiting is
+ * bounded per call; a waiter that times out stops waiting and loads on its own.
+ */
+public class SingleFlight<K, V> implements MeterBinder {
+
+    private final String name;
+    private final ConcurrentMap<K, CompletableFuture<V>> flights = new ConcurrentHashMap<>();
+    private final LongAdder leaders = new LongAdder();
+    private final LongAdder coalesced = new LongAdder();
+    private final LongAdder timeouts = new LongAdder();
+
+    public SingleFlight(String name) {
+        this.name = name;
+    }
+
+    public V load(K key, Duration timeout, Supplier<V> loader) {
+        CompletableFuture<V> flight = new CompletableFuture<>();
+        CompletableFuture<V> inFlight = flights.putIfAbsent(key, flight);
+        if (inFlight == null) {
+            leaders.increment();
+            try {
+                V value = loader.get();
+                flight.complete(value);
+                return value;
+            } catch (RuntimeException | Error e) {
+                flight.completeExceptionally(e);
+                throw e;
+            } finally {
+                flights.remove(key, flight);
+            }
+        }
+
+        coalesced.increment();
+        try {
+            return inFlight.get(timeout.toNanos(), TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            timeouts.increment();
+            return loader.get();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            if (e.getCause() instanceof Error cause) {
+                throw cause;
+            }
+            throw new IllegalStateException(e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for the " + name + " load of " + key, e);
+        }
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        counter(registry, "leader", leaders);
+        counter(registry, "coalesced", coalesced);
+        counter(registry, "timeout", timeouts);
+        Gauge.builder("catalog.coalescing.in-flight", flights, ConcurrentMap::size)
+                .tag("loader", name)
+                .description("Loads currently running")
+                .register(registry);
+    }
+
+    long leaderCount() {
+        return leaders.sum();
+    }
+
+    long coalescedCount() {
+        return coalesced.sum();
+    }
+
+    long timeoutCount() {
+        return timeouts.sum();
+    }
+
+    private void counter(MeterRegistry registry, String result, LongAdder count) {
+        FunctionCounter.builder("catalog.coalescing.calls", count, LongAdder::sum)
+                .tag("loader", name)
+                .tag("result", result)
+                .description("Loads run (leader), joined (coalesced) and abandoned after waiting too long (timeout)")
+                .register(registry);
+    }
+}
@@ -0,0 +1,143 @@
+package com.teipsum.catalogservice.cache;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.cache.Cache;
+import org.springframework.cache.support.AbstractValueAdaptingCache;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Cache backed by a bounded in-process Caffeine tier in front of an optional
+ * shared tier (Redis in production). Reads try the local tier first and
+ * promote remote hits into it; writes and evictions go to both tiers.
+ */
+public class TwoTierCache extends AbstractValueAdaptingCache implements MeterBinder {
+
+    private final String name;
+    private final com.github.benmanes.caffeine.cache.Cache<Object, Object> local;
+    private final Cache remote;
+
+    private final LongAdder remoteHits = new LongAdder();
+    private final LongAdder remoteMisses = new LongAdder();
+
+    public TwoTierCache(String name, com.github.benmanes.caffeine.cache.Cache<Object, Object> local, Cache remote) {
+        super(false);
+        this.name = name;
+        this.local = local;
+        this.remote = remote;
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public Object getNativeCache() {
+        return local;
+    }
+
+    @Override
+    protected Object lookup(Object key) {
+        Object value = local.getIfPresent(key);
+        if (value != null || remote == null) {
+            return value;
+        }
+
+        ValueWrapper wrapper = remote.get(key);
+        if (wrapper == null || wrapper.get() == null) {
+            remoteMisses.increment();
+            return null;
+        }
+        remoteHits.increment();
+        local.put(key, wrapper.get());
+        return wrapper.get();
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T get(Object key, Callable<T> valueLoader) {
+        Object cached = lookup(key);
+        if (cached != null) {
+            return (T) cached;
+        }
+
+        return (T) local.get(key, k -> {
+            try {
+                T loaded = valueLoader.call();
+                if (loaded != null && remote != null) {
+                    remote.put(key, loaded);
+                }
+                return loaded;
+            } catch (Exception e) {
+                throw new ValueRetrievalException(key, valueLoader, e);
+            }
+        });
+    }
+
+    @Override
+    public void put(Object key, Object value) {
+        if (value == null) {
+            evict(key);
+            return;
+        }
+        local.put(key, value);
+        if (remote != null) {
+            remote.put(key, value);
+        }
+    }
+
+    @Override
+    public void evict(Object key) {
+        local.invalidate(key);
+        if (remote != null) {
+            remote.evict(key);
+        }
+    }
+
+    /**
+     * Drops the entry from this replica only, leaving the shared tier untouched.
+     */
+    public void evictLocal(Object key) {
+        local.invalidate(key);
+    }
+
+    public void clearLocal() {
+        local.invalidateAll();
+    }
+
+    @Override
+    public void clear() {
+        local.invalidateAll();
+        if (remote != null) {
+            remote.clear();
+        }
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        CaffeineCacheMetrics.monitor(registry, local, name, "tier", "local");
+        FunctionCounter.builder("cache.remote.gets", remoteHits, LongAdder::sum)
+                .tag("cache", name)
+                .tag("result", "hit")
+                .description("Lookups answered by the shared cache tier")
+                .register(registry);
+        FunctionCounter.builder("cache.remote.gets", remoteMisses, LongAdder::sum)
+                .tag("cache", name)
+                .tag("result", "miss")
+                .description("Lookups missed by both cache tiers")
+                .register(registry);
+    }
+
+    long remoteHitCount() {
+        return remoteHits.sum();
+    }
+
+    long remoteMissCount() {
+        return remoteMisses.sum();
+    }
+}
@@ -0,0 +1,77 @@
+package com.teipsum.catalogservice.cache;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.transaction.AbstractTransactionSupportingCacheManager;
+import org.springframework.cache.transaction.TransactionAwareCacheDecorator;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Creates a {@link TwoTierCache} per cache name on first use. Cache operations
+ * issued inside a transaction are deferred until it commits, so an eviction
+ * can never be undone by a reader that sees the pre-commit row.
+ */
+public class TwoTierCacheManager extends AbstractTransactionSupportingCacheManager {
+
+    private final Caffeine<Object, Object> localSpec;
+    private final CacheManager remoteCacheManager;
+    private final MeterRegistry meterRegistry;
+
+    public TwoTierCacheManager(Caffeine<Object, Object> localSpec,
+                               CacheManager remoteCacheManager,
+                               MeterRegistry meterRegistry) {
+        this.localSpec = localSpec;
+        this.remoteCacheManager = remoteCacheManager;
+        this.meterRegistry = meterRegistry;
+        setTransactionAware(true);
+    }
+
+    @Override
+    protected Collection<? extends Cache> loadCaches() {
+        return List.of();
+    }
+
+    @Override
+    protected Cache getMissingCache(String name) {
+        Cache remote = remoteCacheManager == null ? null : remoteCacheManager.getCache(name);
+        TwoTierCache cache = new TwoTierCache(name, localSpec.build(), remote);
+        if (meterRegistry != null) {
+            cache.bindTo(meterRegistry);
+        }
+        return cache;
+    }
+
+    /**
+     * Drops an entry from this replica's local tier right away, bypassing the
+     * transaction-aware decorator. Used when another replica changed the entry.
+     */
+    public void evictLocal(String name, Object key) {
+        TwoTierCache cache = twoTierCache(name);
+        if (cache != null) {
+            cache.evictLocal(key);
+        }
+    }
+
+    public void clearLocal(String name) {
+        TwoTierCache cache = twoTierCache(name);
+        if (cache != null) {
+            cache.clearLocal();
+        }
+    }
+
+    public void clearLocal() {
+        getCacheNames().forEach(this::clearLocal);
+    }
+
+    private TwoTierCache twoTierCache(String name) {
+        Cache cache = getCache(name);
+        if (cache instanceof TransactionAwareCacheDecorator decorator) {
+            cache = decorator.getTargetCache();
+        }
+        return cache instanceof TwoTierCache twoTier ? twoTier : null;
+    }
+}
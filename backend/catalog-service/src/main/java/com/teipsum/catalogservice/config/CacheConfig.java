@@ -0,0 +1,79 @@
+package com.teipsum.catalogservice.config;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.teipsum.catalogservice.cache.CacheWeigher;
+import com.teipsum.catalogservice.cache.TwoTierCacheManager;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.redis.cache.BatchStrategies;
+import org.springframework.data.redis.cache.RedisCacheConfiguration;
+import org.springframework.data.redis.cache.RedisCacheManager;
+import org.springframework.data.redis.cache.RedisCacheWriter;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+
+@Configuration
+@EnableCaching
+public class CacheConfig {
+
+    private static final Logger logger = LogManager.getLogger(CacheConfig.class);
+
+    @Bean
+    public TwoTierCacheManager cacheManager(
+            @Value("${catalog.cache.local.max-weight:64MB}") DataSize localMaxWeight,
+            @Value("${catalog.cache.local.expire-after-write:10m}") Duration localTtl,
+            @Value("${catalog.cache.remote.type:none}") String remoteType,
+            @Value("${catalog.cache.remote.time-to-live:10m}") Duration remoteTtl,
+            ObjectProvider<RedisConnectionFactory> redisConnectionFactory,
+            ObjectProvider<MeterRegistry> meterRegistry) {
+
+        Caffeine<Object, Object> localSpec = Caffeine.newBuilder()
+                .maximumWeight(localMaxWeight.toBytes())
+                .weigher(new CacheWeigher())
+                .expireAfterWrite(localTtl)
+                .recordStats();
+
+        CacheManager remote = switch (remoteType) {
+            case "redis" -> redisCacheManager(redisConnectionFactory.getObject(), remoteTtl);
+            case "in-memory" -> inMemoryCacheManager();
+            case "none" -> null;
+            default -> throw new IllegalStateException("Unknown catalog.cache.remote.type: " + remoteType);
+        };
+        logger.info("Product cache: local tier bounded to {}, shared tier: {}", localMaxWeight, remoteType);
+
+        return new TwoTierCacheManager(localSpec, remote, meterRegistry.getIfAvailable());
+    }
+
+    private CacheManager redisCacheManager(RedisConnectionFactory connectionFactory, Duration ttl) {
+        // Whole-cache clears (facets) use SCAN instead of the default blocking KEYS
+        RedisCacheWriter writer = RedisCacheWriter.nonLockingRedisCacheWriter(connectionFactory, BatchStrategies.scan(1000));
+        RedisCacheManager manager = RedisCacheManager.builder(writer)
+                .cacheDefaults(RedisCacheConfiguration.defaultCacheConfig()
+                        .entryTtl(ttl)
+                        .prefixCacheNameWith("catalog:"))
+                .build();
+        manager.afterPropertiesSet();
+        return manager;
+    }
+
+    /**
+     * Stand-in for the shared tier when Redis is not available (tests, local runs).
+     * Values are stored serialized, so the same Serializable contract as Redis applies.
+     */
+    private CacheManager inMemoryCacheManager() {
+        ConcurrentMapCacheManager manager = new ConcurrentMapCacheManager();
+        manager.setBeanClassLoader(getClass().getClassLoader());
+        manager.setStoreByValue(true);
+        return manager;
+    }
+}
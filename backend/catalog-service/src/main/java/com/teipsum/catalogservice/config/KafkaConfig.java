@@ -1,8 +1,14 @@
 package com.teipsum.catalogservice.config;
 
+import com.teipsum.catalogservice.event.ProductEventCatchUp;
+import com.teipsum.catalogservice.exception.InvalidProductDataException;
+import org.apache.kafka.clients.admin.NewTopic;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.kafka.config.ConcurrentKafkaListenerContainerFactory;
+import org.springframework.kafka.config.TopicBuilder;
 import org.springframework.kafka.core.ConsumerFactory;
 import org.springframework.kafka.core.KafkaTemplate;
 import org.springframework.kafka.listener.CommonErrorHandler;
@@ -10,6 +16,8 @@ import org.springframework.kafka.listener.DeadLetterPublishingRecoverer;
 import org.springframework.kafka.listener.DefaultErrorHandler;
 import org.springframework.util.backoff.FixedBackOff;
 
+import java.time.Duration;
+
 @Configuration
 public class KafkaConfig {
 
@@ -18,7 +26,7 @@ public class KafkaConfig {
         DeadLetterPublishingRecoverer recoverer = new DeadLetterPublishingRecoverer(template);
         FixedBackOff backOff = new FixedBackOff(1000L, 2L);
         DefaultErrorHandler errorHandler = new DefaultErrorHandler(recoverer, backOff);
-        errorHandler.addNotRetryableExceptions(IllegalArgumentException.class);
+        errorHandler.addNotRetryableExceptions(IllegalArgumentException.class, InvalidProductDataException.class);
 
         return errorHandler;
     }
@@ -35,4 +43,51 @@ public class KafkaConfig {
 
         return factory;
     }
-}
\ No newline at end of file
+
+    /**
+     * Batch variant used by the product event listener. The shared error handler
+     * understands BatchListenerFailedException, so only the failed record is retried
+     * and dead-lettered while the records before it are committed. Partitions are
+     * positioned at the offsets stored with the catalog when first assigned.
+     */
+    @Bean
+    public ConcurrentKafkaListenerContainerFactory<String, Object> batchKafkaListenerContainerFactory(
+            ConsumerFactory<String, Object> consumerFactory,
+            CommonErrorHandler errorHandler,
+            ProductEventCatchUp catchUp,
+            @Value("${catalog.events.idle-interval:10s}") Duration idleInterval) {
+
+        ConcurrentKafkaListenerContainerFactory<String, Object> factory =
+                new ConcurrentKafkaListenerContainerFactory<>();
+        factory.setConsumerFactory(consumerFactory);
+        factory.setCommonErrorHandler(errorHandler);
+        factory.setBatchListener(true);
+        factory.getContainerProperties().setConsumerRebalanceListener(catchUp);
+        factory.getContainerProperties().setIdleEventInterval(idleInterval.toMillis());
+
+        return factory;
+    }
+
+    /**
+     * Batch variant for the invalidation broadcast. Nothing is retried or dead-lettered:
+     * the listener handles its own failures by no longer trusting local state.
+     */
+    @Bean
+    public ConcurrentKafkaListenerContainerFactory<String, Object> invalidationKafkaListenerContainerFactory(
+            ConsumerFactory<String, Object> consumerFactory) {
+
+        ConcurrentKafkaListenerContainerFactory<String, Object> factory =
+                new ConcurrentKafkaListenerContainerFactory<>();
+        factory.setConsumerFactory(consumerFactory);
+        factory.setBatchListener(true);
+
+        return factory;
+    }
+
+    /** A single partition, the invalidation bus relies on all broadcasts being totally ordered. */
+    @Bean
+    @ConditionalOnProperty("catalog.invalidation.enabled")
+    public NewTopic catalogInvalidationTopic(@Value("${catalog.invalidation.topic:catalog-invalidations}") String topic) {
+        return TopicBuilder.name(topic).partitions(1).build();
+    }
+}
@@ -0,0 +1,47 @@
+package com.teipsum.catalogservice.config;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.persistence.EntityManagerFactory;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+/**
+ * Adds the weighted tsvector column and its GIN index used by full-text search.
+ * Runs after Hibernate has created the schema (hence the EntityManagerFactory
+ * dependency) and is idempotent, so it is safe on every start.
+ */
+@Component
+@ConditionalOnProperty(name = "catalog.search.full-text", havingValue = "true")
+public class SearchSchemaInitializer {
+
+    private static final Logger logger = LogManager.getLogger(SearchSchemaInitializer.class);
+
+    private static final String ADD_SEARCH_VECTOR = """
+            ALTER TABLE catalog_products ADD COLUMN IF NOT EXISTS search_vector tsvector
+                GENERATED ALWAYS AS (
+                    setweight(to_tsvector('simple', coalesce(title, '')), 'A') ||
+                    setweight(to_tsvector('simple', coalesce(description, '')), 'B')
+                ) STORED
+            """;
+
+    private static final String CREATE_SEARCH_INDEX = """
+            CREATE INDEX IF NOT EXISTS idx_catalog_products_search_vector
+                ON catalog_products USING GIN (search_vector)
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public SearchSchemaInitializer(JdbcTemplate jdbcTemplate, EntityManagerFactory entityManagerFactory) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @PostConstruct
+    public void createSearchColumn() {
+        jdbcTemplate.execute(ADD_SEARCH_VECTOR);
+        jdbcTemplate.execute(CREATE_SEARCH_INDEX);
+        logger.info("Full-text search column and index are in place");
+    }
+}
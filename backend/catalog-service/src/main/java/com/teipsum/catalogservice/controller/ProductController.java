@@ -1,24 +1,54 @@
 package com.teipsum.catalogservice.controller;
 
 import com.teipsum.catalogservice.dto.CatalogProductDTO;
+import com.teipsum.catalogservice.dto.CountMode;
+import com.teipsum.catalogservice.dto.CursorPage;
+import com.teipsum.catalogservice.dto.ProductBatchEntry;
+import com.teipsum.catalogservice.dto.ProductFacets;
+import com.teipsum.catalogservice.dto.ProductSuggestion;
+import com.teipsum.catalogservice.exception.InvalidBatchRequestException;
+import com.teipsum.catalogservice.exception.InvalidPagingException;
+import com.teipsum.catalogservice.hot.HotEntries;
 import com.teipsum.catalogservice.model.CatalogProduct;
+import com.teipsum.catalogservice.service.CatalogExportService;
 import com.teipsum.catalogservice.service.CatalogService;
+import com.teipsum.catalogservice.similar.SimilarProducts;
+import com.teipsum.catalogservice.suggest.ProductSuggestions;
 import com.teipsum.catalogservice.util.ProductDtoConverter;
+import com.teipsum.catalogservice.version.CatalogVersions;
 import com.teipsum.shared.product.dto.ProductFilterRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import lombok.RequiredArgsConstructor;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.web.PageableDefault;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.context.request.async.WebAsyncTask;
+import org.springframework.web.server.ResponseStatusException;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.media.Content;
 import io.swagger.v3.oas.annotations.media.Schema;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
 
 @RestController
 @RequestMapping("/api/products")
@@ -28,11 +58,29 @@ public class ProductController {
     private final CatalogService catalogService;
     private static final Logger logger = LogManager.getLogger(ProductController.class);
     private final ProductDtoConverter dtoConverter;
+    private final CatalogVersions catalogVersions;
+    private final CatalogExportService exportService;
+    private final SimilarProducts similarProducts;
+    private final HotEntries hotEntries;
+    private final ProductSuggestions productSuggestions;
+
+    @Value("${catalog.listing.max-offset-pages:50}")
+    private int maxOffsetPages;
+
+    @Value("${catalog.batch.max-ids:50}")
+    private int maxBatchIds;
+
+    // A full export outlives the default async request timeout, so it carries its own
+    @Value("${catalog.export.timeout:30m}")
+    private Duration exportTimeout;
 
     @GetMapping
     @Operation(
             summary = "Get all products",
-            description = "Retrieves a list of products with optional filtering",
+            description = "Retrieves a list of products with optional filtering. count=exact (default) returns "
+                    + "an exact total, count=estimate a cached approximate total that is recounted in the "
+                    + "background after product changes and may lag them, count=none no total at all. "
+                    + "Exact and uncounted listings carry an ETag and honour If-None-Match",
             responses = {
                     @ApiResponse(
                             responseCode = "200",
@@ -41,27 +89,250 @@ public class ProductController {
                                     mediaType = "application/json",
                                     schema = @Schema(implementation = Page.class)
                             )
-                    )
+                    ),
+                    @ApiResponse(responseCode = "304", description = "Catalog unchanged since the given ETag")
             }
     )
-    public ResponseEntity<Page<CatalogProductDTO>> getFilteredProducts(
+    public ResponseEntity<byte[]> getFilteredProducts(
             ProductFilterRequest filter,
-            @PageableDefault(size = 10) Pageable pageable
+            @RequestParam(name = "count", required = false) String count,
+            @PageableDefault(size = 10) Pageable pageable,
+            WebRequest request
     ) {
         logger.debug("Fetching filtered products with: {}", filter);
+        if (maxOffsetPages > 0 && pageable.getPageNumber() >= maxOffsetPages) {
+            throw new InvalidPagingException(
+                    "Offset paging is limited to the first " + maxOffsetPages + " pages, use cursor paging");
+        }
+        CountMode countMode = CountMode.from(count);
+        long readVersion = catalogVersions.globalVersion();
+        // Estimated totals are refreshed in the background, independently of the catalog version
+        if (countMode != CountMode.ESTIMATE && request.checkNotModified(catalogVersions.listingETag())) {
+            return null;
+        }
         try {
-            Page<CatalogProduct> products = catalogService.getFilteredProducts(filter, pageable);
-            logger.trace("Found {} matching products", products.getTotalElements());
+            Slice<CatalogProduct> products = countMode == CountMode.EXACT
+                    ? catalogService.getFilteredProducts(filter, pageable)
+                    : catalogService.getFilteredSlice(filter, pageable, countMode);
+            logger.trace("Found {} products on page {}", products.getNumberOfElements(), products.getNumber());
+            // Only served requests count as demand, so failing or unmodified ones cannot skew the hot lists
+            hotEntries.listingRequested(filter);
 
-            Page<CatalogProductDTO> dtoPage = products.map(dtoConverter::convertToDto);
-
-            return ResponseEntity.ok(dtoPage);
+            return json(dtoConverter.toJson(products, readVersion));
         } catch (Exception e) {
             logger.error("Failed to fetch filtered products: {}", e.getMessage());
             throw e;
         }
     }
 
+    @GetMapping(params = "cursor")
+    @Operation(
+            summary = "Get products by cursor",
+            description = "Keyset-paginated listing. Pass an empty cursor for the first page, then the returned "
+                    + "nextCursor. Supports a single sort on price, effectivePrice, discount or title",
+            responses = {
+                    @ApiResponse(
+                            responseCode = "200",
+                            description = "Products found",
+                            content = @Content(
+                                    mediaType = "application/json",
+                                    schema = @Schema(implementation = CursorPage.class)
+                            )
+                    ),
+                    @ApiResponse(
+                            responseCode = "400",
+                            description = "Malformed cursor or unsupported sort",
+                            content = @Content(
+                                    mediaType = "application/json",
+                                    schema = @Schema(implementation = Map.class)
+                            )
+                    ),
+                    @ApiResponse(responseCode = "304", description = "Catalog unchanged since the given ETag")
+            }
+    )
+    public ResponseEntity<byte[]> getProductsByCursor(
+            ProductFilterRequest filter,
+            @RequestParam String cursor,
+            @PageableDefault(size = 10) Pageable pageable,
+            WebRequest request
+    ) {
+        logger.debug("Fetching products after cursor with: {}", filter);
+        long readVersion = catalogVersions.globalVersion();
+        if (request.checkNotModified(catalogVersions.listingETag())) {
+            return null;
+        }
+        CursorPage<CatalogProduct> products = catalogService.getProductsAfter(filter, cursor, pageable);
+        hotEntries.listingRequested(filter);
+        return json(dtoConverter.toJson(products, readVersion));
+    }
+
+    @GetMapping("/facets")
+    @Operation(
+            summary = "Get facet counts",
+            description = "Counts per category, subcategory, gender, availability and effective price bucket for the "
+                    + "given filters. Each facet ignores its own filter, so alternatives can be shown with counts",
+            responses = {
+                    @ApiResponse(
+                            responseCode = "200",
+                            description = "Facet counts",
+                            content = @Content(
+                                    mediaType = "application/json",
+                                    schema = @Schema(implementation = ProductFacets.class)
+                            )
+                    )
+            }
+    )
+    public ProductFacets getFacets(ProductFilterRequest filter) {
+        logger.debug("Fetching facets with: {}", filter);
+        ProductFacets facets = catalogService.getFacets(filter);
+        hotEntries.listingRequested(filter);
+        return facets;
+    }
+
+    @GetMapping("/suggest")
+    @Operation(
+            summary = "Suggest completions",
+            description = "Search-as-you-type completions: product titles and subcategory names with a word starting "
+                    + "with q, most popular first. Served from an in-memory prefix index",
+            responses = {
+                    @ApiResponse(
+                            responseCode = "200",
+                            description = "Completions, possibly none",
+                            content = @Content(
+                                    mediaType = "application/json",
+                                    schema = @Schema(implementation = ProductSuggestion.class)
+                            )
+                    )
+            }
+    )
+    public List<ProductSuggestion> suggest(@RequestParam String q, @RequestParam(defaultValue = "10") int limit) {
+        logger.trace("Suggesting up to {} completions for: {}", limit, q);
+        return productSuggestions.suggest(q, limit);
+    }
+
+    @GetMapping("/batch")
+    @Operation(
+            summary = "Get products by IDs",
+            description = "Looks up several products at once, e.g. for cart and wishlist pages. Returns one entry "
+                    + "per requested ID in request order; unknown or malformed IDs have found = false",
+            responses = {
+                    @ApiResponse(
+                            responseCode = "200",
+                            description = "Lookup result per ID",
+                            content = @Content(
+                                    mediaType = "application/json",
+                                    schema = @Schema(implementation = ProductBatchEntry.class)
+                            )
+                    ),
+                    @ApiResponse(
+                            responseCode = "400",
+                            description = "No IDs or more than allowed",
+                            content = @Content(
+                                    mediaType = "application/json",
+                                    schema = @Schema(implementation = Map.class)
+                            )
+                    )
+            }
+    )
+    public ResponseEntity<byte[]> getProductsByIds(@RequestParam List<String> ids) {
+        logger.debug("Fetching {} products by ID", ids.size());
+        if (ids.isEmpty() || ids.size() > maxBatchIds) {
+            throw new InvalidBatchRequestException("Between 1 and " + maxBatchIds + " product IDs can be requested at once");
+        }
+        Set<UUID> uuids = new LinkedHashSet<>();
+        for (String id : ids) {
+            UUID uuid = parseId(id);
+            if (uuid != null) {
+                uuids.add(uuid);
+            }
+        }
+        Map<UUID, byte[]> serialized = serialize(uuids);
+        serialized.keySet().forEach(hotEntries::productRequested);
+
+        List<ProductBatchEntry<byte[]>> entries = new ArrayList<>(ids.size());
+        for (String id : ids) {
+            UUID uuid = parseId(id);
+            byte[] product = uuid == null ? null : serialized.get(uuid);
+            entries.add(product == null ? ProductBatchEntry.missing(id) : ProductBatchEntry.found(id, product));
+        }
+        return json(dtoConverter.toBatchJson(entries));
+    }
+
+    @GetMapping("/{id}/similar")
+    @Operation(
+            summary = "Get similar products",
+            description = "Available products most similar to the given one by subcategory, gender, price after "
+                    + "discount and shared sizes, best first. Served from precomputed neighbour lists",
+            responses = {
+                    @ApiResponse(
+                            responseCode = "200",
+                            description = "Similar products, possibly none",
+                            content = @Content(
+                                    mediaType = "application/json",
+                                    schema = @Schema(implementation = CatalogProductDTO.class)
+                            )
+                    ),
+                    @ApiResponse(
+                            responseCode = "404",
+                            description = "Product not found",
+                            content = @Content(
+                                    mediaType = "application/json",
+                                    schema = @Schema(implementation = Map.class)
+                            )
+                    )
+            }
+    )
+    public ResponseEntity<byte[]> getSimilarProducts(@PathVariable String id,
+                                                     @RequestParam(defaultValue = "8") int limit) {
+        logger.debug("Fetching up to {} products similar to {}", limit, id);
+        UUID uuid = parseId(id);
+        List<UUID> similar = uuid == null ? null : similarProducts.similar(uuid, limit).orElse(null);
+        if (similar == null) {
+            // Answered here, the service maps no exception handler for ProductNotFoundException
+            return ResponseEntity.notFound().build();
+        }
+
+        Map<UUID, byte[]> serialized = serialize(similar);
+        List<byte[]> products = new ArrayList<>(similar.size());
+        for (UUID neighbour : similar) {
+            byte[] product = serialized.get(neighbour);
+            if (product != null) {
+                products.add(product);
+            }
+        }
+        return json(dtoConverter.toJsonArray(products));
+    }
+
+    @GetMapping("/export")
+    @Operation(
+            summary = "Export products",
+            description = "Streams all products as NDJSON, one product with its updatedAt per line, ordered by "
+                    + "updatedAt and ID. With updatedSince only products updated at or after that instant are "
+                    + "exported; pass the highest updatedAt seen minus a small overlap for incremental feeds",
+            responses = {
+                    @ApiResponse(
+                            responseCode = "200",
+                            description = "Products, one JSON object per line",
+                            content = @Content(
+                                    mediaType = "application/x-ndjson",
+                                    schema = @Schema(implementation = CatalogProductDTO.class)
+                            )
+                    )
+            }
+    )
+    public WebAsyncTask<Void> exportProducts(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant updatedSince,
+            HttpServletResponse response
+    ) {
+        logger.debug("Exporting products updated since {}", updatedSince);
+        response.setContentType(MediaType.APPLICATION_NDJSON_VALUE);
+        return new WebAsyncTask<>(exportTimeout.toMillis(), () -> {
+            exportService.export(updatedSince, response.getOutputStream());
+            response.flushBuffer();
+            return null;
+        });
+    }
+
     @GetMapping("/{id}")
     @Operation(
         summary = "Get product by ID",
@@ -82,11 +353,60 @@ public class ProductController {
                     mediaType = "application/json",
                     schema = @Schema(implementation = Map.class)
                 )
-            )
+            ),
+            @ApiResponse(responseCode = "304", description = "Product unchanged since the given ETag"),
+            @ApiResponse(responseCode = "400", description = "Malformed product ID")
         }
     )
-    public CatalogProductDTO getProduct(@PathVariable String id) {
+    public ResponseEntity<byte[]> getProduct(@PathVariable String id, WebRequest request) {
         logger.debug("Fetching product with ID: {}", id);
-        return dtoConverter.convertToDto(catalogService.getProductById(id));
+        UUID uuid = parseId(id);
+        if (uuid == null) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid product ID: " + id);
+        }
+        // Versions are taken before reading, so a change racing this request only makes them older
+        long readVersion = catalogVersions.globalVersion();
+        String etag = catalogVersions.productETag(id);
+        if (etag != null && request.checkNotModified(etag)) {
+            return null;
+        }
+        byte[] cached = dtoConverter.cachedJson(id);
+        byte[] product = cached != null
+                ? cached
+                : dtoConverter.toJson(catalogService.getProductView(id), readVersion);
+        hotEntries.productRequested(uuid);
+        return json(product);
+    }
+
+    /** Serialized products by id, from the JSON cache where possible and one lookup for the rest. */
+    private Map<UUID, byte[]> serialize(Collection<UUID> ids) {
+        long readVersion = catalogVersions.globalVersion();
+        Map<UUID, byte[]> serialized = new HashMap<>();
+        Set<UUID> misses = new LinkedHashSet<>();
+        for (UUID id : ids) {
+            byte[] cached = dtoConverter.cachedJson(id);
+            if (cached != null) {
+                serialized.put(id, cached);
+            } else {
+                misses.add(id);
+            }
+        }
+        if (!misses.isEmpty()) {
+            catalogService.getProductViews(misses)
+                    .forEach((id, product) -> serialized.put(id, dtoConverter.toJson(product, readVersion)));
+        }
+        return serialized;
+    }
+
+    private static UUID parseId(String id) {
+        try {
+            return UUID.fromString(id.trim());
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    private static ResponseEntity<byte[]> json(byte[] body) {
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(body);
     }
 }
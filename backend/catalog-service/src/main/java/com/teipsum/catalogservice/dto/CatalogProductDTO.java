@@ -3,6 +3,7 @@ package com.teipsum.catalogservice.dto;
 import com.teipsum.shared.product.enums.*;
 import lombok.*;
 
+import java.io.Serializable;
 import java.math.BigDecimal;
 import java.util.List;
 
@@ -11,7 +12,7 @@ import java.util.List;
 @NoArgsConstructor
 @AllArgsConstructor
 @Builder
-public class CatalogProductDTO {
+public class CatalogProductDTO implements Serializable {
     private String id;
     private String title;
     private String description;
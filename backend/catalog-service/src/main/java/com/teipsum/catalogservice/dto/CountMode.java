@@ -0,0 +1,26 @@
+package com.teipsum.catalogservice.dto;
+
+import com.teipsum.catalogservice.exception.InvalidPagingException;
+
+import java.util.Locale;
+
+/**
+ * How a listing reports its total: an exact count, a cached estimate,
+ * or no total at all (the response only says whether a next page exists).
+ */
+public enum CountMode {
+    EXACT,
+    ESTIMATE,
+    NONE;
+
+    public static CountMode from(String value) {
+        if (value == null || value.isBlank()) {
+            return EXACT;
+        }
+        try {
+            return valueOf(value.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new InvalidPagingException("Unsupported count mode: " + value);
+        }
+    }
+}
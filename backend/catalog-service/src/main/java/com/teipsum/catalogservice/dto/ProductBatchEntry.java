@@ -0,0 +1,25 @@
+package com.teipsum.catalogservice.dto;
+
+import java.util.function.Function;
+
+/**
+ * One entry of a batch lookup response. Unknown and malformed ids are reported
+ * with found = false and no product instead of being left out.
+ */
+public record ProductBatchEntry<T>(
+        String id,
+        boolean found,
+        T product
+) {
+    public static <T> ProductBatchEntry<T> found(String id, T product) {
+        return new ProductBatchEntry<>(id, true, product);
+    }
+
+    public static <T> ProductBatchEntry<T> missing(String id) {
+        return new ProductBatchEntry<>(id, false, null);
+    }
+
+    public <R> ProductBatchEntry<R> map(Function<? super T, ? extends R> mapper) {
+        return new ProductBatchEntry<>(id, found, found ? mapper.apply(product) : null);
+    }
+}
@@ -0,0 +1,27 @@
+package com.teipsum.catalogservice.dto;
+
+import com.teipsum.shared.product.enums.Gender;
+import com.teipsum.shared.product.enums.ProductCategory;
+import com.teipsum.shared.product.enums.ProductSubcategory;
+
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Facet counts for a filter. Each facet is counted with every other filter applied
+ * but not its own, so the sidebar can show how many products each alternative would return.
+ */
+public record ProductFacets(
+        long total,
+        Map<ProductCategory, Long> categories,
+        Map<ProductSubcategory, Long> subcategories,
+        Map<Gender, Long> genders,
+        Map<Boolean, Long> availability,
+        List<PriceBucket> priceBuckets
+) implements Serializable {
+
+    /** Products whose effective price is in [from, to); to is null for the open-ended top bucket. */
+    public record PriceBucket(BigDecimal from, BigDecimal to, long count) implements Serializable {}
+}
@@ -0,0 +1,19 @@
+package com.teipsum.catalogservice.dto;
+
+import com.teipsum.shared.product.enums.ProductSubcategory;
+
+/**
+ * One search-as-you-type completion: a product title or a subcategory name. Product
+ * completions carry the most requested product with that title.
+ */
+public record ProductSuggestion(
+        String text,
+        Type type,
+        String productId,
+        ProductSubcategory subcategory
+) {
+    public enum Type {
+        PRODUCT,
+        SUBCATEGORY
+    }
+}
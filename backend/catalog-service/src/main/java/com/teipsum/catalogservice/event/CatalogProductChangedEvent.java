@@ -0,0 +1,28 @@
+package com.teipsum.catalogservice.event;
+
+import com.teipsum.catalogservice.model.CatalogProduct;
+
+import java.util.UUID;
+
+/**
+ * Published by CatalogService whenever a catalog row is written or removed.
+ * A null product means the row was deleted. Remote events replay a change
+ * another replica committed and are not broadcast again.
+ */
+public record CatalogProductChangedEvent(
+        UUID productId,
+        CatalogProduct product,
+        boolean remote
+) {
+    public CatalogProductChangedEvent(UUID productId, CatalogProduct product) {
+        this(productId, product, false);
+    }
+
+    public static CatalogProductChangedEvent remote(UUID productId, CatalogProduct product) {
+        return new CatalogProductChangedEvent(productId, product, true);
+    }
+
+    public boolean deleted() {
+        return product == null;
+    }
+}
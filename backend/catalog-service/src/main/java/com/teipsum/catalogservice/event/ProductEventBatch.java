@@ -0,0 +1,188 @@
+package com.teipsum.catalogservice.event;
+
+import com.teipsum.catalogservice.model.CatalogProduct;
+import com.teipsum.catalogservice.util.ProductEventMapper;
+import com.teipsum.shared.exceptions.ProductNotFoundException;
+import com.teipsum.shared.product.event.ProductCreatedEvent;
+import com.teipsum.shared.product.event.ProductDeletedEvent;
+import com.teipsum.shared.product.event.ProductUpdatedEvent;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Product events of one Kafka poll. A poll is grouped by partition, so record order
+ * only says which event came first within one topic-partition; the events of a product
+ * on the three topics are merged by record timestamp instead. Parsing stops at the first
+ * record that cannot be applied (undeserializable, invalid, or an update of a product
+ * deleted before it in the batch); the records before it remain usable.
+ */
+public class ProductEventBatch {
+
+    /**
+     * Final state of one product after a run of records. A null product means deleted.
+     * mustExist is set when the run starts with an update, so the row has to be in the
+     * database already; firstIndex is the record that requires it.
+     */
+    public record Change(UUID id, CatalogProduct product, boolean mustExist, int firstIndex) {
+        public boolean deleted() {
+            return product == null;
+        }
+    }
+
+    private enum Kind { CREATE, UPDATE, DELETE }
+
+    /** A parsed record with what is needed to place it among the product's other events. */
+    private record Event(Change change, Kind kind, String source, long timestamp) {
+
+        boolean before(Event other) {
+            if (timestamp != other.timestamp) {
+                return timestamp < other.timestamp;
+            }
+            // Same millisecond on different topics: a product is created before it is changed
+            if (kind != other.kind) {
+                return kind.compareTo(other.kind) < 0;
+            }
+            return change.firstIndex() < other.change.firstIndex();
+        }
+    }
+
+    /** Collapsed changes, or the first record that updates a product deleted before it. */
+    private record Collapsed(Collection<Change> changes, Change conflict) {}
+
+    private final List<Event> events;
+    private final int failedIndex;
+    private final RuntimeException failure;
+
+    private ProductEventBatch(List<Event> events, int failedIndex, RuntimeException failure) {
+        this.events = events;
+        this.failedIndex = failedIndex;
+        this.failure = failure;
+    }
+
+    public static ProductEventBatch parse(List<ConsumerRecord<String, Object>> records, ProductEventValidator validator) {
+        List<Event> events = new ArrayList<>(records.size());
+        int failedIndex = -1;
+        RuntimeException failure = null;
+        for (int index = 0; index < records.size(); index++) {
+            try {
+                events.add(toEvent(records.get(index), index, validator));
+            } catch (RuntimeException e) {
+                failedIndex = index;
+                failure = e;
+                break;
+            }
+        }
+
+        // Dropping the records from a conflict on can expose an earlier one, when a create
+        // between a delete and an update is dropped
+        ProductEventBatch batch = new ProductEventBatch(events, failedIndex, failure);
+        int end = events.size();
+        Change conflict;
+        while ((conflict = batch.collapseUntil(end).conflict()) != null) {
+            end = conflict.firstIndex();
+            batch = new ProductEventBatch(events, end, new ProductNotFoundException(conflict.id()));
+        }
+        return batch;
+    }
+
+    private static Event toEvent(ConsumerRecord<String, Object> record, int index, ProductEventValidator validator) {
+        String source = record.topic() + "-" + record.partition();
+        Object event = record.value();
+        if (event instanceof ProductCreatedEvent created) {
+            return new Event(new Change(UUID.fromString(created.id()), ProductEventMapper.toProduct(created), false, index),
+                    Kind.CREATE, source, record.timestamp());
+        }
+        if (event instanceof ProductUpdatedEvent updated) {
+            validator.validate(updated);
+            return new Event(new Change(UUID.fromString(updated.id()), ProductEventMapper.toProduct(updated), true, index),
+                    Kind.UPDATE, source, record.timestamp());
+        }
+        if (event instanceof ProductDeletedEvent deleted) {
+            return new Event(new Change(UUID.fromString(deleted.id()), null, false, index),
+                    Kind.DELETE, source, record.timestamp());
+        }
+        // Null values are records the ErrorHandlingDeserializer could not read
+        throw new IllegalArgumentException("Unsupported product event: "
+                + (event == null ? "undeserializable record" : event.getClass().getName()));
+    }
+
+    /** Index of the first record that cannot be applied, or -1 when all records parsed. */
+    public int failedIndex() {
+        return failedIndex;
+    }
+
+    public RuntimeException failure() {
+        return failure;
+    }
+
+    public int parsedCount() {
+        return failedIndex < 0 ? events.size() : failedIndex;
+    }
+
+    /**
+     * Last state per product among the records before {@code end}, in order of first appearance.
+     */
+    public Collection<Change> collapse(int end) {
+        return collapseUntil(Math.min(end, parsedCount())).changes();
+    }
+
+    private Collapsed collapseUntil(int end) {
+        Map<UUID, List<Event>> byProduct = new LinkedHashMap<>();
+        for (Event event : events.subList(0, Math.min(end, events.size()))) {
+            byProduct.computeIfAbsent(event.change().id(), id -> new ArrayList<>()).add(event);
+        }
+
+        Map<UUID, Change> collapsed = new LinkedHashMap<>();
+        Change conflict = null;
+        for (Map.Entry<UUID, List<Event>> product : byProduct.entrySet()) {
+            Change last = null;
+            for (Event event : inEventOrder(product.getValue())) {
+                Change change = event.change();
+                if (event.kind() == Kind.UPDATE && last != null && last.deleted()) {
+                    if (conflict == null || change.firstIndex() < conflict.firstIndex()) {
+                        conflict = change;
+                    }
+                    break;
+                }
+                if (last != null) {
+                    // Only the first event decides whether the row must exist already
+                    change = new Change(change.id(), change.product(), last.mustExist(),
+                            last.mustExist() ? last.firstIndex() : change.firstIndex());
+                }
+                last = change;
+            }
+            collapsed.put(product.getKey(), last);
+        }
+        return new Collapsed(collapsed.values(), conflict);
+    }
+
+    /** Merges the events of one product by timestamp, keeping record order within each topic-partition. */
+    private static List<Event> inEventOrder(List<Event> events) {
+        if (events.size() == 1) {
+            return events;
+        }
+        Map<String, Deque<Event>> bySource = new LinkedHashMap<>();
+        for (Event event : events) {
+            bySource.computeIfAbsent(event.source(), source -> new ArrayDeque<>()).add(event);
+        }
+        List<Event> ordered = new ArrayList<>(events.size());
+        while (ordered.size() < events.size()) {
+            Deque<Event> next = null;
+            for (Deque<Event> queue : bySource.values()) {
+                if (!queue.isEmpty() && (next == null || queue.peek().before(next.peek()))) {
+                    next = queue;
+                }
+            }
+            ordered.add(next.poll());
+        }
+        return ordered;
+    }
+}
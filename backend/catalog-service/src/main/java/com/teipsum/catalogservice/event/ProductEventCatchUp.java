@@ -0,0 +1,191 @@
+package com.teipsum.catalogservice.event;
+
+import com.teipsum.catalogservice.model.EventOffset;
+import com.teipsum.catalogservice.repository.EventOffsetRepository;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.context.event.EventListener;
+import org.springframework.kafka.config.KafkaListenerEndpointRegistry;
+import org.springframework.kafka.event.ListenerContainerIdleEvent;
+import org.springframework.kafka.listener.ConsumerAwareRebalanceListener;
+import org.springframework.kafka.listener.ContainerProperties;
+import org.springframework.kafka.listener.MessageListenerContainer;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+/**
+ * Positions the product and stock event consumers at the offsets stored with the
+ * catalog and keeps the service out of readiness until it has caught up with the end
+ * offsets seen when its partitions were first assigned. Product and stock events are
+ * consumed by separate containers, each tracked by the topics it subscribes to; the
+ * service is ready once every container using this listener has caught up.
+ */
+@Component
+public class ProductEventCatchUp implements ConsumerAwareRebalanceListener, HealthIndicator {
+
+    private static final Logger logger = LogManager.getLogger(ProductEventCatchUp.class);
+
+    private final EventOffsetRepository eventOffsetRepository;
+    private final ObjectProvider<KafkaListenerEndpointRegistry> registry;
+
+    private final Set<TopicPartition> positioned = ConcurrentHashMap.newKeySet();
+    // Keyed by the topics a container subscribes to
+    private final Map<Set<String>, Progress> containers = new ConcurrentHashMap<>();
+    private volatile boolean caughtUp;
+
+    /** Partitions of one container that are still behind, by the end offset each has to reach. */
+    private static final class Progress {
+        final Map<TopicPartition, Long> pending = new ConcurrentHashMap<>();
+        volatile boolean assigned;
+    }
+
+    public ProductEventCatchUp(EventOffsetRepository eventOffsetRepository,
+                               ObjectProvider<KafkaListenerEndpointRegistry> registry) {
+        this.eventOffsetRepository = eventOffsetRepository;
+        this.registry = registry;
+    }
+
+    /**
+     * The stored offsets are authoritative on first assignment: after a snapshot load
+     * they are behind the committed group offsets, and without any they are the start
+     * of the topic because the catalog starts out empty.
+     */
+    @Override
+    public void onPartitionsAssigned(Consumer<?, ?> consumer, Collection<TopicPartition> partitions) {
+        Map<TopicPartition, Long> stored = eventOffsetRepository.findAll().stream()
+                .collect(Collectors.toMap(
+                        offset -> new TopicPartition(offset.getTopic(), offset.getPartition()),
+                        EventOffset::getNextOffset));
+
+        for (TopicPartition partition : partitions) {
+            if (!positioned.add(partition)) {
+                continue;
+            }
+            Long offset = stored.get(partition);
+            if (offset != null) {
+                consumer.seek(partition, offset);
+            } else {
+                consumer.seekToBeginning(List.of(partition));
+            }
+        }
+
+        Progress progress = progress(consumer);
+        if (!caughtUp) {
+            consumer.endOffsets(partitions).forEach((partition, end) -> {
+                if (consumer.position(partition) < end) {
+                    progress.pending.put(partition, end);
+                }
+            });
+            logger.info("Catching up on {} of {} partitions of {}",
+                    progress.pending.size(), partitions.size(), consumer.subscription());
+        }
+        progress.assigned = true;
+        checkCaughtUp();
+    }
+
+    @Override
+    public void onPartitionsRevokedAfterCommit(Consumer<?, ?> consumer, Collection<TopicPartition> partitions) {
+        // Committed offsets are never behind the stored ones, so partitions coming back are not repositioned
+        partitions.forEach(progress(consumer).pending::remove);
+    }
+
+    public void applied(Collection<EventOffset> offsets) {
+        if (caughtUp) {
+            return;
+        }
+        for (EventOffset offset : offsets) {
+            TopicPartition applied = new TopicPartition(offset.getTopic(), offset.getPartition());
+            for (Progress progress : containers.values()) {
+                progress.pending.computeIfPresent(applied,
+                        (partition, end) -> offset.getNextOffset() >= end ? null : end);
+            }
+        }
+        checkCaughtUp();
+    }
+
+    /**
+     * Fallback for partitions whose last records were dead-lettered rather than
+     * applied: a consumer that has nothing left to poll is caught up on its partitions
+     * by definition. Only the partitions of the idle consumer are released, a consumer
+     * without an assignment releases nothing.
+     */
+    @EventListener
+    public void onIdle(ListenerContainerIdleEvent event) {
+        Collection<TopicPartition> partitions = event.getTopicPartitions();
+        if (caughtUp || partitions == null || event.getConsumer() == null) {
+            return;
+        }
+        Progress progress = containers.get(Set.copyOf(event.getConsumer().subscription()));
+        if (progress != null) {
+            partitions.forEach(progress.pending::remove);
+            checkCaughtUp();
+        }
+    }
+
+    public boolean isCaughtUp() {
+        return caughtUp;
+    }
+
+    @Override
+    public Health health() {
+        if (caughtUp) {
+            return Health.up().build();
+        }
+        List<Set<String>> expected = expectedContainers();
+        return Health.outOfService()
+                .withDetail("assigned", expected.stream().allMatch(this::isAssigned))
+                .withDetail("laggingPartitions", containers.values().stream()
+                        .mapToInt(progress -> progress.pending.size())
+                        .sum())
+                .build();
+    }
+
+    private Progress progress(Consumer<?, ?> consumer) {
+        return containers.computeIfAbsent(Set.copyOf(consumer.subscription()), topics -> new Progress());
+    }
+
+    private boolean isAssigned(Set<String> topics) {
+        Progress progress = containers.get(topics);
+        return progress != null && progress.assigned;
+    }
+
+    /** Topics of each container this listener is installed on; none before the registry exists. */
+    private List<Set<String>> expectedContainers() {
+        KafkaListenerEndpointRegistry endpoints = registry.getIfAvailable();
+        if (endpoints == null) {
+            return List.of();
+        }
+        return endpoints.getListenerContainers().stream()
+                .map(MessageListenerContainer::getContainerProperties)
+                .filter(properties -> properties.getConsumerRebalanceListener() == this)
+                .map(ContainerProperties::getTopics)
+                .filter(topics -> topics != null)
+                .map(Set::of)
+                .toList();
+    }
+
+    private synchronized void checkCaughtUp() {
+        if (caughtUp) {
+            return;
+        }
+        List<Set<String>> expected = expectedContainers();
+        if (expected.isEmpty() || !expected.stream().allMatch(this::isAssigned)) {
+            return;
+        }
+        if (expected.stream().allMatch(topics -> containers.get(topics).pending.isEmpty())) {
+            caughtUp = true;
+            logger.info("Product and stock events caught up, catalog is ready");
+        }
+    }
+}
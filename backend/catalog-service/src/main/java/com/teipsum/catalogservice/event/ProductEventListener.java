@@ -1,31 +1,98 @@
 package com.teipsum.catalogservice.event;
 
+import com.teipsum.catalogservice.model.EventOffset;
 import com.teipsum.catalogservice.service.CatalogService;
-import com.teipsum.shared.product.event.*;
+import com.teipsum.shared.exceptions.ProductNotFoundException;
 import lombok.RequiredArgsConstructor;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
 import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.kafka.listener.BatchListenerFailedException;
 import org.springframework.stereotype.Component;
 
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
 @Component
 @RequiredArgsConstructor
 public class ProductEventListener {
 
+    private static final Logger logger = LogManager.getLogger(ProductEventListener.class);
+
     private final CatalogService catalogService;
+    private final ProductEventValidator productEventValidator;
+    private final ProductEventCatchUp catchUp;
 
-    @KafkaListener(topics = "product-created",
-            groupId = "catalog-service-group"
+    /**
+     * Consumes all three product topics together so that events for the same product
+     * within a poll collapse to its final state, merged across topics by record timestamp.
+     * The longest valid prefix of the batch is applied in one transaction; the first bad
+     * record is then handed to the error handler, which commits the prefix, retries the
+     * record and dead-letters it.
+     */
+    @KafkaListener(topics = {"product-created", "product-updated", "product-deleted"},
+            groupId = "catalog-service-group",
+            containerFactory = "batchKafkaListenerContainerFactory",
+            properties = "max.poll.records=${catalog.events.batch-size:500}"
     )
-    public void handleProductCreated(ProductCreatedEvent event) {
-        catalogService.addProduct(event);
-    }
+    public void handleProductEvents(List<ConsumerRecord<String, Object>> records) {
+        ProductEventBatch batch = ProductEventBatch.parse(records, productEventValidator);
+
+        int end = batch.failedIndex() < 0 ? records.size() : batch.failedIndex();
+        RuntimeException failure = batch.failure();
+
+        // A shorter prefix can drop the create an earlier update relied on, so this repeats until stable
+        Collection<ProductEventBatch.Change> changes = batch.collapse(end);
+        Set<UUID> existing = new HashSet<>();
+        while (true) {
+            Set<UUID> unchecked = changes.stream()
+                    .filter(ProductEventBatch.Change::mustExist)
+                    .map(ProductEventBatch.Change::id)
+                    .filter(id -> !existing.contains(id))
+                    .collect(Collectors.toSet());
+            if (!unchecked.isEmpty()) {
+                existing.addAll(catalogService.findExistingIds(unchecked));
+            }
+            Optional<ProductEventBatch.Change> first = changes.stream()
+                    .filter(change -> change.mustExist() && !existing.contains(change.id()))
+                    .min(Comparator.comparingInt(ProductEventBatch.Change::firstIndex));
+            if (first.isEmpty()) {
+                break;
+            }
+            end = first.get().firstIndex();
+            failure = new ProductNotFoundException(first.get().id());
+            changes = batch.collapse(end);
+        }
+
+        List<EventOffset> offsets = nextOffsets(records.subList(0, end));
+        catalogService.applyChanges(changes, offsets);
+        catchUp.applied(offsets);
+        logger.debug("Applied {} product events as {} changes", end, changes.size());
 
-    @KafkaListener(topics = "product-updated", groupId = "catalog-service-group")
-    public void handleProductUpdated(ProductUpdatedEvent event) {
-        catalogService.updateProduct(event);
+        if (failure != null) {
+            logger.warn("Product event at offset {} of {} failed: {}",
+                    records.get(end).offset(), records.get(end).topic(), failure.getMessage());
+            throw new BatchListenerFailedException(failure.getMessage(), failure, end);
+        }
     }
 
-    @KafkaListener(topics = "product-deleted", groupId = "catalog-service-group")
-    public void handleProductDeleted(ProductDeletedEvent event) {
-        catalogService.deleteProduct(event);
+    static List<EventOffset> nextOffsets(List<ConsumerRecord<String, Object>> records) {
+        Map<TopicPartition, Long> next = new LinkedHashMap<>();
+        for (ConsumerRecord<String, Object> record : records) {
+            next.merge(new TopicPartition(record.topic(), record.partition()), record.offset() + 1, Math::max);
+        }
+        return next.entrySet().stream()
+                .map(entry -> new EventOffset(entry.getKey().topic(), entry.getKey().partition(), entry.getValue()))
+                .toList();
     }
-}
\ No newline at end of file
+}
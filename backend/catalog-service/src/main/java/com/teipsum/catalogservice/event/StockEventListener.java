@@ -0,0 +1,92 @@
+package com.teipsum.catalogservice.event;
+
+import com.teipsum.catalogservice.model.EventOffset;
+import com.teipsum.catalogservice.service.CatalogService;
+import com.teipsum.shared.product.event.StockAdjustedEvent;
+import lombok.RequiredArgsConstructor;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.kafka.listener.BatchListenerFailedException;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Keeps the available flag in line with inventory. Stock events of a poll are
+ * conflated to one availability per product before they are applied. Only
+ * stock-adjusted is consumed: inventory sends a zero adjustment with every depletion,
+ * and stock-depleted is not ordered with stock-adjusted, so a depletion read after a
+ * later restock would mark the product unavailable again.
+ */
+@Component
+@RequiredArgsConstructor
+public class StockEventListener {
+
+    private static final Logger logger = LogManager.getLogger(StockEventListener.class);
+
+    private final CatalogService catalogService;
+    private final ProductEventCatchUp catchUp;
+
+    /**
+     * The valid prefix of the batch is applied in one transaction; a record that is not
+     * a readable stock event is then handed to the error handler to be dead-lettered.
+     */
+    @KafkaListener(topics = "stock-adjusted",
+            groupId = "catalog-service-group",
+            containerFactory = "batchKafkaListenerContainerFactory",
+            properties = "max.poll.records=${catalog.events.batch-size:500}"
+    )
+    public void handleStockEvents(List<ConsumerRecord<String, Object>> records) {
+        int end = records.size();
+        for (int i = 0; i < records.size(); i++) {
+            if (productId(records.get(i).value()) == null) {
+                end = i;
+                break;
+            }
+        }
+
+        List<ConsumerRecord<String, Object>> applied = records.subList(0, end);
+        Map<UUID, Boolean> availability = conflate(applied);
+        List<EventOffset> offsets = ProductEventListener.nextOffsets(applied);
+        catalogService.applyAvailability(availability, offsets);
+        catchUp.applied(offsets);
+        logger.debug("Applied {} stock events for {} products", end, availability.size());
+
+        if (end < records.size()) {
+            ConsumerRecord<String, Object> failed = records.get(end);
+            String message = "Unreadable stock event at offset " + failed.offset() + " of " + failed.topic();
+            logger.warn(message);
+            throw new BatchListenerFailedException(message, end);
+        }
+    }
+
+    /** Adjustments carry the absolute quantity, so the last one per product wins. */
+    static Map<UUID, Boolean> conflate(List<ConsumerRecord<String, Object>> records) {
+        Map<UUID, Boolean> availability = new LinkedHashMap<>();
+        for (ConsumerRecord<String, Object> record : records) {
+            StockAdjustedEvent adjusted = (StockAdjustedEvent) record.value();
+            availability.put(productId(adjusted), adjusted.newQuantity() > 0);
+        }
+        return availability;
+    }
+
+    private static UUID productId(Object event) {
+        if (!(event instanceof StockAdjustedEvent adjusted)) {
+            return null;
+        }
+        String id = adjusted.productId();
+        if (id == null) {
+            return null;
+        }
+        try {
+            return UUID.fromString(id);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+}
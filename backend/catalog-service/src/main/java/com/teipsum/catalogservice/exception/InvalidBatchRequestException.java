@@ -0,0 +1,10 @@
+package com.teipsum.catalogservice.exception;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+public class InvalidBatchRequestException extends ResponseStatusException {
+    public InvalidBatchRequestException(String message) {
+        super(HttpStatus.BAD_REQUEST, message);
+    }
+}
@@ -0,0 +1,87 @@
+package com.teipsum.catalogservice.facet;
+
+import com.teipsum.catalogservice.dto.ProductFacets;
+import com.teipsum.shared.product.dto.ProductFilterRequest;
+import com.teipsum.shared.product.enums.Gender;
+import com.teipsum.shared.product.enums.ProductCategory;
+import com.teipsum.shared.product.enums.ProductSubcategory;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Accumulates facet counts in a single pass over products (or groups of identical
+ * products). The caller applies the filters that are not facets (search, discount);
+ * the facet dimensions are checked here. A product that fails exactly one facet's
+ * filter still counts towards that facet, which is what lets each facet ignore its own filter.
+ */
+public class FacetCounter {
+
+    private final ProductFilterRequest filter;
+    private final PriceBuckets priceBuckets;
+
+    private final Map<ProductCategory, Long> categories = new EnumMap<>(ProductCategory.class);
+    private final Map<ProductSubcategory, Long> subcategories = new EnumMap<>(ProductSubcategory.class);
+    private final Map<Gender, Long> genders = new EnumMap<>(Gender.class);
+    private final Map<Boolean, Long> availability = new LinkedHashMap<>();
+    private final long[] priceCounts;
+    private long total;
+
+    public FacetCounter(ProductFilterRequest filter, PriceBuckets priceBuckets) {
+        this.filter = filter;
+        this.priceBuckets = priceBuckets;
+        this.priceCounts = new long[priceBuckets.size()];
+    }
+
+    public void add(ProductCategory category, ProductSubcategory subcategory, Gender gender,
+                    boolean available, int priceBucket, boolean priceInRange, long count) {
+        boolean categoryMatches = filter == null || matches(filter.category(), category);
+        boolean subcategoryMatches = filter == null || matches(filter.subcategory(), subcategory);
+        boolean genderMatches = filter == null || matches(filter.gender(), gender);
+        boolean availableMatches = filter == null || filter.available() == null || filter.available() == available;
+
+        int misses = (categoryMatches ? 0 : 1) + (subcategoryMatches ? 0 : 1) + (genderMatches ? 0 : 1)
+                + (availableMatches ? 0 : 1) + (priceInRange ? 0 : 1);
+        if (misses > 1) {
+            return;
+        }
+
+        // With no misses the product counts in every facet, with one miss only in the facet it missed
+        boolean matchesAll = misses == 0;
+        if (matchesAll) {
+            total += count;
+        }
+        if ((matchesAll || !categoryMatches) && category != null) {
+            categories.merge(category, count, Long::sum);
+        }
+        if ((matchesAll || !subcategoryMatches) && subcategory != null) {
+            subcategories.merge(subcategory, count, Long::sum);
+        }
+        if ((matchesAll || !genderMatches) && gender != null) {
+            genders.merge(gender, count, Long::sum);
+        }
+        if (matchesAll || !availableMatches) {
+            availability.merge(available, count, Long::sum);
+        }
+        if (matchesAll || !priceInRange) {
+            priceCounts[priceBucket] += count;
+        }
+    }
+
+    private static <E> boolean matches(Set<E> selected, E value) {
+        return selected == null || selected.isEmpty() || value != null && selected.contains(value);
+    }
+
+    public ProductFacets result() {
+        List<ProductFacets.PriceBucket> buckets = new ArrayList<>(priceCounts.length);
+        for (int bucket = 0; bucket < priceCounts.length; bucket++) {
+            buckets.add(new ProductFacets.PriceBucket(
+                    priceBuckets.from(bucket), priceBuckets.to(bucket), priceCounts[bucket]));
+        }
+        return new ProductFacets(total, categories, subcategories, genders, availability, buckets);
+    }
+}
@@ -0,0 +1,60 @@
+package com.teipsum.catalogservice.facet;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.List;
+
+/**
+ * Price facet boundaries. n boundaries define n buckets: [b0, b1), ..., [bn-1, +inf).
+ * Prices below b0 are counted in the first bucket.
+ */
+@Component
+public class PriceBuckets {
+
+    private final List<BigDecimal> boundaries;
+    private final long[] hundredths;
+
+    public PriceBuckets(@Value("${catalog.facets.price-buckets:0,25,50,100,200,500}") List<BigDecimal> boundaries) {
+        if (boundaries.isEmpty()) {
+            throw new IllegalArgumentException("At least one price bucket boundary is required");
+        }
+        this.boundaries = boundaries.stream().sorted().distinct().toList();
+        this.hundredths = this.boundaries.stream()
+                .mapToLong(boundary -> boundary.setScale(2, RoundingMode.HALF_UP).unscaledValue().longValue())
+                .toArray();
+    }
+
+    public int size() {
+        return boundaries.size();
+    }
+
+    public BigDecimal from(int bucket) {
+        return boundaries.get(bucket);
+    }
+
+    public BigDecimal to(int bucket) {
+        return bucket + 1 < boundaries.size() ? boundaries.get(bucket + 1) : null;
+    }
+
+    /** Bucket of a price held in hundredths, as stored by the catalog index. */
+    public int indexOf(long priceHundredths) {
+        int bucket = 0;
+        while (bucket + 1 < hundredths.length && priceHundredths >= hundredths[bucket + 1]) {
+            bucket++;
+        }
+        return bucket;
+    }
+
+    /** SQL expression computing the bucket of the given price column. */
+    public String caseExpression(String column) {
+        StringBuilder sql = new StringBuilder("CASE");
+        for (int bucket = boundaries.size() - 1; bucket > 0; bucket--) {
+            sql.append(" WHEN ").append(column).append(" >= ").append(boundaries.get(bucket).toPlainString())
+                    .append(" THEN ").append(bucket);
+        }
+        return sql.append(" ELSE 0 END").toString();
+    }
+}
@@ -0,0 +1,170 @@
+package com.teipsum.catalogservice.hot;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Streaming top-k in fixed memory: a count-min sketch estimates how often each key was
+ * seen, and the k keys with the highest estimates are kept with their counts. Estimates
+ * may overcount through hash collisions but never undercount, so a truly hot key always
+ * makes the list. Records only bump a per-key adder in a concurrent buffer, so request
+ * threads never take the lock; the buffer is folded into the sketch under the lock by
+ * whoever reads the counts next, i.e. the warm and decay ticks. The buffer holds about
+ * width keys; a record of a new key beyond that drains it first.
+ */
+public class HeavyHitters<K> {
+
+    private static final int DEPTH = 4;
+    private static final int[] SEEDS = {0x9E3779B9, 0x7F4A7C15, 0x165667B1, 0x27D4EB2F};
+
+    private final int capacity;
+    private final int width;
+    private final int mask;
+    private final long[][] counters;
+    private final Map<K, Long> top = new HashMap<>();
+    private final ConcurrentHashMap<K, LongAdder> pending = new ConcurrentHashMap<>();
+    // Lower bound of the smallest count in top; only counts grow between decays
+    private long floor;
+
+    /** Width is rounded up to a power of two; memory is DEPTH * width longs whatever the key count. */
+    public HeavyHitters(int capacity, int width) {
+        if (capacity < 1 || width < 1) {
+            throw new IllegalArgumentException("capacity and width must be positive");
+        }
+        int buckets = Integer.highestOneBit(Math.max(1, width - 1)) << 1;
+        this.capacity = capacity;
+        this.width = buckets;
+        this.mask = buckets - 1;
+        this.counters = new long[DEPTH][buckets];
+    }
+
+    /** Counts key as seen once more; lock-free unless the buffer is full. */
+    public void record(K key) {
+        LongAdder adder = pending.get(key);
+        if (adder == null) {
+            if (pending.size() >= width) {
+                drain();
+            }
+            adder = pending.computeIfAbsent(key, k -> new LongAdder());
+        }
+        adder.increment();
+    }
+
+    /**
+     * Counts key as seen count more times. Uses conservative update: only the counters
+     * at the current minimum grow, which keeps collisions from inflating other keys.
+     */
+    public synchronized void add(K key, long count) {
+        drain();
+        update(key, count);
+    }
+
+    /**
+     * Folds the recorded keys into the sketch. Keys not recorded since the previous drain
+     * leave the buffer; a record racing that removal may be lost.
+     */
+    public synchronized void drain() {
+        for (Map.Entry<K, LongAdder> entry : pending.entrySet()) {
+            long count = entry.getValue().sumThenReset();
+            if (count == 0) {
+                pending.remove(entry.getKey(), entry.getValue());
+            } else {
+                update(entry.getKey(), count);
+            }
+        }
+    }
+
+    private void update(K key, long count) {
+        int hash = key.hashCode();
+        long updated = sketched(key) + count;
+        for (int row = 0; row < DEPTH; row++) {
+            int bucket = bucket(hash, row);
+            counters[row][bucket] = Math.max(counters[row][bucket], updated);
+        }
+        offer(key, updated);
+    }
+
+    /** Estimated count of any key, hot or not; never below the true count since the last decays. */
+    public synchronized long estimate(K key) {
+        drain();
+        return sketched(key);
+    }
+
+    private long sketched(K key) {
+        int hash = key.hashCode();
+        long estimate = Long.MAX_VALUE;
+        for (int row = 0; row < DEPTH; row++) {
+            estimate = Math.min(estimate, counters[row][bucket(hash, row)]);
+        }
+        return estimate;
+    }
+
+    /** Hottest keys first, with their estimated counts. */
+    public synchronized List<Entry<K>> top() {
+        drain();
+        List<Entry<K>> entries = new ArrayList<>(top.size());
+        top.forEach((key, count) -> entries.add(new Entry<>(key, count)));
+        entries.sort(Comparator.comparingLong(Entry<K>::count).reversed());
+        return entries;
+    }
+
+    public synchronized boolean isHot(K key) {
+        drain();
+        return top.containsKey(key);
+    }
+
+    /** Halves every count, so keys that stop being requested age out of the list. */
+    public synchronized void decay() {
+        drain();
+        for (long[] row : counters) {
+            for (int i = 0; i < row.length; i++) {
+                row[i] >>>= 1;
+            }
+        }
+        top.replaceAll((key, count) -> count >>> 1);
+        top.values().removeIf(count -> count == 0);
+        floor >>>= 1;
+    }
+
+    private void offer(K key, long count) {
+        if (top.containsKey(key) || top.size() < capacity) {
+            top.put(key, count);
+            return;
+        }
+        if (count <= floor) {
+            return;
+        }
+        K coldest = null;
+        long coldestCount = Long.MAX_VALUE;
+        for (Map.Entry<K, Long> entry : top.entrySet()) {
+            if (entry.getValue() < coldestCount) {
+                coldest = entry.getKey();
+                coldestCount = entry.getValue();
+            }
+        }
+        if (count > coldestCount) {
+            top.remove(coldest);
+            top.put(key, count);
+        } else {
+            floor = coldestCount;
+        }
+    }
+
+    /** Murmur3 finalizer over the seeded hash, so rows collide independently. */
+    private int bucket(int hash, int row) {
+        int h = hash ^ SEEDS[row];
+        h ^= h >>> 16;
+        h *= 0x85EBCA6B;
+        h ^= h >>> 13;
+        h *= 0xC2B2AE35;
+        h ^= h >>> 16;
+        return h & mask;
+    }
+
+    public record Entry<K>(K key, long count) {}
+}
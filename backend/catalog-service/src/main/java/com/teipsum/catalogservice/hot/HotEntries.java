@@ -0,0 +1,280 @@
+package com.teipsum.catalogservice.hot;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.teipsum.catalogservice.cache.ListingPageCache;
+import com.teipsum.catalogservice.dto.CountMode;
+import com.teipsum.catalogservice.event.CatalogProductChangedEvent;
+import com.teipsum.catalogservice.service.CatalogService;
+import com.teipsum.catalogservice.util.FilterSignature;
+import com.teipsum.catalogservice.util.ProductDtoConverter;
+import com.teipsum.catalogservice.version.CatalogVersions;
+import com.teipsum.shared.product.dto.ProductFilterRequest;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Tracks the most requested products and filter signatures and keeps their cache entries
+ * loaded. Product changes evict those entries; shortly after, the hot ones are reloaded
+ * in the background so the next request is a hit again. The hot lists are also written
+ * to a file on shutdown and on every decay, and warmed right after the next startup.
+ */
+@Component
+public class HotEntries implements SmartLifecycle, MeterBinder {
+
+    private static final Logger logger = LogManager.getLogger(HotEntries.class);
+
+    // The listing endpoint's default page; hot signatures are tracked without their sort
+    private static final Pageable FIRST_PAGE = PageRequest.of(0, 10);
+
+    private final CatalogService catalogService;
+    private final ProductDtoConverter dtoConverter;
+    private final CatalogVersions catalogVersions;
+    private final CacheManager cacheManager;
+    private final ListingPageCache listingPages;
+    private final ObjectMapper objectMapper;
+    private final boolean enabled;
+    private final Path path;
+    private final Duration warmInterval;
+    private final Duration reloadDelay;
+    private final Duration decayInterval;
+
+    private final HeavyHitters<UUID> products;
+    private final HeavyHitters<ProductFilterRequest> filters;
+
+    private final AtomicBoolean reloadScheduled = new AtomicBoolean();
+    private final LongAdder warmedProducts = new LongAdder();
+    private final LongAdder warmedFacets = new LongAdder();
+    private final LongAdder warmedListings = new LongAdder();
+
+    private ScheduledExecutorService scheduler;
+    private volatile boolean running;
+
+    public HotEntries(CatalogService catalogService,
+                      ProductDtoConverter dtoConverter,
+                      CatalogVersions catalogVersions,
+                      CacheManager cacheManager,
+                      ListingPageCache listingPages,
+                      ObjectMapper objectMapper,
+                      @Value("${catalog.hot.enabled:false}") boolean enabled,
+                      @Value("${catalog.hot.products:200}") int productCapacity,
+                      @Value("${catalog.hot.filters:50}") int filterCapacity,
+                      @Value("${catalog.hot.sketch-width:4096}") int sketchWidth,
+                      @Value("${catalog.hot.path:data/hot-entries.json}") String path,
+                      @Value("${catalog.hot.warm-interval:30s}") Duration warmInterval,
+                      @Value("${catalog.hot.reload-delay:500ms}") Duration reloadDelay,
+                      @Value("${catalog.hot.decay-interval:5m}") Duration decayInterval) {
+        this.catalogService = catalogService;
+        this.dtoConverter = dtoConverter;
+        this.catalogVersions = catalogVersions;
+        this.cacheManager = cacheManager;
+        this.listingPages = listingPages;
+        this.objectMapper = objectMapper;
+        this.enabled = enabled;
+        this.path = Path.of(path).toAbsolutePath();
+        this.warmInterval = warmInterval;
+        this.reloadDelay = reloadDelay;
+        this.decayInterval = decayInterval;
+        this.products = new HeavyHitters<>(productCapacity, sketchWidth);
+        this.filters = new HeavyHitters<>(filterCapacity, sketchWidth);
+    }
+
+    @Override
+    public void start() {
+        running = true;
+        if (!enabled) {
+            return;
+        }
+        load();
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "catalog-hot-entries");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long warmPeriod = warmInterval.toMillis();
+        long decayPeriod = decayInterval.toMillis();
+        scheduler.scheduleWithFixedDelay(this::warmQuietly, warmPeriod, warmPeriod, TimeUnit.MILLISECONDS);
+        scheduler.scheduleWithFixedDelay(this::decay, decayPeriod, decayPeriod, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+        if (scheduler == null) {
+            return;
+        }
+        scheduler.shutdownNow();
+        writeQuietly();
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    /** Warms what the previous run found hot once the index is built and listeners are up. */
+    @EventListener(ApplicationReadyEvent.class)
+    public void onReady() {
+        if (scheduler != null) {
+            scheduler.execute(this::warmQuietly);
+        }
+    }
+
+    public void productRequested(UUID id) {
+        if (enabled) {
+            products.record(id);
+        }
+    }
+
+    public void listingRequested(ProductFilterRequest filter) {
+        if (enabled) {
+            filters.record(FilterSignature.of(filter));
+        }
+    }
+
+    /**
+     * Every change evicts its product, clears the facets and evicts the listing pages of its
+     * categories; a burst of changes triggers one reload.
+     */
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onProductChanged(CatalogProductChangedEvent event) {
+        if (scheduler != null && reloadScheduled.compareAndSet(false, true)) {
+            scheduler.schedule(() -> {
+                reloadScheduled.set(false);
+                warmQuietly();
+            }, reloadDelay.toMillis(), TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /** Estimated requests for any product, decayed like the hot list. */
+    public long productRequests(UUID id) {
+        return products.estimate(id);
+    }
+
+    public List<HeavyHitters.Entry<UUID>> hotProducts() {
+        return products.top();
+    }
+
+    public List<HeavyHitters.Entry<ProductFilterRequest>> hotFilters() {
+        return filters.top();
+    }
+
+    /**
+     * Loads the hot entries that are not cached: products with one lookup for all of them,
+     * serialized as well, and per filter signature its facets through the caching proxy and
+     * the first page of its listing through ListingPageCache.
+     */
+    void warm() {
+        long readVersion = catalogVersions.globalVersion();
+        List<UUID> missing = products.top().stream()
+                .map(HeavyHitters.Entry::key)
+                .filter(id -> dtoConverter.cachedJson(id) == null)
+                .toList();
+        if (!missing.isEmpty()) {
+            catalogService.getProductViews(missing).values()
+                    .forEach(product -> dtoConverter.toJson(product, readVersion));
+            warmedProducts.add(missing.size());
+        }
+
+        Cache facets = cacheManager.getCache("facets");
+        for (HeavyHitters.Entry<ProductFilterRequest> entry : filters.top()) {
+            if (facets == null || facets.get(entry.key()) == null) {
+                catalogService.getFacets(entry.key());
+                warmedFacets.increment();
+            }
+            if (!listingPages.contains(entry.key(), FIRST_PAGE, CountMode.EXACT)) {
+                catalogService.getFilteredProducts(entry.key(), FIRST_PAGE);
+                warmedListings.increment();
+            }
+        }
+    }
+
+    void load() {
+        if (!Files.exists(path)) {
+            return;
+        }
+        try {
+            HotEntriesFile file = objectMapper.readValue(path.toFile(), HotEntriesFile.class);
+            file.products().forEach(entry -> products.add(entry.key(), entry.count()));
+            file.filters().forEach(entry -> filters.add(entry.key(), entry.count()));
+            logger.info("Loaded {} hot products and {} hot filters from {}",
+                    file.products().size(), file.filters().size(), path);
+        } catch (IOException | RuntimeException e) {
+            logger.warn("Failed to load hot entries {}: {}", path, e.getMessage());
+        }
+    }
+
+    void write() throws IOException {
+        Files.createDirectories(path.getParent());
+        Path temporary = path.resolveSibling(path.getFileName() + ".tmp");
+        objectMapper.writeValue(temporary.toFile(), new HotEntriesFile(products.top(), filters.top()));
+        Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private void decay() {
+        writeQuietly();
+        products.decay();
+        filters.decay();
+    }
+
+    private void warmQuietly() {
+        try {
+            warm();
+        } catch (RuntimeException e) {
+            logger.warn("Failed to warm hot cache entries: {}", e.getMessage());
+        }
+    }
+
+    private void writeQuietly() {
+        try {
+            write();
+        } catch (IOException | RuntimeException e) {
+            logger.warn("Failed to write hot entries {}: {}", path, e.getMessage());
+        }
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("catalog.hot.warmed", warmedProducts, LongAdder::sum)
+                .tag("cache", "products")
+                .description("Hot entries loaded in the background because they were not cached")
+                .register(registry);
+        FunctionCounter.builder("catalog.hot.warmed", warmedFacets, LongAdder::sum)
+                .tag("cache", "facets")
+                .description("Hot entries loaded in the background because they were not cached")
+                .register(registry);
+        FunctionCounter.builder("catalog.hot.warmed", warmedListings, LongAdder::sum)
+                .tag("cache", "listings")
+                .description("Hot entries loaded in the background because they were not cached")
+                .register(registry);
+    }
+
+    record HotEntriesFile(List<HeavyHitters.Entry<UUID>> products,
+                          List<HeavyHitters.Entry<ProductFilterRequest>> filters) {}
+}
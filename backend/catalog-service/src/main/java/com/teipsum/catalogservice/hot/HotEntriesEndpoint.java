@@ -0,0 +1,30 @@
+package com.teipsum.catalogservice.hot;
+
+import com.teipsum.shared.product.dto.ProductFilterRequest;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * {@code GET /actuator/hotentries}: the products and filter signatures currently counted
+ * as hot, hottest first, with their estimated request counts since the last decays.
+ */
+@Component
+@Endpoint(id = "hotentries")
+@RequiredArgsConstructor
+public class HotEntriesEndpoint {
+
+    private final HotEntries hotEntries;
+
+    @ReadOperation
+    public HotEntriesReport hotEntries() {
+        return new HotEntriesReport(hotEntries.hotProducts(), hotEntries.hotFilters());
+    }
+
+    public record HotEntriesReport(List<HeavyHitters.Entry<UUID>> products,
+                                   List<HeavyHitters.Entry<ProductFilterRequest>> filters) {}
+}
@@ -0,0 +1,623 @@
+package com.teipsum.catalogservice.index;
+
+import com.teipsum.catalogservice.dto.ProductFacets;
+import com.teipsum.catalogservice.event.CatalogProductChangedEvent;
+import com.teipsum.catalogservice.facet.FacetCounter;
+import com.teipsum.catalogservice.facet.PriceBuckets;
+import com.teipsum.catalogservice.model.CatalogProduct;
+import com.teipsum.catalogservice.repository.CatalogSnapshotRepository;
+import com.teipsum.catalogservice.util.FilterSignature;
+import com.teipsum.catalogservice.util.ListingSort;
+import com.teipsum.shared.product.dto.ProductFilterRequest;
+import com.teipsum.shared.product.enums.Gender;
+import com.teipsum.shared.product.enums.ProductCategory;
+import com.teipsum.shared.product.enums.ProductSubcategory;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.annotation.Order;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.*;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-process columnar copy of catalog_products used to answer listing filters
+ * without touching Postgres. Every attribute lives in its own primitive column
+ * addressed by a slot number; deleted slots are recycled. Sizes are held as one
+ * bitmap of slots per size code, so a size filter narrows the scan to the union of
+ * the requested sizes before the other columns are checked. Each sortable column keeps
+ * the live slots presorted the way Postgres orders them (value, then id as unsigned
+ * bytes), so a sorted listing walks that order instead of sorting its matches.
+ */
+@Component
+public class CatalogIndex {
+
+    private static final Logger logger = LogManager.getLogger(CatalogIndex.class);
+
+    /** Order of the listener applying product changes; listeners ordered after it see the change applied. */
+    public static final int CHANGE_ORDER = 0;
+
+    private static final int INITIAL_CAPACITY = 1024;
+    private static final int NO_VALUE = -1;
+
+    private static final ProductCategory[] CATEGORIES = ProductCategory.values();
+    private static final ProductSubcategory[] SUBCATEGORIES = ProductSubcategory.values();
+    private static final Gender[] GENDERS = Gender.values();
+    private static final SortKey[] SORT_KEYS = SortKey.values();
+
+    /** Columns a listing can be sorted on in memory. */
+    private enum SortKey { PRICE, EFFECTIVE_PRICE, DISCOUNT }
+
+    private record SlotOrder(SortKey key, boolean descending) {}
+
+    private final CatalogSnapshotRepository snapshotRepository;
+    private final TransactionTemplate readOnly;
+    private final boolean enabled;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<UUID, Integer> slotsById = new HashMap<>();
+    private final Deque<Integer> freeSlots = new ArrayDeque<>();
+    private final BitSet live = new BitSet();
+    private final BitSet available = new BitSet();
+    private final Map<String, BitSet> sizes = new HashMap<>();
+
+    private UUID[] ids = new UUID[INITIAL_CAPACITY];
+    private byte[] categories = new byte[INITIAL_CAPACITY];
+    private short[] subcategories = new short[INITIAL_CAPACITY];
+    private byte[] genders = new byte[INITIAL_CAPACITY];
+    private long[] prices = new long[INITIAL_CAPACITY];
+    private long[] effectivePrices = new long[INITIAL_CAPACITY];
+    private int[] discounts = new int[INITIAL_CAPACITY];
+    private int highWaterMark;
+
+    // Live slots per sort key, kept sorted on every change except during a rebuild
+    private final int[][] sortedSlots = new int[SORT_KEYS.length][INITIAL_CAPACITY];
+    private int sortedCount;
+    private boolean loading;
+
+    private volatile boolean ready;
+
+    public CatalogIndex(CatalogSnapshotRepository snapshotRepository,
+                        PlatformTransactionManager transactionManager,
+                        @Value("${catalog.index.enabled:true}") boolean enabled) {
+        this.snapshotRepository = snapshotRepository;
+        this.readOnly = new TransactionTemplate(transactionManager);
+        this.readOnly.setReadOnly(true);
+        this.enabled = enabled;
+    }
+
+    public record Result(List<UUID> ids, long total) {}
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        if (!enabled) {
+            logger.info("Catalog index disabled, listings are served from the database");
+            return;
+        }
+
+        // The write lock is held while loading so that changes committed during the load
+        // are applied on top of the snapshot instead of being overwritten by it.
+        lock.writeLock().lock();
+        try {
+            clear();
+            // Streamed with sizes loaded per chunk instead of one lazy collection per product
+            loading = true;
+            try {
+                readOnly.executeWithoutResult(status -> snapshotRepository.forEachProduct(this::write));
+            } finally {
+                loading = false;
+            }
+            sortAll();
+            ready = true;
+            logger.info("Catalog index built with {} products", slotsById.size());
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Stops answering queries until the next rebuild, for when this replica may have
+     * missed changes. Listings fall back to the database meanwhile.
+     */
+    public void suspend() {
+        lock.writeLock().lock();
+        try {
+            clear();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Order(CHANGE_ORDER)
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onProductChanged(CatalogProductChangedEvent event) {
+        if (!enabled) {
+            return;
+        }
+        if (event.deleted()) {
+            remove(event.productId());
+        } else {
+            upsert(event.product());
+        }
+    }
+
+    public void upsert(CatalogProduct product) {
+        lock.writeLock().lock();
+        try {
+            write(product);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(UUID id) {
+        lock.writeLock().lock();
+        try {
+            Integer slot = slotsById.remove(id);
+            if (slot == null) {
+                return;
+            }
+            unsort(slot);
+            live.clear(slot);
+            available.clear(slot);
+            clearSizes(slot);
+            ids[slot] = null;
+            freeSlots.push(slot);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public boolean isReady() {
+        return enabled && ready;
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return slotsById.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /** Category the index holds for a product; empty when it is not indexed or has none. */
+    public Optional<ProductCategory> category(UUID id) {
+        lock.readLock().lock();
+        try {
+            Integer slot = slotsById.get(id);
+            return slot == null ? Optional.empty() : Optional.ofNullable(valueOf(CATEGORIES, categories[slot]));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Resolves the ids of the requested page in filter order.
+     * Returns empty when the index cannot answer the request (not built yet,
+     * free-text search, or a sort property that is not held in memory).
+     */
+    public Optional<Result> query(ProductFilterRequest filter, Pageable pageable) {
+        if (!isReady() || ListingSort.hasSearchQuery(filter)) {
+            return Optional.empty();
+        }
+
+        Sort sort = ListingSort.resolve(filter, pageable);
+        Criteria criteria = Criteria.of(filter);
+
+        List<SlotOrder> orders = List.of();
+        if (sort.isSorted()) {
+            orders = slotOrders(sort);
+            if (orders == null) {
+                return Optional.empty();
+            }
+        }
+
+        int from = pageable.isPaged() ? (int) Math.min(pageable.getOffset(), Integer.MAX_VALUE) : 0;
+        int to = pageable.isPaged() ? (int) Math.min((long) from + pageable.getPageSize(), Integer.MAX_VALUE) : Integer.MAX_VALUE;
+
+        lock.readLock().lock();
+        try {
+            BitSet candidates = candidates(criteria);
+            return Optional.of(orders.isEmpty()
+                    ? unsortedPage(candidates, criteria, from, to)
+                    : sortedPage(candidates, criteria, orders, from, to));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Facet counts for the filter in a single scan over the live slots.
+     * Returns empty when the index cannot answer (not built yet or free-text search).
+     */
+    public Optional<ProductFacets> facets(ProductFilterRequest filter, PriceBuckets priceBuckets) {
+        if (!isReady() || ListingSort.hasSearchQuery(filter)) {
+            return Optional.empty();
+        }
+
+        Criteria criteria = Criteria.of(filter);
+        FacetCounter counter = new FacetCounter(filter, priceBuckets);
+
+        lock.readLock().lock();
+        try {
+            BitSet candidates = candidates(criteria);
+            for (int slot = candidates.nextSetBit(0); slot >= 0; slot = candidates.nextSetBit(slot + 1)) {
+                // Sizes and discount are not facets, so they filter like in a listing
+                if (discounts[slot] < criteria.minDiscount() || discounts[slot] > criteria.maxDiscount()) {
+                    continue;
+                }
+                long price = effectivePrices[slot];
+                counter.add(
+                        valueOf(CATEGORIES, categories[slot]),
+                        valueOf(SUBCATEGORIES, subcategories[slot]),
+                        valueOf(GENDERS, genders[slot]),
+                        available.get(slot),
+                        priceBuckets.indexOf(price),
+                        price >= criteria.minPrice() && price <= criteria.maxPrice(),
+                        1);
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        return Optional.of(counter.result());
+    }
+
+    /** Matches in slot order. */
+    private Result unsortedPage(BitSet candidates, Criteria criteria, int from, int to) {
+        List<UUID> page = new ArrayList<>();
+        int count = 0;
+        for (int slot = candidates.nextSetBit(0); slot >= 0; slot = candidates.nextSetBit(slot + 1)) {
+            if (matches(slot, criteria)) {
+                if (count >= from && count < to) {
+                    page.add(ids[slot]);
+                }
+                count++;
+            }
+        }
+        return new Result(page, count);
+    }
+
+    /**
+     * Walks the presorted slots of the first sort key run by run of equal values, in
+     * the requested direction. Within a run slots stay in id order; only the matches of
+     * a run that reaches into the page are sorted, and only when there are further keys.
+     */
+    private Result sortedPage(BitSet candidates, Criteria criteria, List<SlotOrder> orders, int from, int to) {
+        SortKey key = orders.get(0).key();
+        boolean descending = orders.get(0).descending();
+        int[] sorted = sortedSlots[key.ordinal()];
+        boolean narrowed = candidates != live;
+
+        List<UUID> page = new ArrayList<>();
+        int[] run = new int[16];
+        int count = 0;
+        int position = descending ? sortedCount - 1 : 0;
+        while (position >= 0 && position < sortedCount) {
+            long value = sortValue(key, sorted[position]);
+            int start = position;
+            int end = position;
+            if (descending) {
+                while (start > 0 && sortValue(key, sorted[start - 1]) == value) start--;
+                position = start - 1;
+            } else {
+                while (end < sortedCount - 1 && sortValue(key, sorted[end + 1]) == value) end++;
+                position = end + 1;
+            }
+
+            int matched = 0;
+            for (int i = start; i <= end; i++) {
+                int slot = sorted[i];
+                if ((!narrowed || candidates.get(slot)) && matches(slot, criteria)) {
+                    if (matched == run.length) {
+                        run = Arrays.copyOf(run, matched * 2);
+                    }
+                    run[matched++] = slot;
+                }
+            }
+            if (count + matched > from && count < to) {
+                if (orders.size() > 1 && matched > 1) {
+                    sortRun(run, matched, orders);
+                }
+                for (int i = Math.max(0, from - count); i < matched && count + i < to; i++) {
+                    page.add(ids[run[i]]);
+                }
+            }
+            count += matched;
+        }
+        return new Result(page, count);
+    }
+
+    /** Orders a run of slots tied on the first key by the remaining keys, then by id. */
+    private void sortRun(int[] run, int length, List<SlotOrder> orders) {
+        Integer[] boxed = new Integer[length];
+        for (int i = 0; i < length; i++) {
+            boxed[i] = run[i];
+        }
+        Arrays.sort(boxed, (a, b) -> {
+            for (SlotOrder order : orders.subList(1, orders.size())) {
+                int compared = Long.compare(sortValue(order.key(), a), sortValue(order.key(), b));
+                if (compared != 0) {
+                    return order.descending() ? -compared : compared;
+                }
+            }
+            return compareIds(ids[a], ids[b]);
+        });
+        for (int i = 0; i < length; i++) {
+            run[i] = boxed[i];
+        }
+    }
+
+    /** Live slots, narrowed to those in any of the requested sizes. */
+    private BitSet candidates(Criteria criteria) {
+        if (criteria.sizes() == null) {
+            return live;
+        }
+        BitSet candidates = new BitSet();
+        for (String size : criteria.sizes()) {
+            BitSet slots = sizes.get(size);
+            if (slots != null) {
+                candidates.or(slots);
+            }
+        }
+        return candidates;
+    }
+
+    private boolean matches(int slot, Criteria criteria) {
+        if (!isMember(criteria.categories(), categories[slot])) return false;
+        if (!isMember(criteria.subcategories(), subcategories[slot])) return false;
+        if (!isMember(criteria.genders(), genders[slot])) return false;
+        if (effectivePrices[slot] < criteria.minPrice() || effectivePrices[slot] > criteria.maxPrice()) return false;
+        if (discounts[slot] < criteria.minDiscount() || discounts[slot] > criteria.maxDiscount()) return false;
+        return criteria.available() == null || available.get(slot) == criteria.available();
+    }
+
+    /** The sort resolved to in-memory columns, or null when a property is not held in memory. */
+    private static List<SlotOrder> slotOrders(Sort sort) {
+        List<SlotOrder> orders = new ArrayList<>();
+        for (Sort.Order order : sort) {
+            SortKey key = switch (order.getProperty()) {
+                case "price" -> SortKey.PRICE;
+                case CatalogProduct.EFFECTIVE_PRICE -> SortKey.EFFECTIVE_PRICE;
+                case "discount" -> SortKey.DISCOUNT;
+                // Titles are left to the database, which orders them by its collation rather than by code point
+                default -> null;
+            };
+            if (key == null) {
+                return null;
+            }
+            orders.add(new SlotOrder(key, order.isDescending()));
+        }
+        return orders;
+    }
+
+    private long sortValue(SortKey key, int slot) {
+        return switch (key) {
+            case PRICE -> prices[slot];
+            case EFFECTIVE_PRICE -> effectivePrices[slot];
+            case DISCOUNT -> discounts[slot];
+        };
+    }
+
+    /** Ascending by value, ties by id. */
+    private int compare(SortKey key, int a, int b) {
+        int compared = Long.compare(sortValue(key, a), sortValue(key, b));
+        return compared != 0 ? compared : compareIds(ids[a], ids[b]);
+    }
+
+    /** Postgres compares uuids as unsigned bytes, unlike UUID.compareTo. */
+    private static int compareIds(UUID a, UUID b) {
+        int compared = Long.compareUnsigned(a.getMostSignificantBits(), b.getMostSignificantBits());
+        return compared != 0 ? compared : Long.compareUnsigned(a.getLeastSignificantBits(), b.getLeastSignificantBits());
+    }
+
+    /** Sorts the live slots for every key once a rebuild has loaded them. */
+    private void sortAll() {
+        Integer[] slots = new Integer[live.cardinality()];
+        int count = 0;
+        for (int slot = live.nextSetBit(0); slot >= 0; slot = live.nextSetBit(slot + 1)) {
+            slots[count++] = slot;
+        }
+        for (SortKey key : SORT_KEYS) {
+            Arrays.sort(slots, (a, b) -> compare(key, a, b));
+            int[] sorted = new int[Math.max(count, INITIAL_CAPACITY)];
+            for (int i = 0; i < count; i++) {
+                sorted[i] = slots[i];
+            }
+            sortedSlots[key.ordinal()] = sorted;
+        }
+        sortedCount = count;
+    }
+
+    /** Inserts a slot into every sorted order; its columns must hold the new values. */
+    private void sort(int slot) {
+        if (loading) {
+            return;
+        }
+        for (SortKey key : SORT_KEYS) {
+            int[] sorted = sortedSlots[key.ordinal()];
+            if (sortedCount == sorted.length) {
+                sorted = Arrays.copyOf(sorted, sorted.length * 2);
+                sortedSlots[key.ordinal()] = sorted;
+            }
+            int position = -search(key, sorted, slot) - 1;
+            System.arraycopy(sorted, position, sorted, position + 1, sortedCount - position);
+            sorted[position] = slot;
+        }
+        sortedCount++;
+    }
+
+    /** Removes a slot from every sorted order; its columns must still hold the values it was sorted by. */
+    private void unsort(int slot) {
+        if (loading) {
+            return;
+        }
+        for (SortKey key : SORT_KEYS) {
+            int[] sorted = sortedSlots[key.ordinal()];
+            int position = search(key, sorted, slot);
+            System.arraycopy(sorted, position + 1, sorted, position, sortedCount - position - 1);
+        }
+        sortedCount--;
+    }
+
+    /** Position of the slot in the order, or -(insertion point) - 1 like Arrays.binarySearch. */
+    private int search(SortKey key, int[] sorted, int slot) {
+        int low = 0;
+        int high = sortedCount - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int compared = compare(key, sorted[mid], slot);
+            if (compared < 0) {
+                low = mid + 1;
+            } else if (compared > 0) {
+                high = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -(low + 1);
+    }
+
+    private void write(CatalogProduct product) {
+        Integer slot = slotsById.get(product.getId());
+        if (slot == null) {
+            slot = freeSlots.isEmpty() ? highWaterMark++ : freeSlots.pop();
+            ensureCapacity(slot + 1);
+            slotsById.put(product.getId(), slot);
+        } else {
+            unsort(slot);
+        }
+
+        ids[slot] = product.getId();
+        categories[slot] = (byte) ordinal(product.getCategory());
+        subcategories[slot] = (short) ordinal(product.getSubcategory());
+        genders[slot] = (byte) ordinal(product.getGender());
+        prices[slot] = product.getPrice() == null ? 0 : toHundredths(product.getPrice(), RoundingMode.HALF_UP);
+        // Derived here: products from the single-event path are published before they are flushed
+        BigDecimal effectivePrice = CatalogProduct.effectivePrice(product.getPrice(), product.getDiscount());
+        effectivePrices[slot] = effectivePrice == null ? 0 : toHundredths(effectivePrice, RoundingMode.HALF_UP);
+        discounts[slot] = product.getDiscount() == null ? 0 : (int) toHundredths(product.getDiscount(), RoundingMode.HALF_UP);
+        live.set(slot);
+        available.set(slot, product.isAvailable());
+        clearSizes(slot);
+        if (product.getSizes() != null) {
+            for (String size : product.getSizes()) {
+                if (size != null && !size.isBlank()) {
+                    sizes.computeIfAbsent(size.trim(), key -> new BitSet()).set(slot);
+                }
+            }
+        }
+        sort(slot);
+    }
+
+    /** There are only a few dozen size codes, so clearing a slot from each is cheap. */
+    private void clearSizes(int slot) {
+        for (BitSet slots : sizes.values()) {
+            slots.clear(slot);
+        }
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity <= ids.length) {
+            return;
+        }
+        int newLength = Math.max(capacity, ids.length * 2);
+        ids = Arrays.copyOf(ids, newLength);
+        categories = Arrays.copyOf(categories, newLength);
+        subcategories = Arrays.copyOf(subcategories, newLength);
+        genders = Arrays.copyOf(genders, newLength);
+        prices = Arrays.copyOf(prices, newLength);
+        effectivePrices = Arrays.copyOf(effectivePrices, newLength);
+        discounts = Arrays.copyOf(discounts, newLength);
+    }
+
+    private void clear() {
+        slotsById.clear();
+        freeSlots.clear();
+        live.clear();
+        available.clear();
+        sizes.clear();
+        Arrays.fill(ids, null);
+        highWaterMark = 0;
+        sortedCount = 0;
+        ready = false;
+    }
+
+    private static int ordinal(Enum<?> value) {
+        return value == null ? NO_VALUE : value.ordinal();
+    }
+
+    /** Whether the ordinal is one of the selected ones; any value matches when nothing is selected. */
+    private static boolean isMember(BitSet selected, int ordinal) {
+        return selected == null || ordinal != NO_VALUE && selected.get(ordinal);
+    }
+
+    /** Ordinals of the selected values, or null when the dimension is not filtered on. */
+    private static BitSet ordinals(Set<? extends Enum<?>> values) {
+        if (values == null || values.isEmpty()) {
+            return null;
+        }
+        BitSet ordinals = new BitSet();
+        for (Enum<?> value : values) {
+            if (value != null) {
+                ordinals.set(value.ordinal());
+            }
+        }
+        return ordinals;
+    }
+
+    private static <E> E valueOf(E[] values, int ordinal) {
+        return ordinal == NO_VALUE ? null : values[ordinal];
+    }
+
+    private static long toHundredths(BigDecimal value, RoundingMode roundingMode) {
+        return value.setScale(2, roundingMode).unscaledValue().longValue();
+    }
+
+    /**
+     * Filter compiled down to the primitive representation of the columns.
+     * Categories, subcategories and genders are sets of ordinals, null when any value matches.
+     * Prices and discounts are held in hundredths, missing bounds are open.
+     * Price bounds apply to the effective price. Sizes are null when not filtered on.
+     */
+    private record Criteria(
+            BitSet categories,
+            BitSet subcategories,
+            BitSet genders,
+            long minPrice,
+            long maxPrice,
+            long minDiscount,
+            long maxDiscount,
+            Boolean available,
+            List<String> sizes
+    ) {
+        static Criteria of(ProductFilterRequest filter) {
+            if (filter == null) {
+                return new Criteria(null, null, null,
+                        Long.MIN_VALUE, Long.MAX_VALUE, Long.MIN_VALUE, Long.MAX_VALUE, null, null);
+            }
+            return new Criteria(
+                    ordinals(filter.category()),
+                    ordinals(filter.subcategory()),
+                    ordinals(filter.gender()),
+                    filter.minPrice() == null ? Long.MIN_VALUE : toHundredths(filter.minPrice(), RoundingMode.CEILING),
+                    filter.maxPrice() == null ? Long.MAX_VALUE : toHundredths(filter.maxPrice(), RoundingMode.FLOOR),
+                    filter.minDiscount() == null ? Long.MIN_VALUE : toHundredths(filter.minDiscount(), RoundingMode.CEILING),
+                    filter.maxDiscount() == null ? Long.MAX_VALUE : toHundredths(filter.maxDiscount(), RoundingMode.FLOOR),
+                    filter.available(),
+                    FilterSignature.sizes(filter.sizes())
+            );
+        }
+    }
+}
@@ -0,0 +1,15 @@
+package com.teipsum.catalogservice.invalidation;
+
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Broadcast by the replica that committed a product change. A message without
+ * product ids is a heartbeat. sentAt is only ever compared by its sender.
+ */
+public record CatalogInvalidation(
+        String origin,
+        List<UUID> productIds,
+        long sentAt
+) {
+}
@@ -0,0 +1,293 @@
+package com.teipsum.catalogservice.invalidation;
+
+import com.teipsum.catalogservice.cache.ListingPageCache;
+import com.teipsum.catalogservice.cache.TwoTierCacheManager;
+import com.teipsum.catalogservice.event.CatalogProductChangedEvent;
+import com.teipsum.catalogservice.index.CatalogIndex;
+import com.teipsum.catalogservice.service.CatalogService;
+import com.teipsum.catalogservice.version.CatalogVersions;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.context.event.EventListener;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keeps the local state of this replica (near-cache tiers, serialized products, catalog
+ * index and versions) in line with product changes applied by other replicas, which only
+ * consume their own product event partitions.
+ * <p>
+ * The changes of every committed transaction are broadcast as one record on a
+ * single-partition topic that each replica reads with a group of its own. Heartbeats
+ * go through the same topic: reading back its own heartbeat sent at T proves a replica
+ * has applied every broadcast published before T.
+ * When that proof is older than max-staleness, or a broadcast could not be applied, the
+ * replica stops trusting its local state (the index is suspended and local caches are
+ * dropped on every tick) until a heartbeat sent after that point comes back.
+ */
+@Component
+public class CatalogInvalidationBus implements SmartLifecycle, MeterBinder {
+
+    private static final Logger logger = LogManager.getLogger(CatalogInvalidationBus.class);
+
+    private final KafkaTemplate<String, Object> kafkaTemplate;
+    private final CatalogService catalogService;
+    private final TwoTierCacheManager cacheManager;
+    private final ListingPageCache listingPages;
+    private final CatalogIndex catalogIndex;
+    private final CatalogVersions catalogVersions;
+    private final boolean enabled;
+    private final String topic;
+    private final Duration heartbeatInterval;
+    private final Duration maxStaleness;
+
+    private final String instanceId = UUID.randomUUID().toString();
+
+    private ScheduledExecutorService scheduler;
+    private volatile boolean running;
+    // Send time of the newest own broadcast read back from the topic
+    private volatile long confirmedAt;
+    // When local state stopped being trusted, or -1 while it is; an enabled replica starts out stale
+    private long staleSince;
+
+    public CatalogInvalidationBus(KafkaTemplate<String, Object> kafkaTemplate,
+                                  CatalogService catalogService,
+                                  TwoTierCacheManager cacheManager,
+                                  ListingPageCache listingPages,
+                                  CatalogIndex catalogIndex,
+                                  CatalogVersions catalogVersions,
+                                  @Value("${catalog.invalidation.enabled:false}") boolean enabled,
+                                  @Value("${catalog.invalidation.topic:catalog-invalidations}") String topic,
+                                  @Value("${catalog.invalidation.heartbeat-interval:2s}") Duration heartbeatInterval,
+                                  @Value("${catalog.invalidation.max-staleness:10s}") Duration maxStaleness) {
+        this.kafkaTemplate = kafkaTemplate;
+        this.catalogService = catalogService;
+        this.cacheManager = cacheManager;
+        this.listingPages = listingPages;
+        this.catalogIndex = catalogIndex;
+        this.catalogVersions = catalogVersions;
+        this.enabled = enabled;
+        this.topic = topic;
+        this.heartbeatInterval = heartbeatInterval;
+        this.maxStaleness = maxStaleness;
+        this.staleSince = enabled ? 0 : -1;
+    }
+
+    /** Consumer group of this replica; unique, so every replica reads every broadcast. */
+    public String getGroupId() {
+        return "catalog-invalidation-" + instanceId;
+    }
+
+    @Override
+    public void start() {
+        running = true;
+        if (!enabled) {
+            return;
+        }
+        // Separate threads: a send blocked on an unreachable broker must not delay the staleness check
+        scheduler = Executors.newScheduledThreadPool(2, runnable -> {
+            Thread thread = new Thread(runnable, "catalog-invalidation");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long period = heartbeatInterval.toMillis();
+        scheduler.scheduleWithFixedDelay(this::checkQuietly, period, period, TimeUnit.MILLISECONDS);
+        scheduler.scheduleWithFixedDelay(() -> send(List.of()), 0, period, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    /**
+     * Collects the changes of the publishing transaction, which are broadcast together
+     * after it commits; a change published outside a transaction is broadcast right away.
+     */
+    @EventListener
+    public void onProductChanged(CatalogProductChangedEvent event) {
+        if (!enabled || event.remote()) {
+            return;
+        }
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            send(List.of(event.productId()));
+            return;
+        }
+        // Looked up among the synchronizations, which unlike resources are suspended with their transaction
+        PendingBroadcast pending = null;
+        for (TransactionSynchronization synchronization : TransactionSynchronizationManager.getSynchronizations()) {
+            if (synchronization instanceof PendingBroadcast broadcast) {
+                pending = broadcast;
+                break;
+            }
+        }
+        if (pending == null) {
+            pending = new PendingBroadcast();
+            TransactionSynchronizationManager.registerSynchronization(pending);
+        }
+        pending.productIds.add(event.productId());
+    }
+
+    /**
+     * Starts at the end of the topic: a replica that was not listening yet has nothing
+     * cached from before, and stays stale until its first heartbeat comes back anyway.
+     */
+    @KafkaListener(topics = "${catalog.invalidation.topic:catalog-invalidations}",
+            groupId = "#{__listener.groupId}",
+            containerFactory = "invalidationKafkaListenerContainerFactory",
+            autoStartup = "${catalog.invalidation.enabled:false}",
+            properties = "auto.offset.reset=latest"
+    )
+    public void onInvalidations(List<ConsumerRecord<String, Object>> records) {
+        Set<UUID> changed = new LinkedHashSet<>();
+        long confirmed = -1;
+        for (ConsumerRecord<String, Object> record : records) {
+            if (!(record.value() instanceof CatalogInvalidation invalidation)) {
+                markStale("unreadable broadcast at offset " + record.offset());
+                continue;
+            }
+            if (instanceId.equals(invalidation.origin())) {
+                confirmed = Math.max(confirmed, invalidation.sentAt());
+            } else {
+                changed.addAll(invalidation.productIds());
+            }
+        }
+
+        try {
+            apply(changed);
+        } catch (RuntimeException e) {
+            markStale("failed to apply " + changed.size() + " remote changes: " + e.getMessage());
+            return;
+        }
+        if (confirmed > confirmedAt) {
+            confirmedAt = confirmed;
+        }
+    }
+
+    public synchronized boolean isStale() {
+        return staleSince >= 0;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("catalog.invalidation.confirmed.age", this,
+                        bus -> bus.confirmedAt == 0 ? Double.NaN : (System.currentTimeMillis() - bus.confirmedAt) / 1000.0)
+                .baseUnit("seconds")
+                .description("Age of the newest own heartbeat read back from the invalidation topic")
+                .register(registry);
+        Gauge.builder("catalog.invalidation.stale", this, bus -> bus.isStale() ? 1 : 0)
+                .description("1 while local catalog state is not trusted and bypassed")
+                .register(registry);
+    }
+
+    private void checkQuietly() {
+        try {
+            check(System.currentTimeMillis());
+        } catch (RuntimeException e) {
+            logger.warn("Invalidation bus check failed: {}", e.getMessage());
+        }
+    }
+
+    synchronized void check(long now) {
+        boolean confirmedRecently = now - confirmedAt <= maxStaleness.toMillis();
+        if (staleSince < 0) {
+            if (confirmedRecently) {
+                return;
+            }
+            markStale("no heartbeat read back for " + maxStaleness);
+            return;
+        }
+        if (confirmedRecently && confirmedAt > staleSince) {
+            recover();
+        } else {
+            dropLocalState();
+        }
+    }
+
+    synchronized void markStale(String reason) {
+        if (staleSince < 0) {
+            logger.warn("Local catalog state is no longer trusted: {}", reason);
+            catalogIndex.suspend();
+        }
+        staleSince = System.currentTimeMillis();
+        dropLocalState();
+    }
+
+    private void recover() {
+        staleSince = -1;
+        // Rebuilt before the caches are dropped, so nothing is refilled from the old index
+        catalogIndex.rebuild();
+        dropLocalState();
+        logger.info("Invalidation bus confirmed, local catalog state is trusted again");
+    }
+
+    private void dropLocalState() {
+        cacheManager.clearLocal();
+        listingPages.clear();
+        catalogVersions.invalidateAll();
+    }
+
+    private void apply(Set<UUID> changed) {
+        if (changed.isEmpty()) {
+            return;
+        }
+        // The writer evicted the shared tier after its commit; only local copies are left
+        for (UUID id : changed) {
+            cacheManager.evictLocal("products", id.toString());
+        }
+        cacheManager.clearLocal("facets");
+        catalogService.applyRemoteChanges(changed);
+        logger.debug("Applied {} product changes from other replicas", changed.size());
+    }
+
+    /** The changes of one transaction, broadcast once it committed. */
+    private final class PendingBroadcast implements TransactionSynchronization {
+
+        private final Set<UUID> productIds = new LinkedHashSet<>();
+
+        @Override
+        public void afterCommit() {
+            send(List.copyOf(productIds));
+        }
+    }
+
+    // A lost broadcast is caught by the heartbeats, so failures are only logged
+    private void send(List<UUID> productIds) {
+        try {
+            kafkaTemplate.send(topic, new CatalogInvalidation(instanceId, productIds, System.currentTimeMillis()))
+                    .whenComplete((result, e) -> {
+                        if (e != null) {
+                            logger.debug("Failed to broadcast invalidation: {}", e.getMessage());
+                        }
+                    });
+        } catch (RuntimeException e) {
+            logger.debug("Failed to broadcast invalidation: {}", e.getMessage());
+        }
+    }
+}
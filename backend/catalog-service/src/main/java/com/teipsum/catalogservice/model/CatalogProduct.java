@@ -5,11 +5,20 @@ import jakarta.persistence.*;
 import lombok.*;
 import lombok.experimental.SuperBuilder;
 
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.Instant;
 import java.util.List;
 import java.util.UUID;
 
 @Entity
-@Table(name = "catalog_products")
+@Table(name = "catalog_products", indexes = {
+        @Index(name = "idx_catalog_products_price_id", columnList = "price, id"),
+        @Index(name = "idx_catalog_products_effective_price_id", columnList = "effective_price, id"),
+        @Index(name = "idx_catalog_products_discount_id", columnList = "discount, id"),
+        @Index(name = "idx_catalog_products_title_id", columnList = "title, id"),
+        @Index(name = "idx_catalog_products_updated_at_id", columnList = "updated_at, id")
+})
 @Getter
 @Setter
 @NoArgsConstructor
@@ -17,6 +26,11 @@ import java.util.UUID;
 @SuperBuilder
 public class CatalogProduct extends ProductBase {
 
+    /** Attribute holding the price after discount, the one shoppers see and filter on. */
+    public static final String EFFECTIVE_PRICE = "effectivePrice";
+
+    private static final BigDecimal HUNDRED = BigDecimal.valueOf(100);
+
     @Id
     private UUID id;
 
@@ -24,4 +38,40 @@ public class CatalogProduct extends ProductBase {
     @CollectionTable(name = "catalog_product_sizes", joinColumns = @JoinColumn(name = "product_id"))
     @Column(name = "size")
     private List<String> sizes;
+
+    // Last write to the row in this catalog, drives incremental exports
+    @Column(name = "updated_at", nullable = false)
+    private Instant updatedAt;
+
+    // Price minus the percentage discount, kept in step with both on every write
+    @Column(name = "effective_price", nullable = false, precision = 10, scale = 2)
+    private BigDecimal effectivePrice;
+
+    @PrePersist
+    void onPersist() {
+        if (updatedAt == null) {
+            updatedAt = Instant.now();
+        }
+        refreshEffectivePrice();
+    }
+
+    @PreUpdate
+    void onUpdate() {
+        refreshEffectivePrice();
+    }
+
+    public void refreshEffectivePrice() {
+        effectivePrice = effectivePrice(price, discount);
+    }
+
+    /** Price after a percentage discount, rounded half up to cents; no discount means the list price. */
+    public static BigDecimal effectivePrice(BigDecimal price, BigDecimal discount) {
+        if (price == null) {
+            return null;
+        }
+        if (discount == null || discount.signum() == 0) {
+            return price.setScale(2, RoundingMode.HALF_UP);
+        }
+        return price.multiply(HUNDRED.subtract(discount)).divide(HUNDRED, 2, RoundingMode.HALF_UP);
+    }
 }
@@ -0,0 +1,39 @@
+package com.teipsum.catalogservice.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.io.Serializable;
+
+/**
+ * Next offset to consume per product event partition, written in the same
+ * transaction as the catalog changes it covers. Lives in the JPA schema so it
+ * is dropped and recreated together with catalog_products.
+ */
+@Entity
+@Table(name = "catalog_event_offsets")
+@IdClass(EventOffset.Key.class)
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class EventOffset {
+
+    @Id
+    private String topic;
+
+    @Id
+    @Column(name = "partition_no")
+    private int partition;
+
+    @Column(name = "next_offset", nullable = false)
+    private long nextOffset;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Key implements Serializable {
+        private String topic;
+        private int partition;
+    }
+}
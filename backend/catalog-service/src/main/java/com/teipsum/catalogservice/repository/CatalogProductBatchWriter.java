@@ -0,0 +1,222 @@
+package com.teipsum.catalogservice.repository;
+
+import com.teipsum.catalogservice.model.CatalogProduct;
+import com.teipsum.catalogservice.model.EventOffset;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.core.namedparam.SqlParameterSource;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Set-based writes of catalog rows for batch event processing. Bypasses the
+ * persistence context: each call issues a fixed number of JDBC batches no
+ * matter how many products it touches. Callers must run inside a transaction.
+ */
+@Repository
+@RequiredArgsConstructor
+public class CatalogProductBatchWriter {
+
+    private static final String SELECT_EXISTING = "SELECT id FROM catalog_products WHERE id IN (:ids)";
+
+    private static final String INSERT_PRODUCT = """
+            INSERT INTO catalog_products (id, title, description, price, discount, effective_price, category, subcategory,
+                                          gender, available, updated_at)
+            VALUES (:id, :title, :description, :price, :discount, :effectivePrice, :category, :subcategory,
+                    :gender, :available, :updatedAt)
+            """;
+
+    private static final String UPDATE_PRODUCT = """
+            UPDATE catalog_products
+            SET title = :title, description = :description, price = :price, discount = :discount,
+                effective_price = :effectivePrice, category = :category, subcategory = :subcategory,
+                gender = :gender, available = :available, updated_at = :updatedAt
+            WHERE id = :id
+            """;
+
+    private static final String SELECT_AVAILABILITY_FLIPS =
+            "SELECT id FROM catalog_products WHERE id IN (:ids) AND available <> :available";
+
+    private static final String UPDATE_AVAILABILITY =
+            "UPDATE catalog_products SET available = :available, updated_at = :updatedAt WHERE id IN (:ids)";
+
+    private static final String DELETE_IMAGES = "DELETE FROM product_images WHERE product_id IN (:ids)";
+    private static final String DELETE_SIZES = "DELETE FROM catalog_product_sizes WHERE product_id IN (:ids)";
+    private static final String DELETE_PRODUCTS = "DELETE FROM catalog_products WHERE id IN (:ids)";
+
+    private static final String INSERT_IMAGE = "INSERT INTO product_images (product_id, image_url) VALUES (:id, :value)";
+    private static final String INSERT_SIZE = "INSERT INTO catalog_product_sizes (product_id, size) VALUES (:id, :value)";
+
+    private static final String UPDATE_OFFSET = """
+            UPDATE catalog_event_offsets SET next_offset = :nextOffset
+            WHERE topic = :topic AND partition_no = :partition
+            """;
+
+    private static final String INSERT_OFFSET = """
+            INSERT INTO catalog_event_offsets (topic, partition_no, next_offset)
+            VALUES (:topic, :partition, :nextOffset)
+            """;
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+
+    public Set<UUID> findExistingIds(Collection<UUID> ids) {
+        if (ids.isEmpty()) {
+            return Set.of();
+        }
+        return new HashSet<>(jdbcTemplate.queryForList(SELECT_EXISTING, Map.of("ids", ids), UUID.class));
+    }
+
+    /**
+     * Inserts new products and overwrites existing ones, replacing their images and sizes.
+     * Products without an update time (fresh from events) are stamped with the current time,
+     * and the effective price is derived from price and discount before writing.
+     */
+    public void upsertAll(Collection<CatalogProduct> products) {
+        if (products.isEmpty()) {
+            return;
+        }
+
+        List<UUID> ids = products.stream().map(CatalogProduct::getId).toList();
+        Set<UUID> existing = findExistingIds(ids);
+
+        Instant now = Instant.now();
+        List<SqlParameterSource> inserts = new ArrayList<>();
+        List<SqlParameterSource> updates = new ArrayList<>();
+        for (CatalogProduct product : products) {
+            if (product.getUpdatedAt() == null) {
+                product.setUpdatedAt(now);
+            }
+            product.refreshEffectivePrice();
+            (existing.contains(product.getId()) ? updates : inserts).add(row(product));
+        }
+
+        if (!updates.isEmpty()) {
+            jdbcTemplate.batchUpdate(UPDATE_PRODUCT, updates.toArray(SqlParameterSource[]::new));
+            deleteCollections(existing);
+        }
+        if (!inserts.isEmpty()) {
+            jdbcTemplate.batchUpdate(INSERT_PRODUCT, inserts.toArray(SqlParameterSource[]::new));
+        }
+
+        List<SqlParameterSource> images = new ArrayList<>();
+        List<SqlParameterSource> sizes = new ArrayList<>();
+        for (CatalogProduct product : products) {
+            addValues(images, product.getId(), product.getImageUrls());
+            addValues(sizes, product.getId(), product.getSizes());
+        }
+        if (!images.isEmpty()) {
+            jdbcTemplate.batchUpdate(INSERT_IMAGE, images.toArray(SqlParameterSource[]::new));
+        }
+        if (!sizes.isEmpty()) {
+            jdbcTemplate.batchUpdate(INSERT_SIZE, sizes.toArray(SqlParameterSource[]::new));
+        }
+    }
+
+    public void deleteAll(Collection<UUID> ids) {
+        if (ids.isEmpty()) {
+            return;
+        }
+        deleteCollections(ids);
+        jdbcTemplate.update(DELETE_PRODUCTS, Map.of("ids", ids));
+    }
+
+    /**
+     * Sets the available flag of the given products with one statement per value and
+     * returns the ids whose flag actually flipped; rows already in that state and
+     * unknown ids are left alone.
+     */
+    public Set<UUID> updateAvailability(Map<UUID, Boolean> availability) {
+        Set<UUID> flipped = new HashSet<>();
+        Timestamp updatedAt = Timestamp.from(Instant.now());
+        for (boolean available : new boolean[]{true, false}) {
+            List<UUID> ids = availability.entrySet().stream()
+                    .filter(entry -> entry.getValue() == available)
+                    .map(Map.Entry::getKey)
+                    .toList();
+            if (ids.isEmpty()) {
+                continue;
+            }
+            List<UUID> flipping = jdbcTemplate.queryForList(SELECT_AVAILABILITY_FLIPS,
+                    new MapSqlParameterSource().addValue("ids", ids).addValue("available", available), UUID.class);
+            if (flipping.isEmpty()) {
+                continue;
+            }
+            jdbcTemplate.update(UPDATE_AVAILABILITY, new MapSqlParameterSource()
+                    .addValue("ids", flipping)
+                    .addValue("available", available)
+                    .addValue("updatedAt", updatedAt));
+            flipped.addAll(flipping);
+        }
+        return flipped;
+    }
+
+    /**
+     * Records how far the product event partitions have been applied.
+     */
+    public void saveOffsets(Collection<EventOffset> offsets) {
+        if (offsets.isEmpty()) {
+            return;
+        }
+        SqlParameterSource[] rows = offsets.stream()
+                .map(offset -> new MapSqlParameterSource()
+                        .addValue("topic", offset.getTopic())
+                        .addValue("partition", offset.getPartition())
+                        .addValue("nextOffset", offset.getNextOffset()))
+                .toArray(SqlParameterSource[]::new);
+
+        int[] updated = jdbcTemplate.batchUpdate(UPDATE_OFFSET, rows);
+        List<SqlParameterSource> inserts = new ArrayList<>();
+        for (int i = 0; i < updated.length; i++) {
+            if (updated[i] == 0) {
+                inserts.add(rows[i]);
+            }
+        }
+        if (!inserts.isEmpty()) {
+            jdbcTemplate.batchUpdate(INSERT_OFFSET, inserts.toArray(SqlParameterSource[]::new));
+        }
+    }
+
+    private void deleteCollections(Collection<UUID> ids) {
+        Map<String, Object> parameters = Map.of("ids", ids);
+        jdbcTemplate.update(DELETE_IMAGES, parameters);
+        jdbcTemplate.update(DELETE_SIZES, parameters);
+    }
+
+    private static SqlParameterSource row(CatalogProduct product) {
+        return new MapSqlParameterSource()
+                .addValue("id", product.getId())
+                .addValue("title", product.getTitle())
+                .addValue("description", product.getDescription())
+                .addValue("price", product.getPrice())
+                .addValue("discount", product.getDiscount())
+                .addValue("effectivePrice", product.getEffectivePrice())
+                .addValue("category", name(product.getCategory()))
+                .addValue("subcategory", name(product.getSubcategory()))
+                .addValue("gender", name(product.getGender()))
+                .addValue("available", product.isAvailable())
+                .addValue("updatedAt", Timestamp.from(product.getUpdatedAt()));
+    }
+
+    private static void addValues(List<SqlParameterSource> rows, UUID id, List<String> values) {
+        if (values == null) {
+            return;
+        }
+        for (String value : values) {
+            rows.add(new MapSqlParameterSource().addValue("id", id).addValue("value", value));
+        }
+    }
+
+    private static String name(Enum<?> value) {
+        return value == null ? null : value.name();
+    }
+}
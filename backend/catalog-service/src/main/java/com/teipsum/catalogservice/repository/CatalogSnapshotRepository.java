@@ -0,0 +1,133 @@
+package com.teipsum.catalogservice.repository;
+
+import com.teipsum.catalogservice.model.CatalogProduct;
+import com.teipsum.shared.product.enums.Gender;
+import com.teipsum.shared.product.enums.ProductCategory;
+import com.teipsum.shared.product.enums.ProductSubcategory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import javax.sql.DataSource;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.function.Consumer;
+
+/**
+ * Streams the catalog over JDBC for snapshots and exports. Products are read through
+ * a forward-only cursor and handed out in chunks whose images and sizes are loaded
+ * with one query each, so memory stays constant whatever the catalog size. Callers
+ * must run inside one transaction; snapshots need at least REPEATABLE READ so all
+ * queries see the same state.
+ */
+@Repository
+public class CatalogSnapshotRepository {
+
+    private static final int CHUNK_SIZE = 500;
+
+    private static final String SELECT_PRODUCTS = """
+            SELECT id, title, description, price, discount, effective_price, category, subcategory, gender, available, updated_at
+            FROM catalog_products
+            """;
+
+    private static final String SELECT_PRODUCTS_UPDATED_SINCE = SELECT_PRODUCTS + """
+            WHERE updated_at >= ?
+            ORDER BY updated_at, id
+            """;
+
+    private static final String SELECT_PRODUCTS_ORDERED = SELECT_PRODUCTS + "ORDER BY updated_at, id";
+
+    private static final String SELECT_IMAGES = "SELECT product_id, image_url FROM product_images WHERE product_id IN (:ids)";
+    private static final String SELECT_SIZES = "SELECT product_id, size FROM catalog_product_sizes WHERE product_id IN (:ids)";
+    private static final String COUNT_PRODUCTS = "SELECT count(*) FROM catalog_products";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final NamedParameterJdbcTemplate namedJdbcTemplate;
+
+    public CatalogSnapshotRepository(DataSource dataSource) {
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        // Lets the driver stream rows with a cursor instead of buffering the whole table
+        this.jdbcTemplate.setFetchSize(1000);
+        this.namedJdbcTemplate = new NamedParameterJdbcTemplate(jdbcTemplate);
+    }
+
+    public long countProducts() {
+        Long count = jdbcTemplate.queryForObject(COUNT_PRODUCTS, Long.class);
+        return count == null ? 0 : count;
+    }
+
+    /** Every product, in no particular order. */
+    public void forEachProduct(Consumer<CatalogProduct> consumer) {
+        stream(SELECT_PRODUCTS, new Object[0], consumer);
+    }
+
+    /**
+     * Products updated at or after the given instant, or all of them when it is null,
+     * ordered by update time and id.
+     */
+    public void forEachProductUpdatedSince(Instant updatedSince, Consumer<CatalogProduct> consumer) {
+        if (updatedSince == null) {
+            stream(SELECT_PRODUCTS_ORDERED, new Object[0], consumer);
+        } else {
+            stream(SELECT_PRODUCTS_UPDATED_SINCE, new Object[]{Timestamp.from(updatedSince)}, consumer);
+        }
+    }
+
+    private void stream(String sql, Object[] arguments, Consumer<CatalogProduct> consumer) {
+        List<CatalogProduct> chunk = new ArrayList<>(CHUNK_SIZE);
+        // The collection queries run on the same connection while the cursor stays open
+        jdbcTemplate.query(sql, rs -> {
+            chunk.add(product(rs));
+            if (chunk.size() == CHUNK_SIZE) {
+                emit(chunk, consumer);
+            }
+        }, arguments);
+        emit(chunk, consumer);
+    }
+
+    private void emit(List<CatalogProduct> chunk, Consumer<CatalogProduct> consumer) {
+        if (chunk.isEmpty()) {
+            return;
+        }
+        List<UUID> ids = chunk.stream().map(CatalogProduct::getId).toList();
+        Map<UUID, List<String>> images = collection(SELECT_IMAGES, ids);
+        Map<UUID, List<String>> sizes = collection(SELECT_SIZES, ids);
+        for (CatalogProduct product : chunk) {
+            product.setImageUrls(images.getOrDefault(product.getId(), List.of()));
+            product.setSizes(sizes.getOrDefault(product.getId(), List.of()));
+            consumer.accept(product);
+        }
+        chunk.clear();
+    }
+
+    private Map<UUID, List<String>> collection(String sql, List<UUID> ids) {
+        Map<UUID, List<String>> values = new HashMap<>();
+        namedJdbcTemplate.query(sql, Map.of("ids", ids), rs -> {
+            values.computeIfAbsent(rs.getObject(1, UUID.class), id -> new ArrayList<>()).add(rs.getString(2));
+        });
+        return values;
+    }
+
+    private static CatalogProduct product(ResultSet rs) throws SQLException {
+        return CatalogProduct.builder()
+                .id(rs.getObject("id", UUID.class))
+                .title(rs.getString("title"))
+                .description(rs.getString("description"))
+                .price(rs.getBigDecimal("price"))
+                .discount(rs.getBigDecimal("discount"))
+                .effectivePrice(rs.getBigDecimal("effective_price"))
+                .category(ProductCategory.valueOf(rs.getString("category")))
+                .subcategory(ProductSubcategory.valueOf(rs.getString("subcategory")))
+                .gender(Gender.valueOf(rs.getString("gender")))
+                .available(rs.getBoolean("available"))
+                .updatedAt(rs.getTimestamp("updated_at").toInstant())
+                .build();
+    }
+}
@@ -1,10 +1,32 @@
 package com.teipsum.catalogservice.repository;
 
+import com.teipsum.catalogservice.dto.ProductFacets;
+import com.teipsum.catalogservice.facet.PriceBuckets;
 import com.teipsum.catalogservice.model.CatalogProduct;
+import com.teipsum.catalogservice.util.ListingCursor;
+import com.teipsum.shared.product.dto.ProductFilterRequest;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.domain.Specification;
 
+import java.util.List;
+
 public interface CustomCatalogProductRepository {
-    Page<CatalogProduct> findAllWithDistinctCount(Specification<CatalogProduct> spec, Pageable pageable);
+    /** Structured filters and sort from compiled per-shape queries; a search query is matched with LIKE. */
+    Page<CatalogProduct> findFiltered(ProductFilterRequest filter, Pageable pageable);
+
+    long countFiltered(ProductFilterRequest filter);
+
+    Slice<CatalogProduct> findFilteredSlice(ProductFilterRequest filter, Pageable pageable);
+
+    Page<CatalogProduct> searchRanked(ProductFilterRequest filter, Pageable pageable);
+
+    long countRanked(ProductFilterRequest filter);
+
+    Slice<CatalogProduct> searchRankedSlice(ProductFilterRequest filter, Pageable pageable);
+
+    ProductFacets countFacets(ProductFilterRequest filter, PriceBuckets priceBuckets, boolean fullText);
+
+    List<CatalogProduct> findAllAfter(Specification<CatalogProduct> spec, ListingCursor cursor, int limit);
 }
\ No newline at end of file
@@ -1,68 +1,291 @@
 // CustomCatalogProductRepositoryImpl.java
 package com.teipsum.catalogservice.repository;
 
+import com.teipsum.catalogservice.dto.ProductFacets;
+import com.teipsum.catalogservice.facet.FacetCounter;
+import com.teipsum.catalogservice.facet.PriceBuckets;
 import com.teipsum.catalogservice.model.CatalogProduct;
+import com.teipsum.catalogservice.util.ListingCursor;
+import com.teipsum.catalogservice.util.ListingSort;
+import com.teipsum.shared.exceptions.InvalidSortPropertyException;
+import com.teipsum.shared.product.dto.ProductFilterRequest;
+import com.teipsum.shared.product.enums.Gender;
+import com.teipsum.shared.product.enums.ProductCategory;
+import com.teipsum.shared.product.enums.ProductSubcategory;
 import jakarta.persistence.EntityManager;
 import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.Query;
 import jakarta.persistence.TypedQuery;
 import jakarta.persistence.criteria.*;
 import org.springframework.data.domain.Page;
-import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
 import org.springframework.data.domain.Sort;
 import org.springframework.data.jpa.domain.Specification;
 
+import java.math.BigDecimal;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.UUID;
 
 public class CustomCatalogProductRepositoryImpl implements CustomCatalogProductRepository {
 
+    private static final String RANK = "ts_rank(p.search_vector, to_tsquery('simple', :tsQuery))";
+    private static final String RELEVANCE = "relevance";
+
+    private static final Map<String, String> SORT_COLUMNS = Map.of(
+            "price", "p.price",
+            CatalogProduct.EFFECTIVE_PRICE, "p.effective_price",
+            "discount", "p.discount",
+            "title", "p.title"
+    );
+
+    private static final long MAX_QUERY_SHAPES = 1000;
+
+    private final ListingQueryPlans queryPlans = new ListingQueryPlans(MAX_QUERY_SHAPES);
+    private final ListingQueryExecutor queryExecutor;
+
     @PersistenceContext
     private EntityManager em;
 
+    public CustomCatalogProductRepositoryImpl(ListingQueryExecutor queryExecutor) {
+        this.queryExecutor = queryExecutor;
+    }
+
     @Override
-    public Page<CatalogProduct> findAllWithDistinctCount(Specification<CatalogProduct> spec, Pageable pageable) {
-        CriteriaBuilder cb = em.getCriteriaBuilder();
+    public Page<CatalogProduct> findFiltered(ProductFilterRequest filter, Pageable pageable) {
+        ListingQueryPlans.Plan plan = plan(filter, pageable);
+        return queryExecutor.page(
+                () -> filteredContent(plan, filter, pageable, pageable.getPageSize()),
+                () -> plan.bind(em.createQuery(plan.count(), Long.class), filter).getSingleResult(),
+                pageable);
+    }
 
-        CriteriaQuery<Long> countQuery = cb.createQuery(Long.class);
-        Root<CatalogProduct> countRoot = countQuery.from(CatalogProduct.class);
-        countQuery.select(cb.countDistinct(countRoot));
+    @Override
+    public long countFiltered(ProductFilterRequest filter) {
+        ListingQueryPlans.Plan plan = plan(filter, Pageable.unpaged());
+        return plan.bind(em.createQuery(plan.count(), Long.class), filter).getSingleResult();
+    }
 
-        if (spec != null) {
-            Predicate predicate = spec.toPredicate(countRoot, countQuery, cb);
-            if (predicate != null) {
-                countQuery.where(predicate);
+    @Override
+    public Slice<CatalogProduct> findFilteredSlice(ProductFilterRequest filter, Pageable pageable) {
+        ListingQueryPlans.Plan plan = plan(filter, pageable);
+        return toSlice(filteredContent(plan, filter, pageable, pageable.getPageSize() + 1), pageable);
+    }
+
+    private ListingQueryPlans.Plan plan(ProductFilterRequest filter, Pageable pageable) {
+        return queryPlans.plan(filter, ListingSort.resolve(filter, pageable),
+                em.getMetamodel().entity(CatalogProduct.class));
+    }
+
+    private List<CatalogProduct> filteredContent(ListingQueryPlans.Plan plan, ProductFilterRequest filter,
+                                                 Pageable pageable, int limit) {
+        TypedQuery<CatalogProduct> query = plan.bind(em.createQuery(plan.select(), CatalogProduct.class), filter);
+        if (pageable.isPaged()) {
+            query.setFirstResult((int) pageable.getOffset());
+            query.setMaxResults(limit);
+        }
+
+        return query.getResultList();
+    }
+
+    @Override
+    public Page<CatalogProduct> searchRanked(ProductFilterRequest filter, Pageable pageable) {
+        ProductFilterSql sql = rankedFilter(filter);
+        if (sql == null) {
+            return Page.empty(pageable);
+        }
+
+        return queryExecutor.page(
+                () -> rankedContent(sql, filter, pageable, pageable.getPageSize()),
+                () -> countRanked(sql),
+                pageable);
+    }
+
+    @Override
+    public long countRanked(ProductFilterRequest filter) {
+        ProductFilterSql sql = rankedFilter(filter);
+        return sql == null ? 0 : countRanked(sql);
+    }
+
+    @Override
+    public Slice<CatalogProduct> searchRankedSlice(ProductFilterRequest filter, Pageable pageable) {
+        ProductFilterSql sql = rankedFilter(filter);
+        if (sql == null) {
+            return new SliceImpl<>(List.of(), pageable, false);
+        }
+        return toSlice(rankedContent(sql, filter, pageable, pageable.getPageSize() + 1), pageable);
+    }
+
+    /**
+     * Structured filter plus the full-text match, or null when the search query has no usable terms.
+     */
+    private ProductFilterSql rankedFilter(ProductFilterRequest filter) {
+        String tsQuery = FullTextQuery.toPrefixQuery(filter.searchQuery());
+        if (tsQuery.isEmpty()) {
+            return null;
+        }
+        return ProductFilterSql.of(filter)
+                .and("p.search_vector @@ to_tsquery('simple', :tsQuery)", "tsQuery", tsQuery);
+    }
+
+    private long countRanked(ProductFilterSql sql) {
+        Number total = (Number) sql.bind(em.createNativeQuery(
+                "SELECT count(*) FROM catalog_products p" + sql.where())).getSingleResult();
+        return total.longValue();
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<CatalogProduct> rankedContent(ProductFilterSql sql, ProductFilterRequest filter,
+                                               Pageable pageable, int limit) {
+        Query query = sql.bind(em.createNativeQuery(
+                "SELECT p.* FROM catalog_products p" + sql.where() + " ORDER BY " + rankedOrderBy(filter, pageable),
+                CatalogProduct.class));
+        if (pageable.isPaged()) {
+            query.setFirstResult((int) pageable.getOffset());
+            query.setMaxResults(limit);
+        }
+
+        return query.getResultList();
+    }
+
+    private static Slice<CatalogProduct> toSlice(List<CatalogProduct> rows, Pageable pageable) {
+        if (pageable.isUnpaged() || rows.size() <= pageable.getPageSize()) {
+            return new SliceImpl<>(rows, pageable, false);
+        }
+        return new SliceImpl<>(rows.subList(0, pageable.getPageSize()), pageable, true);
+    }
+
+    private String rankedOrderBy(ProductFilterRequest filter, Pageable pageable) {
+        List<String> orders = new ArrayList<>();
+        for (Sort.Order order : ListingSort.resolve(filter, pageable)) {
+            if (RELEVANCE.equals(order.getProperty())) {
+                continue;
+            }
+            String column = SORT_COLUMNS.get(order.getProperty());
+            if (column == null) {
+                throw new InvalidSortPropertyException(order.getProperty());
+            }
+            orders.add(column + (order.isAscending() ? " ASC" : " DESC"));
+        }
+        orders.add(RANK + " DESC");
+        orders.add("p.id");
+        return String.join(", ", orders);
+    }
+
+    /**
+     * One grouped query over the products matching the non-facet filters. Rows are grouped by
+     * every facet dimension plus whether the price is in range, so FacetCounter can fold the
+     * (small) group list into per-facet counts.
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public ProductFacets countFacets(ProductFilterRequest filter, PriceBuckets priceBuckets, boolean fullText) {
+        FacetCounter counter = new FacetCounter(filter, priceBuckets);
+        ProductFilterSql sql = ProductFilterSql.nonFacet(filter);
+
+        if (ListingSort.hasSearchQuery(filter)) {
+            if (fullText) {
+                String tsQuery = FullTextQuery.toPrefixQuery(filter.searchQuery());
+                if (tsQuery.isEmpty()) {
+                    return counter.result();
+                }
+                sql.and("p.search_vector @@ to_tsquery('simple', :tsQuery)", "tsQuery", tsQuery);
+            } else {
+                sql.and("(lower(p.title) LIKE :pattern OR lower(p.description) LIKE :pattern)",
+                        "pattern", "%" + filter.searchQuery().toLowerCase() + "%");
             }
         }
 
-        Long total = em.createQuery(countQuery).getSingleResult();
+        List<String> priceRange = new ArrayList<>();
+        if (filter != null && filter.minPrice() != null) {
+            priceRange.add("p.effective_price >= :minPrice");
+            sql.parameter("minPrice", filter.minPrice());
+        }
+        if (filter != null && filter.maxPrice() != null) {
+            priceRange.add("p.effective_price <= :maxPrice");
+            sql.parameter("maxPrice", filter.maxPrice());
+        }
+        String inRange = priceRange.isEmpty()
+                ? "1"
+                : "CASE WHEN " + String.join(" AND ", priceRange) + " THEN 1 ELSE 0 END";
 
+        List<Object[]> groups = sql.bind(em.createNativeQuery(
+                "SELECT g.category, g.subcategory, g.gender, g.available, g.bucket, g.in_range, count(*)"
+                        + " FROM (SELECT p.category AS category, p.subcategory AS subcategory, p.gender AS gender,"
+                        + " p.available AS available, " + priceBuckets.caseExpression("p.effective_price") + " AS bucket, "
+                        + inRange + " AS in_range FROM catalog_products p" + sql.where() + ") g"
+                        + " GROUP BY g.category, g.subcategory, g.gender, g.available, g.bucket, g.in_range"))
+                .getResultList();
+
+        for (Object[] group : groups) {
+            counter.add(
+                    ProductCategory.valueOf(group[0].toString()),
+                    ProductSubcategory.valueOf(group[1].toString()),
+                    Gender.valueOf(group[2].toString()),
+                    (Boolean) group[3],
+                    ((Number) group[4]).intValue(),
+                    ((Number) group[5]).intValue() == 1,
+                    ((Number) group[6]).longValue());
+        }
+        return counter.result();
+    }
+
+    @Override
+    public List<CatalogProduct> findAllAfter(Specification<CatalogProduct> spec, ListingCursor cursor, int limit) {
+        CriteriaBuilder cb = em.getCriteriaBuilder();
         CriteriaQuery<CatalogProduct> query = cb.createQuery(CatalogProduct.class);
         Root<CatalogProduct> root = query.from(CatalogProduct.class);
-        query.distinct(true);
 
+        List<Predicate> predicates = new ArrayList<>();
         if (spec != null) {
             Predicate predicate = spec.toPredicate(root, query, cb);
             if (predicate != null) {
-                query.where(predicate);
+                predicates.add(predicate);
             }
         }
+        if (!cursor.isStart()) {
+            predicates.add(keysetPredicate(cb, root, cursor));
+        }
+        query.where(predicates.toArray(Predicate[]::new));
 
-        if (pageable.getSort().isSorted()) {
-            List<Order> orders = new ArrayList<>();
-            for (Sort.Order sortOrder : pageable.getSort()) {
-                Path<?> path = root.get(sortOrder.getProperty());
-                orders.add(sortOrder.isAscending() ? cb.asc(path) : cb.desc(path));
-            }
-            query.orderBy(orders);
+        boolean ascending = cursor.direction().isAscending();
+        List<Order> orders = new ArrayList<>();
+        if (cursor.sortBy() != null) {
+            Path<?> sortPath = root.get(cursor.sortBy());
+            orders.add(ascending ? cb.asc(sortPath) : cb.desc(sortPath));
+        }
+        Path<UUID> id = root.get("id");
+        orders.add(ascending ? cb.asc(id) : cb.desc(id));
+        query.orderBy(orders);
+
+        return em.createQuery(query)
+                .setMaxResults(limit)
+                .getResultList();
+    }
+
+    private Predicate keysetPredicate(CriteriaBuilder cb, Root<CatalogProduct> root, ListingCursor cursor) {
+        boolean ascending = cursor.direction().isAscending();
+        Predicate idAfter = after(cb, root.<UUID>get("id"), cursor.lastId(), ascending);
+        if (cursor.sortBy() == null) {
+            return idAfter;
         }
 
-        TypedQuery<CatalogProduct> typedQuery = em.createQuery(query);
-        typedQuery.setFirstResult((int) pageable.getOffset());
-        typedQuery.setMaxResults(pageable.getPageSize());
+        if (cursor.numericKey()) {
+            Path<BigDecimal> key = root.get(cursor.sortBy());
+            BigDecimal value = new BigDecimal(cursor.lastValue());
+            return cb.or(after(cb, key, value, ascending), cb.and(cb.equal(key, value), idAfter));
+        }
 
-        List<CatalogProduct> content = typedQuery.getResultList();
+        Path<String> key = root.get(cursor.sortBy());
+        String value = cursor.lastValue();
+        return cb.or(after(cb, key, value, ascending), cb.and(cb.equal(key, value), idAfter));
+    }
 
-        return new PageImpl<>(content, pageable, total);
+    private static <Y extends Comparable<? super Y>> Predicate after(
+            CriteriaBuilder cb, Expression<? extends Y> key, Y value, boolean ascending) {
+        return ascending ? cb.greaterThan(key, value) : cb.lessThan(key, value);
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,9 @@
+package com.teipsum.catalogservice.repository;
+
+import com.teipsum.catalogservice.model.EventOffset;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface EventOffsetRepository extends JpaRepository<EventOffset, EventOffset.Key> {
+}
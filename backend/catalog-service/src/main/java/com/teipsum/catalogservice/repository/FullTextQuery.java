@@ -0,0 +1,28 @@
+package com.teipsum.catalogservice.repository;
+
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.stream.Collectors;
+
+/**
+ * Turns raw search box input into a Postgres tsquery where every term
+ * is prefix-matched, e.g. "Blue Hood" becomes "blue:* & hood:*".
+ */
+public final class FullTextQuery {
+
+    static final int MAX_TERMS = 8;
+
+    private FullTextQuery() {
+    }
+
+    public static String toPrefixQuery(String input) {
+        if (input == null) {
+            return "";
+        }
+        return Arrays.stream(input.toLowerCase(Locale.ROOT).split("[^\\p{L}\\p{N}]+"))
+                .filter(term -> !term.isEmpty())
+                .limit(MAX_TERMS)
+                .map(term -> term + ":*")
+                .collect(Collectors.joining(" & "));
+    }
+}
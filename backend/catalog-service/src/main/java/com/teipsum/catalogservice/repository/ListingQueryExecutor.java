@@ -0,0 +1,228 @@
+package com.teipsum.catalogservice.repository;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import jakarta.persistence.EntityManager;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.hibernate.Session;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+/**
+ * Runs the count and content query of a listing page. In parallel mode the count runs
+ * on a pooled worker in its own read-only transaction, i.e. on a second connection,
+ * while the content is read on the calling thread, so a page costs the slower of the
+ * two queries instead of their sum. When either query fails the statement of the other
+ * is cancelled. A count no worker has picked up by the time the content is read is run
+ * by the caller, so callers holding every pooled connection never wait for a worker
+ * that needs one.
+ */
+@Component
+public class ListingQueryExecutor {
+
+    private static final Logger logger = LogManager.getLogger(ListingQueryExecutor.class);
+
+    private final EntityManager em;
+    private final TransactionTemplate readOnly;
+    private final ThreadPoolExecutor executor;
+
+    private final Timer parallelCount;
+    private final Timer parallelContent;
+    private final Timer sequentialCount;
+    private final Timer sequentialContent;
+
+    public ListingQueryExecutor(EntityManager em,
+                                PlatformTransactionManager transactionManager,
+                                MeterRegistry meterRegistry,
+                                @Value("${catalog.listing.parallel-count.enabled:false}") boolean parallel,
+                                @Value("${catalog.listing.parallel-count.threads:4}") int threads) {
+        this.em = em;
+        this.readOnly = new TransactionTemplate(transactionManager);
+        this.readOnly.setReadOnly(true);
+        this.executor = parallel ? executor(threads) : null;
+        this.parallelCount = timer(meterRegistry, "count", "parallel");
+        this.parallelContent = timer(meterRegistry, "content", "parallel");
+        this.sequentialCount = timer(meterRegistry, "count", "sequential");
+        this.sequentialContent = timer(meterRegistry, "content", "sequential");
+    }
+
+    /**
+     * A page of the content with the count as its total. Runs in parallel mode only
+     * inside a transaction, since the content must be read in the caller's session.
+     */
+    public <T> Page<T> page(Supplier<List<T>> content, LongSupplier count, Pageable pageable) {
+        if (executor == null || !TransactionSynchronizationManager.isActualTransactionActive()) {
+            long total = sequentialCount.record(count);
+            return new PageImpl<>(sequentialContent.record(content), pageable, total);
+        }
+
+        ParallelCount task = new ParallelCount(count, em.unwrap(Session.class));
+        executor.execute(task::runOnWorker);
+        List<T> rows;
+        try {
+            rows = parallelContent.record(content);
+        } catch (RuntimeException e) {
+            // A count that failed before the content did is the cause; later failures may be our cancel
+            RuntimeException countFailure = task.failure();
+            task.contentFailed();
+            if (countFailure != null) {
+                countFailure.addSuppressed(e);
+                throw countFailure;
+            }
+            throw e;
+        }
+        return new PageImpl<>(rows, pageable, task.join());
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * A count shared by the caller and one worker; whoever claims it first runs it.
+     * Statements are cancelled through the Hibernate session of the other side.
+     */
+    private final class ParallelCount {
+
+        private final LongSupplier count;
+        private final Session contentSession;
+        private final CompletableFuture<Long> result = new CompletableFuture<>();
+
+        private boolean claimed;
+        private boolean onWorker;
+        private boolean contentDone;
+        private Session countSession;
+
+        ParallelCount(LongSupplier count, Session contentSession) {
+            this.count = count;
+            this.contentSession = contentSession;
+        }
+
+        void runOnWorker() {
+            synchronized (this) {
+                // Checked before opening a transaction too, so a stale task takes no connection
+                if (claimed) {
+                    return;
+                }
+            }
+            try {
+                readOnly.executeWithoutResult(status -> {
+                    synchronized (this) {
+                        if (claimed) {
+                            return;
+                        }
+                        claimed = true;
+                        onWorker = true;
+                        countSession = em.unwrap(Session.class);
+                    }
+                    try {
+                        result.complete(parallelCount.record(count));
+                    } catch (RuntimeException e) {
+                        result.completeExceptionally(e);
+                        cancelContent();
+                    } finally {
+                        synchronized (this) {
+                            countSession = null;
+                        }
+                    }
+                });
+            } catch (RuntimeException e) {
+                // Unclaimed counts are run by the caller; a claimed one may have failed to commit
+                synchronized (this) {
+                    if (onWorker) {
+                        result.completeExceptionally(e);
+                    }
+                }
+                logger.debug("Parallel listing count failed: {}", e.getMessage());
+            }
+        }
+
+        long join() {
+            boolean runHere;
+            synchronized (this) {
+                contentDone = true;
+                runHere = !claimed;
+                claimed = true;
+            }
+            if (runHere) {
+                return sequentialCount.record(count);
+            }
+            try {
+                return result.join();
+            } catch (CompletionException e) {
+                throw e.getCause() instanceof RuntimeException cause ? cause : e;
+            }
+        }
+
+        synchronized void contentFailed() {
+            contentDone = true;
+            claimed = true;
+            if (countSession != null) {
+                countSession.cancelQuery();
+            }
+        }
+
+        RuntimeException failure() {
+            if (!result.isCompletedExceptionally()) {
+                return null;
+            }
+            try {
+                result.join();
+                return null;
+            } catch (CompletionException e) {
+                return e.getCause() instanceof RuntimeException cause ? cause : e;
+            }
+        }
+
+        private synchronized void cancelContent() {
+            if (!contentDone) {
+                contentSession.cancelQuery();
+            }
+        }
+    }
+
+    /**
+     * Counts that do not fit the queue are dropped here and run by their caller instead.
+     */
+    private static ThreadPoolExecutor executor(int threads) {
+        AtomicInteger sequence = new AtomicInteger();
+        return new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>(threads * 16),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "listing-count-" + sequence.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.DiscardPolicy());
+    }
+
+    private static Timer timer(MeterRegistry registry, String part, String mode) {
+        return Timer.builder("catalog.listing.query")
+                .tag("part", part)
+                .tag("mode", mode)
+                .description("Latency of the count and content queries of a listing page")
+                .publishPercentileHistogram()
+                .register(registry);
+    }
+}
@@ -0,0 +1,144 @@
+package com.teipsum.catalogservice.repository;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.teipsum.catalogservice.model.CatalogProduct;
+import com.teipsum.catalogservice.util.FilterSignature;
+import com.teipsum.catalogservice.util.ListingSort;
+import com.teipsum.shared.exceptions.InvalidSortPropertyException;
+import com.teipsum.shared.product.dto.ProductFilterRequest;
+import jakarta.persistence.Query;
+import jakarta.persistence.metamodel.EntityType;
+import org.springframework.data.domain.Sort;
+
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * JPQL for the structured listing filters, rendered once per filter shape: which
+ * conditions are present plus the sort. Hibernate keeps the translated query per JPQL
+ * string, so a listing of a known shape only binds its parameters instead of building
+ * a Criteria tree that is translated again on every call. Sort properties are checked
+ * against the metamodel when a shape is first seen; ignore-case and null handling of
+ * the orders are part of the shape.
+ */
+final class ListingQueryPlans {
+
+    private static final String FROM = " FROM CatalogProduct p";
+
+    private final Cache<Shape, Plan> plans;
+
+    ListingQueryPlans(long maxShapes) {
+        this.plans = Caffeine.newBuilder()
+                .maximumSize(maxShapes)
+                .build();
+    }
+
+    /** Price bounds apply to the effective price, like everywhere else in the catalog. */
+    enum Condition {
+        SEARCH("(lower(p.title) LIKE :search OR lower(p.description) LIKE :search)", "search",
+                filter -> ListingSort.hasSearchQuery(filter) ? "%" + filter.searchQuery().toLowerCase() + "%" : null),
+        CATEGORY("p.category IN (:category)", "category", filter -> nonEmpty(filter.category())),
+        SUBCATEGORY("p.subcategory IN (:subcategory)", "subcategory", filter -> nonEmpty(filter.subcategory())),
+        GENDER("p.gender IN (:gender)", "gender", filter -> nonEmpty(filter.gender())),
+        MIN_PRICE("p." + CatalogProduct.EFFECTIVE_PRICE + " >= :minPrice", "minPrice", ProductFilterRequest::minPrice),
+        MAX_PRICE("p." + CatalogProduct.EFFECTIVE_PRICE + " <= :maxPrice", "maxPrice", ProductFilterRequest::maxPrice),
+        MIN_DISCOUNT("coalesce(p.discount, 0) >= :minDiscount", "minDiscount", ProductFilterRequest::minDiscount),
+        MAX_DISCOUNT("coalesce(p.discount, 0) <= :maxDiscount", "maxDiscount", ProductFilterRequest::maxDiscount),
+        AVAILABLE("p.available = :available", "available", ProductFilterRequest::available),
+        SIZES("EXISTS (SELECT 1 FROM CatalogProduct s JOIN s.sizes z WHERE s = p AND z IN (:sizes))", "sizes",
+                filter -> FilterSignature.sizes(filter.sizes()));
+
+        private final String jpql;
+        private final String parameter;
+        private final Function<ProductFilterRequest, Object> value;
+
+        Condition(String jpql, String parameter, Function<ProductFilterRequest, Object> value) {
+            this.jpql = jpql;
+            this.parameter = parameter;
+            this.value = value;
+        }
+
+        private static Object nonEmpty(Set<?> values) {
+            return values == null || values.isEmpty() ? null : values;
+        }
+    }
+
+    record Shape(Set<Condition> conditions, Sort sort) {}
+
+    /** Listing and count query of one shape; bind fills in the values of a concrete filter. */
+    record Plan(String select, String count, Set<Condition> conditions) {
+
+        <Q extends Query> Q bind(Q query, ProductFilterRequest filter) {
+            for (Condition condition : conditions) {
+                query.setParameter(condition.parameter, condition.value.apply(filter));
+            }
+            return query;
+        }
+    }
+
+    Plan plan(ProductFilterRequest filter, Sort sort, EntityType<CatalogProduct> entity) {
+        return plans.get(shape(filter, sort), shape -> compile(shape, entity));
+    }
+
+    long size() {
+        plans.cleanUp();
+        return plans.estimatedSize();
+    }
+
+    static Shape shape(ProductFilterRequest filter, Sort sort) {
+        Set<Condition> conditions = EnumSet.noneOf(Condition.class);
+        if (filter != null) {
+            for (Condition condition : Condition.values()) {
+                if (condition.value.apply(filter) != null) {
+                    conditions.add(condition);
+                }
+            }
+        }
+        return new Shape(conditions, sort);
+    }
+
+    private static Plan compile(Shape shape, EntityType<CatalogProduct> entity) {
+        String where = shape.conditions().isEmpty() ? "" : shape.conditions().stream()
+                .map(condition -> condition.jpql)
+                .collect(Collectors.joining(" AND ", " WHERE ", ""));
+
+        List<String> orders = new ArrayList<>();
+        for (Sort.Order order : shape.sort()) {
+            String property = order.getProperty();
+            // Only mapped attribute names ever reach the query text
+            Class<?> type;
+            try {
+                type = entity.getSingularAttribute(property).getJavaType();
+            } catch (IllegalArgumentException e) {
+                throw new InvalidSortPropertyException(property);
+            }
+            orders.add(order(order, type));
+        }
+        // Stable pages when sort values tie
+        orders.add("p.id");
+
+        return new Plan(
+                "SELECT p" + FROM + where + " ORDER BY " + String.join(", ", orders),
+                "SELECT count(p)" + FROM + where,
+                shape.conditions());
+    }
+
+    /** Like Spring Data JPA, case is only ignored for string attributes. */
+    private static String order(Sort.Order order, Class<?> type) {
+        String expression = "p." + order.getProperty();
+        if (order.isIgnoreCase() && type == String.class) {
+            expression = "lower(" + expression + ")";
+        }
+        String direction = order.isAscending() ? " ASC" : " DESC";
+        return switch (order.getNullHandling()) {
+            case NATIVE -> expression + direction;
+            case NULLS_FIRST -> expression + direction + " NULLS FIRST";
+            case NULLS_LAST -> expression + direction + " NULLS LAST";
+        };
+    }
+}
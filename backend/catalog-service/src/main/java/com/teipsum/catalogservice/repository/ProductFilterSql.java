@@ -0,0 +1,104 @@
+package com.teipsum.catalogservice.repository;
+
+import com.teipsum.catalogservice.util.FilterSignature;
+import com.teipsum.shared.product.dto.ProductFilterRequest;
+import jakarta.persistence.Query;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Native SQL rendering of the structured part of a ProductFilterRequest
+ * (everything except searchQuery and sorting) against catalog_products aliased as p.
+ * Price bounds apply to the effective (discounted) price.
+ */
+final class ProductFilterSql {
+
+    private final List<String> conditions = new ArrayList<>();
+    private final Map<String, Object> parameters = new LinkedHashMap<>();
+
+    private ProductFilterSql() {
+    }
+
+    static ProductFilterSql of(ProductFilterRequest filter) {
+        ProductFilterSql sql = new ProductFilterSql();
+        if (filter == null) {
+            return sql;
+        }
+
+        List<String> categories = names(filter.category());
+        if (categories != null)
+            sql.and("p.category IN (:category)", "category", categories);
+
+        List<String> subcategories = names(filter.subcategory());
+        if (subcategories != null)
+            sql.and("p.subcategory IN (:subcategory)", "subcategory", subcategories);
+
+        List<String> genders = names(filter.gender());
+        if (genders != null)
+            sql.and("p.gender IN (:gender)", "gender", genders);
+
+        if (filter.minPrice() != null)
+            sql.and("p.effective_price >= :minPrice", "minPrice", filter.minPrice());
+
+        if (filter.maxPrice() != null)
+            sql.and("p.effective_price <= :maxPrice", "maxPrice", filter.maxPrice());
+
+        if (filter.available() != null)
+            sql.and("p.available = :available", "available", filter.available());
+
+        return sql.nonFacetConditions(filter);
+    }
+
+    /**
+     * Only the conditions that are not facet dimensions. Facet dimensions are
+     * selected as columns instead and evaluated per group.
+     */
+    static ProductFilterSql nonFacet(ProductFilterRequest filter) {
+        ProductFilterSql sql = new ProductFilterSql();
+        return filter == null ? sql : sql.nonFacetConditions(filter);
+    }
+
+    private ProductFilterSql nonFacetConditions(ProductFilterRequest filter) {
+        List<String> sizes = FilterSignature.sizes(filter.sizes());
+        if (sizes != null)
+            and("EXISTS (SELECT 1 FROM catalog_product_sizes s WHERE s.product_id = p.id AND s.size IN (:sizes))",
+                    "sizes", sizes);
+
+        if (filter.minDiscount() != null)
+            and("coalesce(p.discount, 0) >= :minDiscount", "minDiscount", filter.minDiscount());
+
+        if (filter.maxDiscount() != null)
+            and("coalesce(p.discount, 0) <= :maxDiscount", "maxDiscount", filter.maxDiscount());
+
+        return this;
+    }
+
+    /** Enum names for an IN list, or null when the dimension is not filtered on. */
+    private static List<String> names(Set<? extends Enum<?>> values) {
+        return values == null || values.isEmpty() ? null : values.stream().map(Enum::name).sorted().toList();
+    }
+
+    ProductFilterSql and(String condition, String parameter, Object value) {
+        conditions.add(condition);
+        parameters.put(parameter, value);
+        return this;
+    }
+
+    ProductFilterSql parameter(String parameter, Object value) {
+        parameters.put(parameter, value);
+        return this;
+    }
+
+    String where() {
+        return conditions.isEmpty() ? "" : " WHERE " + String.join(" AND ", conditions);
+    }
+
+    Query bind(Query query) {
+        parameters.forEach(query::setParameter);
+        return query;
+    }
+}
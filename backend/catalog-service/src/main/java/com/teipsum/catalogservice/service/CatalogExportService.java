@@ -0,0 +1,72 @@
+package com.teipsum.catalogservice.service;
+
+import com.teipsum.catalogservice.repository.CatalogSnapshotRepository;
+import com.teipsum.catalogservice.util.ProductDtoConverter;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Streams the catalog as NDJSON, one product per line, for feed generators and the
+ * search indexer. Rows come from a forward-only JDBC cursor in a read-only transaction
+ * and are written as they are read, so memory use does not depend on the catalog size
+ * and no entities are attached to a persistence context.
+ */
+@Service
+public class CatalogExportService {
+
+    private static final Logger logger = LogManager.getLogger(CatalogExportService.class);
+
+    private static final int NEWLINE = '\n';
+
+    private final CatalogSnapshotRepository snapshotRepository;
+    private final ProductDtoConverter dtoConverter;
+    private final TransactionTemplate exportTransaction;
+
+    public CatalogExportService(CatalogSnapshotRepository snapshotRepository,
+                                ProductDtoConverter dtoConverter,
+                                PlatformTransactionManager transactionManager) {
+        this.snapshotRepository = snapshotRepository;
+        this.dtoConverter = dtoConverter;
+        this.exportTransaction = new TransactionTemplate(transactionManager);
+        this.exportTransaction.setReadOnly(true);
+    }
+
+    /**
+     * Writes every product updated at or after updatedSince (all products when null),
+     * ordered by update time and id. Returns the number of products written.
+     */
+    public long export(Instant updatedSince, OutputStream out) throws IOException {
+        long startedAt = System.nanoTime();
+        AtomicLong count = new AtomicLong();
+        try {
+            exportTransaction.executeWithoutResult(status ->
+                    snapshotRepository.forEachProductUpdatedSince(updatedSince, product -> {
+                        try {
+                            out.write(dtoConverter.toExportJson(product));
+                            out.write(NEWLINE);
+                        } catch (IOException e) {
+                            throw new UncheckedIOException(e);
+                        }
+                        count.incrementAndGet();
+                    }));
+        } catch (UncheckedIOException e) {
+            // Typically the client went away; the cursor and its connection are released by the rollback
+            logger.debug("Catalog export aborted after {} products: {}", count.get(), e.getMessage());
+            throw e.getCause();
+        }
+        out.flush();
+        logger.info("Exported {} products updated since {} in {} ms", count.get(), updatedSince,
+                Duration.ofNanos(System.nanoTime() - startedAt).toMillis());
+        return count.get();
+    }
+}
@@ -1,9 +1,27 @@
 package com.teipsum.catalogservice.service;
 
+import com.teipsum.catalogservice.cache.ListingPageCache;
+import com.teipsum.catalogservice.cache.SingleFlight;
+import com.teipsum.catalogservice.dto.CatalogProductDTO;
+import com.teipsum.catalogservice.dto.CountMode;
+import com.teipsum.catalogservice.dto.CursorPage;
+import com.teipsum.catalogservice.dto.ProductFacets;
+import com.teipsum.catalogservice.event.CatalogProductChangedEvent;
+import com.teipsum.catalogservice.event.ProductEventBatch;
 import com.teipsum.catalogservice.exception.EventProcessingException;
+import com.teipsum.catalogservice.exception.InvalidPagingException;
 import com.teipsum.catalogservice.exception.InvalidProductDataException;
+import com.teipsum.catalogservice.facet.PriceBuckets;
+import com.teipsum.catalogservice.index.CatalogIndex;
 import com.teipsum.catalogservice.model.CatalogProduct;
+import com.teipsum.catalogservice.model.EventOffset;
+import com.teipsum.catalogservice.repository.CatalogProductBatchWriter;
 import com.teipsum.catalogservice.repository.CatalogProductRepository;
+import com.teipsum.catalogservice.util.ListingCursor;
+import com.teipsum.catalogservice.util.ListingSort;
+import com.teipsum.catalogservice.util.ProductDtoConverter;
+import com.teipsum.catalogservice.util.ProductEventMapper;
+import com.teipsum.catalogservice.version.CatalogVersions;
 import com.teipsum.shared.product.dto.ProductFilterRequest;
 import com.teipsum.shared.product.event.ProductCreatedEvent;
 import com.teipsum.shared.product.event.ProductDeletedEvent;
@@ -11,49 +29,96 @@ import com.teipsum.shared.product.event.ProductUpdatedEvent;
 import com.teipsum.catalogservice.event.ProductEventValidator;
 import com.teipsum.shared.exceptions.ProductNotFoundException;
 import com.teipsum.shared.product.filter.ProductSpecifications;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
 import lombok.RequiredArgsConstructor;
+import org.hibernate.Hibernate;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
 import org.springframework.cache.annotation.CacheEvict;
 import org.springframework.cache.annotation.Cacheable;
+import org.springframework.cache.annotation.Caching;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.Sort;
 import org.springframework.data.jpa.domain.Specification;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
 import java.util.UUID;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
 
 @Service
 @RequiredArgsConstructor
-public class CatalogService {
+public class CatalogService implements MeterBinder {
 
     private final CatalogProductRepository catalogProductRepository;
     private final ProductEventValidator productEventValidator;
+    private final CatalogIndex catalogIndex;
+    private final ApplicationEventPublisher eventPublisher;
+    private final ProductDtoConverter dtoConverter;
+    private final ListingCountEstimator listingCountEstimator;
+    private final PriceBuckets priceBuckets;
+    private final CatalogProductBatchWriter batchWriter;
+    private final CacheManager cacheManager;
+    private final CatalogVersions catalogVersions;
+    private final ListingPageCache listingPages;
+    private final PlatformTransactionManager transactionManager;
     private static final Logger logger = LogManager.getLogger(CatalogService.class);
 
+    @Value("${catalog.search.full-text:false}")
+    private boolean fullTextSearch;
+
+    @Value("${catalog.coalescing.product-timeout:2s}")
+    private Duration productLoadTimeout = Duration.ofSeconds(2);
+
+    @Value("${catalog.coalescing.listing-timeout:5s}")
+    private Duration listingLoadTimeout = Duration.ofSeconds(5);
+
+    // Keys carry the catalog version, so requests arriving after a change never share a load started before it
+    private final SingleFlight<FlightKey, CatalogProductDTO> productLoads = new SingleFlight<>("product");
+    private final SingleFlight<FlightKey, Page<CatalogProduct>> pageLoads = new SingleFlight<>("listing");
+    private final SingleFlight<FlightKey, Slice<CatalogProduct>> sliceLoads = new SingleFlight<>("listing-slice");
+
+    private record FlightKey(List<Object> arguments, long version) {}
+
     @Transactional
+    @Caching(evict = {
+            @CacheEvict(value = "products", key = "#event.id().toLowerCase()"),
+            @CacheEvict(value = "facets", allEntries = true)
+    })
     public void addProduct(ProductCreatedEvent event) {
-        CatalogProduct product = CatalogProduct.builder()
-                .id(UUID.fromString(event.id()))
-                .title(event.title())
-                .description(event.description())
-                .price(event.price())
-                .discount(event.discount())
-                .category(event.category())
-                .subcategory(event.subcategory())
-                .gender(event.gender())
-                .imageUrls(event.imageUrls())
-                .sizes(event.sizes())
-                .available(event.available())
-                .build();
+        CatalogProduct product = ProductEventMapper.toProduct(event);
 
         catalogProductRepository.save(product);
+        eventPublisher.publishEvent(new CatalogProductChangedEvent(product.getId(), product));
     }
 
     @Transactional
-    @CacheEvict(value = "products", key = "#event.id()")
+    @Caching(evict = {
+            @CacheEvict(value = "products", key = "#event.id().toLowerCase()"),
+            @CacheEvict(value = "facets", allEntries = true)
+    })
     public void updateProduct(ProductUpdatedEvent event) {
         try {
 
@@ -65,14 +130,16 @@ public class CatalogService {
             product.setTitle(event.title());
             product.setDescription(event.description());
             product.setPrice(event.price());
-            product.setDiscount(event.discount());
+            product.setDiscount(ProductEventMapper.discountOrZero(event.discount()));
             product.setCategory(event.category());
             product.setSubcategory(event.subcategory());
             product.setGender(event.gender());
             product.setImageUrls(event.imageUrls());
             product.setSizes(event.sizes());
             product.setAvailable(event.available());
+            product.setUpdatedAt(Instant.now());
 
+            eventPublisher.publishEvent(new CatalogProductChangedEvent(product.getId(), product));
         } catch (ProductNotFoundException | InvalidProductDataException e) {
             logger.error("Product update validation failed: {}", e.getMessage());
             throw e;
@@ -83,8 +150,102 @@ public class CatalogService {
     }
 
     @Transactional
+    @Caching(evict = {
+            @CacheEvict(value = "products", key = "#event.id().toLowerCase()"),
+            @CacheEvict(value = "facets", allEntries = true)
+    })
     public void deleteProduct(ProductDeletedEvent event) {
-        catalogProductRepository.deleteById(UUID.fromString(event.id()));
+        UUID id = UUID.fromString(event.id());
+        catalogProductRepository.deleteById(id);
+        eventPublisher.publishEvent(new CatalogProductChangedEvent(id, null));
+    }
+
+    /**
+     * Applies the collapsed changes of one event batch in a single transaction using
+     * set-based JDBC writes, then fans out the same change events and cache evictions
+     * as the single-event methods. The consumed offsets are committed with the changes,
+     * so a catalog snapshot always knows where to resume.
+     */
+    @Transactional
+    public void applyChanges(Collection<ProductEventBatch.Change> changes, Collection<EventOffset> offsets) {
+        List<CatalogProduct> upserts = changes.stream()
+                .filter(change -> !change.deleted())
+                .map(ProductEventBatch.Change::product)
+                .toList();
+        List<UUID> deletes = changes.stream()
+                .filter(ProductEventBatch.Change::deleted)
+                .map(ProductEventBatch.Change::id)
+                .toList();
+
+        batchWriter.upsertAll(upserts);
+        batchWriter.deleteAll(deletes);
+        batchWriter.saveOffsets(offsets);
+
+        Cache products = cacheManager.getCache("products");
+        for (ProductEventBatch.Change change : changes) {
+            if (products != null) {
+                products.evict(change.id().toString());
+            }
+            eventPublisher.publishEvent(new CatalogProductChangedEvent(change.id(), change.product()));
+        }
+        Cache facets = cacheManager.getCache("facets");
+        if (facets != null && !changes.isEmpty()) {
+            facets.clear();
+        }
+        logger.debug("Applied {} upserts and {} deletes", upserts.size(), deletes.size());
+    }
+
+    /**
+     * Applies conflated stock changes in one transaction. The available flag is set with
+     * set-based updates; only products whose flag flipped are evicted and fanned out as
+     * changes. The consumed offsets are committed with the updates, as for product events.
+     */
+    @Transactional
+    public void applyAvailability(Map<UUID, Boolean> availability, Collection<EventOffset> offsets) {
+        Set<UUID> flipped = batchWriter.updateAvailability(availability);
+        batchWriter.saveOffsets(offsets);
+        if (flipped.isEmpty()) {
+            return;
+        }
+
+        Cache products = cacheManager.getCache("products");
+        for (CatalogProduct product : catalogProductRepository.findAllById(flipped)) {
+            Hibernate.initialize(product.getImageUrls());
+            Hibernate.initialize(product.getSizes());
+            if (products != null) {
+                products.evict(product.getId().toString());
+            }
+            eventPublisher.publishEvent(new CatalogProductChangedEvent(product.getId(), product));
+        }
+        Cache facets = cacheManager.getCache("facets");
+        if (facets != null) {
+            facets.clear();
+        }
+        logger.debug("Stock changes flipped availability of {} of {} products", flipped.size(), availability.size());
+    }
+
+    /**
+     * Replays changes another replica committed: the current rows are reloaded and the
+     * change events republished as remote, so the index, versions and serialized cache of
+     * this replica follow. Missing rows are replayed as deletes.
+     */
+    @Transactional(readOnly = true)
+    public void applyRemoteChanges(Collection<UUID> ids) {
+        Map<UUID, CatalogProduct> current = catalogProductRepository.findAllById(ids).stream()
+                .collect(Collectors.toMap(CatalogProduct::getId, Function.identity()));
+        for (UUID id : ids) {
+            CatalogProduct product = current.get(id);
+            if (product != null) {
+                Hibernate.initialize(product.getImageUrls());
+                Hibernate.initialize(product.getSizes());
+            }
+            eventPublisher.publishEvent(CatalogProductChangedEvent.remote(id, product));
+        }
+    }
+
+    @Transactional(readOnly = true)
+    public Set<UUID> findExistingIds(Collection<UUID> ids) {
+        return batchWriter.findExistingIds(ids);
     }
 
     public List<CatalogProduct> getAllProducts() {
@@ -92,15 +253,219 @@ public class CatalogService {
     }
 
     @Transactional(readOnly = true)
-    @Cacheable(value = "products", key = "#id")
     public CatalogProduct getProductById(String id) {
         return catalogProductRepository.findById(UUID.fromString(id))
                 .orElseThrow(() -> new ProductNotFoundException(UUID.fromString(id)));
     }
 
-    @Transactional(readOnly = true)
+    /**
+     * Product detail as served to clients. The DTO is cached rather than the entity,
+     * which would carry lazy Hibernate collections out of the session. Concurrent
+     * misses for the same id share one database load.
+     */
+    @Cacheable(value = "products", key = "#id.toLowerCase()")
+    public CatalogProductDTO getProductView(String id) {
+        FlightKey key = new FlightKey(List.of(id.toLowerCase()), catalogVersions.productVersion(UUID.fromString(id)));
+        return productLoads.load(key, productLoadTimeout,
+                () -> readOnly(() -> dtoConverter.convertToDto(getProductById(id))));
+    }
+
+    /**
+     * Product details for a batch lookup, keyed by id; unknown ids are left out. Cached
+     * details are used first and the rest is read with one query, collections loaded in
+     * batches, then cached like single lookups unless the product changed meanwhile.
+     */
+    public Map<UUID, CatalogProductDTO> getProductViews(Collection<UUID> ids) {
+        Map<UUID, CatalogProductDTO> views = new HashMap<>();
+        Cache products = cacheManager.getCache("products");
+        List<UUID> misses = new ArrayList<>();
+        for (UUID id : ids) {
+            CatalogProductDTO cached = products == null ? null : products.get(id.toString(), CatalogProductDTO.class);
+            if (cached != null) {
+                views.put(id, cached);
+            } else {
+                misses.add(id);
+            }
+        }
+        if (misses.isEmpty()) {
+            return views;
+        }
+
+        long readVersion = catalogVersions.globalVersion();
+        List<CatalogProductDTO> loaded = readOnly(() -> catalogProductRepository.findAllById(misses).stream()
+                .map(dtoConverter::convertToDto)
+                .toList());
+        for (CatalogProductDTO view : loaded) {
+            UUID id = UUID.fromString(view.getId());
+            views.put(id, view);
+            if (products != null && catalogVersions.productVersion(id) <= readVersion) {
+                products.put(view.getId(), view);
+            }
+        }
+        return views;
+    }
+
+    /**
+     * Pages are served from ListingPageCache when possible. Identical concurrent misses
+     * share one load; waiting happens before any transaction is opened, so waiters do
+     * not hold database connections.
+     */
     public Page<CatalogProduct> getFilteredProducts(ProductFilterRequest filter, Pageable pageable) {
-        Specification<CatalogProduct> spec = ProductSpecifications.withFilters(filter);
-        return catalogProductRepository.findAllWithDistinctCount(spec, pageable);
+        return listingPages.get(filter, pageable, CountMode.EXACT, () -> {
+            FlightKey key = new FlightKey(Arrays.asList(filter, pageable), catalogVersions.globalVersion());
+            return pageLoads.load(key, listingLoadTimeout,
+                    () -> readOnly(() -> initialized(queryFilteredProducts(filter, pageable))));
+        });
+    }
+
+    private Page<CatalogProduct> queryFilteredProducts(ProductFilterRequest filter, Pageable pageable) {
+        if (fullTextSearch && ListingSort.hasSearchQuery(filter)) {
+            return catalogProductRepository.searchRanked(filter, pageable);
+        }
+
+        CatalogIndex.Result indexed = catalogIndex.query(filter, pageable).orElse(null);
+        if (indexed != null) {
+            return loadIndexedPage(indexed, pageable);
+        }
+
+        return catalogProductRepository.findFiltered(filter, pageable);
+    }
+
+    /**
+     * Listing with a configurable total. EXACT behaves like getFilteredProducts, ESTIMATE
+     * returns a Page whose total comes from ListingCountEstimator, NONE returns a Slice
+     * and skips counting altogether. Index hits are always exact since counting is free there.
+     */
+    public Slice<CatalogProduct> getFilteredSlice(ProductFilterRequest filter, Pageable pageable, CountMode countMode) {
+        if (countMode == CountMode.EXACT) {
+            return getFilteredProducts(filter, pageable);
+        }
+
+        return listingPages.get(filter, pageable, countMode, () -> {
+            FlightKey key = new FlightKey(Arrays.asList(filter, pageable, countMode), catalogVersions.globalVersion());
+            return sliceLoads.load(key, listingLoadTimeout,
+                    () -> readOnly(() -> initialized(queryFilteredSlice(filter, pageable, countMode))));
+        });
+    }
+
+    private Slice<CatalogProduct> queryFilteredSlice(ProductFilterRequest filter, Pageable pageable, CountMode countMode) {
+        boolean ranked = fullTextSearch && ListingSort.hasSearchQuery(filter);
+        if (!ranked) {
+            CatalogIndex.Result indexed = catalogIndex.query(filter, pageable).orElse(null);
+            if (indexed != null) {
+                return loadIndexedPage(indexed, pageable);
+            }
+        }
+
+        Slice<CatalogProduct> slice = ranked
+                ? catalogProductRepository.searchRankedSlice(filter, pageable)
+                : catalogProductRepository.findFilteredSlice(filter, pageable);
+        if (countMode == CountMode.NONE) {
+            return slice;
+        }
+        return withEstimatedTotal(slice, pageable, listingCountEstimator.estimate(filter));
+    }
+
+    /**
+     * Facet counts for the sidebar, from the in-memory index when it can answer,
+     * otherwise from a single grouped query.
+     */
+    @Transactional(readOnly = true)
+    @Cacheable(value = "facets", key = "T(com.teipsum.catalogservice.util.FilterSignature).of(#filter)")
+    public ProductFacets getFacets(ProductFilterRequest filter) {
+        boolean ranked = fullTextSearch && ListingSort.hasSearchQuery(filter);
+        if (!ranked) {
+            ProductFacets indexed = catalogIndex.facets(filter, priceBuckets).orElse(null);
+            if (indexed != null) {
+                return indexed;
+            }
+        }
+        return catalogProductRepository.countFacets(filter, priceBuckets, ranked);
+    }
+
+    /**
+     * Keyset listing: returns the page following the position encoded in the cursor.
+     * A blank cursor starts from the beginning using the requested sort.
+     */
+    @Transactional(readOnly = true)
+    public CursorPage<CatalogProduct> getProductsAfter(ProductFilterRequest filter, String cursor, Pageable pageable) {
+        Sort requested = ListingSort.resolve(filter, pageable);
+        ListingCursor position;
+        if (cursor == null || cursor.isBlank()) {
+            position = ListingCursor.start(requested);
+        } else {
+            position = ListingCursor.decode(cursor);
+            if (!position.matches(requested)) {
+                throw new InvalidPagingException("Cursor was issued for a different sort order");
+            }
+        }
+
+        int pageSize = pageable.getPageSize();
+        Specification<CatalogProduct> spec = ProductSpecifications.withFilters(filter, CatalogProduct.EFFECTIVE_PRICE);
+        List<CatalogProduct> rows = catalogProductRepository.findAllAfter(spec, position, pageSize + 1);
+
+        boolean hasNext = rows.size() > pageSize;
+        List<CatalogProduct> content = hasNext ? rows.subList(0, pageSize) : rows;
+        String nextCursor = hasNext ? position.after(content.get(content.size() - 1)).encode() : null;
+
+        return new CursorPage<>(content, nextCursor, hasNext);
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        productLoads.bindTo(registry);
+        pageLoads.bindTo(registry);
+        sliceLoads.bindTo(registry);
+    }
+
+    private <T> T readOnly(Supplier<T> query) {
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        transaction.setReadOnly(true);
+        return transaction.execute(status -> query.get());
+    }
+
+    /**
+     * Shared results are read by other request threads after the loading session is gone,
+     * so their lazy collections are loaded up front (batched by default_batch_fetch_size).
+     */
+    private static <S extends Slice<CatalogProduct>> S initialized(S slice) {
+        for (CatalogProduct product : slice) {
+            Hibernate.initialize(product.getImageUrls());
+            Hibernate.initialize(product.getSizes());
+        }
+        return slice;
+    }
+
+    private Page<CatalogProduct> loadIndexedPage(CatalogIndex.Result indexed, Pageable pageable) {
+        if (indexed.ids().isEmpty()) {
+            return new PageImpl<>(List.of(), pageable, indexed.total());
+        }
+
+        Map<UUID, CatalogProduct> productsById = catalogProductRepository.findAllById(indexed.ids()).stream()
+                .collect(Collectors.toMap(CatalogProduct::getId, Function.identity()));
+
+        List<CatalogProduct> content = indexed.ids().stream()
+                .map(productsById::get)
+                .filter(Objects::nonNull)
+                .toList();
+
+        return new PageImpl<>(content, pageable, indexed.total());
+    }
+
+    /**
+     * Keeps an estimated total consistent with what the fetched slice proves:
+     * there is at least one more row when hasNext, and none past the last page.
+     */
+    private static Page<CatalogProduct> withEstimatedTotal(Slice<CatalogProduct> slice, Pageable pageable, long estimate) {
+        long seen = pageable.getOffset() + slice.getNumberOfElements();
+        long total;
+        if (slice.hasNext()) {
+            total = Math.max(estimate, seen + 1);
+        } else if (slice.hasContent()) {
+            total = seen;
+        } else {
+            total = Math.min(estimate, pageable.getOffset());
+        }
+        return new PageImpl<>(slice.getContent(), pageable, total);
     }
 }
@@ -0,0 +1,132 @@
+package com.teipsum.catalogservice.service;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.LoadingCache;
+import com.teipsum.catalogservice.event.CatalogProductChangedEvent;
+import com.teipsum.catalogservice.index.CatalogIndex;
+import com.teipsum.catalogservice.repository.CatalogProductRepository;
+import com.teipsum.catalogservice.util.FilterSignature;
+import com.teipsum.catalogservice.util.ListingSort;
+import com.teipsum.shared.product.dto.ProductFilterRequest;
+import com.teipsum.shared.product.enums.ProductCategory;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Approximate listing totals, cached per filter signature. The first request for
+ * a signature pays for an exact count; after that the cached value is served and
+ * recounted in the background when it gets old or a product changes. A change starts
+ * the recount of the cached signatures that may list the product, so an estimate lags
+ * a change by one recount; until it completes the previous total is served.
+ */
+@Component
+public class ListingCountEstimator {
+
+    private final CatalogProductRepository catalogProductRepository;
+    private final CatalogIndex catalogIndex;
+    private final boolean fullTextSearch;
+    private final Executor refreshExecutor;
+    private final LoadingCache<ProductFilterRequest, Estimate> estimates;
+
+    // Bumped on every committed product change; estimates counted under an older generation are stale
+    private final AtomicLong generation = new AtomicLong();
+
+    @Autowired
+    public ListingCountEstimator(CatalogProductRepository catalogProductRepository,
+                                 CatalogIndex catalogIndex,
+                                 @Value("${catalog.search.full-text:false}") boolean fullTextSearch,
+                                 @Value("${catalog.listing.count.max-signatures:1000}") long maxSignatures,
+                                 @Value("${catalog.listing.count.refresh-after:30s}") Duration refreshAfter) {
+        this(catalogProductRepository, catalogIndex, fullTextSearch, maxSignatures, refreshAfter,
+                Executors.newSingleThreadExecutor(runnable -> {
+                    Thread thread = new Thread(runnable, "listing-count-refresh");
+                    thread.setDaemon(true);
+                    return thread;
+                }));
+    }
+
+    ListingCountEstimator(CatalogProductRepository catalogProductRepository, CatalogIndex catalogIndex,
+                          boolean fullTextSearch, long maxSignatures, Duration refreshAfter, Executor refreshExecutor) {
+        this.catalogProductRepository = catalogProductRepository;
+        this.catalogIndex = catalogIndex;
+        this.fullTextSearch = fullTextSearch;
+        this.refreshExecutor = refreshExecutor;
+        this.estimates = Caffeine.newBuilder()
+                .maximumSize(maxSignatures)
+                .refreshAfterWrite(refreshAfter)
+                .executor(refreshExecutor)
+                .build(this::count);
+    }
+
+    private record Estimate(long count, long generation) {}
+
+    public long estimate(ProductFilterRequest filter) {
+        ProductFilterRequest signature = FilterSignature.of(filter);
+        Estimate estimate = estimates.get(signature);
+        if (estimate.generation() != generation.get()) {
+            // Concurrent refreshes of the same signature are coalesced by the cache
+            estimates.refresh(signature);
+        }
+        return estimate.count();
+    }
+
+    /**
+     * Runs before CatalogIndex applies the change, so the index still holds the previous
+     * category. Without it every cached signature is recounted.
+     */
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onProductChanged(CatalogProductChangedEvent event) {
+        generation.incrementAndGet();
+        Set<ProductCategory> changed = null;
+        if (catalogIndex.isReady()) {
+            changed = EnumSet.noneOf(ProductCategory.class);
+            catalogIndex.category(event.productId()).ifPresent(changed::add);
+            if (!event.deleted() && event.product().getCategory() != null) {
+                changed.add(event.product().getCategory());
+            }
+        }
+        for (ProductFilterRequest signature : estimates.asMap().keySet()) {
+            if (changed == null || mayList(signature, changed)) {
+                // Concurrent refreshes of the same signature are coalesced by the cache
+                estimates.refresh(signature);
+            }
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (refreshExecutor instanceof ExecutorService executorService) {
+            executorService.shutdownNow();
+        }
+    }
+
+    /** Whether a signature may list a product of one of the categories. */
+    private static boolean mayList(ProductFilterRequest signature, Set<ProductCategory> categories) {
+        return signature.category() == null || signature.category().isEmpty()
+                || !Collections.disjoint(signature.category(), categories);
+    }
+
+    private Estimate count(ProductFilterRequest signature) {
+        long countedAt = generation.get();
+        long count = fullTextSearch && ListingSort.hasSearchQuery(signature)
+                ? catalogProductRepository.countRanked(signature)
+                : catalogProductRepository.countFiltered(signature);
+        return new Estimate(count, countedAt);
+    }
+}
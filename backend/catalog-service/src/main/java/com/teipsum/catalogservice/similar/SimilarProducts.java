@@ -0,0 +1,153 @@
+package com.teipsum.catalogservice.similar;
+
+import com.teipsum.catalogservice.event.CatalogProductChangedEvent;
+import com.teipsum.catalogservice.model.CatalogProduct;
+import com.teipsum.catalogservice.repository.CatalogSnapshotRepository;
+import com.teipsum.shared.product.enums.Gender;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * "You may also like" neighbours per product, scored on subcategory, gender, price
+ * proximity and shared sizes. Built from the database on startup, then kept current
+ * from committed product changes; a lookup only copies a precomputed list.
+ */
+@Component
+public class SimilarProducts {
+
+    private static final Logger logger = LogManager.getLogger(SimilarProducts.class);
+
+    private final CatalogSnapshotRepository snapshotRepository;
+    private final TransactionTemplate readOnly;
+    private final boolean enabled;
+    private final int neighbours;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final SimilarityGraph graph;
+    // Bit of each size label seen so far; labels beyond 64 share bits
+    private final Map<String, Integer> sizeBits = new HashMap<>();
+    private boolean ready;
+
+    public SimilarProducts(CatalogSnapshotRepository snapshotRepository,
+                           PlatformTransactionManager transactionManager,
+                           @Value("${catalog.similar.enabled:true}") boolean enabled,
+                           @Value("${catalog.similar.neighbours:12}") int neighbours,
+                           @Value("${catalog.similar.max-candidates:500}") int maxCandidates) {
+        if (neighbours < 1 || maxCandidates < neighbours) {
+            throw new IllegalArgumentException("catalog.similar needs 1 <= neighbours <= max-candidates");
+        }
+        this.snapshotRepository = snapshotRepository;
+        this.readOnly = new TransactionTemplate(transactionManager);
+        this.readOnly.setReadOnly(true);
+        this.enabled = enabled;
+        this.neighbours = neighbours;
+        this.graph = new SimilarityGraph(neighbours, maxCandidates);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        if (!enabled) {
+            logger.info("Similar products disabled");
+            return;
+        }
+
+        // Held while loading so changes committed meanwhile are applied on top of the load
+        lock.writeLock().lock();
+        try {
+            List<SimilarityGraph.Features> products = new ArrayList<>();
+            readOnly.executeWithoutResult(status ->
+                    snapshotRepository.forEachProduct(product -> products.add(features(product))));
+            long started = System.nanoTime();
+            graph.build(products);
+            ready = true;
+            logger.info("Similar products computed for {} products in {} ms",
+                    products.size(), (System.nanoTime() - started) / 1_000_000);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onProductChanged(CatalogProductChangedEvent event) {
+        if (!enabled) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            // Before the first build the load will pick the change up from the database
+            if (!ready) {
+                return;
+            }
+            if (event.deleted()) {
+                graph.remove(event.productId());
+            } else {
+                graph.put(features(event.product()));
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Ids of the most similar available products, best first. Empty for an unknown product;
+     * until the first build every product is known and has no neighbours.
+     */
+    public Optional<List<UUID>> similar(UUID id, int limit) {
+        int size = Math.max(0, Math.min(limit, neighbours));
+        lock.readLock().lock();
+        try {
+            if (!ready) {
+                return Optional.of(List.of());
+            }
+            return Optional.ofNullable(graph.neighbours(id, size));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private SimilarityGraph.Features features(CatalogProduct product) {
+        BigDecimal price = CatalogProduct.effectivePrice(product.getPrice(), product.getDiscount());
+        long sizes = 0;
+        if (product.getSizes() != null) {
+            for (String size : product.getSizes()) {
+                sizes |= 1L << sizeBit(size);
+            }
+        }
+        return new SimilarityGraph.Features(
+                product.getId(),
+                product.getSubcategory(),
+                product.getGender() == null ? Gender.UNISEX : product.getGender(),
+                price == null ? 0 : price.setScale(2, RoundingMode.HALF_UP).unscaledValue().longValue(),
+                sizes,
+                product.isAvailable());
+    }
+
+    private int sizeBit(String size) {
+        String label = size == null ? "" : size.trim().toUpperCase(Locale.ROOT);
+        Integer bit = sizeBits.get(label);
+        if (bit == null) {
+            bit = sizeBits.size() < Long.SIZE ? sizeBits.size() : Math.floorMod(label.hashCode(), Long.SIZE);
+            sizeBits.put(label, bit);
+        }
+        return bit;
+    }
+}
@@ -0,0 +1,399 @@
+package com.teipsum.catalogservice.similar;
+
+import com.teipsum.shared.product.enums.Gender;
+import com.teipsum.shared.product.enums.ProductSubcategory;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Top-k neighbour lists over product features. Candidates are the available products of
+ * the same subcategory, kept in price order per gender. Blocks are visited best gender
+ * match first and each from the closest price outwards: gender and price bound the score,
+ * so a scan stops once no further candidate could still make the list.
+ * <p>
+ * Every list is mirrored by reverse edges, so a change only recomputes the lists that held
+ * the changed product plus its own, and offers the product to its nearest candidates.
+ * Not thread-safe; {@link SimilarProducts} guards it with a lock.
+ */
+final class SimilarityGraph {
+
+    static final double GENDER_WEIGHT = 2;
+    static final double PRICE_WEIGHT = 2;
+    static final double SIZES_WEIGHT = 1;
+
+    /** Price is the effective price in hundredths, sizes a bit set over the known size labels. */
+    record Features(UUID id, ProductSubcategory subcategory, Gender gender, long price, long sizes, boolean available) {}
+
+    record Neighbour(UUID id, double score) {}
+
+    private record BlockKey(ProductSubcategory subcategory, Gender gender) {}
+
+    private static final Comparator<Features> BY_PRICE =
+            Comparator.comparingLong(Features::price).thenComparing(Features::id);
+    private static final Comparator<Neighbour> BEST_FIRST =
+            Comparator.comparingDouble(Neighbour::score).reversed().thenComparing(Neighbour::id);
+    private static final Neighbour[] NONE = new Neighbour[0];
+    private static final Map<Gender, List<Gender>> GENDER_ORDER = genderOrder();
+
+    private final int k;
+    private final int maxCandidates;
+
+    private final Map<UUID, Features> products = new HashMap<>();
+    private final Map<UUID, Neighbour[]> neighbours = new HashMap<>();
+    private final Map<UUID, Set<UUID>> referencedBy = new HashMap<>();
+    private final Map<BlockKey, Block> blocks = new HashMap<>();
+
+    SimilarityGraph(int k, int maxCandidates) {
+        this.k = k;
+        this.maxCandidates = maxCandidates;
+    }
+
+    /** Replaces the whole graph; each list is computed once against the complete catalog. */
+    void build(Collection<Features> all) {
+        products.clear();
+        neighbours.clear();
+        referencedBy.clear();
+        blocks.clear();
+        for (Features product : all) {
+            products.put(product.id(), product);
+            if (product.available()) {
+                block(product).add(product);
+            }
+        }
+        for (Features product : products.values()) {
+            link(product.id(), nearest(product));
+        }
+    }
+
+    void put(Features product) {
+        Features previous = products.put(product.id(), product);
+        if (previous != null) {
+            unblock(previous);
+        }
+        if (product.available()) {
+            block(product).add(product);
+        }
+        // Lists holding the previous version were scored against features that no longer apply
+        relinkReferrers(product.id());
+        Neighbour[] own = nearest(product);
+        link(product.id(), own);
+        if (product.available()) {
+            offer(product, own);
+        }
+    }
+
+    void remove(UUID id) {
+        Features previous = products.remove(id);
+        if (previous == null) {
+            return;
+        }
+        unblock(previous);
+        unlink(id);
+        neighbours.remove(id);
+        relinkReferrers(id);
+    }
+
+    /** Best neighbours first, at most limit of them; null for an unknown product. */
+    List<UUID> neighbours(UUID id, int limit) {
+        Neighbour[] list = neighbours.get(id);
+        if (list == null) {
+            return null;
+        }
+        int size = Math.min(limit, list.length);
+        List<UUID> ids = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            ids.add(list[i].id());
+        }
+        return ids;
+    }
+
+    List<Neighbour> scoredNeighbours(UUID id) {
+        Neighbour[] list = neighbours.get(id);
+        return list == null ? null : List.of(list);
+    }
+
+    int size() {
+        return products.size();
+    }
+
+    static double score(Features a, Features b) {
+        return GENDER_WEIGHT * genderMatch(a.gender(), b.gender())
+                + PRICE_WEIGHT * priceProximity(a.price(), b.price())
+                + SIZES_WEIGHT * sizesOverlap(a.sizes(), b.sizes());
+    }
+
+    private static double genderMatch(Gender a, Gender b) {
+        if (a == b) {
+            return a == null ? 0 : 1;
+        }
+        return a == Gender.UNISEX || b == Gender.UNISEX ? 0.5 : 0;
+    }
+
+    /** 1 for equal prices, falling towards 0 as one price becomes a small fraction of the other. */
+    private static double priceProximity(long a, long b) {
+        long max = Math.max(a, b);
+        return max <= 0 ? 1 : 1 - (double) Math.abs(a - b) / max;
+    }
+
+    /** Jaccard index of the size sets. */
+    private static double sizesOverlap(long a, long b) {
+        int union = Long.bitCount(a | b);
+        return union == 0 ? 0 : (double) Long.bitCount(a & b) / union;
+    }
+
+    private Neighbour[] nearest(Features product) {
+        TopK top = new TopK(NONE);
+        int budget = maxCandidates;
+        for (Gender gender : GENDER_ORDER.get(product.gender())) {
+            double fixed = GENDER_WEIGHT * genderMatch(product.gender(), gender) + SIZES_WEIGHT;
+            // Blocks come in order of falling gender match, so none after this one can do better
+            if (budget == 0 || (top.isFull() && fixed + PRICE_WEIGHT < top.worst())) {
+                break;
+            }
+            Block block = blocks.get(new BlockKey(product.subcategory(), gender));
+            if (block == null) {
+                continue;
+            }
+            for (Block.Scan scan = block.scan(product); scan.hasNext() && budget > 0; budget--) {
+                Features candidate = scan.next();
+                // Within a block candidates come in order of falling price proximity
+                if (top.isFull() && fixed + PRICE_WEIGHT * scan.proximity() < top.worst()) {
+                    break;
+                }
+                double score = score(product, candidate);
+                if (!top.isFull() || score >= top.worst()) {
+                    top.offer(new Neighbour(candidate.id(), score));
+                }
+            }
+        }
+        return top.items();
+    }
+
+    /**
+     * Adds a changed product to the lists of nearby candidates it now beats. Neighbourhoods
+     * are taken as roughly symmetric: candidates the product's own list would not take are
+     * not offered to either, nor are any beyond the first maxCandidates. Lists skipped that
+     * way catch up when they are recomputed for a change of their own or of a neighbour.
+     */
+    private void offer(Features product, Neighbour[] own) {
+        double worst = own.length < k ? Double.NEGATIVE_INFINITY : own[k - 1].score();
+        int budget = maxCandidates;
+        for (Gender gender : GENDER_ORDER.get(product.gender())) {
+            double fixed = GENDER_WEIGHT * genderMatch(product.gender(), gender) + SIZES_WEIGHT;
+            if (budget == 0 || fixed + PRICE_WEIGHT < worst) {
+                break;
+            }
+            Block block = blocks.get(new BlockKey(product.subcategory(), gender));
+            if (block == null) {
+                continue;
+            }
+            for (Block.Scan scan = block.scan(product); scan.hasNext() && budget > 0; budget--) {
+                Features candidate = scan.next();
+                if (fixed + PRICE_WEIGHT * scan.proximity() < worst) {
+                    break;
+                }
+                Neighbour[] list = neighbours.get(candidate.id());
+                if (list == null || contains(list, product.id())) {
+                    continue;
+                }
+                Neighbour offered = new Neighbour(product.id(), score(product, candidate));
+                if (list.length == k && BEST_FIRST.compare(offered, list[k - 1]) >= 0) {
+                    continue;
+                }
+                TopK top = new TopK(list);
+                top.offer(offered);
+                link(candidate.id(), top.items());
+            }
+        }
+    }
+
+    private void relinkReferrers(UUID id) {
+        Set<UUID> referrers = referencedBy.remove(id);
+        if (referrers == null) {
+            return;
+        }
+        for (UUID referrer : referrers) {
+            Features features = products.get(referrer);
+            if (features != null) {
+                link(referrer, nearest(features));
+            }
+        }
+    }
+
+    private void link(UUID owner, Neighbour[] list) {
+        unlink(owner);
+        neighbours.put(owner, list);
+        for (Neighbour neighbour : list) {
+            referencedBy.computeIfAbsent(neighbour.id(), id -> new HashSet<>()).add(owner);
+        }
+    }
+
+    private void unlink(UUID owner) {
+        Neighbour[] previous = neighbours.get(owner);
+        if (previous == null) {
+            return;
+        }
+        for (Neighbour neighbour : previous) {
+            Set<UUID> referrers = referencedBy.get(neighbour.id());
+            if (referrers != null) {
+                referrers.remove(owner);
+                if (referrers.isEmpty()) {
+                    referencedBy.remove(neighbour.id());
+                }
+            }
+        }
+    }
+
+    private Block block(Features product) {
+        return blocks.computeIfAbsent(new BlockKey(product.subcategory(), product.gender()), key -> new Block());
+    }
+
+    private void unblock(Features product) {
+        Block block = blocks.get(new BlockKey(product.subcategory(), product.gender()));
+        if (block != null) {
+            block.remove(product);
+        }
+    }
+
+    private static boolean contains(Neighbour[] list, UUID id) {
+        for (Neighbour neighbour : list) {
+            if (neighbour.id().equals(id)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /** For each gender, all genders ordered by falling match with it. */
+    private static Map<Gender, List<Gender>> genderOrder() {
+        Map<Gender, List<Gender>> order = new EnumMap<>(Gender.class);
+        for (Gender gender : Gender.values()) {
+            List<Gender> sorted = new ArrayList<>(Arrays.asList(Gender.values()));
+            sorted.sort(Comparator.comparingDouble((Gender other) -> genderMatch(gender, other)).reversed());
+            order.put(gender, List.copyOf(sorted));
+        }
+        return order;
+    }
+
+    /** Available products of one subcategory and gender, sorted by price and id. */
+    private static final class Block {
+
+        private Features[] items = new Features[8];
+        private int size;
+
+        void add(Features product) {
+            int position = position(product);
+            if (position >= 0) {
+                items[position] = product;
+                return;
+            }
+            position = -position - 1;
+            if (size == items.length) {
+                items = Arrays.copyOf(items, size * 2);
+            }
+            System.arraycopy(items, position, items, position + 1, size - position);
+            items[position] = product;
+            size++;
+        }
+
+        void remove(Features product) {
+            int position = position(product);
+            if (position >= 0) {
+                System.arraycopy(items, position + 1, items, position, size - position - 1);
+                items[--size] = null;
+            }
+        }
+
+        Scan scan(Features product) {
+            int position = position(product);
+            return position >= 0 ? new Scan(product.price(), position - 1, position + 1)
+                    : new Scan(product.price(), -position - 2, -position - 1);
+        }
+
+        private int position(Features product) {
+            return Arrays.binarySearch(items, 0, size, product, BY_PRICE);
+        }
+
+        /** The other products of the block, merged from both sides of a price so that price proximity never increases. */
+        final class Scan {
+
+            private final long price;
+            private int below;
+            private int above;
+            private double proximity;
+
+            Scan(long price, int below, int above) {
+                this.price = price;
+                this.below = below;
+                this.above = above;
+            }
+
+            boolean hasNext() {
+                return below >= 0 || above < size;
+            }
+
+            Features next() {
+                Features candidate;
+                if (above >= size || (below >= 0
+                        && priceProximity(price, items[below].price()) >= priceProximity(price, items[above].price()))) {
+                    candidate = items[below--];
+                } else {
+                    candidate = items[above++];
+                }
+                proximity = priceProximity(price, candidate.price());
+                return candidate;
+            }
+
+            /** Price proximity of the candidate last returned. */
+            double proximity() {
+                return proximity;
+            }
+        }
+    }
+
+    /** Bounded best-first list, seeded with an existing list. */
+    private final class TopK {
+
+        private final Neighbour[] items;
+        private int size;
+
+        TopK(Neighbour[] seed) {
+            items = Arrays.copyOf(seed, Math.max(k, seed.length));
+            size = seed.length;
+        }
+
+        boolean isFull() {
+            return size == k;
+        }
+
+        double worst() {
+            return items[size - 1].score();
+        }
+
+        void offer(Neighbour neighbour) {
+            if (isFull() && BEST_FIRST.compare(neighbour, items[k - 1]) >= 0) {
+                return;
+            }
+            int position = size == k ? k - 1 : size++;
+            while (position > 0 && BEST_FIRST.compare(neighbour, items[position - 1]) < 0) {
+                items[position] = items[position - 1];
+                position--;
+            }
+            items[position] = neighbour;
+        }
+
+        Neighbour[] items() {
+            return size == 0 ? NONE : Arrays.copyOf(items, size);
+        }
+    }
+}
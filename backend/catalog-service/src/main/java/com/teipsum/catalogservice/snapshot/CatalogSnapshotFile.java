@@ -0,0 +1,178 @@
+package com.teipsum.catalogservice.snapshot;
+
+import com.teipsum.catalogservice.model.CatalogProduct;
+import com.teipsum.catalogservice.model.EventOffset;
+import com.teipsum.shared.product.enums.Gender;
+import com.teipsum.shared.product.enums.ProductCategory;
+import com.teipsum.shared.product.enums.ProductSubcategory;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Binary catalog snapshot: a header with the event offsets the snapshot was taken at,
+ * followed by the products, each prefixed with a continuation flag. Gzip compressed.
+ */
+final class CatalogSnapshotFile {
+
+    private static final int MAGIC = 0x43415453;
+    private static final int FORMAT_VERSION = 2;
+
+    private CatalogSnapshotFile() {
+    }
+
+    static final class Writer implements Closeable {
+
+        private final DataOutputStream out;
+
+        Writer(OutputStream target, List<EventOffset> offsets) throws IOException {
+            this.out = new DataOutputStream(new BufferedOutputStream(new GZIPOutputStream(target, 64 * 1024)));
+            out.writeInt(MAGIC);
+            out.writeInt(FORMAT_VERSION);
+            out.writeInt(offsets.size());
+            for (EventOffset offset : offsets) {
+                out.writeUTF(offset.getTopic());
+                out.writeInt(offset.getPartition());
+                out.writeLong(offset.getNextOffset());
+            }
+        }
+
+        void write(CatalogProduct product) {
+            try {
+                out.writeBoolean(true);
+                out.writeLong(product.getId().getMostSignificantBits());
+                out.writeLong(product.getId().getLeastSignificantBits());
+                writeString(product.getTitle());
+                writeString(product.getDescription());
+                writeString(product.getPrice().toPlainString());
+                writeString(product.getDiscount() == null ? null : product.getDiscount().toPlainString());
+                out.writeUTF(product.getCategory().name());
+                out.writeUTF(product.getSubcategory().name());
+                out.writeUTF(product.getGender().name());
+                out.writeBoolean(product.isAvailable());
+                out.writeLong(product.getUpdatedAt().getEpochSecond());
+                out.writeInt(product.getUpdatedAt().getNano());
+                writeStrings(product.getImageUrls());
+                writeStrings(product.getSizes());
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            out.writeBoolean(false);
+            out.close();
+        }
+
+        // writeUTF is limited to 64KB, descriptions are TEXT
+        private void writeString(String value) throws IOException {
+            if (value == null) {
+                out.writeInt(-1);
+                return;
+            }
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            out.writeInt(bytes.length);
+            out.write(bytes);
+        }
+
+        private void writeStrings(List<String> values) throws IOException {
+            List<String> list = values == null ? List.of() : values;
+            out.writeInt(list.size());
+            for (String value : list) {
+                writeString(value);
+            }
+        }
+    }
+
+    static final class Reader implements Closeable {
+
+        private final DataInputStream in;
+        private final List<EventOffset> offsets;
+
+        Reader(InputStream source) throws IOException {
+            this.in = new DataInputStream(new BufferedInputStream(new GZIPInputStream(source, 64 * 1024)));
+            if (in.readInt() != MAGIC) {
+                throw new IOException("Not a catalog snapshot");
+            }
+            int version = in.readInt();
+            if (version != FORMAT_VERSION) {
+                throw new IOException("Unsupported catalog snapshot version " + version);
+            }
+            int count = in.readInt();
+            offsets = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                offsets.add(new EventOffset(in.readUTF(), in.readInt(), in.readLong()));
+            }
+        }
+
+        List<EventOffset> offsets() {
+            return offsets;
+        }
+
+        /** The next product, or null after the last one. */
+        CatalogProduct next() throws IOException {
+            if (!in.readBoolean()) {
+                return null;
+            }
+            UUID id = new UUID(in.readLong(), in.readLong());
+            String title = readString();
+            String description = readString();
+            BigDecimal price = new BigDecimal(readString());
+            String discount = readString();
+            return CatalogProduct.builder()
+                    .id(id)
+                    .title(title)
+                    .description(description)
+                    .price(price)
+                    .discount(discount == null ? null : new BigDecimal(discount))
+                    .category(ProductCategory.valueOf(in.readUTF()))
+                    .subcategory(ProductSubcategory.valueOf(in.readUTF()))
+                    .gender(Gender.valueOf(in.readUTF()))
+                    .available(in.readBoolean())
+                    .updatedAt(Instant.ofEpochSecond(in.readLong(), in.readInt()))
+                    .imageUrls(readStrings())
+                    .sizes(readStrings())
+                    .build();
+        }
+
+        @Override
+        public void close() throws IOException {
+            in.close();
+        }
+
+        private String readString() throws IOException {
+            int length = in.readInt();
+            if (length < 0) {
+                return null;
+            }
+            byte[] bytes = new byte[length];
+            in.readFully(bytes);
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+
+        private List<String> readStrings() throws IOException {
+            int count = in.readInt();
+            List<String> values = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                values.add(readString());
+            }
+            return values;
+        }
+    }
+}
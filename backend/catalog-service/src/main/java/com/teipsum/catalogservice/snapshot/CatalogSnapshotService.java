@@ -0,0 +1,187 @@
+package com.teipsum.catalogservice.snapshot;
+
+import com.teipsum.catalogservice.model.CatalogProduct;
+import com.teipsum.catalogservice.repository.CatalogProductBatchWriter;
+import com.teipsum.catalogservice.repository.CatalogSnapshotRepository;
+import com.teipsum.catalogservice.repository.EventOffsetRepository;
+import com.teipsum.catalogservice.version.CatalogVersions;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Bootstraps the catalog from a local snapshot file instead of replaying the whole
+ * product event history. Runs before the Kafka listeners start: when the catalog is
+ * empty the snapshot is bulk loaded together with the event offsets it was taken at,
+ * and the listener resumes from those offsets. While running, a fresh snapshot is
+ * written periodically and once more on shutdown, after the listeners have stopped.
+ */
+@Component
+public class CatalogSnapshotService implements SmartLifecycle {
+
+    private static final Logger logger = LogManager.getLogger(CatalogSnapshotService.class);
+
+    private static final int LOAD_CHUNK_SIZE = 1000;
+
+    private final CatalogSnapshotRepository snapshotRepository;
+    private final EventOffsetRepository eventOffsetRepository;
+    private final CatalogProductBatchWriter batchWriter;
+    private final CatalogVersions catalogVersions;
+    private final TransactionTemplate loadTransaction;
+    private final TransactionTemplate snapshotTransaction;
+    private final boolean enabled;
+    private final Path path;
+    private final Duration interval;
+
+    private ScheduledExecutorService scheduler;
+    private volatile boolean running;
+    // Catalog version of the last snapshot written or loaded; unchanged catalogs are not rewritten
+    private long snapshotVersion = -1;
+
+    public CatalogSnapshotService(CatalogSnapshotRepository snapshotRepository,
+                                  EventOffsetRepository eventOffsetRepository,
+                                  CatalogProductBatchWriter batchWriter,
+                                  CatalogVersions catalogVersions,
+                                  PlatformTransactionManager transactionManager,
+                                  @Value("${catalog.snapshot.enabled:false}") boolean enabled,
+                                  @Value("${catalog.snapshot.path:data/catalog-snapshot.bin}") String path,
+                                  @Value("${catalog.snapshot.interval:5m}") Duration interval) {
+        this.snapshotRepository = snapshotRepository;
+        this.eventOffsetRepository = eventOffsetRepository;
+        this.batchWriter = batchWriter;
+        this.catalogVersions = catalogVersions;
+        this.loadTransaction = new TransactionTemplate(transactionManager);
+        this.snapshotTransaction = new TransactionTemplate(transactionManager);
+        // Products, images, sizes and offsets must all be read from the same database snapshot
+        this.snapshotTransaction.setIsolationLevel(TransactionDefinition.ISOLATION_REPEATABLE_READ);
+        this.snapshotTransaction.setReadOnly(true);
+        this.enabled = enabled;
+        this.path = Path.of(path).toAbsolutePath();
+        this.interval = interval;
+    }
+
+    @Override
+    public void start() {
+        running = true;
+        if (!enabled) {
+            return;
+        }
+        load();
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "catalog-snapshot");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(this::writeQuietly, interval.toMillis(), interval.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+        if (scheduler == null) {
+            return;
+        }
+        scheduler.shutdownNow();
+        writeQuietly();
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    // Starts before and stops after the Kafka listener containers
+    @Override
+    public int getPhase() {
+        return 0;
+    }
+
+    void load() {
+        if (!Files.exists(path)) {
+            logger.info("No catalog snapshot at {}, product events are replayed from the beginning", path);
+            return;
+        }
+        if (snapshotRepository.countProducts() > 0) {
+            logger.info("Catalog is not empty, ignoring snapshot {}", path);
+            return;
+        }
+
+        long startedAt = System.nanoTime();
+        try {
+            Integer loaded = loadTransaction.execute(status -> {
+                try (InputStream in = Files.newInputStream(path);
+                     CatalogSnapshotFile.Reader reader = new CatalogSnapshotFile.Reader(in)) {
+                    int count = 0;
+                    List<CatalogProduct> chunk = new ArrayList<>(LOAD_CHUNK_SIZE);
+                    for (CatalogProduct product = reader.next(); product != null; product = reader.next()) {
+                        chunk.add(product);
+                        if (chunk.size() == LOAD_CHUNK_SIZE) {
+                            batchWriter.upsertAll(chunk);
+                            count += chunk.size();
+                            chunk.clear();
+                        }
+                    }
+                    batchWriter.upsertAll(chunk);
+                    batchWriter.saveOffsets(reader.offsets());
+                    return count + chunk.size();
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+            snapshotVersion = catalogVersions.globalVersion();
+            logger.info("Loaded {} products from snapshot {} in {} ms", loaded, path,
+                    Duration.ofNanos(System.nanoTime() - startedAt).toMillis());
+        } catch (RuntimeException e) {
+            // The load is rolled back as a whole, so the events are simply replayed instead
+            logger.warn("Failed to load catalog snapshot {}, replaying product events instead: {}", path, e.getMessage());
+        }
+    }
+
+    synchronized void write() throws IOException {
+        long version = catalogVersions.globalVersion();
+        if (version == snapshotVersion) {
+            return;
+        }
+
+        Files.createDirectories(path.getParent());
+        Path temporary = path.resolveSibling(path.getFileName() + ".tmp");
+        snapshotTransaction.executeWithoutResult(status -> {
+            try (OutputStream out = Files.newOutputStream(temporary);
+                 CatalogSnapshotFile.Writer writer = new CatalogSnapshotFile.Writer(out, eventOffsetRepository.findAll())) {
+                snapshotRepository.forEachProduct(writer::write);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+        Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        snapshotVersion = version;
+        logger.debug("Wrote catalog snapshot {} at catalog version {}", path, version);
+    }
+
+    private void writeQuietly() {
+        try {
+            write();
+        } catch (IOException | RuntimeException e) {
+            logger.warn("Failed to write catalog snapshot {}: {}", path, e.getMessage());
+        }
+    }
+}
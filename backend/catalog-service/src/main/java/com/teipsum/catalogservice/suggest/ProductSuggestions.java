@@ -0,0 +1,229 @@
+package com.teipsum.catalogservice.suggest;
+
+import com.teipsum.catalogservice.dto.ProductSuggestion;
+import com.teipsum.catalogservice.event.CatalogProductChangedEvent;
+import com.teipsum.catalogservice.hot.HotEntries;
+import com.teipsum.catalogservice.model.CatalogProduct;
+import com.teipsum.catalogservice.repository.CatalogSnapshotRepository;
+import com.teipsum.shared.product.enums.ProductSubcategory;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Search-as-you-type completions over the titles of available products and the names of
+ * their subcategories. Lookups read an immutable {@link SuggestIndex}; committed product
+ * changes update the title set and swap in a rebuilt index shortly after, and the index is
+ * also rebuilt periodically so rankings follow popularity.
+ * <p>
+ * A title weighs one per available product carrying it plus their estimated requests, a
+ * subcategory the sum over its products, so broad matches rank above single products.
+ */
+@Component
+public class ProductSuggestions implements SmartLifecycle {
+
+    private static final Logger logger = LogManager.getLogger(ProductSuggestions.class);
+
+    private final CatalogSnapshotRepository snapshotRepository;
+    private final HotEntries hotEntries;
+    private final TransactionTemplate readOnly;
+    private final boolean enabled;
+    private final int maxLimit;
+    private final Duration rebuildDelay;
+    private final Duration refreshInterval;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    // Title and subcategory of every available product
+    private final Map<UUID, Entry> products = new HashMap<>();
+    private final AtomicBoolean rebuildScheduled = new AtomicBoolean();
+    private boolean ready;
+
+    private volatile SuggestIndex index = SuggestIndex.EMPTY;
+    private ScheduledExecutorService scheduler;
+    private volatile boolean running;
+
+    private record Entry(String title, ProductSubcategory subcategory) {}
+
+    public ProductSuggestions(CatalogSnapshotRepository snapshotRepository,
+                              HotEntries hotEntries,
+                              PlatformTransactionManager transactionManager,
+                              @Value("${catalog.suggest.enabled:true}") boolean enabled,
+                              @Value("${catalog.suggest.max-limit:20}") int maxLimit,
+                              @Value("${catalog.suggest.rebuild-delay:1s}") Duration rebuildDelay,
+                              @Value("${catalog.suggest.refresh-interval:1m}") Duration refreshInterval) {
+        this.snapshotRepository = snapshotRepository;
+        this.hotEntries = hotEntries;
+        this.readOnly = new TransactionTemplate(transactionManager);
+        this.readOnly.setReadOnly(true);
+        this.enabled = enabled;
+        this.maxLimit = maxLimit;
+        this.rebuildDelay = rebuildDelay;
+        this.refreshInterval = refreshInterval;
+    }
+
+    @Override
+    public void start() {
+        running = true;
+        if (!enabled) {
+            return;
+        }
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "catalog-suggest");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long period = refreshInterval.toMillis();
+        scheduler.scheduleWithFixedDelay(this::rebuildQuietly, period, period, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        if (!enabled) {
+            logger.info("Product suggestions disabled");
+            return;
+        }
+
+        // Held while loading so changes committed meanwhile are applied on top of the load
+        lock.writeLock().lock();
+        try {
+            products.clear();
+            readOnly.executeWithoutResult(status -> snapshotRepository.forEachProduct(this::apply));
+            ready = true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        rebuild();
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onProductChanged(CatalogProductChangedEvent event) {
+        if (!enabled) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            // Before the first load the change is picked up from the database
+            if (!ready) {
+                return;
+            }
+            if (event.deleted()) {
+                products.remove(event.productId());
+            } else {
+                apply(event.product());
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+        // A burst of changes leads to one rebuild
+        if (scheduler != null && rebuildScheduled.compareAndSet(false, true)) {
+            scheduler.schedule(() -> {
+                rebuildScheduled.set(false);
+                rebuildQuietly();
+            }, rebuildDelay.toMillis(), TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /** Up to limit completions of the query, at most catalog.suggest.max-limit; none for a blank query. */
+    public List<ProductSuggestion> suggest(String query, int limit) {
+        return index.suggest(SuggestIndex.normalize(query), Math.min(limit, maxLimit));
+    }
+
+    /** Serialized, so an index built from older state never replaces a newer one. */
+    synchronized void rebuild() {
+        Map<UUID, Entry> current;
+        lock.readLock().lock();
+        try {
+            current = new HashMap<>(products);
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        long started = System.nanoTime();
+        Map<String, Title> titles = new HashMap<>();
+        Map<ProductSubcategory, Long> subcategories = new EnumMap<>(ProductSubcategory.class);
+        current.forEach((id, entry) -> {
+            long weight = 1 + hotEntries.productRequests(id);
+            titles.computeIfAbsent(SuggestIndex.normalize(entry.title()), key -> new Title()).add(id, entry.title(), weight);
+            subcategories.merge(entry.subcategory(), weight, Long::sum);
+        });
+
+        List<SuggestIndex.Completion> completions = new ArrayList<>(titles.size() + subcategories.size());
+        titles.values().forEach(title -> completions.add(new SuggestIndex.Completion(
+                new ProductSuggestion(title.text, ProductSuggestion.Type.PRODUCT, title.productId.toString(), null),
+                title.weight)));
+        subcategories.forEach((subcategory, weight) -> completions.add(new SuggestIndex.Completion(
+                new ProductSuggestion(subcategory.getDisplayName(), ProductSuggestion.Type.SUBCATEGORY, null, subcategory),
+                weight)));
+        index = new SuggestIndex(completions);
+        logger.debug("Suggestion index rebuilt with {} completions in {} ms",
+                completions.size(), (System.nanoTime() - started) / 1_000_000);
+    }
+
+    private void apply(CatalogProduct product) {
+        if (product.isAvailable() && product.getTitle() != null && !product.getTitle().isBlank()) {
+            products.put(product.getId(), new Entry(product.getTitle(), product.getSubcategory()));
+        } else {
+            products.remove(product.getId());
+        }
+    }
+
+    private void rebuildQuietly() {
+        try {
+            rebuild();
+        } catch (RuntimeException e) {
+            logger.warn("Failed to rebuild suggestion index: {}", e.getMessage());
+        }
+    }
+
+    /** Products sharing a normalized title; shown with the text and id of the most requested one. */
+    private static final class Title {
+
+        private String text;
+        private UUID productId;
+        private long topWeight;
+        private long weight;
+
+        void add(UUID id, String title, long productWeight) {
+            if (productId == null || productWeight > topWeight) {
+                text = title.trim();
+                productId = id;
+                topWeight = productWeight;
+            }
+            weight += productWeight;
+        }
+    }
+}
@@ -0,0 +1,209 @@
+package com.teipsum.catalogservice.suggest;
+
+import com.teipsum.catalogservice.dto.ProductSuggestion;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.PriorityQueue;
+
+/**
+ * Immutable prefix index over completion texts. Every word start of every normalized text
+ * is kept as a reference into that text, sorted by the suffix it starts, so the matches
+ * of a prefix are one contiguous range found by binary search. A max segment tree over
+ * the weights of that order hands out the range best first, so a lookup costs
+ * O(|prefix| log n + limit log n) however many completions share the prefix.
+ */
+final class SuggestIndex {
+
+    static final SuggestIndex EMPTY = new SuggestIndex(List.of());
+
+    record Completion(ProductSuggestion suggestion, long weight) {}
+
+    private final Completion[] completions;
+    private final String[] texts;
+    // Completion index in the upper, word offset in the lower 32 bits, sorted by suffix
+    private final long[] refs;
+    // Position of the heaviest ref in each node's range; leaves start at size
+    private final int[] tree;
+    private final int size;
+
+    SuggestIndex(List<Completion> completions) {
+        this.completions = completions.toArray(Completion[]::new);
+        this.texts = new String[this.completions.length];
+        List<Long> unsorted = new ArrayList<>();
+        for (int i = 0; i < this.completions.length; i++) {
+            String text = normalize(this.completions[i].suggestion().text());
+            texts[i] = text;
+            for (int offset = 0; offset < text.length(); offset++) {
+                if (isWordStart(text, offset)) {
+                    unsorted.add(((long) i << 32) | offset);
+                }
+            }
+        }
+        Long[] sorted = unsorted.toArray(Long[]::new);
+        Arrays.sort(sorted, this::compareSuffixes);
+        this.refs = Arrays.stream(sorted).mapToLong(Long::longValue).toArray();
+
+        this.size = Math.max(1, Integer.highestOneBit(Math.max(1, refs.length - 1)) << 1);
+        this.tree = new int[2 * size];
+        Arrays.fill(tree, -1);
+        for (int i = 0; i < refs.length; i++) {
+            tree[size + i] = i;
+        }
+        for (int node = size - 1; node > 0; node--) {
+            tree[node] = heavier(tree[2 * node], tree[2 * node + 1]);
+        }
+    }
+
+    /** Lower case with runs of whitespace collapsed, the form both texts and prefixes are matched in. */
+    static String normalize(String text) {
+        return text == null ? "" : text.trim().replaceAll("\\s+", " ").toLowerCase(Locale.ROOT);
+    }
+
+    int size() {
+        return completions.length;
+    }
+
+    /** Completions with a word starting with the normalized prefix, heaviest first. */
+    List<ProductSuggestion> suggest(String prefix, int limit) {
+        if (prefix.isEmpty() || limit <= 0 || refs.length == 0) {
+            return List.of();
+        }
+        int from = lowerBound(prefix);
+        int to = upperBound(prefix, from);
+        if (from == to) {
+            return List.of();
+        }
+
+        List<ProductSuggestion> suggestions = new ArrayList<>(limit);
+        BitSet seen = new BitSet();
+        // Ranges ordered by their heaviest ref; popping one splits it around that ref
+        PriorityQueue<int[]> ranges = new PriorityQueue<>(
+                Comparator.comparingLong((int[] range) -> weight(range[2])).reversed());
+        ranges.add(new int[]{from, to, heaviest(from, to)});
+        while (!ranges.isEmpty() && suggestions.size() < limit) {
+            int[] range = ranges.poll();
+            int best = range[2];
+            int completion = completionAt(best);
+            // A text matching at several of its words appears once per match
+            if (!seen.get(completion)) {
+                seen.set(completion);
+                suggestions.add(completions[completion].suggestion());
+            }
+            if (range[0] < best) {
+                ranges.add(new int[]{range[0], best, heaviest(range[0], best)});
+            }
+            if (best + 1 < range[1]) {
+                ranges.add(new int[]{best + 1, range[1], heaviest(best + 1, range[1])});
+            }
+        }
+        return suggestions;
+    }
+
+    /** First ref whose suffix is not below the prefix. */
+    private int lowerBound(String prefix) {
+        int low = 0;
+        int high = refs.length;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (compareSuffix(refs[middle], prefix) < 0) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    /** First ref from the lower bound on whose suffix no longer starts with the prefix. */
+    private int upperBound(String prefix, int from) {
+        int low = from;
+        int high = refs.length;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            long ref = refs[middle];
+            if (texts[completion(ref)].startsWith(prefix, offset(ref))) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    /** Position of the heaviest ref in [from, to). */
+    private int heaviest(int from, int to) {
+        int best = -1;
+        for (int low = from + size, high = to + size; low < high; low >>= 1, high >>= 1) {
+            if ((low & 1) == 1) {
+                best = heavier(best, tree[low++]);
+            }
+            if ((high & 1) == 1) {
+                best = heavier(best, tree[--high]);
+            }
+        }
+        return best;
+    }
+
+    private int heavier(int a, int b) {
+        if (a < 0) {
+            return b;
+        }
+        if (b < 0) {
+            return a;
+        }
+        return weight(b) > weight(a) ? b : a;
+    }
+
+    private long weight(int position) {
+        return completions[completionAt(position)].weight();
+    }
+
+    private int completionAt(int position) {
+        return completion(refs[position]);
+    }
+
+    private int compareSuffixes(long a, long b) {
+        String left = texts[completion(a)];
+        String right = texts[completion(b)];
+        int i = offset(a);
+        int j = offset(b);
+        while (i < left.length() && j < right.length()) {
+            int difference = left.charAt(i++) - right.charAt(j++);
+            if (difference != 0) {
+                return difference;
+            }
+        }
+        return (left.length() - i) - (right.length() - j);
+    }
+
+    private int compareSuffix(long ref, String prefix) {
+        String text = texts[completion(ref)];
+        int i = offset(ref);
+        int j = 0;
+        while (i < text.length() && j < prefix.length()) {
+            int difference = text.charAt(i++) - prefix.charAt(j++);
+            if (difference != 0) {
+                return difference;
+            }
+        }
+        return (text.length() - i) - (prefix.length() - j);
+    }
+
+    private static int completion(long ref) {
+        return (int) (ref >>> 32);
+    }
+
+    private static int offset(long ref) {
+        return (int) ref;
+    }
+
+    private static boolean isWordStart(String text, int offset) {
+        return Character.isLetterOrDigit(text.charAt(offset))
+                && (offset == 0 || !Character.isLetterOrDigit(text.charAt(offset - 1)));
+    }
+}
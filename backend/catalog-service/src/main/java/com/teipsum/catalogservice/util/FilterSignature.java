@@ -0,0 +1,75 @@
+package com.teipsum.catalogservice.util;
+
+import com.teipsum.shared.product.dto.ProductFilterRequest;
+import com.teipsum.shared.product.enums.Gender;
+import com.teipsum.shared.product.enums.ProductCategory;
+import com.teipsum.shared.product.enums.ProductSubcategory;
+
+import java.math.BigDecimal;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Objects;
+import java.util.Set;
+
+public final class FilterSignature {
+
+    private FilterSignature() {
+    }
+
+    /**
+     * The parts of a filter that decide which products match: sorting is dropped and
+     * values are normalized so equivalent requests share one cache entry.
+     */
+    public static ProductFilterRequest of(ProductFilterRequest filter) {
+        if (filter == null) {
+            return new ProductFilterRequest(null, null, null, null, null, null, null, null, null, null, null, null);
+        }
+        String searchQuery = ListingSort.hasSearchQuery(filter)
+                ? filter.searchQuery().trim().toLowerCase(Locale.ROOT)
+                : null;
+        return new ProductFilterRequest(
+                searchQuery,
+                values(filter.category(), ProductCategory.class),
+                values(filter.subcategory(), ProductSubcategory.class),
+                values(filter.gender(), Gender.class),
+                normalize(filter.minPrice()),
+                normalize(filter.maxPrice()),
+                normalize(filter.minDiscount()),
+                normalize(filter.maxDiscount()),
+                filter.available(),
+                sizes(filter.sizes()),
+                null,
+                null
+        );
+    }
+
+    /** The values as an EnumSet, iterated in declaration order, or null when none are given. */
+    public static <E extends Enum<E>> EnumSet<E> values(Set<E> values, Class<E> type) {
+        if (values == null) {
+            return null;
+        }
+        EnumSet<E> normalized = EnumSet.noneOf(type);
+        values.stream().filter(Objects::nonNull).forEach(normalized::add);
+        return normalized.isEmpty() ? null : normalized;
+    }
+
+    /** Distinct, trimmed and sorted size codes, or null when none are given. */
+    public static List<String> sizes(List<String> sizes) {
+        if (sizes == null) {
+            return null;
+        }
+        List<String> normalized = sizes.stream()
+                .filter(Objects::nonNull)
+                .map(String::trim)
+                .filter(size -> !size.isEmpty())
+                .distinct()
+                .sorted()
+                .toList();
+        return normalized.isEmpty() ? null : normalized;
+    }
+
+    private static BigDecimal normalize(BigDecimal value) {
+        return value == null ? null : value.stripTrailingZeros();
+    }
+}
@@ -0,0 +1,98 @@
+package com.teipsum.catalogservice.util;
+
+import com.teipsum.catalogservice.exception.InvalidPagingException;
+import com.teipsum.catalogservice.model.CatalogProduct;
+import org.springframework.data.domain.Sort;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Iterator;
+import java.util.Objects;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Keyset position in a listing: the sort field and direction plus the sort key
+ * and id of the last row returned. Clients only ever see it as an opaque token.
+ * A null sortBy means the listing is ordered by id alone.
+ */
+public record ListingCursor(
+        String sortBy,
+        Sort.Direction direction,
+        String lastValue,
+        UUID lastId
+) {
+    public static final Set<String> SORT_FIELDS = Set.of("price", CatalogProduct.EFFECTIVE_PRICE, "discount", "title");
+
+    private static final String SEPARATOR = "|";
+
+    public static ListingCursor start(Sort sort) {
+        if (sort.isUnsorted()) {
+            return new ListingCursor(null, Sort.Direction.ASC, null, null);
+        }
+
+        Iterator<Sort.Order> orders = sort.iterator();
+        Sort.Order order = orders.next();
+        if (orders.hasNext() || !SORT_FIELDS.contains(order.getProperty())) {
+            throw new InvalidPagingException("Cursor paging supports a single sort on one of " + SORT_FIELDS);
+        }
+        return new ListingCursor(order.getProperty(), order.getDirection(), null, null);
+    }
+
+    public static ListingCursor decode(String token) {
+        try {
+            String decoded = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            String[] parts = decoded.split("\\|", 4);
+            if (parts.length != 4) {
+                throw new IllegalArgumentException("Unexpected cursor layout");
+            }
+
+            String sortBy = parts[0].isEmpty() ? null : parts[0];
+            if (sortBy != null && !SORT_FIELDS.contains(sortBy)) {
+                throw new IllegalArgumentException("Unexpected sort field");
+            }
+
+            ListingCursor cursor = new ListingCursor(
+                    sortBy, Sort.Direction.fromString(parts[1]), parts[3], UUID.fromString(parts[2]));
+            if (cursor.numericKey()) {
+                new BigDecimal(cursor.lastValue());
+            }
+            return cursor;
+        } catch (IllegalArgumentException e) {
+            throw new InvalidPagingException("Malformed cursor");
+        }
+    }
+
+    public String encode() {
+        String raw = (sortBy == null ? "" : sortBy) + SEPARATOR + direction.name() + SEPARATOR
+                + lastId + SEPARATOR + (lastValue == null ? "" : lastValue);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public ListingCursor after(CatalogProduct last) {
+        String value = sortBy == null ? null : switch (sortBy) {
+            case "price" -> last.getPrice().toPlainString();
+            case CatalogProduct.EFFECTIVE_PRICE -> last.getEffectivePrice().toPlainString();
+            case "discount" -> Objects.requireNonNullElse(last.getDiscount(), BigDecimal.ZERO).toPlainString();
+            default -> last.getTitle();
+        };
+        return new ListingCursor(sortBy, direction, value, last.getId());
+    }
+
+    public boolean isStart() {
+        return lastId == null;
+    }
+
+    public boolean numericKey() {
+        return "price".equals(sortBy) || CatalogProduct.EFFECTIVE_PRICE.equals(sortBy) || "discount".equals(sortBy);
+    }
+
+    public boolean matches(Sort sort) {
+        if (sort.isUnsorted()) {
+            return true;
+        }
+        Sort.Order order = sort.iterator().next();
+        return order.getProperty().equals(sortBy) && order.getDirection() == direction;
+    }
+}
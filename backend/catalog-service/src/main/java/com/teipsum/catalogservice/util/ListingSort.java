@@ -0,0 +1,29 @@
+package com.teipsum.catalogservice.util;
+
+import com.teipsum.shared.product.dto.ProductFilterRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+
+public final class ListingSort {
+
+    private ListingSort() {
+    }
+
+    /**
+     * Effective ordering of a listing request: an explicit Pageable sort wins,
+     * otherwise the filter's sortBy/sortDirection pair is used.
+     */
+    public static Sort resolve(ProductFilterRequest filter, Pageable pageable) {
+        if (pageable.getSort().isSorted()) {
+            return pageable.getSort();
+        }
+        if (filter != null && filter.sortBy() != null && filter.sortDirection() != null) {
+            return Sort.by(filter.sortDirection(), filter.sortBy());
+        }
+        return Sort.unsorted();
+    }
+
+    public static boolean hasSearchQuery(ProductFilterRequest filter) {
+        return filter != null && filter.searchQuery() != null && !filter.searchQuery().isBlank();
+    }
+}
@@ -1,16 +1,67 @@
 package com.teipsum.catalogservice.util;
 
+import com.fasterxml.jackson.annotation.JsonUnwrapped;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.fasterxml.jackson.databind.JsonSerializable;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.jsontype.TypeSerializer;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
 import com.teipsum.catalogservice.dto.CatalogProductDTO;
+import com.teipsum.catalogservice.dto.CursorPage;
+import com.teipsum.catalogservice.dto.ProductBatchEntry;
+import com.teipsum.catalogservice.event.CatalogProductChangedEvent;
 import com.teipsum.catalogservice.model.CatalogProduct;
+import com.teipsum.catalogservice.version.CatalogVersions;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.annotation.Order;
+import org.springframework.data.domain.Slice;
 import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
 
 @Component
 public class ProductDtoConverter {
 
     private static final Logger logger = LogManager.getLogger(ProductDtoConverter.class);
 
+    private final ObjectMapper objectMapper;
+    private final CatalogVersions catalogVersions;
+
+    // Serialized DTOs of recently served products, tagged with the catalog version they were read at
+    private final Cache<UUID, CachedJson> jsonCache;
+    // Committed products waiting for their version bump to be serialized again
+    private final Map<UUID, CatalogProduct> refreshing = new ConcurrentHashMap<>();
+
+    public ProductDtoConverter(ObjectMapper objectMapper, CatalogVersions catalogVersions,
+                               @Value("${catalog.cache.json.max-weight:32MB}") DataSize maxWeight) {
+        this.objectMapper = objectMapper;
+        this.catalogVersions = catalogVersions;
+        this.jsonCache = Caffeine.newBuilder()
+                .maximumWeight(maxWeight.toBytes())
+                .weigher((UUID id, CachedJson cached) -> cached.json().length)
+                .build();
+    }
+
+    private record CachedJson(long version, byte[] json) {}
+
+    private record ExportedProduct(@JsonUnwrapped CatalogProductDTO product, Instant updatedAt) {}
+
     public CatalogProductDTO convertToDto(CatalogProduct product) {
         logger.trace("Converting product to DTO: {}", product.getId());
         return CatalogProductDTO.builder()
@@ -22,9 +73,125 @@ public class ProductDtoConverter {
                 .category(product.getCategory())
                 .subcategory(product.getSubcategory())
                 .gender(product.getGender())
-                .imageUrls(product.getImageUrls())
-                .sizes(product.getSizes())
+                .imageUrls(copyOf(product.getImageUrls()))
+                .sizes(copyOf(product.getSizes()))
                 .available(product.isAvailable())
                 .build();
     }
-}
\ No newline at end of file
+
+    /** Cached JSON of a product, or null when it is not cached or older than the product's last change. */
+    public byte[] cachedJson(String id) {
+        UUID uuid;
+        try {
+            uuid = UUID.fromString(id);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+        return cachedJson(uuid);
+    }
+
+    /**
+     * JSON of a product DTO. readVersion is the global catalog version observed before
+     * the DTO was read; the bytes are only cached if no change to the product came after it.
+     */
+    public byte[] toJson(CatalogProductDTO dto, long readVersion) {
+        UUID id = UUID.fromString(dto.getId());
+        byte[] json = cachedJson(id);
+        return json != null ? json : cache(id, write(dto), readVersion);
+    }
+
+    public byte[] toJson(CatalogProduct product, long readVersion) {
+        byte[] json = cachedJson(product.getId());
+        return json != null ? json : cache(product.getId(), write(convertToDto(product)), readVersion);
+    }
+
+    /** A listing page with the same layout as the serialized DTO page, built from per-product fragments. */
+    public byte[] toJson(Slice<CatalogProduct> products, long readVersion) {
+        return write(products.map(product -> new JsonFragment(toJson(product, readVersion))));
+    }
+
+    public byte[] toJson(CursorPage<CatalogProduct> products, long readVersion) {
+        return write(products.map(product -> new JsonFragment(toJson(product, readVersion))));
+    }
+
+    /**
+     * One export line: the product DTO plus its update time. Bypasses the JSON cache,
+     * a full export would only evict the products that are actually being served.
+     */
+    public byte[] toExportJson(CatalogProduct product) {
+        return write(new ExportedProduct(convertToDto(product), product.getUpdatedAt()));
+    }
+
+    /** A batch lookup response, built from the serialized product of each found entry. */
+    public byte[] toBatchJson(List<ProductBatchEntry<byte[]>> entries) {
+        return write(entries.stream().map(entry -> entry.map(JsonFragment::new)).toList());
+    }
+
+    /** A JSON array of serialized products. */
+    public byte[] toJsonArray(List<byte[]> products) {
+        return write(products.stream().map(JsonFragment::new).toList());
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onProductChanged(CatalogProductChangedEvent event) {
+        // Entries are validated against the product version on read; this only frees the memory early
+        jsonCache.invalidate(event.productId());
+        if (!event.deleted()) {
+            refreshing.put(event.productId(), event.product());
+        }
+    }
+
+    /**
+     * Serializes a committed product again once its version is bumped, so the first read
+     * after a change does not pay for it. Rolled back changes never reach the refresh map.
+     */
+    @Order(CatalogVersions.CHANGE_ORDER + 1)
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMPLETION, fallbackExecution = true)
+    public void onProductVersioned(CatalogProductChangedEvent event) {
+        if (event.deleted() || !refreshing.remove(event.productId(), event.product())) {
+            return;
+        }
+        UUID id = event.productId();
+        jsonCache.put(id, new CachedJson(catalogVersions.productVersion(id), write(convertToDto(event.product()))));
+    }
+
+    public byte[] cachedJson(UUID id) {
+        CachedJson cached = jsonCache.getIfPresent(id);
+        return cached != null && cached.version() >= catalogVersions.productVersion(id) ? cached.json() : null;
+    }
+
+    private byte[] cache(UUID id, byte[] json, long readVersion) {
+        if (readVersion >= catalogVersions.productVersion(id)) {
+            jsonCache.put(id, new CachedJson(readVersion, json));
+        }
+        return json;
+    }
+
+    private byte[] write(Object value) {
+        try {
+            return objectMapper.writeValueAsBytes(value);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Failed to serialize " + value.getClass().getSimpleName(), e);
+        }
+    }
+
+    // Detaches the DTO from Hibernate's lazy collection wrappers so it can be cached and serialized
+    private static List<String> copyOf(List<String> values) {
+        return values == null ? new ArrayList<>() : new ArrayList<>(values);
+    }
+
+    /** Pre-serialized JSON value, copied into the output as is. */
+    private record JsonFragment(byte[] json) implements JsonSerializable {
+
+        @Override
+        public void serialize(JsonGenerator generator, SerializerProvider serializers) throws IOException {
+            generator.writeRawValue(new SerializedString(new String(json, StandardCharsets.UTF_8)));
+        }
+
+        @Override
+        public void serializeWithType(JsonGenerator generator, SerializerProvider serializers,
+                                      TypeSerializer typeSerializer) throws IOException {
+            serialize(generator, serializers);
+        }
+    }
+}
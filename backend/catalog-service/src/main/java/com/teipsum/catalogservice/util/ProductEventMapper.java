@@ -0,0 +1,53 @@
+package com.teipsum.catalogservice.util;
+
+import com.teipsum.catalogservice.model.CatalogProduct;
+import com.teipsum.shared.product.event.ProductCreatedEvent;
+import com.teipsum.shared.product.event.ProductUpdatedEvent;
+
+import java.math.BigDecimal;
+import java.util.UUID;
+
+/**
+ * Full catalog row state carried by created and updated events.
+ */
+public final class ProductEventMapper {
+
+    private ProductEventMapper() {
+    }
+
+    public static CatalogProduct toProduct(ProductCreatedEvent event) {
+        return CatalogProduct.builder()
+                .id(UUID.fromString(event.id()))
+                .title(event.title())
+                .description(event.description())
+                .price(event.price())
+                .discount(discountOrZero(event.discount()))
+                .category(event.category())
+                .subcategory(event.subcategory())
+                .gender(event.gender())
+                .imageUrls(event.imageUrls())
+                .sizes(event.sizes())
+                .available(event.available())
+                .build();
+    }
+
+    public static CatalogProduct toProduct(ProductUpdatedEvent event) {
+        return CatalogProduct.builder()
+                .id(UUID.fromString(event.id()))
+                .title(event.title())
+                .description(event.description())
+                .price(event.price())
+                .discount(discountOrZero(event.discount()))
+                .category(event.category())
+                .subcategory(event.subcategory())
+                .gender(event.gender())
+                .imageUrls(event.imageUrls())
+                .sizes(event.sizes())
+                .available(event.available())
+                .build();
+    }
+
+    public static BigDecimal discountOrZero(BigDecimal discount) {
+        return discount == null ? BigDecimal.ZERO : discount;
+    }
+}
@@ -0,0 +1,74 @@
+package com.teipsum.catalogservice.version;
+
+import com.teipsum.catalogservice.event.CatalogProductChangedEvent;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Monotonic catalog versions backing the ETags of product endpoints: one global
+ * version for listings and one per product (the global version of its last change).
+ * Versions are in-memory, so every ETag carries the epoch of this instance and
+ * a restart can never revalidate an ETag issued before it.
+ */
+@Component
+public class CatalogVersions {
+
+    /** Order of the version bump among the after-completion listeners of a product change. */
+    public static final int CHANGE_ORDER = 0;
+
+    private final String epoch = Long.toString(System.currentTimeMillis(), 36);
+    private final AtomicLong globalVersion = new AtomicLong();
+    private final Map<UUID, Long> productVersions = new ConcurrentHashMap<>();
+    // Lower bound of every product version, raised when changes may have been missed
+    private volatile long floor;
+
+    /**
+     * Runs after completion, i.e. after the post-commit cache evictions and index updates,
+     * so a request that observes the new version can no longer read pre-change data.
+     * A rolled back change only costs clients a spurious 200.
+     */
+    @Order(CHANGE_ORDER)
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMPLETION, fallbackExecution = true)
+    public void onProductChanged(CatalogProductChangedEvent event) {
+        long version = globalVersion.incrementAndGet();
+        productVersions.merge(event.productId(), version, Math::max);
+    }
+
+    /**
+     * Treats every product as changed: all ETags and everything validated against
+     * product versions become stale. Used when this replica may have missed changes.
+     */
+    public void invalidateAll() {
+        floor = globalVersion.incrementAndGet();
+    }
+
+    public long globalVersion() {
+        return globalVersion.get();
+    }
+
+    public long productVersion(UUID id) {
+        return Math.max(productVersions.getOrDefault(id, 0L), floor);
+    }
+
+    public String listingETag() {
+        return "\"c" + epoch + "." + globalVersion() + "\"";
+    }
+
+    /** ETag of a product detail, or null when the id is not a UUID. */
+    public String productETag(String id) {
+        UUID uuid;
+        try {
+            uuid = UUID.fromString(id);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+        return "\"p" + epoch + "." + productVersion(uuid) + "\"";
+    }
+}
@@ -0,0 +1,184 @@
+package com.teipsum.catalogservice.cache;
+
+import com.teipsum.catalogservice.dto.CountMode;
+import com.teipsum.catalogservice.event.CatalogProductChangedEvent;
+import com.teipsum.catalogservice.index.CatalogIndex;
+import com.teipsum.catalogservice.model.CatalogProduct;
+import com.teipsum.shared.product.dto.ProductFilterRequest;
+import com.teipsum.shared.product.enums.ProductCategory;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.util.unit.DataSize;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@DisplayName("ListingPageCache Tests")
+class ListingPageCacheTest {
+
+    private static final Pageable FIRST_PAGE = PageRequest.of(0, 20, Sort.by("price"));
+
+    @Mock
+    private CatalogIndex catalogIndex;
+
+    private ListingPageCache cache;
+    private AtomicInteger loads;
+
+    @BeforeEach
+    void setUp() {
+        cache = new ListingPageCache(catalogIndex, true, DataSize.ofMegabytes(1));
+        loads = new AtomicInteger();
+    }
+
+    @Test
+    @DisplayName("Should load a page once for equivalent filters and keep pages apart by position and sort")
+    void shouldServeCachedPage() {
+        // Given
+        ProductFilterRequest tops = filter(Set.of(ProductCategory.TOPS), " Shirt ");
+        ProductFilterRequest same = filter(Set.of(ProductCategory.TOPS), "shirt");
+
+        // When
+        Page<CatalogProduct> first = get(tops, FIRST_PAGE, CountMode.EXACT);
+        Page<CatalogProduct> second = get(same, FIRST_PAGE, CountMode.EXACT);
+        get(tops, PageRequest.of(1, 20, Sort.by("price")), CountMode.EXACT);
+        get(tops, PageRequest.of(0, 20, Sort.by("title")), CountMode.EXACT);
+
+        // Then
+        assertSame(first, second);
+        assertEquals(3, loads.get());
+        assertEquals(3, cache.size());
+    }
+
+    @Test
+    @DisplayName("Should evict only pages of the previous and new category of a changed product")
+    void shouldEvictPagesOfChangedCategories() {
+        // Given
+        UUID id = UUID.randomUUID();
+        get(filter(Set.of(ProductCategory.TOPS), null), FIRST_PAGE, CountMode.EXACT);
+        get(filter(Set.of(ProductCategory.SHOES, ProductCategory.BAGS), null), FIRST_PAGE, CountMode.EXACT);
+        get(filter(Set.of(ProductCategory.OUTERWEAR), null), FIRST_PAGE, CountMode.NONE);
+        get(filter(null, null), FIRST_PAGE, CountMode.EXACT);
+        when(catalogIndex.isReady()).thenReturn(true);
+        when(catalogIndex.category(id)).thenReturn(Optional.of(ProductCategory.TOPS));
+
+        // When
+        cache.onProductChanged(new CatalogProductChangedEvent(id, product(id, ProductCategory.SHOES)));
+
+        // Then
+        assertEquals(1, cache.size());
+        get(filter(Set.of(ProductCategory.OUTERWEAR), null), FIRST_PAGE, CountMode.NONE);
+        assertEquals(4, loads.get());
+    }
+
+    @Test
+    @DisplayName("Should evict the pages of the previous category again once the index applied the change")
+    void shouldEvictAgainAfterIndexApplied() {
+        // Given
+        UUID id = UUID.randomUUID();
+        when(catalogIndex.isReady()).thenReturn(true);
+        when(catalogIndex.category(id)).thenReturn(Optional.of(ProductCategory.TOPS));
+        CatalogProductChangedEvent event = new CatalogProductChangedEvent(id, product(id, ProductCategory.SHOES));
+        cache.onProductChanged(event);
+        // Read from the index before it applied the change, so it still lists the product under TOPS
+        get(filter(Set.of(ProductCategory.TOPS), null), FIRST_PAGE, CountMode.EXACT);
+        get(filter(Set.of(ProductCategory.OUTERWEAR), null), FIRST_PAGE, CountMode.EXACT);
+
+        // When
+        cache.onProductChangeApplied(event);
+
+        // Then
+        assertEquals(1, cache.size());
+        get(filter(Set.of(ProductCategory.TOPS), null), FIRST_PAGE, CountMode.EXACT);
+        assertEquals(3, loads.get());
+    }
+
+    @Test
+    @DisplayName("Should not keep a page loaded while a product changed")
+    void shouldNotCachePageLoadedDuringChange() {
+        // Given
+        ProductFilterRequest filter = filter(Set.of(ProductCategory.TOPS), null);
+
+        // When
+        cache.get(filter, FIRST_PAGE, CountMode.EXACT, () -> {
+            cache.evict(Set.of(ProductCategory.TOPS));
+            return page();
+        });
+
+        // Then
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    @DisplayName("Should clear every page on a change while the index is not ready")
+    void shouldClearWithoutIndex() {
+        // Given
+        get(filter(Set.of(ProductCategory.TOPS), null), FIRST_PAGE, CountMode.EXACT);
+        get(filter(Set.of(ProductCategory.SHOES), null), FIRST_PAGE, CountMode.EXACT);
+        when(catalogIndex.isReady()).thenReturn(false);
+
+        // When
+        cache.onProductChanged(new CatalogProductChangedEvent(UUID.randomUUID(), null));
+
+        // Then
+        assertEquals(0, cache.size());
+        verify(catalogIndex, never()).category(any());
+    }
+
+    @Test
+    @DisplayName("Should not cache pages with estimated totals")
+    void shouldBypassEstimatedTotals() {
+        // Given
+        ProductFilterRequest filter = filter(Set.of(ProductCategory.TOPS), null);
+
+        // When
+        get(filter, FIRST_PAGE, CountMode.ESTIMATE);
+        get(filter, FIRST_PAGE, CountMode.ESTIMATE);
+
+        // Then
+        assertEquals(2, loads.get());
+        assertEquals(0, cache.size());
+    }
+
+    private Page<CatalogProduct> get(ProductFilterRequest filter, Pageable pageable, CountMode countMode) {
+        return cache.get(filter, pageable, countMode, () -> {
+            loads.incrementAndGet();
+            return page();
+        });
+    }
+
+    private static Page<CatalogProduct> page() {
+        UUID id = UUID.randomUUID();
+        return new PageImpl<>(List.of(product(id, ProductCategory.TOPS)), FIRST_PAGE, 1);
+    }
+
+    private static CatalogProduct product(UUID id, ProductCategory category) {
+        return CatalogProduct.builder()
+                .id(id)
+                .title("Product")
+                .category(category)
+                .imageUrls(List.of())
+                .sizes(List.of("M"))
+                .build();
+    }
+
+    private static ProductFilterRequest filter(Set<ProductCategory> category, String searchQuery) {
+        return new ProductFilterRequest(searchQuery, category, null, null, null, null,
+                null, null, null, null, null, null);
+    }
+}
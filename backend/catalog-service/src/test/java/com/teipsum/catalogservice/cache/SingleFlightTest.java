@@ -0,0 +1,122 @@
+package com.teipsum.catalogservice.cache;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("SingleFlight Tests")
+class SingleFlightTest {
+
+    private final SingleFlight<String, String> singleFlight = new SingleFlight<>("test");
+    private final ExecutorService executor = Executors.newFixedThreadPool(8);
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    @DisplayName("Should run one load and share its result with concurrent callers")
+    void shouldShareOneLoadWithConcurrentCallers() throws Exception {
+        // Given
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger loads = new AtomicInteger();
+        Supplier<String> loader = () -> {
+            loads.incrementAndGet();
+            await(release);
+            return "value";
+        };
+
+        // When
+        List<Future<String>> results = new ArrayList<>();
+        results.add(executor.submit(() -> singleFlight.load("key", Duration.ofSeconds(10), loader)));
+        awaitCondition(() -> singleFlight.leaderCount() == 1);
+        for (int i = 0; i < 7; i++) {
+            results.add(executor.submit(() -> singleFlight.load("key", Duration.ofSeconds(10), loader)));
+        }
+        awaitCondition(() -> singleFlight.coalescedCount() == 7);
+        release.countDown();
+
+        // Then
+        for (Future<String> result : results) {
+            assertEquals("value", result.get(5, TimeUnit.SECONDS));
+        }
+        assertEquals(1, loads.get());
+        assertEquals("other", singleFlight.load("key", Duration.ofSeconds(1), () -> "other"));
+    }
+
+    @Test
+    @DisplayName("Should share the leader's exception with waiters")
+    void shouldShareLeaderException() throws Exception {
+        // Given
+        CountDownLatch release = new CountDownLatch(1);
+        Supplier<String> failing = () -> {
+            await(release);
+            throw new IllegalStateException("not found");
+        };
+        Future<String> leader = executor.submit(() -> singleFlight.load("key", Duration.ofSeconds(10), failing));
+        awaitCondition(() -> singleFlight.leaderCount() == 1);
+
+        // When
+        Future<String> waiter = executor.submit(() -> singleFlight.load("key", Duration.ofSeconds(10), () -> "unused"));
+        awaitCondition(() -> singleFlight.coalescedCount() == 1);
+        release.countDown();
+
+        // Then
+        Exception leaderFailure = assertThrows(Exception.class, () -> leader.get(5, TimeUnit.SECONDS));
+        Exception waiterFailure = assertThrows(Exception.class, () -> waiter.get(5, TimeUnit.SECONDS));
+        assertInstanceOf(IllegalStateException.class, leaderFailure.getCause());
+        assertSame(leaderFailure.getCause(), waiterFailure.getCause());
+    }
+
+    @Test
+    @DisplayName("Should load on its own once the wait for a slow leader times out")
+    void shouldLoadOnItsOwnAfterTimeout() throws Exception {
+        // Given
+        CountDownLatch release = new CountDownLatch(1);
+        executor.submit(() -> singleFlight.load("key", Duration.ofSeconds(10), () -> {
+            await(release);
+            return "slow";
+        }));
+        awaitCondition(() -> singleFlight.leaderCount() == 1);
+
+        // When
+        String value = singleFlight.load("key", Duration.ofMillis(50), () -> "own");
+        release.countDown();
+
+        // Then
+        assertEquals("own", value);
+        assertEquals(1, singleFlight.timeoutCount());
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            assertTrue(latch.await(5, TimeUnit.SECONDS));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static void awaitCondition(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.nanoTime() < deadline, "Condition not met in time");
+            Thread.sleep(5);
+        }
+    }
+}
@@ -0,0 +1,109 @@
+package com.teipsum.catalogservice.cache;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.cache.concurrent.ConcurrentMapCache;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("TwoTierCache Tests")
+class TwoTierCacheTest {
+
+    private com.github.benmanes.caffeine.cache.Cache<Object, Object> local;
+    private ConcurrentMapCache remote;
+    private TwoTierCache cache;
+
+    @BeforeEach
+    void setUp() {
+        local = Caffeine.newBuilder().maximumSize(100).recordStats().build();
+        remote = new ConcurrentMapCache("products");
+        cache = new TwoTierCache("products", local, remote);
+    }
+
+    @Test
+    @DisplayName("Should promote remote hits into the local tier")
+    void shouldPromoteRemoteHitsIntoLocalTier() {
+        // Given
+        remote.put("a", "value");
+
+        // When
+        Object first = cache.get("a").get();
+        Object second = cache.get("a").get();
+
+        // Then
+        assertEquals("value", first);
+        assertEquals("value", second);
+        assertEquals("value", local.getIfPresent("a"));
+        assertEquals(1, cache.remoteHitCount());
+    }
+
+    @Test
+    @DisplayName("Should load once and populate both tiers")
+    void shouldLoadOnceAndPopulateBothTiers() {
+        // Given
+        AtomicInteger loads = new AtomicInteger();
+
+        // When
+        String first = cache.get("a", () -> "loaded-" + loads.incrementAndGet());
+        String second = cache.get("a", () -> "loaded-" + loads.incrementAndGet());
+
+        // Then
+        assertEquals("loaded-1", first);
+        assertEquals("loaded-1", second);
+        assertEquals(1, loads.get());
+        assertEquals("loaded-1", remote.get("a").get());
+        assertEquals(1, cache.remoteMissCount());
+    }
+
+    @Test
+    @DisplayName("Should evict from both tiers")
+    void shouldEvictFromBothTiers() {
+        // Given
+        cache.put("a", "value");
+
+        // When
+        cache.evict("a");
+
+        // Then
+        assertNull(cache.get("a"));
+        assertNull(local.getIfPresent("a"));
+        assertNull(remote.get("a"));
+    }
+
+    @Test
+    @DisplayName("Should evict only the local tier on local eviction")
+    void shouldEvictOnlyLocalTierOnLocalEviction() {
+        // Given
+        cache.put("a", "value");
+
+        // When
+        cache.evictLocal("a");
+
+        // Then
+        assertNull(local.getIfPresent("a"));
+        assertEquals("value", remote.get("a").get());
+    }
+
+    @Test
+    @DisplayName("Should publish local and remote tier metrics")
+    void shouldPublishTierMetrics() {
+        // Given
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        cache.bindTo(registry);
+        remote.put("a", "value");
+
+        // When
+        cache.get("a");
+        cache.get("missing");
+
+        // Then
+        assertEquals(1.0, registry.get("cache.remote.gets").tag("result", "hit").functionCounter().count());
+        assertEquals(1.0, registry.get("cache.remote.gets").tag("result", "miss").functionCounter().count());
+        assertNotNull(registry.find("cache.gets").tag("cache", "products").tag("tier", "local").meter());
+    }
+}
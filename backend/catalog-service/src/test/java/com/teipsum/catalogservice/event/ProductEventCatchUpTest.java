@@ -0,0 +1,131 @@
+package com.teipsum.catalogservice.event;
+
+import com.teipsum.catalogservice.model.EventOffset;
+import com.teipsum.catalogservice.repository.EventOffsetRepository;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.common.TopicPartition;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.kafka.config.KafkaListenerEndpointRegistry;
+import org.springframework.kafka.event.ListenerContainerIdleEvent;
+import org.springframework.kafka.listener.ContainerProperties;
+import org.springframework.kafka.listener.MessageListenerContainer;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@DisplayName("ProductEventCatchUp Tests")
+class ProductEventCatchUpTest {
+
+    private static final TopicPartition CREATED = new TopicPartition("product-created", 0);
+    private static final TopicPartition STOCK = new TopicPartition("stock-adjusted", 0);
+
+    @Mock
+    private EventOffsetRepository eventOffsetRepository;
+
+    @Mock
+    private ObjectProvider<KafkaListenerEndpointRegistry> registryProvider;
+
+    @Mock
+    private KafkaListenerEndpointRegistry registry;
+
+    @Mock
+    private Consumer<String, Object> productConsumer;
+
+    @Mock
+    private Consumer<String, Object> stockConsumer;
+
+    private ProductEventCatchUp catchUp;
+
+    @BeforeEach
+    void setUp() {
+        catchUp = new ProductEventCatchUp(eventOffsetRepository, registryProvider);
+        List<MessageListenerContainer> containers = List.of(
+                container("product-created", "product-updated", "product-deleted"),
+                container("stock-adjusted"));
+        when(registryProvider.getIfAvailable()).thenReturn(registry);
+        when(registry.getListenerContainers()).thenReturn(containers);
+        lenient().when(eventOffsetRepository.findAll()).thenReturn(List.of());
+        lenient().when(productConsumer.subscription())
+                .thenReturn(Set.of("product-created", "product-updated", "product-deleted"));
+        lenient().when(stockConsumer.subscription()).thenReturn(Set.of("stock-adjusted"));
+    }
+
+    @Test
+    @DisplayName("Should not be ready while another container has not been assigned")
+    void shouldWaitForEveryContainer() {
+        // Given
+        when(productConsumer.endOffsets(List.of(CREATED))).thenReturn(Map.of(CREATED, 0L));
+        when(productConsumer.position(CREATED)).thenReturn(0L);
+
+        // When
+        catchUp.onPartitionsAssigned(productConsumer, List.of(CREATED));
+
+        // Then
+        assertFalse(catchUp.isCaughtUp());
+    }
+
+    @Test
+    @DisplayName("Should not release the product partitions when the stock container goes idle")
+    void shouldReleaseOnlyIdleContainerPartitions() {
+        // Given
+        lag(productConsumer, CREATED, 5);
+        lag(stockConsumer, STOCK, 3);
+
+        // When
+        catchUp.onIdle(idle(stockConsumer, List.of(STOCK)));
+        catchUp.onIdle(idle(stockConsumer, null));
+
+        // Then
+        assertFalse(catchUp.isCaughtUp());
+        assertEquals(1, catchUp.health().getDetails().get("laggingPartitions"));
+    }
+
+    @Test
+    @DisplayName("Should be ready once every container caught up")
+    void shouldBeReadyWhenAllContainersCaughtUp() {
+        // Given
+        lag(productConsumer, CREATED, 5);
+        lag(stockConsumer, STOCK, 3);
+        catchUp.applied(List.of(offset(STOCK, 3)));
+        assertFalse(catchUp.isCaughtUp());
+
+        // When
+        catchUp.applied(List.of(offset(CREATED, 5)));
+
+        // Then
+        assertTrue(catchUp.isCaughtUp());
+    }
+
+    private void lag(Consumer<String, Object> consumer, TopicPartition partition, long end) {
+        when(consumer.endOffsets(List.of(partition))).thenReturn(Map.of(partition, end));
+        when(consumer.position(partition)).thenReturn(0L);
+        catchUp.onPartitionsAssigned(consumer, List.of(partition));
+    }
+
+    private MessageListenerContainer container(String... topics) {
+        ContainerProperties properties = new ContainerProperties(topics);
+        properties.setConsumerRebalanceListener(catchUp);
+        MessageListenerContainer container = mock(MessageListenerContainer.class);
+        when(container.getContainerProperties()).thenReturn(properties);
+        return container;
+    }
+
+    private static ListenerContainerIdleEvent idle(Consumer<String, Object> consumer, List<TopicPartition> partitions) {
+        return new ListenerContainerIdleEvent(consumer, consumer, 10_000, "listener", partitions, consumer, false);
+    }
+
+    private static EventOffset offset(TopicPartition partition, long nextOffset) {
+        return new EventOffset(partition.topic(), partition.partition(), nextOffset);
+    }
+}
@@ -1,24 +1,39 @@
 package com.teipsum.catalogservice.event;
 
+import com.teipsum.catalogservice.exception.InvalidProductDataException;
+import com.teipsum.catalogservice.model.EventOffset;
 import com.teipsum.catalogservice.service.CatalogService;
+import com.teipsum.shared.exceptions.ProductNotFoundException;
 import com.teipsum.shared.product.enums.Gender;
 import com.teipsum.shared.product.enums.ProductCategory;
 import com.teipsum.shared.product.enums.ProductSubcategory;
 import com.teipsum.shared.product.event.ProductCreatedEvent;
 import com.teipsum.shared.product.event.ProductDeletedEvent;
 import com.teipsum.shared.product.event.ProductUpdatedEvent;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.common.header.internals.RecordHeaders;
+import org.apache.kafka.common.record.TimestampType;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Captor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.kafka.listener.BatchListenerFailedException;
 
 import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
 
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -28,16 +43,29 @@ class ProductEventListenerTest {
     @Mock
     private CatalogService catalogService;
 
+    @Mock
+    private ProductEventValidator productEventValidator;
+
+    @Mock
+    private ProductEventCatchUp catchUp;
+
     @InjectMocks
     private ProductEventListener productEventListener;
 
+    @Captor
+    private ArgumentCaptor<Collection<ProductEventBatch.Change>> changesCaptor;
+
+    @Captor
+    private ArgumentCaptor<Collection<EventOffset>> offsetsCaptor;
+
+    private String productId;
     private ProductCreatedEvent productCreatedEvent;
     private ProductUpdatedEvent productUpdatedEvent;
     private ProductDeletedEvent productDeletedEvent;
 
     @BeforeEach
     void setUp() {
-        String productId = UUID.randomUUID().toString();
+        productId = UUID.randomUUID().toString();
 
         productCreatedEvent = new ProductCreatedEvent(
                 productId,
@@ -71,254 +99,212 @@ class ProductEventListenerTest {
     }
 
     @Test
-    @DisplayName("Should handle product created event")
-    void shouldHandleProductCreatedEvent() {
-        // Given
-        doNothing().when(catalogService).addProduct(productCreatedEvent);
-
+    @DisplayName("Should collapse create and update of one product into a single upsert")
+    void shouldCollapseCreateAndUpdateIntoSingleUpsert() {
         // When
-        productEventListener.handleProductCreated(productCreatedEvent);
+        productEventListener.handleProductEvents(records(productCreatedEvent, productUpdatedEvent));
 
         // Then
-        verify(catalogService).addProduct(productCreatedEvent);
+        verify(catalogService).applyChanges(changesCaptor.capture(), any());
+        List<ProductEventBatch.Change> changes = new ArrayList<>(changesCaptor.getValue());
+        assertEquals(1, changes.size());
+        assertEquals("Updated Product", changes.get(0).product().getTitle());
+        assertFalse(changes.get(0).mustExist());
+        verify(productEventValidator).validate(productUpdatedEvent);
+        verify(catalogService, never()).findExistingIds(any());
     }
 
     @Test
-    @DisplayName("Should handle product updated event")
-    void shouldHandleProductUpdatedEvent() {
-        // Given
-        doNothing().when(catalogService).updateProduct(productUpdatedEvent);
-
+    @DisplayName("Should collapse create, update and delete into a single delete")
+    void shouldCollapseCreateUpdateDeleteIntoSingleDelete() {
         // When
-        productEventListener.handleProductUpdated(productUpdatedEvent);
+        productEventListener.handleProductEvents(
+                records(productCreatedEvent, productUpdatedEvent, productDeletedEvent));
 
         // Then
-        verify(catalogService).updateProduct(productUpdatedEvent);
+        verify(catalogService).applyChanges(changesCaptor.capture(), any());
+        List<ProductEventBatch.Change> changes = new ArrayList<>(changesCaptor.getValue());
+        assertEquals(1, changes.size());
+        assertTrue(changes.get(0).deleted());
     }
 
     @Test
-    @DisplayName("Should handle product deleted event")
-    void shouldHandleProductDeletedEvent() {
-        // Given
-        doNothing().when(catalogService).deleteProduct(productDeletedEvent);
-
+    @DisplayName("Should apply an update polled ahead of its create after the create")
+    void shouldOrderUpdateAfterEarlierCreateOnAnotherTopic() {
         // When
-        productEventListener.handleProductDeleted(productDeletedEvent);
+        productEventListener.handleProductEvents(List.of(
+                record(productUpdatedEvent, 0, 2_000),
+                record(productCreatedEvent, 0, 1_000)));
 
         // Then
-        verify(catalogService).deleteProduct(productDeletedEvent);
+        verify(catalogService).applyChanges(changesCaptor.capture(), any());
+        List<ProductEventBatch.Change> changes = new ArrayList<>(changesCaptor.getValue());
+        assertEquals(1, changes.size());
+        assertEquals("Updated Product", changes.get(0).product().getTitle());
+        assertFalse(changes.get(0).mustExist());
+        verify(catalogService, never()).findExistingIds(any());
     }
 
     @Test
-    @DisplayName("Should handle service exception during product creation")
-    void shouldHandleServiceExceptionDuringProductCreation() {
-        // Given
-        doThrow(new RuntimeException("Database error")).when(catalogService).addProduct(productCreatedEvent);
-
-        // When & Then
-        try {
-            productEventListener.handleProductCreated(productCreatedEvent);
-        } catch (RuntimeException e) {
-            // Expected exception should be propagated
-            assertEquals("Database error", e.getMessage());
-        }
+    @DisplayName("Should keep a product deleted when its delete is polled ahead of its create")
+    void shouldOrderDeleteAfterEarlierCreateOnAnotherTopic() {
+        // When
+        productEventListener.handleProductEvents(List.of(
+                record(productDeletedEvent, 0, 3_000),
+                record(productCreatedEvent, 0, 1_000),
+                record(productUpdatedEvent, 0, 2_000)));
 
-        verify(catalogService).addProduct(productCreatedEvent);
+        // Then
+        verify(catalogService).applyChanges(changesCaptor.capture(), offsetsCaptor.capture());
+        List<ProductEventBatch.Change> changes = new ArrayList<>(changesCaptor.getValue());
+        assertEquals(1, changes.size());
+        assertTrue(changes.get(0).deleted());
+        assertEquals(3, offsetsCaptor.getValue().size());
     }
 
     @Test
-    @DisplayName("Should handle service exception during product update")
-    void shouldHandleServiceExceptionDuringProductUpdate() {
+    @DisplayName("Should keep record order within one topic-partition whatever the timestamps")
+    void shouldKeepRecordOrderWithinPartition() {
         // Given
-        doThrow(new RuntimeException("Update failed")).when(catalogService).updateProduct(productUpdatedEvent);
+        ProductUpdatedEvent later = new ProductUpdatedEvent(productId, "Later Product", null,
+                BigDecimal.TEN, null, ProductCategory.TOPS, ProductSubcategory.HOODIES, Gender.MEN,
+                List.of(), List.of(), true);
 
-        // When & Then
-        try {
-            productEventListener.handleProductUpdated(productUpdatedEvent);
-        } catch (RuntimeException e) {
-            // Expected exception should be propagated
-            assertEquals("Update failed", e.getMessage());
-        }
+        // When
+        productEventListener.handleProductEvents(List.of(
+                record(productCreatedEvent, 0, 1_000),
+                record(productUpdatedEvent, 0, 3_000),
+                record(later, 1, 2_000)));
 
-        verify(catalogService).updateProduct(productUpdatedEvent);
+        // Then
+        verify(catalogService).applyChanges(changesCaptor.capture(), any());
+        assertEquals("Later Product", changesCaptor.getValue().iterator().next().product().getTitle());
     }
 
     @Test
-    @DisplayName("Should handle service exception during product deletion")
-    void shouldHandleServiceExceptionDuringProductDeletion() {
+    @DisplayName("Should apply an update of an existing product")
+    void shouldApplyUpdateOfExistingProduct() {
         // Given
-        doThrow(new RuntimeException("Delete failed")).when(catalogService).deleteProduct(productDeletedEvent);
+        UUID id = UUID.fromString(productId);
+        when(catalogService.findExistingIds(Set.of(id))).thenReturn(Set.of(id));
 
-        // When & Then
-        try {
-            productEventListener.handleProductDeleted(productDeletedEvent);
-        } catch (RuntimeException e) {
-            // Expected exception should be propagated
-            assertEquals("Delete failed", e.getMessage());
-        }
+        // When
+        productEventListener.handleProductEvents(records(productUpdatedEvent));
 
-        verify(catalogService).deleteProduct(productDeletedEvent);
+        // Then
+        verify(catalogService).applyChanges(changesCaptor.capture(), any());
+        assertEquals(1, changesCaptor.getValue().size());
     }
 
     @Test
-    @DisplayName("Should handle multiple events in sequence")
-    void shouldHandleMultipleEventsInSequence() {
+    @DisplayName("Should apply the prefix and fail the update of a missing product")
+    void shouldApplyPrefixAndFailUpdateOfMissingProduct() {
         // Given
-        doNothing().when(catalogService).addProduct(productCreatedEvent);
-        doNothing().when(catalogService).updateProduct(productUpdatedEvent);
-        doNothing().when(catalogService).deleteProduct(productDeletedEvent);
+        ProductCreatedEvent other = new ProductCreatedEvent(UUID.randomUUID().toString(), "Other", null,
+                BigDecimal.TEN, null, ProductCategory.SHOES, ProductSubcategory.SNEAKERS, Gender.WOMEN,
+                List.of(), List.of(), true);
+        when(catalogService.findExistingIds(any())).thenReturn(Set.of());
 
         // When
-        productEventListener.handleProductCreated(productCreatedEvent);
-        productEventListener.handleProductUpdated(productUpdatedEvent);
-        productEventListener.handleProductDeleted(productDeletedEvent);
+        BatchListenerFailedException exception = assertThrows(BatchListenerFailedException.class,
+                () -> productEventListener.handleProductEvents(records(other, productUpdatedEvent)));
 
         // Then
-        verify(catalogService).addProduct(productCreatedEvent);
-        verify(catalogService).updateProduct(productUpdatedEvent);
-        verify(catalogService).deleteProduct(productDeletedEvent);
-    }
-
-    @Test
-    @DisplayName("Should handle null events gracefully")
-    void shouldHandleNullEventsGracefully() {
-        // When & Then - should not throw exceptions
-        assertDoesNotThrow(() -> productEventListener.handleProductCreated(null));
-        assertDoesNotThrow(() -> productEventListener.handleProductUpdated(null));
-        assertDoesNotThrow(() -> productEventListener.handleProductDeleted(null));
-
-        // Verify service methods were called with null (service should handle null check)
-        verify(catalogService).addProduct(null);
-        verify(catalogService).updateProduct(null);
-        verify(catalogService).deleteProduct(null);
+        assertEquals(1, exception.getIndex());
+        assertInstanceOf(ProductNotFoundException.class, exception.getCause());
+        verify(catalogService).applyChanges(changesCaptor.capture(), any());
+        List<ProductEventBatch.Change> changes = new ArrayList<>(changesCaptor.getValue());
+        assertEquals(1, changes.size());
+        assertEquals("Other", changes.get(0).product().getTitle());
     }
 
     @Test
-    @DisplayName("Should handle events with minimal data")
-    void shouldHandleEventsWithMinimalData() {
-        // Given - events with minimal required data
-        ProductCreatedEvent minimalCreatedEvent = new ProductCreatedEvent(
-                UUID.randomUUID().toString(),
-                "Minimal Product",
-                null, // null description
-                new BigDecimal("0.00"),
-                new BigDecimal("0.00"),
-                ProductCategory.TOPS,
-                ProductSubcategory.T_SHIRTS,
-                Gender.UNISEX,
-                List.of(), // empty image URLs
-                List.of(), // empty sizes
-                true
-        );
+    @DisplayName("Should store the next offset of the applied prefix only")
+    void shouldStoreNextOffsetOfAppliedPrefix() {
+        // Given
+        doThrow(new InvalidProductDataException("Product title cannot be empty"))
+                .when(productEventValidator).validate(productUpdatedEvent);
+        List<ConsumerRecord<String, Object>> records = records(productCreatedEvent, productDeletedEvent, productUpdatedEvent);
 
-        ProductUpdatedEvent minimalUpdatedEvent = new ProductUpdatedEvent(
-                UUID.randomUUID().toString(),
-                "Updated Minimal",
-                null, // null description
-                new BigDecimal("0.00"),
-                new BigDecimal("0.00"),
-                ProductCategory.TOPS,
-                ProductSubcategory.T_SHIRTS,
-                Gender.UNISEX,
-                List.of(), // empty image URLs
-                List.of(), // empty sizes
-                false
-        );
+        // When
+        assertThrows(BatchListenerFailedException.class, () -> productEventListener.handleProductEvents(records));
 
-        doNothing().when(catalogService).addProduct(minimalCreatedEvent);
-        doNothing().when(catalogService).updateProduct(minimalUpdatedEvent);
+        // Then
+        verify(catalogService).applyChanges(any(), offsetsCaptor.capture());
+        List<EventOffset> offsets = new ArrayList<>(offsetsCaptor.getValue());
+        assertEquals(2, offsets.size());
+        assertEquals("product-created", offsets.get(0).getTopic());
+        assertEquals(1, offsets.get(0).getNextOffset());
+        assertEquals("product-deleted", offsets.get(1).getTopic());
+        assertEquals(2, offsets.get(1).getNextOffset());
+        verify(catchUp).applied(offsetsCaptor.getValue());
+    }
 
-        // When & Then
-        assertDoesNotThrow(() -> productEventListener.handleProductCreated(minimalCreatedEvent));
-        assertDoesNotThrow(() -> productEventListener.handleProductUpdated(minimalUpdatedEvent));
+    @Test
+    @DisplayName("Should hand an undeserializable record to the error handler")
+    void shouldHandUndeserializableRecordToErrorHandler() {
+        // When
+        BatchListenerFailedException exception = assertThrows(BatchListenerFailedException.class,
+                () -> productEventListener.handleProductEvents(records(productCreatedEvent, null, productDeletedEvent)));
 
-        verify(catalogService).addProduct(minimalCreatedEvent);
-        verify(catalogService).updateProduct(minimalUpdatedEvent);
+        // Then
+        assertEquals(1, exception.getIndex());
+        verify(catalogService).applyChanges(changesCaptor.capture(), any());
+        List<ProductEventBatch.Change> changes = new ArrayList<>(changesCaptor.getValue());
+        assertEquals(1, changes.size());
+        assertFalse(changes.get(0).deleted());
     }
 
     @Test
-    @DisplayName("Should handle concurrent events")
-    void shouldHandleConcurrentEvents() {
+    @DisplayName("Should hand an invalid update to the error handler")
+    void shouldHandInvalidUpdateToErrorHandler() {
         // Given
-        String productId1 = UUID.randomUUID().toString();
-        String productId2 = UUID.randomUUID().toString();
-
-        ProductCreatedEvent event1 = new ProductCreatedEvent(
-                productId1, "Product 1", "Description 1",
-                new BigDecimal("99.99"), new BigDecimal("0.00"),
-                ProductCategory.TOPS, ProductSubcategory.T_SHIRTS, Gender.UNISEX,
-                List.of(), List.of("M"), true
-        );
-
-        ProductCreatedEvent event2 = new ProductCreatedEvent(
-                productId2, "Product 2", "Description 2",
-                new BigDecimal("149.99"), new BigDecimal("10.00"),
-                ProductCategory.ACCESSORIES, ProductSubcategory.HATS, Gender.WOMEN,
-                List.of(), List.of("ONE_SIZE"), true
-        );
-
-        doNothing().when(catalogService).addProduct(any(ProductCreatedEvent.class));
+        doThrow(new InvalidProductDataException("Product title cannot be empty"))
+                .when(productEventValidator).validate(productUpdatedEvent);
 
         // When
-        productEventListener.handleProductCreated(event1);
-        productEventListener.handleProductCreated(event2);
+        BatchListenerFailedException exception = assertThrows(BatchListenerFailedException.class,
+                () -> productEventListener.handleProductEvents(records(productCreatedEvent, productUpdatedEvent)));
 
         // Then
-        verify(catalogService).addProduct(event1);
-        verify(catalogService).addProduct(event2);
-        verify(catalogService, times(2)).addProduct(any(ProductCreatedEvent.class));
+        assertEquals(1, exception.getIndex());
+        assertInstanceOf(InvalidProductDataException.class, exception.getCause());
+        verify(catalogService).applyChanges(changesCaptor.capture(), any());
+        assertEquals("Test Product", changesCaptor.getValue().iterator().next().product().getTitle());
     }
 
     @Test
-    @DisplayName("Should handle events with large data")
-    void shouldHandleEventsWithLargeData() {
-        // Given - event with large lists
-        List<String> manyImageUrls = List.of(
-                "url1", "url2", "url3", "url4", "url5",
-                "url6", "url7", "url8", "url9", "url10"
-        );
-        
-        List<String> manySizes = List.of(
-                "XS", "S", "M", "L", "XL", "XXL", "XXXL"
-        );
-
-        ProductCreatedEvent largeEvent = new ProductCreatedEvent(
-                UUID.randomUUID().toString(),
-                "Product with Many Images and Sizes",
-                "This product has many images and sizes for testing purposes",
-                new BigDecimal("999.99"),
-                new BigDecimal("100.00"),
-                ProductCategory.TOPS,
-                ProductSubcategory.T_SHIRTS,
-                Gender.UNISEX,
-                manyImageUrls,
-                manySizes,
-                true
-        );
-
-        doNothing().when(catalogService).addProduct(largeEvent);
+    @DisplayName("Should propagate service exception so the whole batch is retried")
+    void shouldPropagateServiceException() {
+        // Given
+        doThrow(new RuntimeException("Database error")).when(catalogService).applyChanges(any(), any());
 
         // When & Then
-        assertDoesNotThrow(() -> productEventListener.handleProductCreated(largeEvent));
-
-        verify(catalogService).addProduct(largeEvent);
+        RuntimeException exception = assertThrows(RuntimeException.class,
+                () -> productEventListener.handleProductEvents(records(productCreatedEvent)));
+        assertEquals("Database error", exception.getMessage());
     }
 
-    private void assertDoesNotThrow(Runnable runnable) {
-        try {
-            runnable.run();
-        } catch (Exception e) {
-            fail("Expected no exception but got: " + e.getMessage());
+    private static List<ConsumerRecord<String, Object>> records(Object... events) {
+        List<ConsumerRecord<String, Object>> records = new ArrayList<>();
+        for (int offset = 0; offset < events.length; offset++) {
+            records.add(new ConsumerRecord<>(topic(events[offset]), 0, offset, null, events[offset]));
         }
+        return records;
     }
 
-    private void fail(String message) {
-        throw new AssertionError(message);
+    private static ConsumerRecord<String, Object> record(Object event, long offset, long timestamp) {
+        return new ConsumerRecord<>(topic(event), 0, offset, timestamp, TimestampType.CREATE_TIME,
+                0, 0, null, event, new RecordHeaders(), Optional.empty());
     }
 
-    private void assertEquals(String expected, String actual) {
-        if (!expected.equals(actual)) {
-            throw new AssertionError("Expected: " + expected + ", but was: " + actual);
+    private static String topic(Object event) {
+        if (event instanceof ProductUpdatedEvent) {
+            return "product-updated";
+        }
+        if (event instanceof ProductDeletedEvent) {
+            return "product-deleted";
         }
+        return "product-created";
     }
 }
@@ -0,0 +1,100 @@
+package com.teipsum.catalogservice.event;
+
+import com.teipsum.catalogservice.model.EventOffset;
+import com.teipsum.catalogservice.service.CatalogService;
+import com.teipsum.shared.product.event.StockAdjustedEvent;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Captor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.kafka.listener.BatchListenerFailedException;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@DisplayName("StockEventListener Tests")
+class StockEventListenerTest {
+
+    @Mock
+    private CatalogService catalogService;
+
+    @Mock
+    private ProductEventCatchUp catchUp;
+
+    @InjectMocks
+    private StockEventListener stockEventListener;
+
+    @Captor
+    private ArgumentCaptor<Map<UUID, Boolean>> availabilityCaptor;
+
+    @Captor
+    private ArgumentCaptor<Collection<EventOffset>> offsetsCaptor;
+
+    @Test
+    @DisplayName("Should conflate stock events to the last adjustment per product")
+    void shouldConflateToLastAdjustment() {
+        // Given
+        String restocked = UUID.randomUUID().toString();
+        String soldOut = UUID.randomUUID().toString();
+
+        // When
+        stockEventListener.handleStockEvents(records(
+                new StockAdjustedEvent(restocked, 0),
+                new StockAdjustedEvent(soldOut, 3),
+                new StockAdjustedEvent(restocked, 5),
+                new StockAdjustedEvent(soldOut, 0)));
+
+        // Then
+        verify(catalogService).applyAvailability(availabilityCaptor.capture(), offsetsCaptor.capture());
+        assertEquals(Map.of(
+                UUID.fromString(restocked), true,
+                UUID.fromString(soldOut), false), availabilityCaptor.getValue());
+        List<EventOffset> offsets = new ArrayList<>(offsetsCaptor.getValue());
+        assertEquals(1, offsets.size());
+        assertEquals(4, offsets.get(0).getNextOffset());
+        verify(catchUp).applied(offsetsCaptor.getValue());
+    }
+
+    @Test
+    @DisplayName("Should apply events before an unreadable record and report it as failed")
+    void shouldApplyPrefixBeforeUnreadableRecord() {
+        // Given
+        String productId = UUID.randomUUID().toString();
+        List<ConsumerRecord<String, Object>> records = records(
+                new StockAdjustedEvent(productId, 0),
+                new StockAdjustedEvent("not-a-uuid", 4),
+                new StockAdjustedEvent(productId, 2));
+
+        // When
+        BatchListenerFailedException exception = assertThrows(BatchListenerFailedException.class,
+                () -> stockEventListener.handleStockEvents(records));
+
+        // Then
+        assertEquals(1, exception.getIndex());
+        verify(catalogService).applyAvailability(availabilityCaptor.capture(), offsetsCaptor.capture());
+        assertEquals(Map.of(UUID.fromString(productId), false), availabilityCaptor.getValue());
+        EventOffset offset = offsetsCaptor.getValue().iterator().next();
+        assertEquals("stock-adjusted", offset.getTopic());
+        assertEquals(1, offset.getNextOffset());
+    }
+
+    private static List<ConsumerRecord<String, Object>> records(Object... events) {
+        List<ConsumerRecord<String, Object>> records = new ArrayList<>();
+        for (Object event : events) {
+            records.add(new ConsumerRecord<>("stock-adjusted", 0, records.size(), null, event));
+        }
+        return records;
+    }
+}
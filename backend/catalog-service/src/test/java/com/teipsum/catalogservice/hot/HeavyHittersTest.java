@@ -0,0 +1,88 @@
+package com.teipsum.catalogservice.hot;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("HeavyHitters Tests")
+class HeavyHittersTest {
+
+    @Test
+    @DisplayName("Should keep the most frequent keys of a long tail in fixed memory")
+    void shouldFindHeavyHittersInLongTail() {
+        // Given
+        HeavyHitters<String> hitters = new HeavyHitters<>(5, 1024);
+        Random random = new Random(7);
+
+        // When
+        for (int i = 0; i < 100_000; i++) {
+            if (random.nextInt(4) == 0) {
+                hitters.record("hot-" + random.nextInt(5));
+            } else {
+                hitters.record("cold-" + random.nextInt(50_000));
+            }
+        }
+
+        // Then
+        List<HeavyHitters.Entry<String>> top = hitters.top();
+        assertEquals(5, top.size());
+        assertTrue(top.stream().allMatch(entry -> entry.key().startsWith("hot-")), top.toString());
+        // Count-min never undercounts; each hot key was requested about 5000 times
+        assertTrue(top.stream().allMatch(entry -> entry.count() >= 4500), top.toString());
+        assertTrue(top.get(0).count() >= top.get(4).count());
+    }
+
+    @Test
+    @DisplayName("Should count records from concurrent threads once they are drained")
+    void shouldCountConcurrentRecords() throws InterruptedException {
+        // Given
+        HeavyHitters<String> hitters = new HeavyHitters<>(4, 256);
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            threads.add(new Thread(() -> {
+                for (int i = 0; i < 10_000; i++) {
+                    hitters.record("key-" + i % 4);
+                }
+            }));
+        }
+
+        // When
+        threads.forEach(Thread::start);
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        // Then
+        assertEquals(10_000, hitters.estimate("key-0"));
+        assertEquals(4, hitters.top().size());
+        assertTrue(hitters.top().stream().allMatch(entry -> entry.count() == 10_000), hitters.top().toString());
+    }
+
+    @Test
+    @DisplayName("Should let keys that stop being requested age out after decays")
+    void shouldAgeOutAfterDecay() {
+        // Given
+        HeavyHitters<String> hitters = new HeavyHitters<>(2, 256);
+        for (int i = 0; i < 8; i++) {
+            hitters.record("yesterday");
+        }
+
+        // When
+        hitters.decay();
+        hitters.decay();
+        hitters.decay();
+        hitters.decay();
+        hitters.add("today", 3);
+        hitters.record("later");
+
+        // Then
+        assertFalse(hitters.isHot("yesterday"));
+        assertEquals(List.of(new HeavyHitters.Entry<>("today", 3L), new HeavyHitters.Entry<>("later", 1L)),
+                hitters.top());
+    }
+}
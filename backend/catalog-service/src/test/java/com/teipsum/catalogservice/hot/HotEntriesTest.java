@@ -0,0 +1,152 @@
+package com.teipsum.catalogservice.hot;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.teipsum.catalogservice.cache.ListingPageCache;
+import com.teipsum.catalogservice.dto.CountMode;
+import com.teipsum.catalogservice.dto.CatalogProductDTO;
+import com.teipsum.catalogservice.service.CatalogService;
+import com.teipsum.catalogservice.util.FilterSignature;
+import com.teipsum.catalogservice.util.ProductDtoConverter;
+import com.teipsum.catalogservice.version.CatalogVersions;
+import com.teipsum.shared.product.dto.ProductFilterRequest;
+import com.teipsum.shared.product.enums.Gender;
+import com.teipsum.shared.product.enums.ProductCategory;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.data.domain.PageRequest;
+
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@DisplayName("HotEntries Tests")
+class HotEntriesTest {
+
+    @Mock
+    private CatalogService catalogService;
+
+    @Mock
+    private ProductDtoConverter dtoConverter;
+
+    @Mock
+    private CatalogVersions catalogVersions;
+
+    @Mock
+    private CacheManager cacheManager;
+
+    @Mock
+    private Cache facets;
+
+    @Mock
+    private ListingPageCache listingPages;
+
+    @TempDir
+    private Path directory;
+
+    @Test
+    @DisplayName("Should reload only hot products, facets and first listing pages that are not cached")
+    void shouldWarmOnlyMissingEntries() {
+        // Given
+        HotEntries hotEntries = hotEntries();
+        UUID cached = UUID.randomUUID();
+        UUID evicted = UUID.randomUUID();
+        ProductFilterRequest cachedFilter = filter(ProductCategory.TOPS, null);
+        ProductFilterRequest clearedFilter = filter(ProductCategory.SHOES, new BigDecimal("50.00"));
+        hotEntries.productRequested(cached);
+        hotEntries.productRequested(evicted);
+        hotEntries.listingRequested(cachedFilter);
+        hotEntries.listingRequested(clearedFilter);
+
+        CatalogProductDTO view = CatalogProductDTO.builder().id(evicted.toString()).build();
+        when(catalogVersions.globalVersion()).thenReturn(7L);
+        when(dtoConverter.cachedJson(cached)).thenReturn(new byte[0]);
+        when(dtoConverter.cachedJson(evicted)).thenReturn(null);
+        when(catalogService.getProductViews(List.of(evicted))).thenReturn(Map.of(evicted, view));
+        when(cacheManager.getCache("facets")).thenReturn(facets);
+        when(facets.get(FilterSignature.of(cachedFilter))).thenReturn(() -> "cached");
+        when(facets.get(FilterSignature.of(clearedFilter))).thenReturn(null);
+        when(listingPages.contains(FilterSignature.of(cachedFilter), PageRequest.of(0, 10), CountMode.EXACT))
+                .thenReturn(true);
+        when(listingPages.contains(FilterSignature.of(clearedFilter), PageRequest.of(0, 10), CountMode.EXACT))
+                .thenReturn(false);
+
+        // When
+        hotEntries.warm();
+
+        // Then
+        verify(dtoConverter).toJson(view, 7L);
+        verify(catalogService).getFacets(FilterSignature.of(clearedFilter));
+        verify(catalogService, never()).getFacets(FilterSignature.of(cachedFilter));
+        verify(catalogService).getFilteredProducts(FilterSignature.of(clearedFilter), PageRequest.of(0, 10));
+        verify(catalogService, never()).getFilteredProducts(eq(FilterSignature.of(cachedFilter)), any());
+    }
+
+    @Test
+    @DisplayName("Should restore hot entries written by a previous run")
+    void shouldRestoreHotEntriesFromFile() throws Exception {
+        // Given
+        HotEntries previous = hotEntries();
+        UUID hot = UUID.randomUUID();
+        ProductFilterRequest filter = filter(ProductCategory.TOPS, new BigDecimal("19.90"));
+        for (int i = 0; i < 3; i++) {
+            previous.productRequested(hot);
+            previous.listingRequested(filter);
+        }
+        previous.productRequested(UUID.randomUUID());
+        previous.write();
+
+        // When
+        HotEntries restarted = hotEntries();
+        restarted.load();
+
+        // Then
+        assertEquals(previous.hotProducts(), restarted.hotProducts());
+        assertEquals(hot, restarted.hotProducts().get(0).key());
+        assertEquals(List.of(new HeavyHitters.Entry<>(FilterSignature.of(filter), 3L)), restarted.hotFilters());
+    }
+
+    @Test
+    @DisplayName("Should not track anything when disabled")
+    void shouldIgnoreRequestsWhenDisabled() {
+        // Given
+        HotEntries hotEntries = new HotEntries(catalogService, dtoConverter, catalogVersions, cacheManager, listingPages,
+                new ObjectMapper(), false, 10, 10, 256, directory.resolve("hot-entries.json").toString(),
+                Duration.ofSeconds(30), Duration.ofMillis(500), Duration.ofMinutes(5));
+
+        // When
+        hotEntries.productRequested(UUID.randomUUID());
+        hotEntries.listingRequested(filter(ProductCategory.TOPS, null));
+
+        // Then
+        assertTrue(hotEntries.hotProducts().isEmpty());
+        assertTrue(hotEntries.hotFilters().isEmpty());
+        verify(catalogService, never()).getProductViews(any());
+    }
+
+    private HotEntries hotEntries() {
+        return new HotEntries(catalogService, dtoConverter, catalogVersions, cacheManager, listingPages,
+                new ObjectMapper(), true, 10, 10, 256, directory.resolve("hot-entries.json").toString(),
+                Duration.ofSeconds(30), Duration.ofMillis(500), Duration.ofMinutes(5));
+    }
+
+    private static ProductFilterRequest filter(ProductCategory category, BigDecimal maxPrice) {
+        return new ProductFilterRequest(null, category == null ? null : Set.of(category), null,
+                Set.of(Gender.WOMEN), null, maxPrice, null, null, true, null, null, null);
+    }
+}
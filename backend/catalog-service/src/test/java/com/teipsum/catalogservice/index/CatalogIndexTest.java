@@ -0,0 +1,337 @@
+package com.teipsum.catalogservice.index;
+
+import com.teipsum.catalogservice.dto.ProductFacets;
+import com.teipsum.catalogservice.event.CatalogProductChangedEvent;
+import com.teipsum.catalogservice.facet.PriceBuckets;
+import com.teipsum.catalogservice.model.CatalogProduct;
+import com.teipsum.catalogservice.repository.CatalogSnapshotRepository;
+import com.teipsum.shared.product.dto.ProductFilterRequest;
+import com.teipsum.shared.product.enums.Gender;
+import com.teipsum.shared.product.enums.ProductCategory;
+import com.teipsum.shared.product.enums.ProductSubcategory;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+
+@DisplayName("CatalogIndex Tests")
+class CatalogIndexTest {
+
+    private CatalogSnapshotRepository snapshotRepository;
+    private PlatformTransactionManager transactionManager;
+    private CatalogIndex catalogIndex;
+
+    private CatalogProduct tShirt;
+    private CatalogProduct hoodie;
+    private CatalogProduct sneakers;
+
+    @BeforeEach
+    void setUp() {
+        tShirt = product("Basic Tee", ProductCategory.TOPS, ProductSubcategory.T_SHIRTS,
+                Gender.UNISEX, "19.99", "0", true);
+        hoodie = product("Zip Hoodie", ProductCategory.TOPS, ProductSubcategory.HOODIES,
+                Gender.MEN, "59.90", "15.00", true);
+        sneakers = product("Runner", ProductCategory.SHOES, ProductSubcategory.SNEAKERS,
+                Gender.WOMEN, "120.00", null, false);
+
+        snapshotRepository = mock(CatalogSnapshotRepository.class);
+        transactionManager = mock(PlatformTransactionManager.class);
+        doAnswer(invocation -> {
+            Consumer<CatalogProduct> consumer = invocation.getArgument(0);
+            List.of(tShirt, hoodie, sneakers).forEach(consumer);
+            return null;
+        }).when(snapshotRepository).forEachProduct(any());
+
+        catalogIndex = new CatalogIndex(snapshotRepository, transactionManager, true);
+        catalogIndex.rebuild();
+    }
+
+    @Test
+    @DisplayName("Should not answer queries before it is built")
+    void shouldNotAnswerQueriesBeforeItIsBuilt() {
+        CatalogIndex fresh = new CatalogIndex(snapshotRepository, transactionManager, true);
+
+        assertFalse(fresh.isReady());
+        assertTrue(fresh.query(filter(null, null, null, null, null), Pageable.ofSize(10)).isEmpty());
+    }
+
+    @Test
+    @DisplayName("Should not answer queries when disabled")
+    void shouldNotAnswerQueriesWhenDisabled() {
+        CatalogIndex disabled = new CatalogIndex(snapshotRepository, transactionManager, false);
+        disabled.rebuild();
+
+        assertFalse(disabled.isReady());
+        assertTrue(disabled.query(filter(null, null, null, null, null), Pageable.ofSize(10)).isEmpty());
+    }
+
+    @Test
+    @DisplayName("Should filter by category and availability")
+    void shouldFilterByCategoryAndAvailability() {
+        // When
+        Optional<CatalogIndex.Result> tops = catalogIndex.query(
+                filter(ProductCategory.TOPS, null, null, null, null), Pageable.ofSize(10));
+        Optional<CatalogIndex.Result> unavailable = catalogIndex.query(
+                filter(null, null, null, null, false), Pageable.ofSize(10));
+
+        // Then
+        assertEquals(2, tops.orElseThrow().total());
+        assertTrue(tops.get().ids().containsAll(List.of(tShirt.getId(), hoodie.getId())));
+        assertEquals(List.of(sneakers.getId()), unavailable.orElseThrow().ids());
+    }
+
+    @Test
+    @DisplayName("Should report the category it holds for a product")
+    void shouldReportCategoryOfProduct() {
+        // When
+        catalogIndex.remove(hoodie.getId());
+
+        // Then
+        assertEquals(Optional.of(ProductCategory.SHOES), catalogIndex.category(sneakers.getId()));
+        assertTrue(catalogIndex.category(hoodie.getId()).isEmpty());
+    }
+
+    @Test
+    @DisplayName("Should match any of several categories and genders")
+    void shouldMatchAnyOfSeveralValues() {
+        // Given
+        ProductFilterRequest topsForMenOrWomen = new ProductFilterRequest(null, Set.of(ProductCategory.TOPS), null,
+                Set.of(Gender.MEN, Gender.WOMEN), null, null, null, null, null, null, null, null);
+        ProductFilterRequest topsOrShoes = new ProductFilterRequest(null,
+                Set.of(ProductCategory.TOPS, ProductCategory.SHOES), null, Set.of(Gender.WOMEN, Gender.UNISEX),
+                null, null, null, null, null, null, null, null);
+
+        // When
+        CatalogIndex.Result forMenOrWomen = catalogIndex.query(topsForMenOrWomen, Pageable.ofSize(10)).orElseThrow();
+        CatalogIndex.Result either = catalogIndex.query(topsOrShoes,
+                PageRequest.of(0, 10, Sort.by("price"))).orElseThrow();
+        ProductFacets facets = catalogIndex.facets(topsOrShoes,
+                new PriceBuckets(List.of(BigDecimal.ZERO))).orElseThrow();
+
+        // Then
+        assertEquals(List.of(hoodie.getId()), forMenOrWomen.ids());
+        assertEquals(List.of(tShirt.getId(), sneakers.getId()), either.ids());
+        assertEquals(2, facets.total());
+        assertEquals(1L, facets.categories().get(ProductCategory.TOPS));
+        assertEquals(1L, facets.genders().get(Gender.MEN));
+        assertEquals(1L, facets.genders().get(Gender.WOMEN));
+    }
+
+    @Test
+    @DisplayName("Should filter by price range inclusively")
+    void shouldFilterByPriceRangeInclusively() {
+        // When
+        CatalogIndex.Result result = catalogIndex.query(
+                filter(null, null, new BigDecimal("19.99"), new BigDecimal("59.90"), null),
+                Pageable.ofSize(10)).orElseThrow();
+
+        // Then
+        assertEquals(2, result.total());
+        assertFalse(result.ids().contains(sneakers.getId()));
+    }
+
+    @Test
+    @DisplayName("Should sort and page results")
+    void shouldSortAndPageResults() {
+        // When
+        CatalogIndex.Result firstPage = catalogIndex.query(
+                filter(null, null, null, null, null),
+                PageRequest.of(0, 2, Sort.by(Sort.Direction.DESC, "price"))).orElseThrow();
+        CatalogIndex.Result secondPage = catalogIndex.query(
+                filter(null, null, null, null, null),
+                PageRequest.of(1, 2, Sort.by(Sort.Direction.DESC, "price"))).orElseThrow();
+
+        // Then
+        assertEquals(3, firstPage.total());
+        assertEquals(List.of(sneakers.getId(), hoodie.getId()), firstPage.ids());
+        assertEquals(List.of(tShirt.getId()), secondPage.ids());
+    }
+
+    @Test
+    @DisplayName("Should break sort ties by id compared as unsigned bytes in either direction")
+    void shouldBreakTiesByUnsignedId() {
+        // Given
+        CatalogProduct high = product("High", ProductCategory.BAGS, ProductSubcategory.BACKPACKS,
+                Gender.UNISEX, "35.00", null, true);
+        CatalogProduct low = product("Low", ProductCategory.BAGS, ProductSubcategory.BACKPACKS,
+                Gender.UNISEX, "35.00", null, true);
+        high.setId(new UUID(0x8000000000000000L, 1));
+        low.setId(new UUID(0x1000000000000000L, 1));
+        catalogIndex.upsert(high);
+        catalogIndex.upsert(low);
+        ProductFilterRequest bags = filter(ProductCategory.BAGS, null, null, null, null);
+
+        // When
+        CatalogIndex.Result ascending = catalogIndex.query(bags,
+                PageRequest.of(0, 10, Sort.by("price"))).orElseThrow();
+        CatalogIndex.Result descending = catalogIndex.query(bags,
+                PageRequest.of(0, 10, Sort.by(Sort.Direction.DESC, "price"))).orElseThrow();
+
+        // Then
+        assertEquals(List.of(low.getId(), high.getId()), ascending.ids());
+        assertEquals(List.of(low.getId(), high.getId()), descending.ids());
+    }
+
+    @Test
+    @DisplayName("Should keep sorted orders in line with changes and sort ties on further keys")
+    void shouldKeepSortedOrdersInLineWithChanges() {
+        // Given
+        tShirt.setPrice(new BigDecimal("250.00"));
+        tShirt.setDiscount(new BigDecimal("15.00"));
+        catalogIndex.upsert(tShirt);
+        catalogIndex.remove(sneakers.getId());
+
+        // When
+        CatalogIndex.Result byPrice = catalogIndex.query(filter(null, null, null, null, null),
+                PageRequest.of(0, 10, Sort.by(Sort.Direction.DESC, "price"))).orElseThrow();
+        CatalogIndex.Result byDiscountThenPrice = catalogIndex.query(filter(null, null, null, null, null),
+                PageRequest.of(0, 10, Sort.by(Sort.Order.desc("discount"), Sort.Order.asc("price")))).orElseThrow();
+
+        // Then
+        assertEquals(List.of(tShirt.getId(), hoodie.getId()), byPrice.ids());
+        assertEquals(List.of(hoodie.getId(), tShirt.getId()), byDiscountThenPrice.ids());
+    }
+
+    @Test
+    @DisplayName("Should filter and sort on the price after discount")
+    void shouldFilterAndSortOnEffectivePrice() {
+        // Given
+        CatalogProduct clearance = product("Clearance Tee", ProductCategory.TOPS, ProductSubcategory.T_SHIRTS,
+                Gender.UNISEX, "60.00", "50.00", true);
+        catalogIndex.upsert(clearance);
+
+        // When
+        CatalogIndex.Result underFiftyFive = catalogIndex.query(
+                filter(null, null, null, new BigDecimal("55"), null),
+                PageRequest.of(0, 10, Sort.by(CatalogProduct.EFFECTIVE_PRICE))).orElseThrow();
+
+        // Then
+        assertEquals(List.of(tShirt.getId(), clearance.getId(), hoodie.getId()), underFiftyFive.ids());
+    }
+
+    @Test
+    @DisplayName("Should defer to the database for unsupported sort and search")
+    void shouldDeferToDatabaseForUnsupportedSortAndSearch() {
+        ProductFilterRequest search = new ProductFilterRequest(
+                "tee", null, null, null, null, null, null, null, null, null, null, null);
+
+        assertTrue(catalogIndex.query(search, Pageable.ofSize(10)).isEmpty());
+        assertTrue(catalogIndex.query(filter(null, null, null, null, null),
+                PageRequest.of(0, 10, Sort.by("category"))).isEmpty());
+        assertTrue(catalogIndex.query(filter(null, null, null, null, null),
+                PageRequest.of(0, 10, Sort.by("title"))).isEmpty());
+    }
+
+    @Test
+    @DisplayName("Should apply changes and reuse slots of deleted products")
+    void shouldApplyChangesAndReuseSlots() {
+        // Given
+        hoodie.setAvailable(false);
+        CatalogProduct jacket = product("Parka", ProductCategory.OUTERWEAR, ProductSubcategory.PARKAS,
+                Gender.WOMEN, "199.00", "20.00", true);
+
+        // When
+        catalogIndex.onProductChanged(new CatalogProductChangedEvent(hoodie.getId(), hoodie));
+        catalogIndex.onProductChanged(new CatalogProductChangedEvent(tShirt.getId(), null));
+        catalogIndex.onProductChanged(new CatalogProductChangedEvent(jacket.getId(), jacket));
+
+        // Then
+        assertEquals(3, catalogIndex.size());
+        CatalogIndex.Result available = catalogIndex.query(
+                filter(null, null, null, null, true), Pageable.ofSize(10)).orElseThrow();
+        assertEquals(List.of(jacket.getId()), available.ids());
+    }
+
+    @Test
+    @DisplayName("Should filter by any of the requested sizes and follow size changes")
+    void shouldFilterBySizes() {
+        // Given
+        hoodie.setSizes(List.of("S", "L"));
+        sneakers.setSizes(List.of("8", "9.5"));
+        catalogIndex.upsert(hoodie);
+        catalogIndex.upsert(sneakers);
+
+        // When
+        CatalogIndex.Result large = catalogIndex.query(sized(List.of(" L ")), Pageable.ofSize(10)).orElseThrow();
+        CatalogIndex.Result mediumOrShoe = catalogIndex.query(sized(List.of("M", "9.5", "M")),
+                PageRequest.of(0, 10, Sort.by("price"))).orElseThrow();
+        CatalogIndex.Result unknown = catalogIndex.query(sized(List.of("XXXL")), Pageable.ofSize(10)).orElseThrow();
+
+        hoodie.setSizes(List.of("M"));
+        catalogIndex.upsert(hoodie);
+        catalogIndex.remove(sneakers.getId());
+        CatalogIndex.Result mediumOrShoeAfter = catalogIndex.query(sized(List.of("M", "9.5")),
+                PageRequest.of(0, 10, Sort.by("price"))).orElseThrow();
+
+        // Then
+        assertEquals(List.of(hoodie.getId()), large.ids());
+        assertEquals(List.of(tShirt.getId(), sneakers.getId()), mediumOrShoe.ids());
+        assertEquals(0, unknown.total());
+        assertEquals(List.of(tShirt.getId(), hoodie.getId()), mediumOrShoeAfter.ids());
+        assertEquals(2, catalogIndex.facets(sized(List.of("M")), new PriceBuckets(List.of(BigDecimal.ZERO)))
+                .orElseThrow().total());
+    }
+
+    @Test
+    @DisplayName("Should count facets in one scan with each facet ignoring its own filter")
+    void shouldCountFacetsIgnoringOwnFilter() {
+        // Given
+        PriceBuckets priceBuckets = new PriceBuckets(List.of(
+                BigDecimal.ZERO, new BigDecimal("50"), new BigDecimal("100")));
+
+        // When
+        ProductFacets facets = catalogIndex.facets(
+                filter(ProductCategory.TOPS, null, null, new BigDecimal("50"), null), priceBuckets).orElseThrow();
+
+        // Then
+        assertEquals(1, facets.total());
+        assertEquals(1L, facets.categories().get(ProductCategory.TOPS));
+        assertNull(facets.categories().get(ProductCategory.SHOES));
+        assertEquals(1L, facets.subcategories().get(ProductSubcategory.T_SHIRTS));
+        assertEquals(List.of(1L, 1L, 0L), facets.priceBuckets().stream().map(ProductFacets.PriceBucket::count).toList());
+        assertNull(facets.priceBuckets().get(2).to());
+    }
+
+    private static ProductFilterRequest filter(ProductCategory category, Gender gender,
+                                               BigDecimal minPrice, BigDecimal maxPrice, Boolean available) {
+        return new ProductFilterRequest(
+                null, category == null ? null : Set.of(category), null, gender == null ? null : Set.of(gender),
+                minPrice, maxPrice, null, null, available, null, null, null);
+    }
+
+    private static ProductFilterRequest sized(List<String> sizes) {
+        return new ProductFilterRequest(
+                null, null, null, null, null, null, null, null, null, sizes, null, null);
+    }
+
+    private static CatalogProduct product(String title, ProductCategory category, ProductSubcategory subcategory,
+                                          Gender gender, String price, String discount, boolean available) {
+        return CatalogProduct.builder()
+                .id(UUID.randomUUID())
+                .title(title)
+                .price(new BigDecimal(price))
+                .discount(discount == null ? null : new BigDecimal(discount))
+                .category(category)
+                .subcategory(subcategory)
+                .gender(gender)
+                .imageUrls(List.of())
+                .sizes(List.of("M"))
+                .available(available)
+                .build();
+    }
+}
@@ -70,12 +70,12 @@ class CatalogServiceIntegrationTest {
                         .param("page", "0")
                         .param("size", "10"))
                 .andExpect(status().isOk())
-                .andExpect(jsonPath("$._embedded.catalogProductDTOList").isArray())
-                .andExpect(jsonPath("$._embedded.catalogProductDTOList.length()").value(2))
-                .andExpect(jsonPath("$.page.totalElements").value(2))
-                .andExpect(jsonPath("$.page.totalPages").value(1))
-                .andExpect(jsonPath("$.page.size").value(10))
-                .andExpect(jsonPath("$.page.number").value(0));
+                .andExpect(jsonPath("$.content").isArray())
+                .andExpect(jsonPath("$.content.length()").value(2))
+                .andExpect(jsonPath("$.totalElements").value(2))
+                .andExpect(jsonPath("$.totalPages").value(1))
+                .andExpect(jsonPath("$.size").value(10))
+                .andExpect(jsonPath("$.number").value(0));
 
         // Verify products exist in database
         List<CatalogProduct> products = catalogProductRepository.findAll();
@@ -93,10 +93,10 @@ class CatalogServiceIntegrationTest {
         // When & Then
         mockMvc.perform(get("/api/products/{id}", savedProduct.getId()))
                 .andExpect(status().isOk())
-                .andExpect(jsonPath("$.id").value(savedProduct.getId()))
+                .andExpect(jsonPath("$.id").value(savedProduct.getId().toString()))
                 .andExpect(jsonPath("$.title").value("Integration Test Product"))
                 .andExpect(jsonPath("$.price").value(199.99))
-                .andExpect(jsonPath("$.category").value("CLOTHING"))
+                .andExpect(jsonPath("$.category").value("TOPS"))
                 .andExpect(jsonPath("$.subcategory").value("T_SHIRTS"))
                 .andExpect(jsonPath("$.gender").value("UNISEX"))
                 .andExpect(jsonPath("$.available").value(true))
@@ -116,7 +116,7 @@ class CatalogServiceIntegrationTest {
         // When & Then
         mockMvc.perform(get("/api/products/{id}", nonExistentId))
                 .andExpect(status().isNotFound())
-                .andExpect(jsonPath("$.error").exists());
+                .andExpect(jsonPath("$.message").exists());
 
         // Verify product doesn't exist in database
         assertFalse(catalogProductRepository.existsById(nonExistentId));
@@ -134,23 +134,23 @@ class CatalogServiceIntegrationTest {
         catalogProductRepository.save(clothingProduct);
         catalogProductRepository.save(accessoryProduct);
 
-        // When & Then - filter by CLOTHING category
+        // When & Then - filter by TOPS category
         mockMvc.perform(get("/api/products")
-                        .param("category", "CLOTHING"))
+                        .param("category", "TOPS"))
                 .andExpect(status().isOk())
-                .andExpect(jsonPath("$._embedded.catalogProductDTOList").isArray())
-                .andExpect(jsonPath("$._embedded.catalogProductDTOList.length()").value(1))
-                .andExpect(jsonPath("$._embedded.catalogProductDTOList[0].title").value("T-Shirt"))
-                .andExpect(jsonPath("$._embedded.catalogProductDTOList[0].category").value("CLOTHING"));
+                .andExpect(jsonPath("$.content").isArray())
+                .andExpect(jsonPath("$.content.length()").value(1))
+                .andExpect(jsonPath("$.content[0].title").value("T-Shirt"))
+                .andExpect(jsonPath("$.content[0].category").value("TOPS"));
 
         // When & Then - filter by ACCESSORIES category
         mockMvc.perform(get("/api/products")
                         .param("category", "ACCESSORIES"))
                 .andExpect(status().isOk())
-                .andExpect(jsonPath("$._embedded.catalogProductDTOList").isArray())
-                .andExpect(jsonPath("$._embedded.catalogProductDTOList.length()").value(1))
-                .andExpect(jsonPath("$._embedded.catalogProductDTOList[0].title").value("Hat"))
-                .andExpect(jsonPath("$._embedded.catalogProductDTOList[0].category").value("ACCESSORIES"));
+                .andExpect(jsonPath("$.content").isArray())
+                .andExpect(jsonPath("$.content.length()").value(1))
+                .andExpect(jsonPath("$.content[0].title").value("Hat"))
+                .andExpect(jsonPath("$.content[0].category").value("ACCESSORIES"));
     }
 
     @Test
@@ -173,9 +173,9 @@ class CatalogServiceIntegrationTest {
                         .param("minPrice", "50")
                         .param("maxPrice", "100"))
                 .andExpect(status().isOk())
-                .andExpect(jsonPath("$._embedded.catalogProductDTOList").isArray())
-                .andExpect(jsonPath("$._embedded.catalogProductDTOList.length()").value(1))
-                .andExpect(jsonPath("$._embedded.catalogProductDTOList[0].title").value("Mid Range Product"));
+                .andExpect(jsonPath("$.content").isArray())
+                .andExpect(jsonPath("$.content.length()").value(1))
+                .andExpect(jsonPath("$.content[0].title").value("Mid Range Product"));
     }
 
     @Test
@@ -217,10 +217,10 @@ class CatalogServiceIntegrationTest {
         mockMvc.perform(get("/api/products")
                         .param("available", "true"))
                 .andExpect(status().isOk())
-                .andExpect(jsonPath("$._embedded.catalogProductDTOList").isArray())
-                .andExpect(jsonPath("$._embedded.catalogProductDTOList.length()").value(1))
-                .andExpect(jsonPath("$._embedded.catalogProductDTOList[0].title").value("Available Product"))
-                .andExpect(jsonPath("$._embedded.catalogProductDTOList[0].available").value(true));
+                .andExpect(jsonPath("$.content").isArray())
+                .andExpect(jsonPath("$.content.length()").value(1))
+                .andExpect(jsonPath("$.content[0].title").value("Available Product"))
+                .andExpect(jsonPath("$.content[0].available").value(true));
     }
 
     @Test
@@ -238,33 +238,33 @@ class CatalogServiceIntegrationTest {
                         .param("page", "0")
                         .param("size", "10"))
                 .andExpect(status().isOk())
-                .andExpect(jsonPath("$._embedded.catalogProductDTOList").isArray())
-                .andExpect(jsonPath("$._embedded.catalogProductDTOList.length()").value(10))
-                .andExpect(jsonPath("$.page.totalElements").value(25))
-                .andExpect(jsonPath("$.page.totalPages").value(3))
-                .andExpect(jsonPath("$.page.number").value(0))
-                .andExpect(jsonPath("$.page.first").value(true))
-                .andExpect(jsonPath("$.page.last").value(false));
+                .andExpect(jsonPath("$.content").isArray())
+                .andExpect(jsonPath("$.content.length()").value(10))
+                .andExpect(jsonPath("$.totalElements").value(25))
+                .andExpect(jsonPath("$.totalPages").value(3))
+                .andExpect(jsonPath("$.number").value(0))
+                .andExpect(jsonPath("$.first").value(true))
+                .andExpect(jsonPath("$.last").value(false));
 
         // When & Then - second page
         mockMvc.perform(get("/api/products")
                         .param("page", "1")
                         .param("size", "10"))
                 .andExpect(status().isOk())
-                .andExpect(jsonPath("$._embedded.catalogProductDTOList.length()").value(10))
-                .andExpect(jsonPath("$.page.number").value(1))
-                .andExpect(jsonPath("$.page.first").value(false))
-                .andExpect(jsonPath("$.page.last").value(false));
+                .andExpect(jsonPath("$.content.length()").value(10))
+                .andExpect(jsonPath("$.number").value(1))
+                .andExpect(jsonPath("$.first").value(false))
+                .andExpect(jsonPath("$.last").value(false));
 
         // When & Then - last page
         mockMvc.perform(get("/api/products")
                         .param("page", "2")
                         .param("size", "10"))
                 .andExpect(status().isOk())
-                .andExpect(jsonPath("$._embedded.catalogProductDTOList.length()").value(5))
-                .andExpect(jsonPath("$.page.number").value(2))
-                .andExpect(jsonPath("$.page.first").value(false))
-                .andExpect(jsonPath("$.page.last").value(true));
+                .andExpect(jsonPath("$.content.length()").value(5))
+                .andExpect(jsonPath("$.number").value(2))
+                .andExpect(jsonPath("$.first").value(false))
+                .andExpect(jsonPath("$.last").value(true));
     }
 
     @Test
@@ -286,18 +286,18 @@ class CatalogServiceIntegrationTest {
         mockMvc.perform(get("/api/products")
                         .param("sort", "price,asc"))
                 .andExpect(status().isOk())
-                .andExpect(jsonPath("$._embedded.catalogProductDTOList").isArray())
-                .andExpect(jsonPath("$._embedded.catalogProductDTOList[0].price").value(100.00))
-                .andExpect(jsonPath("$._embedded.catalogProductDTOList[1].price").value(150.00))
-                .andExpect(jsonPath("$._embedded.catalogProductDTOList[2].price").value(200.00));
+                .andExpect(jsonPath("$.content").isArray())
+                .andExpect(jsonPath("$.content[0].price").value(100.00))
+                .andExpect(jsonPath("$.content[1].price").value(150.00))
+                .andExpect(jsonPath("$.content[2].price").value(200.00));
 
         // When & Then - sort by title descending
         mockMvc.perform(get("/api/products")
                         .param("sort", "title,desc"))
                 .andExpect(status().isOk())
-                .andExpect(jsonPath("$._embedded.catalogProductDTOList[0].title").value("C Product"))
-                .andExpect(jsonPath("$._embedded.catalogProductDTOList[1].title").value("B Product"))
-                .andExpect(jsonPath("$._embedded.catalogProductDTOList[2].title").value("A Product"));
+                .andExpect(jsonPath("$.content[0].title").value("C Product"))
+                .andExpect(jsonPath("$.content[1].title").value("B Product"))
+                .andExpect(jsonPath("$.content[2].title").value("A Product"));
     }
 
     @Test
@@ -337,7 +337,7 @@ class CatalogServiceIntegrationTest {
 
         // When & Then - apply multiple filters
         mockMvc.perform(get("/api/products")
-                        .param("category", "CLOTHING")
+                        .param("category", "TOPS")
                         .param("subcategory", "T_SHIRTS")
                         .param("gender", "UNISEX")
                         .param("minPrice", "50")
@@ -345,9 +345,9 @@ class CatalogServiceIntegrationTest {
                         .param("available", "true")
                         .param("sizes", "M"))
                 .andExpect(status().isOk())
-                .andExpect(jsonPath("$._embedded.catalogProductDTOList").isArray())
-                .andExpect(jsonPath("$._embedded.catalogProductDTOList.length()").value(1))
-                .andExpect(jsonPath("$._embedded.catalogProductDTOList[0].title").value("Perfect Match"));
+                .andExpect(jsonPath("$.content").isArray())
+                .andExpect(jsonPath("$.content.length()").value(1))
+                .andExpect(jsonPath("$.content[0].title").value("Perfect Match"));
     }
 
     @Test
@@ -363,8 +363,51 @@ class CatalogServiceIntegrationTest {
                         .param("category", "ACCESSORIES")
                         .param("minPrice", "200"))
                 .andExpect(status().isOk())
-                .andExpect(jsonPath("$.page.totalElements").value(0))
-                .andExpect(jsonPath("$._embedded").doesNotExist());
+                .andExpect(jsonPath("$.totalElements").value(0))
+                .andExpect(jsonPath("$.content").isEmpty());
+    }
+
+    @Test
+    @DisplayName("Should count facets with each facet ignoring its own filter")
+    void shouldCountFacetsIgnoringOwnFilter() throws Exception {
+        // Given
+        catalogProductRepository.save(createTestProduct("Tee", ProductCategory.TOPS, new BigDecimal("20.00")));
+        catalogProductRepository.save(createTestProduct("Shirt", ProductCategory.TOPS, new BigDecimal("60.00")));
+        catalogProductRepository.save(createTestProduct("Cap", ProductCategory.ACCESSORIES, new BigDecimal("15.00")));
+        catalogProductRepository.flush();
+
+        // When & Then
+        mockMvc.perform(get("/api/products/facets")
+                        .param("category", "TOPS")
+                        .param("maxPrice", "50"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.total").value(1))
+                .andExpect(jsonPath("$.categories.TOPS").value(1))
+                .andExpect(jsonPath("$.categories.ACCESSORIES").value(1))
+                .andExpect(jsonPath("$.priceBuckets[0].count").value(1))
+                .andExpect(jsonPath("$.priceBuckets[2].count").value(1))
+                .andExpect(jsonPath("$.availability['true']").value(1));
+    }
+
+    @Test
+    @DisplayName("Should match any of several categories in one request")
+    void shouldMatchAnyOfSeveralCategories() throws Exception {
+        // Given
+        catalogProductRepository.save(createTestProduct("Tee", ProductCategory.TOPS, new BigDecimal("20.00")));
+        catalogProductRepository.save(createTestProduct("Parka", ProductCategory.OUTERWEAR, new BigDecimal("150.00")));
+        catalogProductRepository.save(createTestProduct("Cap", ProductCategory.ACCESSORIES, new BigDecimal("15.00")));
+        catalogProductRepository.flush();
+
+        // When & Then
+        mockMvc.perform(get("/api/products/facets")
+                        .param("category", "TOPS", "OUTERWEAR")
+                        .param("gender", "UNISEX,WOMEN"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.total").value(2))
+                .andExpect(jsonPath("$.categories.TOPS").value(1))
+                .andExpect(jsonPath("$.categories.OUTERWEAR").value(1))
+                .andExpect(jsonPath("$.categories.ACCESSORIES").value(1))
+                .andExpect(jsonPath("$.genders.UNISEX").value(2));
     }
 
     private CatalogProduct createTestProduct(String title, ProductCategory category, BigDecimal price) {
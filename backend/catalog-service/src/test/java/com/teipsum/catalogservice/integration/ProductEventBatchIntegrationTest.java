@@ -0,0 +1,146 @@
+package com.teipsum.catalogservice.integration;
+
+import com.teipsum.catalogservice.event.ProductEventBatch;
+import com.teipsum.catalogservice.model.CatalogProduct;
+import com.teipsum.catalogservice.model.EventOffset;
+import com.teipsum.catalogservice.repository.CatalogProductBatchWriter;
+import com.teipsum.catalogservice.repository.CatalogProductRepository;
+import com.teipsum.catalogservice.service.CatalogService;
+import com.teipsum.shared.product.dto.ProductFilterRequest;
+import com.teipsum.shared.product.enums.Gender;
+import com.teipsum.shared.product.enums.ProductCategory;
+import com.teipsum.shared.product.enums.ProductSubcategory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+@ActiveProfiles("test")
+@DisplayName("Product Event Batch Integration Tests")
+class ProductEventBatchIntegrationTest {
+
+    @Autowired
+    private CatalogService catalogService;
+
+    @Autowired
+    private CatalogProductRepository catalogProductRepository;
+
+    @Autowired
+    private CatalogProductBatchWriter batchWriter;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @MockitoBean
+    private KafkaTemplate<String, Object> kafkaTemplate;
+
+    @AfterEach
+    void tearDown() {
+        catalogProductRepository.deleteAll();
+    }
+
+    @Test
+    @DisplayName("Should insert, overwrite and delete products with set-based writes")
+    void shouldInsertOverwriteAndDeleteProducts() {
+        // Given
+        CatalogProduct tee = product("Tee", List.of("S", "M"));
+        CatalogProduct cap = product("Cap", List.of("ONE_SIZE"));
+        catalogService.applyChanges(List.of(upsert(tee), upsert(cap)), List.of());
+
+        // When
+        CatalogProduct renamedTee = product("Tee v2", List.of("L"));
+        renamedTee.setId(tee.getId());
+        catalogService.applyChanges(List.of(
+                upsert(renamedTee),
+                new ProductEventBatch.Change(cap.getId(), null, false, 1)), List.of());
+
+        // Then
+        assertFalse(catalogProductRepository.existsById(cap.getId()));
+        transactionTemplate.executeWithoutResult(status -> {
+            CatalogProduct stored = catalogProductRepository.findById(tee.getId()).orElseThrow();
+            assertEquals("Tee v2", stored.getTitle());
+            assertEquals(List.of("L"), List.copyOf(stored.getSizes()));
+            assertEquals(1, stored.getImageUrls().size());
+            assertEquals(new BigDecimal("25.00"), stored.getEffectivePrice());
+        });
+        assertEquals(1, catalogProductRepository.count());
+    }
+
+    @Test
+    @DisplayName("Should persist the price after discount and filter on it")
+    void shouldPersistEffectivePrice() {
+        // Given
+        CatalogProduct discounted = product("Discounted Tee", List.of("M"));
+        discounted.setDiscount(new BigDecimal("15.00"));
+        CatalogProduct regular = product("Regular Tee", List.of("M"));
+        regular.setPrice(new BigDecimal("22.00"));
+
+        // When
+        catalogService.applyChanges(List.of(upsert(discounted), upsert(regular)), List.of());
+
+        // Then
+        assertEquals(new BigDecimal("21.25"),
+                catalogProductRepository.findById(discounted.getId()).orElseThrow().getEffectivePrice());
+        ProductFilterRequest underTwentyTwo = new ProductFilterRequest(
+                null, null, null, null, null, new BigDecimal("21.99"), null, null, null, null, null, null);
+        assertEquals(List.of(discounted.getId()), catalogService.getFilteredProducts(underTwentyTwo, PageRequest.of(0, 10))
+                .getContent().stream().map(CatalogProduct::getId).toList());
+    }
+
+    @Test
+    @DisplayName("Should flip availability only where stock changed it")
+    void shouldFlipOnlyChangedAvailability() {
+        // Given
+        CatalogProduct tee = product("Tee", List.of("S"));
+        CatalogProduct cap = product("Cap", List.of("ONE_SIZE"));
+        catalogService.applyChanges(List.of(upsert(tee), upsert(cap)), List.of());
+
+        // When
+        transactionTemplate.executeWithoutResult(status ->
+                assertEquals(Set.of(tee.getId()), batchWriter.updateAvailability(Map.of(
+                        tee.getId(), false,
+                        cap.getId(), true,
+                        UUID.randomUUID(), false))));
+        catalogService.applyAvailability(Map.of(tee.getId(), true),
+                List.of(new EventOffset("stock-adjusted", 0, 42)));
+
+        // Then
+        assertTrue(catalogProductRepository.findById(tee.getId()).orElseThrow().isAvailable());
+        assertTrue(catalogProductRepository.findById(cap.getId()).orElseThrow().isAvailable());
+    }
+
+    private static ProductEventBatch.Change upsert(CatalogProduct product) {
+        return new ProductEventBatch.Change(product.getId(), product, false, 0);
+    }
+
+    private static CatalogProduct product(String title, List<String> sizes) {
+        return CatalogProduct.builder()
+                .id(UUID.randomUUID())
+                .title(title)
+                .description("Description of " + title)
+                .price(new BigDecimal("25.00"))
+                .discount(BigDecimal.ZERO)
+                .category(ProductCategory.TOPS)
+                .subcategory(ProductSubcategory.T_SHIRTS)
+                .gender(Gender.UNISEX)
+                .imageUrls(List.of("https://cdn.example.com/" + title.replace(' ', '-') + ".jpg"))
+                .sizes(sizes)
+                .available(true)
+                .build();
+    }
+}
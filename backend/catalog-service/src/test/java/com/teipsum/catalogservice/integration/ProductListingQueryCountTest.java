@@ -0,0 +1,118 @@
+package com.teipsum.catalogservice.integration;
+
+import com.teipsum.catalogservice.dto.CatalogProductDTO;
+import com.teipsum.catalogservice.model.CatalogProduct;
+import com.teipsum.catalogservice.repository.CatalogProductRepository;
+import com.teipsum.catalogservice.service.CatalogService;
+import com.teipsum.catalogservice.util.ProductDtoConverter;
+import com.teipsum.shared.product.dto.ProductFilterRequest;
+import com.teipsum.shared.product.enums.Gender;
+import com.teipsum.shared.product.enums.ProductCategory;
+import com.teipsum.shared.product.enums.ProductSubcategory;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Not transactional on purpose: each listing runs in a fresh persistence context,
+ * as it does for a real request, so lazy collections have to be loaded from the database.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+@DisplayName("Product Listing Query Count Tests")
+class ProductListingQueryCountTest {
+
+    private static final int PAGE_SIZE = 50;
+
+    @Autowired
+    private CatalogService catalogService;
+
+    @Autowired
+    private CatalogProductRepository catalogProductRepository;
+
+    @Autowired
+    private ProductDtoConverter dtoConverter;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @MockitoBean
+    private KafkaTemplate<String, Object> kafkaTemplate;
+
+    private Statistics statistics;
+
+    @BeforeEach
+    void setUp() {
+        catalogProductRepository.deleteAll();
+        catalogProductRepository.saveAll(IntStream.range(0, PAGE_SIZE)
+                .mapToObj(this::product)
+                .toList());
+
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+    }
+
+    @AfterEach
+    void tearDown() {
+        catalogProductRepository.deleteAll();
+    }
+
+    @Test
+    @DisplayName("Should load a full page with its images and sizes in a bounded number of queries")
+    void shouldLoadPageWithCollectionsInBoundedQueries() {
+        // When
+        List<CatalogProductDTO> page = transactionTemplate.execute(status -> catalogService
+                .getFilteredProducts(emptyFilter(), PageRequest.of(0, PAGE_SIZE))
+                .map(dtoConverter::convertToDto)
+                .getContent());
+
+        // Then
+        assertNotNull(page);
+        assertEquals(PAGE_SIZE, page.size());
+        assertTrue(page.stream().allMatch(dto -> dto.getImageUrls().size() == 2 && dto.getSizes().size() == 3));
+        // count + page + one batch per collection
+        assertTrue(statistics.getPrepareStatementCount() <= 4,
+                "Expected at most 4 statements, got " + statistics.getPrepareStatementCount());
+    }
+
+    private static ProductFilterRequest emptyFilter() {
+        return new ProductFilterRequest(null, null, null, null, null, null, null, null, null, null, null, null);
+    }
+
+    private CatalogProduct product(int i) {
+        return CatalogProduct.builder()
+                .id(UUID.randomUUID())
+                .title("Product " + i)
+                .description("Description " + i)
+                .price(new BigDecimal("10.00").add(BigDecimal.valueOf(i)))
+                .discount(BigDecimal.ZERO)
+                .category(ProductCategory.TOPS)
+                .subcategory(ProductSubcategory.T_SHIRTS)
+                .gender(Gender.UNISEX)
+                .imageUrls(List.of("image-" + i + "-a", "image-" + i + "-b"))
+                .sizes(List.of("S", "M", "L"))
+                .available(true)
+                .build();
+    }
+}
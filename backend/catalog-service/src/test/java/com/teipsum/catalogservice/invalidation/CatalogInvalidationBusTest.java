@@ -0,0 +1,222 @@
+package com.teipsum.catalogservice.invalidation;
+
+import com.teipsum.catalogservice.cache.ListingPageCache;
+import com.teipsum.catalogservice.cache.TwoTierCacheManager;
+import com.teipsum.catalogservice.event.CatalogProductChangedEvent;
+import com.teipsum.catalogservice.index.CatalogIndex;
+import com.teipsum.catalogservice.service.CatalogService;
+import com.teipsum.catalogservice.version.CatalogVersions;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@DisplayName("CatalogInvalidationBus Tests")
+class CatalogInvalidationBusTest {
+
+    private static final Duration MAX_STALENESS = Duration.ofSeconds(10);
+
+    @Mock
+    private KafkaTemplate<String, Object> kafkaTemplate;
+
+    @Mock
+    private CatalogService catalogService;
+
+    @Mock
+    private TwoTierCacheManager cacheManager;
+
+    @Mock
+    private ListingPageCache listingPages;
+
+    @Mock
+    private CatalogIndex catalogIndex;
+
+    @Mock
+    private CatalogVersions catalogVersions;
+
+    private CatalogInvalidationBus bus;
+    private String instanceId;
+    private long offset;
+
+    @BeforeEach
+    void setUp() {
+        bus = new CatalogInvalidationBus(kafkaTemplate, catalogService, cacheManager, listingPages, catalogIndex,
+                catalogVersions, true, "catalog-invalidations", Duration.ofSeconds(2), MAX_STALENESS);
+        instanceId = bus.getGroupId().substring("catalog-invalidation-".length());
+    }
+
+    @Test
+    @DisplayName("Should broadcast local changes but not replayed remote ones")
+    void shouldBroadcastOnlyLocalChanges() {
+        // Given
+        UUID id = UUID.randomUUID();
+        when(kafkaTemplate.send(anyString(), any())).thenReturn(new CompletableFuture<>());
+
+        // When
+        bus.onProductChanged(new CatalogProductChangedEvent(id, null));
+        bus.onProductChanged(CatalogProductChangedEvent.remote(UUID.randomUUID(), null));
+
+        // Then
+        ArgumentCaptor<Object> sent = ArgumentCaptor.forClass(Object.class);
+        verify(kafkaTemplate).send(eq("catalog-invalidations"), sent.capture());
+        CatalogInvalidation invalidation = (CatalogInvalidation) sent.getValue();
+        assertEquals(instanceId, invalidation.origin());
+        assertEquals(List.of(id), invalidation.productIds());
+    }
+
+    @Test
+    @DisplayName("Should broadcast the changes of a transaction as one record after it commits")
+    void shouldBroadcastTransactionOnce() {
+        // Given
+        UUID first = UUID.randomUUID();
+        UUID second = UUID.randomUUID();
+        when(kafkaTemplate.send(anyString(), any())).thenReturn(new CompletableFuture<>());
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            // When
+            bus.onProductChanged(new CatalogProductChangedEvent(first, null));
+            bus.onProductChanged(new CatalogProductChangedEvent(second, null));
+            bus.onProductChanged(new CatalogProductChangedEvent(first, null));
+            verifyNoInteractions(kafkaTemplate);
+            TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+
+        // Then
+        ArgumentCaptor<Object> sent = ArgumentCaptor.forClass(Object.class);
+        verify(kafkaTemplate).send(eq("catalog-invalidations"), sent.capture());
+        assertEquals(List.of(first, second), ((CatalogInvalidation) sent.getValue()).productIds());
+    }
+
+    @Test
+    @DisplayName("Should not report a disabled bus as stale")
+    void shouldNotBeStaleWhenDisabled() {
+        // Given
+        CatalogInvalidationBus disabled = new CatalogInvalidationBus(kafkaTemplate, catalogService, cacheManager,
+                listingPages, catalogIndex, catalogVersions, false, "catalog-invalidations",
+                Duration.ofSeconds(2), MAX_STALENESS);
+
+        // When & Then
+        assertFalse(disabled.isStale());
+    }
+
+    @Test
+    @DisplayName("Should evict local copies and replay changes from other replicas only")
+    void shouldReplayChangesFromOtherReplicas() {
+        // Given
+        UUID first = UUID.randomUUID();
+        UUID second = UUID.randomUUID();
+        UUID own = UUID.randomUUID();
+
+        // When
+        bus.onInvalidations(List.of(
+                record(new CatalogInvalidation("other", List.of(first, second), 1L)),
+                record(new CatalogInvalidation(instanceId, List.of(own), 2L))));
+
+        // Then
+        verify(cacheManager).evictLocal("products", first.toString());
+        verify(cacheManager).evictLocal("products", second.toString());
+        verify(cacheManager, never()).evictLocal("products", own.toString());
+        verify(cacheManager).clearLocal("facets");
+        verify(catalogService).applyRemoteChanges(Set.of(first, second));
+    }
+
+    @Test
+    @DisplayName("Should start stale and trust local state once its own heartbeat is read back")
+    void shouldRecoverOnceOwnHeartbeatIsReadBack() {
+        // Given
+        long now = System.currentTimeMillis();
+        assertTrue(bus.isStale());
+
+        // When
+        bus.check(now);
+
+        // Then
+        assertTrue(bus.isStale());
+        verify(cacheManager).clearLocal();
+        verify(listingPages).clear();
+        verify(catalogVersions).invalidateAll();
+
+        // When
+        bus.onInvalidations(List.of(heartbeat(now)));
+        bus.check(now);
+
+        // Then
+        assertFalse(bus.isStale());
+        verify(catalogIndex).rebuild();
+        verify(catalogIndex, never()).suspend();
+    }
+
+    @Test
+    @DisplayName("Should distrust local state when no heartbeat came back within max staleness")
+    void shouldGoStaleWithoutRecentHeartbeat() {
+        // Given
+        long now = System.currentTimeMillis();
+        bus.onInvalidations(List.of(heartbeat(now)));
+        bus.check(now);
+        assertFalse(bus.isStale());
+
+        // When
+        bus.check(now + MAX_STALENESS.toMillis() + 1);
+
+        // Then
+        assertTrue(bus.isStale());
+        verify(catalogIndex).suspend();
+    }
+
+    @Test
+    @DisplayName("Should stay stale after a failed replay until a newer heartbeat comes back")
+    void shouldStayStaleAfterFailedReplay() {
+        // Given
+        long before = System.currentTimeMillis() - 1000;
+        bus.onInvalidations(List.of(heartbeat(before)));
+        bus.check(before);
+        doThrow(new IllegalStateException("database down")).when(catalogService).applyRemoteChanges(any());
+
+        // When
+        bus.onInvalidations(List.of(
+                record(new CatalogInvalidation("other", List.of(UUID.randomUUID()), before)),
+                heartbeat(before + 1)));
+        bus.check(before + 1);
+
+        // Then
+        assertTrue(bus.isStale());
+        verify(catalogIndex).suspend();
+
+        // When
+        long later = System.currentTimeMillis() + 1;
+        bus.onInvalidations(List.of(heartbeat(later)));
+        bus.check(later);
+
+        // Then
+        assertFalse(bus.isStale());
+    }
+
+    private ConsumerRecord<String, Object> heartbeat(long sentAt) {
+        return record(new CatalogInvalidation(instanceId, List.of(), sentAt));
+    }
+
+    private ConsumerRecord<String, Object> record(Object value) {
+        return new ConsumerRecord<>("catalog-invalidations", 0, offset++, null, value);
+    }
+}
@@ -0,0 +1,37 @@
+package com.teipsum.catalogservice.repository;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@DisplayName("FullTextQuery Tests")
+class FullTextQueryTest {
+
+    @Test
+    @DisplayName("Should prefix-match every term")
+    void shouldPrefixMatchEveryTerm() {
+        assertEquals("blue:* & hood:*", FullTextQuery.toPrefixQuery("Blue Hood"));
+    }
+
+    @Test
+    @DisplayName("Should drop tsquery operators and punctuation")
+    void shouldDropTsqueryOperatorsAndPunctuation() {
+        assertEquals("t:* & shirt:* & men:*", FullTextQuery.toPrefixQuery("t-shirt & (men)!:*"));
+    }
+
+    @Test
+    @DisplayName("Should return empty query for blank input")
+    void shouldReturnEmptyQueryForBlankInput() {
+        assertEquals("", FullTextQuery.toPrefixQuery("  ,,  "));
+        assertEquals("", FullTextQuery.toPrefixQuery(null));
+    }
+
+    @Test
+    @DisplayName("Should cap the number of terms")
+    void shouldCapTheNumberOfTerms() {
+        String query = FullTextQuery.toPrefixQuery("a b c d e f g h i j k");
+
+        assertEquals(FullTextQuery.MAX_TERMS, query.split(" & ").length);
+    }
+}
@@ -0,0 +1,165 @@
+package com.teipsum.catalogservice.repository;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.persistence.EntityManager;
+import org.hibernate.Session;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@DisplayName("ListingQueryExecutor Tests")
+class ListingQueryExecutorTest {
+
+    @Mock
+    private EntityManager em;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    @Mock
+    private Session contentSession;
+
+    @Mock
+    private Session countSession;
+
+    private SimpleMeterRegistry registry;
+    private ListingQueryExecutor executor;
+
+    @BeforeEach
+    void setUp() {
+        registry = new SimpleMeterRegistry();
+        executor = new ListingQueryExecutor(em, transactionManager, registry, true, 2);
+        TransactionSynchronizationManager.setActualTransactionActive(true);
+    }
+
+    @AfterEach
+    void tearDown() {
+        TransactionSynchronizationManager.setActualTransactionActive(false);
+        executor.shutdown();
+    }
+
+    @Test
+    @DisplayName("Should count on a worker while the content is read on the caller")
+    void shouldCountWhileReadingContent() {
+        // Given
+        when(em.unwrap(Session.class)).thenReturn(contentSession, countSession);
+        CountDownLatch countStarted = new CountDownLatch(1);
+        AtomicReference<String> countThread = new AtomicReference<>();
+
+        // When
+        Page<String> page = executor.page(() -> {
+            await(countStarted);
+            return List.of("a", "b");
+        }, () -> {
+            countThread.set(Thread.currentThread().getName());
+            countStarted.countDown();
+            return 7;
+        }, PageRequest.of(0, 2));
+
+        // Then
+        assertEquals(List.of("a", "b"), page.getContent());
+        assertEquals(7, page.getTotalElements());
+        assertTrue(countThread.get().startsWith("listing-count-"));
+        assertEquals(1, registry.get("catalog.listing.query").tag("part", "count").tag("mode", "parallel").timer().count());
+        assertEquals(1, registry.get("catalog.listing.query").tag("part", "content").tag("mode", "parallel").timer().count());
+        verify(transactionManager, timeout(1000)).commit(any());
+    }
+
+    @Test
+    @DisplayName("Should cancel the running count when the content query fails")
+    void shouldCancelCountWhenContentFails() {
+        // Given
+        when(em.unwrap(Session.class)).thenReturn(contentSession, countSession);
+        CountDownLatch countStarted = new CountDownLatch(1);
+        CountDownLatch cancelled = new CountDownLatch(1);
+        doAnswer(invocation -> {
+            cancelled.countDown();
+            return null;
+        }).when(countSession).cancelQuery();
+
+        // When
+        IllegalStateException thrown = assertThrows(IllegalStateException.class, () -> executor.page(() -> {
+            await(countStarted);
+            throw new IllegalStateException("content failed");
+        }, () -> {
+            countStarted.countDown();
+            await(cancelled);
+            throw new IllegalStateException("count cancelled");
+        }, PageRequest.of(0, 2)));
+
+        // Then
+        assertEquals("content failed", thrown.getMessage());
+        assertEquals(0, cancelled.getCount());
+        verify(contentSession, never()).cancelQuery();
+    }
+
+    @Test
+    @DisplayName("Should cancel the content query when the count fails and report the count failure")
+    void shouldCancelContentWhenCountFails() {
+        // Given
+        when(em.unwrap(Session.class)).thenReturn(contentSession, countSession);
+        CountDownLatch cancelled = new CountDownLatch(1);
+        doAnswer(invocation -> {
+            cancelled.countDown();
+            return null;
+        }).when(contentSession).cancelQuery();
+
+        // When
+        IllegalStateException thrown = assertThrows(IllegalStateException.class, () -> executor.page(() -> {
+            await(cancelled);
+            throw new IllegalStateException("content cancelled");
+        }, () -> {
+            throw new IllegalStateException("count failed");
+        }, PageRequest.of(0, 2)));
+
+        // Then
+        assertEquals("count failed", thrown.getMessage());
+        assertEquals("content cancelled", thrown.getSuppressed()[0].getMessage());
+    }
+
+    @Test
+    @DisplayName("Should run both queries on the caller outside a transaction")
+    void shouldRunSequentiallyOutsideTransaction() {
+        // Given
+        TransactionSynchronizationManager.setActualTransactionActive(false);
+        AtomicReference<Thread> countThread = new AtomicReference<>();
+
+        // When
+        Page<String> page = executor.page(() -> List.of("a"), () -> {
+            countThread.set(Thread.currentThread());
+            return 1;
+        }, PageRequest.of(0, 2));
+
+        // Then
+        assertEquals(1, page.getTotalElements());
+        assertSame(Thread.currentThread(), countThread.get());
+        assertEquals(1, registry.get("catalog.listing.query").tag("part", "count").tag("mode", "sequential").timer().count());
+        verifyNoInteractions(em, transactionManager);
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            assertTrue(latch.await(5, TimeUnit.SECONDS));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        }
+    }
+}
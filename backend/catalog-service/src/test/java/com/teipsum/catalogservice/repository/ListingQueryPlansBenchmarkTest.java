@@ -0,0 +1,196 @@
+package com.teipsum.catalogservice.repository;
+
+import com.teipsum.catalogservice.model.CatalogProduct;
+import com.teipsum.shared.product.dto.ProductFilterRequest;
+import com.teipsum.shared.product.enums.Gender;
+import com.teipsum.shared.product.enums.ProductCategory;
+import com.teipsum.shared.product.enums.ProductSubcategory;
+import com.teipsum.shared.product.filter.ProductSpecifications;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.TypedQuery;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Order;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.UUID;
+import java.util.function.Function;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Per-call latency of a filtered page (count plus content) built as a Criteria tree on
+ * every call, as listings used to be, against the compiled per-shape queries, over a mix
+ * of filter shapes on H2. Run with
+ * {@code mvn test -Dtest=ListingQueryPlansBenchmarkTest -Dbenchmark=true}.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+@DisplayName("ListingQueryPlans Benchmark")
+class ListingQueryPlansBenchmarkTest {
+
+    private static final int PRODUCTS = 2_000;
+    private static final int WARMUP = 2_000;
+    private static final int CALLS = 20_000;
+
+    @Autowired
+    private CatalogProductRepository catalogProductRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @PersistenceContext
+    private EntityManager em;
+
+    @MockitoBean
+    private KafkaTemplate<String, Object> kafkaTemplate;
+
+    private final Random random = new Random(42);
+
+    @BeforeEach
+    void setUp() {
+        catalogProductRepository.deleteAll();
+        catalogProductRepository.saveAll(IntStream.range(0, PRODUCTS).mapToObj(this::product).toList());
+    }
+
+    @AfterEach
+    void tearDown() {
+        catalogProductRepository.deleteAll();
+    }
+
+    @Test
+    @DisplayName("Should return the same pages as Criteria queries, at a lower median latency")
+    void benchmark() {
+        List<ProductFilterRequest> filters = IntStream.range(0, 64).mapToObj(i -> filter()).toList();
+        Pageable pageable = PageRequest.of(0, 20, Sort.by(Sort.Direction.DESC, "price"));
+
+        for (ProductFilterRequest filter : filters) {
+            assertEquals(ids(criteria(filter, pageable)), ids(compiled(filter, pageable)));
+        }
+
+        long[] criteria = measure(filters, filter -> criteria(filter, pageable));
+        long[] compiled = measure(filters, filter -> compiled(filter, pageable));
+
+        System.out.printf("criteria p50: %.1f us, p99: %.1f us | compiled p50: %.1f us, p99: %.1f us%n",
+                criteria[CALLS / 2] / 1_000.0, criteria[CALLS * 99 / 100] / 1_000.0,
+                compiled[CALLS / 2] / 1_000.0, compiled[CALLS * 99 / 100] / 1_000.0);
+        assertTrue(compiled[CALLS / 2] <= criteria[CALLS / 2],
+                "compiled p50 " + compiled[CALLS / 2] + " ns, criteria p50 " + criteria[CALLS / 2] + " ns");
+    }
+
+    private long[] measure(List<ProductFilterRequest> filters, Function<ProductFilterRequest, List<CatalogProduct>> listing) {
+        for (int i = 0; i < WARMUP; i++) {
+            listing.apply(filters.get(i % filters.size()));
+        }
+        long[] nanos = new long[CALLS];
+        for (int i = 0; i < CALLS; i++) {
+            ProductFilterRequest filter = filters.get(i % filters.size());
+            long started = System.nanoTime();
+            listing.apply(filter);
+            nanos[i] = System.nanoTime() - started;
+        }
+        Arrays.sort(nanos);
+        return nanos;
+    }
+
+    private List<CatalogProduct> compiled(ProductFilterRequest filter, Pageable pageable) {
+        return transactionTemplate.execute(status -> catalogProductRepository.findFiltered(filter, pageable).getContent());
+    }
+
+    /** The listing as it was built before: a specification plus Criteria count and content queries. */
+    private List<CatalogProduct> criteria(ProductFilterRequest filter, Pageable pageable) {
+        return transactionTemplate.execute(status -> {
+            Specification<CatalogProduct> spec = ProductSpecifications.withFilters(filter, CatalogProduct.EFFECTIVE_PRICE);
+            CriteriaBuilder cb = em.getCriteriaBuilder();
+
+            CriteriaQuery<Long> countQuery = cb.createQuery(Long.class);
+            Root<CatalogProduct> countRoot = countQuery.from(CatalogProduct.class);
+            countQuery.select(cb.countDistinct(countRoot));
+            Predicate countPredicate = spec.toPredicate(countRoot, countQuery, cb);
+            if (countPredicate != null) {
+                countQuery.where(countPredicate);
+            }
+            em.createQuery(countQuery).getSingleResult();
+
+            CriteriaQuery<CatalogProduct> query = cb.createQuery(CatalogProduct.class);
+            Root<CatalogProduct> root = query.from(CatalogProduct.class);
+            query.distinct(true);
+            Predicate predicate = spec.toPredicate(root, query, cb);
+            if (predicate != null) {
+                query.where(predicate);
+            }
+            List<Order> orders = new ArrayList<>();
+            for (Sort.Order order : pageable.getSort()) {
+                orders.add(order.isAscending() ? cb.asc(root.get(order.getProperty())) : cb.desc(root.get(order.getProperty())));
+            }
+            orders.add(cb.asc(root.get("id")));
+            query.orderBy(orders);
+
+            TypedQuery<CatalogProduct> typedQuery = em.createQuery(query);
+            typedQuery.setFirstResult((int) pageable.getOffset());
+            typedQuery.setMaxResults(pageable.getPageSize());
+            return typedQuery.getResultList();
+        });
+    }
+
+    private ProductFilterRequest filter() {
+        return new ProductFilterRequest(
+                null,
+                random.nextBoolean() ? Set.of(ProductCategory.TOPS, ProductCategory.OUTERWEAR) : null,
+                null,
+                random.nextBoolean() ? Set.of(Gender.values()[random.nextInt(Gender.values().length)]) : null,
+                random.nextBoolean() ? new BigDecimal(random.nextInt(100)) : null,
+                random.nextBoolean() ? new BigDecimal(100 + random.nextInt(200)) : null,
+                null,
+                null,
+                random.nextBoolean() ? Boolean.TRUE : null,
+                random.nextInt(4) == 0 ? List.of("M") : null,
+                null,
+                null);
+    }
+
+    private CatalogProduct product(int i) {
+        return CatalogProduct.builder()
+                .id(UUID.randomUUID())
+                .title("Product " + i)
+                .description("Benchmark product " + i)
+                .price(new BigDecimal(10 + random.nextInt(290)))
+                .discount(new BigDecimal(random.nextInt(40)))
+                .category(random.nextBoolean() ? ProductCategory.TOPS : ProductCategory.OUTERWEAR)
+                .subcategory(ProductSubcategory.T_SHIRTS)
+                .gender(Gender.values()[random.nextInt(Gender.values().length)])
+                .imageUrls(List.of())
+                .sizes(random.nextBoolean() ? List.of("S", "M") : List.of("L"))
+                .available(random.nextInt(5) > 0)
+                .build();
+    }
+
+    private static List<UUID> ids(List<CatalogProduct> products) {
+        return products.stream().map(CatalogProduct::getId).toList();
+    }
+}
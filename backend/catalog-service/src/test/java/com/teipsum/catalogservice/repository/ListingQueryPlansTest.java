@@ -0,0 +1,128 @@
+package com.teipsum.catalogservice.repository;
+
+import com.teipsum.catalogservice.model.CatalogProduct;
+import com.teipsum.shared.exceptions.InvalidSortPropertyException;
+import com.teipsum.shared.product.dto.ProductFilterRequest;
+import com.teipsum.shared.product.enums.Gender;
+import com.teipsum.shared.product.enums.ProductCategory;
+import jakarta.persistence.Query;
+import jakarta.persistence.metamodel.EntityType;
+import jakarta.persistence.metamodel.SingularAttribute;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Sort;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@DisplayName("ListingQueryPlans Tests")
+class ListingQueryPlansTest {
+
+    @Mock
+    private EntityType<CatalogProduct> entity;
+
+    @Mock
+    private Query query;
+
+    private ListingQueryPlans plans;
+
+    @BeforeEach
+    void setUp() {
+        plans = new ListingQueryPlans(100);
+        lenient().doReturn(attribute(BigDecimal.class)).when(entity).getSingularAttribute(anyString());
+        lenient().doReturn(attribute(String.class)).when(entity).getSingularAttribute("title");
+    }
+
+    @Test
+    @DisplayName("Should render only the conditions present, in a fixed order, with a stable sort")
+    void shouldRenderPresentConditions() {
+        // When
+        ListingQueryPlans.Plan plan = plans.plan(
+                filter(Set.of(Gender.MEN), new BigDecimal("50"), List.of(" M ")),
+                Sort.by(Sort.Direction.DESC, "price"), entity);
+
+        // Then
+        assertEquals("SELECT p FROM CatalogProduct p WHERE p.gender IN (:gender) AND p.effectivePrice <= :maxPrice"
+                + " AND EXISTS (SELECT 1 FROM CatalogProduct s JOIN s.sizes z WHERE s = p AND z IN (:sizes))"
+                + " ORDER BY p.price DESC, p.id", plan.select());
+        assertEquals("SELECT count(p) FROM CatalogProduct p WHERE p.gender IN (:gender) AND p.effectivePrice <= :maxPrice"
+                + " AND EXISTS (SELECT 1 FROM CatalogProduct s JOIN s.sizes z WHERE s = p AND z IN (:sizes))", plan.count());
+        assertEquals("SELECT p FROM CatalogProduct p ORDER BY p.id", plans.plan(null, Sort.unsorted(), entity).select());
+    }
+
+    @Test
+    @DisplayName("Should reuse one plan for filters of the same shape and bind their own values")
+    void shouldReusePlanPerShape() {
+        // Given
+        ProductFilterRequest cheap = filter(Set.of(Gender.MEN), new BigDecimal("50"), null);
+        ProductFilterRequest pricey = filter(Set.of(Gender.WOMEN, Gender.UNISEX), new BigDecimal("500"), null);
+
+        // When
+        ListingQueryPlans.Plan first = plans.plan(cheap, Sort.by("title"), entity);
+        ListingQueryPlans.Plan second = plans.plan(pricey, Sort.by("title"), entity);
+        plans.plan(pricey, Sort.by("discount"), entity);
+        second.bind(query, pricey);
+
+        // Then
+        assertSame(first, second);
+        assertEquals(2, plans.size());
+        verify(query).setParameter("gender", Set.of(Gender.WOMEN, Gender.UNISEX));
+        verify(query).setParameter("maxPrice", new BigDecimal("500"));
+        verifyNoMoreInteractions(query);
+    }
+
+    @Test
+    @DisplayName("Should keep ignore-case and null handling of the sort in the plan")
+    void shouldRenderIgnoreCaseAndNullHandling() {
+        // Given
+        Sort byTitle = Sort.by(Sort.Order.asc("title").ignoreCase());
+        Sort byDiscount = Sort.by(Sort.Order.desc("discount").ignoreCase().nullsLast());
+
+        // When
+        ListingQueryPlans.Plan caseInsensitive = plans.plan(null, byTitle, entity);
+        ListingQueryPlans.Plan caseSensitive = plans.plan(null, Sort.by("title"), entity);
+        ListingQueryPlans.Plan nullsLast = plans.plan(null, byDiscount, entity);
+
+        // Then
+        assertEquals("SELECT p FROM CatalogProduct p ORDER BY lower(p.title) ASC, p.id", caseInsensitive.select());
+        assertEquals("SELECT p FROM CatalogProduct p ORDER BY p.title ASC, p.id", caseSensitive.select());
+        // Case is only ignored for strings
+        assertEquals("SELECT p FROM CatalogProduct p ORDER BY p.discount DESC NULLS LAST, p.id", nullsLast.select());
+        assertEquals(3, plans.size());
+    }
+
+    @Test
+    @DisplayName("Should reject sort properties that are not mapped attributes without caching them")
+    void shouldRejectUnknownSortProperty() {
+        // Given
+        when(entity.getSingularAttribute("price; DROP TABLE catalog_products"))
+                .thenThrow(new IllegalArgumentException("unknown attribute"));
+
+        // When & Then
+        assertThrows(InvalidSortPropertyException.class, () -> plans.plan(
+                null, Sort.by("price; DROP TABLE catalog_products"), entity));
+        assertEquals(0, plans.size());
+    }
+
+    @SuppressWarnings("unchecked")
+    private static SingularAttribute<? super CatalogProduct, ?> attribute(Class<?> type) {
+        SingularAttribute<? super CatalogProduct, ?> attribute = mock(SingularAttribute.class);
+        lenient().doReturn(type).when(attribute).getJavaType();
+        return attribute;
+    }
+
+    private static ProductFilterRequest filter(Set<Gender> gender, BigDecimal maxPrice, List<String> sizes) {
+        return new ProductFilterRequest(null, Set.<ProductCategory>of(), null, gender, null, maxPrice,
+                null, null, null, sizes, null, null);
+    }
+}
@@ -0,0 +1,138 @@
+package com.teipsum.catalogservice.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.teipsum.catalogservice.event.ProductEventBatch;
+import com.teipsum.catalogservice.model.CatalogProduct;
+import com.teipsum.catalogservice.repository.CatalogProductRepository;
+import com.teipsum.shared.product.enums.Gender;
+import com.teipsum.shared.product.enums.ProductCategory;
+import com.teipsum.shared.product.enums.ProductSubcategory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+
+import java.io.ByteArrayOutputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+@ActiveProfiles("test")
+@DisplayName("CatalogExportService Tests")
+class CatalogExportServiceTest {
+
+    @Autowired
+    private CatalogExportService exportService;
+
+    @Autowired
+    private CatalogService catalogService;
+
+    @Autowired
+    private CatalogProductRepository catalogProductRepository;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @MockitoBean
+    private KafkaTemplate<String, Object> kafkaTemplate;
+
+    @AfterEach
+    void tearDown() {
+        catalogProductRepository.deleteAll();
+    }
+
+    @Test
+    @DisplayName("Should export only products updated since the given instant, oldest first")
+    void shouldExportProductsUpdatedSince() throws Exception {
+        // Given
+        Instant base = Instant.parse("2024-05-01T10:00:00Z");
+        apply(List.of(
+                product("Old", base),
+                product("Newest", base.plusSeconds(120)),
+                product("Newer", base.plusSeconds(60))));
+
+        // When
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        long count = exportService.export(base.plusSeconds(60), out);
+
+        // Then
+        List<JsonNode> lines = lines(out);
+        assertEquals(2, count);
+        assertEquals(List.of("Newer", "Newest"), lines.stream().map(line -> line.get("title").asText()).toList());
+        assertEquals(base.plusSeconds(60), Instant.parse(lines.get(0).get("updatedAt").asText()));
+        assertEquals(List.of("S", "M"), objectMapper.convertValue(lines.get(0).get("sizes"), List.class));
+        assertEquals(1, lines.get(0).get("imageUrls").size());
+    }
+
+    @Test
+    @DisplayName("Should stream every product across chunk boundaries")
+    void shouldExportWholeCatalog() throws Exception {
+        // Given
+        Instant base = Instant.parse("2024-05-01T10:00:00Z");
+        List<CatalogProduct> products = new ArrayList<>();
+        for (int i = 0; i < 1203; i++) {
+            products.add(product("Product " + i, base.plusMillis(i)));
+        }
+        apply(products);
+
+        // When
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        long count = exportService.export(null, out);
+
+        // Then
+        List<JsonNode> lines = lines(out);
+        Set<String> ids = new HashSet<>();
+        lines.forEach(line -> ids.add(line.get("id").asText()));
+        assertEquals(1203, count);
+        assertEquals(1203, ids.size());
+        assertEquals("Product 0", lines.get(0).get("title").asText());
+        assertEquals("Product 1202", lines.get(1202).get("title").asText());
+        assertTrue(lines.stream().allMatch(line -> line.get("sizes").size() == 2));
+    }
+
+    private void apply(List<CatalogProduct> products) {
+        catalogService.applyChanges(products.stream()
+                .map(product -> new ProductEventBatch.Change(product.getId(), product, false, 0))
+                .toList(), List.of());
+    }
+
+    private List<JsonNode> lines(ByteArrayOutputStream out) throws Exception {
+        List<JsonNode> lines = new ArrayList<>();
+        for (String line : out.toString(StandardCharsets.UTF_8).split("\n")) {
+            if (!line.isEmpty()) {
+                lines.add(objectMapper.readTree(line));
+            }
+        }
+        return lines;
+    }
+
+    private static CatalogProduct product(String title, Instant updatedAt) {
+        return CatalogProduct.builder()
+                .id(UUID.randomUUID())
+                .title(title)
+                .description("Description of " + title)
+                .price(new BigDecimal("25.00"))
+                .discount(BigDecimal.ZERO)
+                .category(ProductCategory.TOPS)
+                .subcategory(ProductSubcategory.T_SHIRTS)
+                .gender(Gender.UNISEX)
+                .imageUrls(List.of("https://cdn.example.com/" + title + ".jpg"))
+                .sizes(List.of("S", "M"))
+                .available(true)
+                .updatedAt(updatedAt)
+                .build();
+    }
+}
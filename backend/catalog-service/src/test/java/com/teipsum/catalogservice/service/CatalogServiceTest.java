@@ -1,10 +1,23 @@
 package com.teipsum.catalogservice.service;
 
+import com.teipsum.catalogservice.cache.ListingPageCache;
+import com.teipsum.catalogservice.dto.CatalogProductDTO;
+import com.teipsum.catalogservice.dto.CountMode;
+import com.teipsum.catalogservice.dto.CursorPage;
+import com.teipsum.catalogservice.dto.ProductFacets;
+import com.teipsum.catalogservice.event.CatalogProductChangedEvent;
 import com.teipsum.catalogservice.event.ProductEventValidator;
 import com.teipsum.catalogservice.exception.EventProcessingException;
+import com.teipsum.catalogservice.exception.InvalidPagingException;
 import com.teipsum.catalogservice.exception.InvalidProductDataException;
+import com.teipsum.catalogservice.facet.PriceBuckets;
+import com.teipsum.catalogservice.index.CatalogIndex;
 import com.teipsum.catalogservice.model.CatalogProduct;
+import com.teipsum.catalogservice.repository.CatalogProductBatchWriter;
 import com.teipsum.catalogservice.repository.CatalogProductRepository;
+import com.teipsum.catalogservice.util.ListingCursor;
+import com.teipsum.catalogservice.util.ProductDtoConverter;
+import com.teipsum.catalogservice.version.CatalogVersions;
 import com.teipsum.shared.exceptions.ProductNotFoundException;
 import com.teipsum.shared.product.dto.ProductFilterRequest;
 import com.teipsum.shared.product.enums.Gender;
@@ -13,26 +26,35 @@ import com.teipsum.shared.product.enums.ProductSubcategory;
 import com.teipsum.shared.product.event.ProductCreatedEvent;
 import com.teipsum.shared.product.event.ProductDeletedEvent;
 import com.teipsum.shared.product.event.ProductUpdatedEvent;
-import com.teipsum.shared.product.filter.ProductSpecifications;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
-import org.mockito.MockedStatic;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.mockito.junit.jupiter.MockitoSettings;
 import org.mockito.quality.Strictness;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
-import org.springframework.data.jpa.domain.Specification;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.data.domain.Sort;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
 
 import java.math.BigDecimal;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
+import java.util.function.Supplier;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.*;
@@ -49,6 +71,36 @@ class CatalogServiceTest {
     @Mock
     private ProductEventValidator productEventValidator;
 
+    @Mock
+    private CatalogIndex catalogIndex;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    @Mock
+    private ProductDtoConverter dtoConverter;
+
+    @Mock
+    private ListingCountEstimator listingCountEstimator;
+
+    @Mock
+    private PriceBuckets priceBuckets;
+
+    @Mock
+    private CatalogProductBatchWriter batchWriter;
+
+    @Mock
+    private CacheManager cacheManager;
+
+    @Mock
+    private CatalogVersions catalogVersions;
+
+    @Mock
+    private ListingPageCache listingPages;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
     @InjectMocks
     private CatalogService catalogService;
 
@@ -104,6 +156,10 @@ class CatalogServiceTest {
         );
 
         productDeletedEvent = new ProductDeletedEvent(productId);
+
+        // Listings always miss the page cache here
+        when(listingPages.get(any(), any(), any(), any()))
+                .thenAnswer(invocation -> invocation.<Supplier<?>>getArgument(3).get());
     }
 
     @Test
@@ -228,6 +284,8 @@ class CatalogServiceTest {
 
         // Then
         verify(catalogProductRepository).deleteById(UUID.fromString(productUpdatedEvent.id()));
+        verify(eventPublisher).publishEvent(argThat((Object event) ->
+                event instanceof CatalogProductChangedEvent changed && changed.deleted()));
     }
 
     @Test
@@ -300,30 +358,108 @@ class CatalogServiceTest {
     void shouldGetFilteredProductsSuccessfully() {
         // Given
         ProductFilterRequest filter = new ProductFilterRequest(
-                "Test", ProductCategory.TOPS, ProductSubcategory.T_SHIRTS,
-                Gender.UNISEX, new BigDecimal("50"), new BigDecimal("150"),
-                null, null, null, null, null
+                "Test", Set.of(ProductCategory.TOPS), Set.of(ProductSubcategory.T_SHIRTS),
+                Set.of(Gender.UNISEX), new BigDecimal("50"), new BigDecimal("150"),
+                null, null, null, null, null, null
         );
         Pageable pageable = Pageable.ofSize(10);
         Page<CatalogProduct> productPage = new PageImpl<>(List.of(testProduct));
 
-        try (MockedStatic<ProductSpecifications> mockedStatic = mockStatic(ProductSpecifications.class)) {
-            mockedStatic.when(() -> ProductSpecifications.withFilters(filter))
-                    .thenReturn(Specification.where(null));
-            when(catalogProductRepository.findAll(any(Specification.class), eq(pageable)))
-                    .thenReturn(productPage);
+        when(catalogProductRepository.findFiltered(filter, pageable)).thenReturn(productPage);
+
+        // When
+        Page<CatalogProduct> result = catalogService.getFilteredProducts(filter, pageable);
+
+        // Then
+        assertNotNull(result);
+        assertEquals(1, result.getTotalElements());
+        assertEquals(testProduct, result.getContent().get(0));
+
+        verify(catalogProductRepository).findFiltered(filter, pageable);
+    }
+
+    @Test
+    @DisplayName("Should serve filtered products from catalog index when it can answer")
+    void shouldServeFilteredProductsFromCatalogIndex() {
+        // Given
+        ProductFilterRequest filter = new ProductFilterRequest(
+                null, Set.of(ProductCategory.TOPS), null, null, null, null, null, null, null, null, null, null
+        );
+        // A full first page, so the total is taken from the index rather than derived from the content
+        Pageable pageable = Pageable.ofSize(1);
+        when(catalogIndex.query(filter, pageable))
+                .thenReturn(Optional.of(new CatalogIndex.Result(List.of(testProduct.getId()), 7)));
+        when(catalogProductRepository.findAllById(List.of(testProduct.getId()))).thenReturn(List.of(testProduct));
+
+        // When
+        Page<CatalogProduct> result = catalogService.getFilteredProducts(filter, pageable);
+
+        // Then
+        assertEquals(7, result.getTotalElements());
+        assertEquals(List.of(testProduct), result.getContent());
+        verify(catalogProductRepository, never()).findFiltered(any(), any());
+    }
+
+    @Test
+    @DisplayName("Should use ranked full-text search for search queries when enabled")
+    void shouldUseRankedFullTextSearchWhenEnabled() {
+        // Given
+        ReflectionTestUtils.setField(catalogService, "fullTextSearch", true);
+        ProductFilterRequest filter = new ProductFilterRequest(
+                "hood", null, null, null, null, null, null, null, null, null, null, null
+        );
+        Pageable pageable = Pageable.ofSize(10);
+        when(catalogProductRepository.searchRanked(filter, pageable)).thenReturn(new PageImpl<>(List.of(testProduct)));
+
+        // When
+        Page<CatalogProduct> result = catalogService.getFilteredProducts(filter, pageable);
+
+        // Then
+        assertEquals(List.of(testProduct), result.getContent());
+        verify(catalogIndex, never()).query(any(), any());
+        verify(catalogProductRepository, never()).findFiltered(any(), any());
+    }
+
+    @Test
+    @DisplayName("Should return next cursor when more rows follow")
+    void shouldReturnNextCursorWhenMoreRowsFollow() {
+        // Given
+        CatalogProduct second = CatalogProduct.builder()
+                .id(UUID.randomUUID())
+                .title("Second")
+                .price(new BigDecimal("120.00"))
+                .build();
+        ProductFilterRequest filter = new ProductFilterRequest(
+                null, null, null, null, null, null, null, null, null, null, Sort.Direction.ASC, "price"
+        );
+        when(catalogProductRepository.findAllAfter(any(), any(ListingCursor.class), eq(2)))
+                .thenReturn(List.of(testProduct, second));
+
+        // When
+        CursorPage<CatalogProduct> result = catalogService.getProductsAfter(filter, "", Pageable.ofSize(1));
 
-            // When
-            Page<CatalogProduct> result = catalogService.getFilteredProducts(filter, pageable);
+        // Then
+        assertEquals(List.of(testProduct), result.content());
+        assertTrue(result.hasNext());
+        ListingCursor next = ListingCursor.decode(result.nextCursor());
+        assertEquals("price", next.sortBy());
+        assertEquals(testProduct.getId(), next.lastId());
+        assertEquals("99.99", next.lastValue());
+    }
 
-            // Then
-            assertNotNull(result);
-            assertEquals(1, result.getTotalElements());
-            assertEquals(testProduct, result.getContent().get(0));
+    @Test
+    @DisplayName("Should reject cursor issued for a different sort")
+    void shouldRejectCursorIssuedForDifferentSort() {
+        // Given
+        String cursor = ListingCursor.start(Sort.by("title")).after(testProduct).encode();
+        ProductFilterRequest filter = new ProductFilterRequest(
+                null, null, null, null, null, null, null, null, null, null, Sort.Direction.DESC, "price"
+        );
 
-            mockedStatic.verify(() -> ProductSpecifications.withFilters(filter));
-            verify(catalogProductRepository).findAll(any(Specification.class), eq(pageable));
-        }
+        // When & Then
+        assertThrows(InvalidPagingException.class,
+                () -> catalogService.getProductsAfter(filter, cursor, Pageable.ofSize(10)));
+        verify(catalogProductRepository, never()).findAllAfter(any(), any(), anyInt());
     }
 
     @Test
@@ -331,27 +467,22 @@ class CatalogServiceTest {
     void shouldHandleEmptyFilterResults() {
         // Given
         ProductFilterRequest filter = new ProductFilterRequest(
-                "NonExistent", null, null, null, null, null, null, null, null, null, null
+                "NonExistent", null, null, null, null, null, null, null, null, null, null, null
         );
         Pageable pageable = Pageable.ofSize(10);
         Page<CatalogProduct> emptyPage = new PageImpl<>(List.of());
 
-        try (MockedStatic<ProductSpecifications> mockedStatic = mockStatic(ProductSpecifications.class)) {
-            mockedStatic.when(() -> ProductSpecifications.withFilters(filter))
-                    .thenReturn(Specification.where(null));
-            when(catalogProductRepository.findAll(any(Specification.class), eq(pageable)))
-                    .thenReturn(emptyPage);
+        when(catalogProductRepository.findFiltered(filter, pageable)).thenReturn(emptyPage);
 
-            // When
-            Page<CatalogProduct> result = catalogService.getFilteredProducts(filter, pageable);
+        // When
+        Page<CatalogProduct> result = catalogService.getFilteredProducts(filter, pageable);
 
-            // Then
-            assertNotNull(result);
-            assertEquals(0, result.getTotalElements());
-            assertTrue(result.getContent().isEmpty());
+        // Then
+        assertNotNull(result);
+        assertEquals(0, result.getTotalElements());
+        assertTrue(result.getContent().isEmpty());
 
-            verify(catalogProductRepository).findAll(any(Specification.class), eq(pageable));
-        }
+        verify(catalogProductRepository).findFiltered(filter, pageable);
     }
 
     @Test
@@ -360,36 +491,31 @@ class CatalogServiceTest {
         // Given
         ProductFilterRequest complexFilter = new ProductFilterRequest(
                 "Test Product", 
-                ProductCategory.TOPS,
-                ProductSubcategory.T_SHIRTS,
-                Gender.UNISEX, 
+                Set.of(ProductCategory.TOPS),
+                Set.of(ProductSubcategory.T_SHIRTS),
+                Set.of(Gender.UNISEX), 
                 new BigDecimal("90"), 
                 new BigDecimal("110"),
                 null,
                 null,
                 null, 
                 null,
+                null,
                 null
         );
         Pageable pageable = Pageable.ofSize(5);
         Page<CatalogProduct> productPage = new PageImpl<>(List.of(testProduct));
 
-        try (MockedStatic<ProductSpecifications> mockedStatic = mockStatic(ProductSpecifications.class)) {
-            mockedStatic.when(() -> ProductSpecifications.withFilters(complexFilter))
-                    .thenReturn(Specification.where(null));
-            when(catalogProductRepository.findAll(any(Specification.class), eq(pageable)))
-                    .thenReturn(productPage);
+        when(catalogProductRepository.findFiltered(complexFilter, pageable)).thenReturn(productPage);
 
-            // When
-            Page<CatalogProduct> result = catalogService.getFilteredProducts(complexFilter, pageable);
+        // When
+        Page<CatalogProduct> result = catalogService.getFilteredProducts(complexFilter, pageable);
 
-            // Then
-            assertNotNull(result);
-            assertEquals(1, result.getTotalElements());
+        // Then
+        assertNotNull(result);
+        assertEquals(1, result.getTotalElements());
 
-            mockedStatic.verify(() -> ProductSpecifications.withFilters(complexFilter));
-            verify(catalogProductRepository).findAll(any(Specification.class), eq(pageable));
-        }
+        verify(catalogProductRepository).findFiltered(complexFilter, pageable);
     }
 
     @Test
@@ -399,22 +525,16 @@ class CatalogServiceTest {
         Pageable pageable = Pageable.ofSize(10);
         Page<CatalogProduct> productPage = new PageImpl<>(List.of(testProduct));
 
-        try (MockedStatic<ProductSpecifications> mockedStatic = mockStatic(ProductSpecifications.class)) {
-            mockedStatic.when(() -> ProductSpecifications.withFilters(null))
-                    .thenReturn(Specification.where(null));
-            when(catalogProductRepository.findAll(any(Specification.class), eq(pageable)))
-                    .thenReturn(productPage);
+        when(catalogProductRepository.findFiltered(null, pageable)).thenReturn(productPage);
 
-            // When
-            Page<CatalogProduct> result = catalogService.getFilteredProducts(null, pageable);
+        // When
+        Page<CatalogProduct> result = catalogService.getFilteredProducts(null, pageable);
 
-            // Then
-            assertNotNull(result);
-            assertEquals(1, result.getTotalElements());
+        // Then
+        assertNotNull(result);
+        assertEquals(1, result.getTotalElements());
 
-            mockedStatic.verify(() -> ProductSpecifications.withFilters(null));
-            verify(catalogProductRepository).findAll(any(Specification.class), eq(pageable));
-        }
+        verify(catalogProductRepository).findFiltered(null, pageable);
     }
 
     @Test
@@ -439,6 +559,75 @@ class CatalogServiceTest {
         verify(catalogProductRepository, times(2)).findById(UUID.fromString(productId));
     }
 
+    @Test
+    @DisplayName("Should return a slice without counting when count mode is none")
+    void shouldReturnSliceWithoutCountingWhenCountModeIsNone() {
+        // Given
+        ProductFilterRequest filter = new ProductFilterRequest(
+                null, Set.of(ProductCategory.TOPS), null, null, null, null, null, null, null, null, null, null
+        );
+        Pageable pageable = Pageable.ofSize(1);
+        when(catalogIndex.query(filter, pageable)).thenReturn(Optional.empty());
+        when(catalogProductRepository.findFilteredSlice(filter, pageable))
+                .thenReturn(new SliceImpl<>(List.of(testProduct), pageable, true));
+
+        // When
+        Slice<CatalogProduct> result = catalogService.getFilteredSlice(filter, pageable, CountMode.NONE);
+
+        // Then
+        assertFalse(result instanceof Page);
+        assertTrue(result.hasNext());
+        verify(catalogProductRepository, never()).findFiltered(any(), any());
+        verify(catalogProductRepository, never()).countFiltered(any());
+        verifyNoInteractions(listingCountEstimator);
+    }
+
+    @Test
+    @DisplayName("Should keep estimated total consistent with the fetched page")
+    void shouldKeepEstimatedTotalConsistentWithFetchedPage() {
+        // Given
+        ProductFilterRequest filter = new ProductFilterRequest(
+                null, Set.of(ProductCategory.TOPS), null, null, null, null, null, null, null, null, null, null
+        );
+        Pageable firstPage = PageRequest.of(0, 1);
+        Pageable lastPage = PageRequest.of(3, 1);
+        when(catalogIndex.query(eq(filter), any())).thenReturn(Optional.empty());
+        when(catalogProductRepository.findFilteredSlice(filter, firstPage))
+                .thenReturn(new SliceImpl<>(List.of(testProduct), firstPage, true));
+        when(catalogProductRepository.findFilteredSlice(filter, lastPage))
+                .thenReturn(new SliceImpl<>(List.of(testProduct), lastPage, false));
+        when(listingCountEstimator.estimate(filter)).thenReturn(1L);
+
+        // When
+        Page<CatalogProduct> first = (Page<CatalogProduct>) catalogService.getFilteredSlice(filter, firstPage, CountMode.ESTIMATE);
+        Page<CatalogProduct> last = (Page<CatalogProduct>) catalogService.getFilteredSlice(filter, lastPage, CountMode.ESTIMATE);
+
+        // Then
+        assertEquals(2, first.getTotalElements());
+        assertTrue(first.hasNext());
+        assertEquals(4, last.getTotalElements());
+        assertFalse(last.hasNext());
+        verify(catalogProductRepository, never()).countFiltered(any());
+    }
+
+    @Test
+    @DisplayName("Should serve facets from the catalog index when it can answer")
+    void shouldServeFacetsFromCatalogIndex() {
+        // Given
+        ProductFilterRequest filter = new ProductFilterRequest(
+                null, Set.of(ProductCategory.TOPS), null, null, null, null, null, null, null, null, null, null
+        );
+        ProductFacets facets = new ProductFacets(3, Map.of(), Map.of(), Map.of(), Map.of(), List.of());
+        when(catalogIndex.facets(filter, priceBuckets)).thenReturn(Optional.of(facets));
+
+        // When
+        ProductFacets result = catalogService.getFacets(filter);
+
+        // Then
+        assertSame(facets, result);
+        verify(catalogProductRepository, never()).countFacets(any(), any(), anyBoolean());
+    }
+
     @Test
     @DisplayName("Should handle product update with partial data")
     void shouldHandleProductUpdateWithPartialData() {
@@ -470,4 +659,27 @@ class CatalogServiceTest {
         verify(productEventValidator).validate(partialUpdateEvent);
         verify(catalogProductRepository).findById(UUID.fromString(partialUpdateEvent.id()));
     }
+
+    @Test
+    @DisplayName("Should serve batch lookups from the cache and load only the misses in one query")
+    void shouldLoadOnlyUncachedProductViews() {
+        // Given
+        UUID cachedId = UUID.randomUUID();
+        UUID unknownId = UUID.randomUUID();
+        CatalogProductDTO cachedView = CatalogProductDTO.builder().id(cachedId.toString()).build();
+        CatalogProductDTO loadedView = CatalogProductDTO.builder().id(testProduct.getId().toString()).build();
+        Cache products = mock(Cache.class);
+        when(cacheManager.getCache("products")).thenReturn(products);
+        when(products.get(cachedId.toString(), CatalogProductDTO.class)).thenReturn(cachedView);
+        when(catalogProductRepository.findAllById(List.of(testProduct.getId(), unknownId))).thenReturn(List.of(testProduct));
+        when(dtoConverter.convertToDto(testProduct)).thenReturn(loadedView);
+
+        // When
+        Map<UUID, CatalogProductDTO> views = catalogService.getProductViews(List.of(cachedId, testProduct.getId(), unknownId));
+
+        // Then
+        assertEquals(Map.of(cachedId, cachedView, testProduct.getId(), loadedView), views);
+        verify(catalogProductRepository).findAllById(List.of(testProduct.getId(), unknownId));
+        verify(products).put(testProduct.getId().toString(), loadedView);
+    }
 }
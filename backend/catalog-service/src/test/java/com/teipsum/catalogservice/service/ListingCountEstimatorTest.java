@@ -0,0 +1,116 @@
+package com.teipsum.catalogservice.service;
+
+import com.teipsum.catalogservice.event.CatalogProductChangedEvent;
+import com.teipsum.catalogservice.index.CatalogIndex;
+import com.teipsum.catalogservice.model.CatalogProduct;
+import com.teipsum.catalogservice.repository.CatalogProductRepository;
+import com.teipsum.shared.product.dto.ProductFilterRequest;
+import com.teipsum.shared.product.enums.ProductCategory;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Sort;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@DisplayName("ListingCountEstimator Tests")
+class ListingCountEstimatorTest {
+
+    private CatalogProductRepository catalogProductRepository;
+    private CatalogIndex catalogIndex;
+    private ListingCountEstimator estimator;
+
+    @BeforeEach
+    void setUp() {
+        catalogProductRepository = mock(CatalogProductRepository.class);
+        catalogIndex = mock(CatalogIndex.class);
+        // Direct executor: background refreshes complete before refresh() returns
+        estimator = new ListingCountEstimator(catalogProductRepository, catalogIndex, false, 100,
+                Duration.ofHours(1), Runnable::run);
+    }
+
+    @Test
+    @DisplayName("Should count once and serve the cached estimate")
+    void shouldCountOnceAndServeCachedEstimate() {
+        // Given
+        when(catalogProductRepository.countFiltered(any())).thenReturn(5L, 7L);
+
+        // When
+        long first = estimator.estimate(filter(ProductCategory.TOPS, "10.00", null));
+        long second = estimator.estimate(filter(ProductCategory.TOPS, "10", Sort.Direction.DESC));
+
+        // Then
+        assertEquals(5, first);
+        assertEquals(5, second);
+        verify(catalogProductRepository, times(1)).countFiltered(any());
+    }
+
+    @Test
+    @DisplayName("Should recount every cached estimate on a product change while the index is not ready")
+    void shouldRecountAfterProductChange() {
+        // Given
+        when(catalogProductRepository.countFiltered(any())).thenReturn(5L, 7L);
+        ProductFilterRequest filter = filter(ProductCategory.TOPS, null, null);
+        estimator.estimate(filter);
+
+        // When
+        estimator.onProductChanged(new CatalogProductChangedEvent(UUID.randomUUID(), null));
+        long refreshed = estimator.estimate(filter);
+
+        // Then
+        assertEquals(7, refreshed);
+        verify(catalogProductRepository, times(2)).countFiltered(any());
+    }
+
+    @Test
+    @DisplayName("Should recount only the estimates that may list the previous or new category of a changed product")
+    void shouldRecountAffectedEstimates() {
+        // Given
+        when(catalogProductRepository.countFiltered(any())).thenReturn(5L);
+        List.of(filter(ProductCategory.TOPS, null, null), filter(ProductCategory.SHOES, null, null),
+                filter(ProductCategory.BAGS, null, null), filter(null, null, null)).forEach(estimator::estimate);
+        UUID id = UUID.randomUUID();
+        when(catalogIndex.isReady()).thenReturn(true);
+        when(catalogIndex.category(id)).thenReturn(Optional.of(ProductCategory.TOPS));
+        CatalogProduct moved = CatalogProduct.builder().id(id).category(ProductCategory.SHOES).build();
+
+        // When
+        estimator.onProductChanged(new CatalogProductChangedEvent(id, moved));
+
+        // Then
+        verify(catalogProductRepository, times(7)).countFiltered(any());
+        verify(catalogProductRepository, times(1)).countFiltered(filter(ProductCategory.BAGS, null, null));
+    }
+
+    @Test
+    @DisplayName("Should keep separate estimates per filter signature")
+    void shouldKeepSeparateEstimatesPerFilterSignature() {
+        // Given
+        when(catalogProductRepository.countFiltered(any())).thenReturn(5L, 3L);
+
+        // When
+        long tops = estimator.estimate(filter(ProductCategory.TOPS, null, null));
+        long shoes = estimator.estimate(filter(ProductCategory.SHOES, null, null));
+
+        // Then
+        assertEquals(5, tops);
+        assertEquals(3, shoes);
+    }
+
+    private static ProductFilterRequest filter(ProductCategory category, String minPrice, Sort.Direction direction) {
+        return new ProductFilterRequest(
+                null, category == null ? null : Set.of(category), null, null,
+                minPrice == null ? null : new BigDecimal(minPrice),
+                null, null, null, null,
+                null, direction, direction == null ? null : "price");
+    }
+}
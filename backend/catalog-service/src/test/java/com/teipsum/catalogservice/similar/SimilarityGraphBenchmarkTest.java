@@ -0,0 +1,115 @@
+package com.teipsum.catalogservice.similar;
+
+import com.teipsum.shared.product.enums.Gender;
+import com.teipsum.shared.product.enums.ProductSubcategory;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Build, update and lookup times over a synthetic 100k-product catalog. Lists must match
+ * brute force after the build; updates skip some distant lists, so afterwards only their
+ * total score is held to brute force. Run with
+ * {@code mvn test -Dtest=SimilarityGraphBenchmarkTest -Dbenchmark=true}.
+ */
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+@DisplayName("SimilarityGraph Benchmark")
+class SimilarityGraphBenchmarkTest {
+
+    private static final int PRODUCTS = 100_000;
+    private static final int UPDATES = 10_000;
+    private static final int LOOKUPS = 1_000_000;
+    private static final int K = 12;
+
+    private static final ProductSubcategory[] SUBCATEGORIES = ProductSubcategory.values();
+    private static final Gender[] GENDERS = Gender.values();
+
+    private final Random random = new Random(42);
+
+    @Test
+    @DisplayName("Should build, update and serve neighbours of 100k products")
+    void benchmark() {
+        List<SimilarityGraph.Features> catalog = new ArrayList<>(PRODUCTS);
+        for (int i = 0; i < PRODUCTS; i++) {
+            catalog.add(randomProduct(UUID.randomUUID()));
+        }
+        SimilarityGraph graph = new SimilarityGraph(K, 500);
+
+        long started = System.nanoTime();
+        graph.build(catalog);
+        long buildNanos = System.nanoTime() - started;
+        assertEquals(1.0, scoreRatio(graph, catalog));
+
+        started = System.nanoTime();
+        for (int i = 0; i < UPDATES; i++) {
+            int index = random.nextInt(PRODUCTS);
+            SimilarityGraph.Features changed = randomProduct(catalog.get(index).id());
+            catalog.set(index, changed);
+            graph.put(changed);
+        }
+        long updateNanos = System.nanoTime() - started;
+
+        started = System.nanoTime();
+        long returned = 0;
+        for (int i = 0; i < LOOKUPS; i++) {
+            returned += graph.neighbours(catalog.get(random.nextInt(PRODUCTS)).id(), K).size();
+        }
+        long lookupNanos = System.nanoTime() - started;
+
+        double ratio = scoreRatio(graph, catalog);
+        System.out.printf("build: %d ms, update: %.1f us/op, lookup: %.0f ns/op (%d neighbours returned), "
+                        + "score vs brute force after updates: %.4f%n",
+                buildNanos / 1_000_000, updateNanos / 1_000.0 / UPDATES, (double) lookupNanos / LOOKUPS, returned, ratio);
+
+        assertEquals(PRODUCTS, graph.size());
+        assertTrue(ratio > 0.99, "score ratio " + ratio);
+    }
+
+    /** Total score of sampled lists over the total of the exhaustive top-k lists. */
+    private double scoreRatio(SimilarityGraph graph, List<SimilarityGraph.Features> catalog) {
+        double actual = 0;
+        double expected = 0;
+        for (int i = 0; i < 50; i++) {
+            SimilarityGraph.Features product = catalog.get(random.nextInt(PRODUCTS));
+            actual += graph.scoredNeighbours(product.id()).stream().mapToDouble(SimilarityGraph.Neighbour::score).sum();
+            expected += bruteForceScores(catalog, product).stream().mapToDouble(Double::doubleValue).sum();
+        }
+        return actual / expected;
+    }
+
+    /** Scores of the exhaustive top-k; ids may differ between equal scores. */
+    private static List<Double> bruteForceScores(List<SimilarityGraph.Features> catalog,
+                                                 SimilarityGraph.Features product) {
+        return catalog.stream()
+                .filter(candidate -> candidate.available() && !candidate.id().equals(product.id())
+                        && candidate.subcategory() == product.subcategory())
+                .map(candidate -> SimilarityGraph.score(product, candidate))
+                .sorted(Comparator.reverseOrder())
+                .limit(K)
+                .toList();
+    }
+
+    private SimilarityGraph.Features randomProduct(UUID id) {
+        long sizes = 0;
+        for (int size = 0; size < 8; size++) {
+            if (random.nextInt(3) == 0) {
+                sizes |= 1L << size;
+            }
+        }
+        return new SimilarityGraph.Features(
+                id,
+                SUBCATEGORIES[random.nextInt(SUBCATEGORIES.length)],
+                GENDERS[random.nextInt(GENDERS.length)],
+                500 + random.nextInt(50_000),
+                sizes,
+                random.nextInt(10) > 0);
+    }
+}
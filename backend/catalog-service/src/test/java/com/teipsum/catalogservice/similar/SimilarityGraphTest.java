@@ -0,0 +1,93 @@
+package com.teipsum.catalogservice.similar;
+
+import com.teipsum.shared.product.enums.Gender;
+import com.teipsum.shared.product.enums.ProductSubcategory;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("SimilarityGraph Tests")
+class SimilarityGraphTest {
+
+    private static final long S = 1;
+    private static final long M = 1 << 1;
+    private static final long L = 1 << 2;
+
+    private SimilarityGraph graph;
+
+    private SimilarityGraph.Features tee;
+    private SimilarityGraph.Features closeTee;
+    private SimilarityGraph.Features pricyTee;
+    private SimilarityGraph.Features mensTee;
+    private SimilarityGraph.Features hoodie;
+
+    @BeforeEach
+    void setUp() {
+        tee = features(ProductSubcategory.T_SHIRTS, Gender.WOMEN, 2000, S | M, true);
+        closeTee = features(ProductSubcategory.T_SHIRTS, Gender.WOMEN, 2100, S | M, true);
+        pricyTee = features(ProductSubcategory.T_SHIRTS, Gender.WOMEN, 8000, S | M, true);
+        mensTee = features(ProductSubcategory.T_SHIRTS, Gender.MEN, 2000, L, true);
+        hoodie = features(ProductSubcategory.HOODIES, Gender.WOMEN, 2000, S | M, true);
+
+        graph = new SimilarityGraph(2, 100);
+        graph.build(List.of(tee, closeTee, pricyTee, mensTee, hoodie));
+    }
+
+    @Test
+    @DisplayName("Should rank neighbours of the same subcategory by gender, price and sizes")
+    void shouldRankNeighboursWithinSubcategory() {
+        assertEquals(List.of(closeTee.id(), pricyTee.id()), graph.neighbours(tee.id(), 5));
+        assertEquals(List.of(closeTee.id()), graph.neighbours(tee.id(), 1));
+        assertEquals(List.of(), graph.neighbours(hoodie.id(), 5));
+        assertNull(graph.neighbours(UUID.randomUUID(), 5));
+    }
+
+    @Test
+    @DisplayName("Should offer a new product to the lists it beats")
+    void shouldOfferNewProductToExistingLists() {
+        // Given
+        SimilarityGraph.Features twin = features(ProductSubcategory.T_SHIRTS, Gender.WOMEN, 2000, S | M, true);
+
+        // When
+        graph.put(twin);
+
+        // Then
+        assertEquals(List.of(twin.id(), closeTee.id()), graph.neighbours(tee.id(), 5));
+        assertEquals(tee.id(), graph.neighbours(twin.id(), 1).get(0));
+    }
+
+    @Test
+    @DisplayName("Should drop removed and unavailable products from every list")
+    void shouldDropRemovedAndUnavailableProducts() {
+        // When
+        graph.remove(closeTee.id());
+        graph.put(new SimilarityGraph.Features(
+                pricyTee.id(), pricyTee.subcategory(), pricyTee.gender(), pricyTee.price(), pricyTee.sizes(), false));
+
+        // Then
+        assertEquals(List.of(mensTee.id()), graph.neighbours(tee.id(), 5));
+        assertNull(graph.neighbours(closeTee.id(), 5));
+        assertEquals(List.of(tee.id(), mensTee.id()), graph.neighbours(pricyTee.id(), 5));
+    }
+
+    @Test
+    @DisplayName("Should rescore lists when a neighbour's price changes")
+    void shouldRescoreWhenNeighbourChanges() {
+        // When
+        graph.put(new SimilarityGraph.Features(
+                closeTee.id(), closeTee.subcategory(), closeTee.gender(), 20000, closeTee.sizes(), true));
+
+        // Then
+        assertEquals(List.of(pricyTee.id(), closeTee.id()), graph.neighbours(tee.id(), 5));
+    }
+
+    private static SimilarityGraph.Features features(ProductSubcategory subcategory, Gender gender,
+                                                     long price, long sizes, boolean available) {
+        return new SimilarityGraph.Features(UUID.randomUUID(), subcategory, gender, price, sizes, available);
+    }
+}
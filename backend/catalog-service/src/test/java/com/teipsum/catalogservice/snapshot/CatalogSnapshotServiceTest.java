@@ -0,0 +1,146 @@
+package com.teipsum.catalogservice.snapshot;
+
+import com.teipsum.catalogservice.event.ProductEventBatch;
+import com.teipsum.catalogservice.model.CatalogProduct;
+import com.teipsum.catalogservice.model.EventOffset;
+import com.teipsum.catalogservice.repository.CatalogProductBatchWriter;
+import com.teipsum.catalogservice.repository.CatalogProductRepository;
+import com.teipsum.catalogservice.repository.CatalogSnapshotRepository;
+import com.teipsum.catalogservice.repository.EventOffsetRepository;
+import com.teipsum.catalogservice.service.CatalogService;
+import com.teipsum.catalogservice.version.CatalogVersions;
+import com.teipsum.shared.product.enums.Gender;
+import com.teipsum.shared.product.enums.ProductCategory;
+import com.teipsum.shared.product.enums.ProductSubcategory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+@ActiveProfiles("test")
+@DisplayName("CatalogSnapshotService Tests")
+class CatalogSnapshotServiceTest {
+
+    @Autowired
+    private CatalogService catalogService;
+
+    @Autowired
+    private CatalogProductRepository catalogProductRepository;
+
+    @Autowired
+    private CatalogSnapshotRepository snapshotRepository;
+
+    @Autowired
+    private EventOffsetRepository eventOffsetRepository;
+
+    @Autowired
+    private CatalogProductBatchWriter batchWriter;
+
+    @Autowired
+    private CatalogVersions catalogVersions;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @MockitoBean
+    private KafkaTemplate<String, Object> kafkaTemplate;
+
+    @TempDir
+    private Path directory;
+
+    @AfterEach
+    void tearDown() {
+        catalogProductRepository.deleteAll();
+        eventOffsetRepository.deleteAll();
+    }
+
+    @Test
+    @DisplayName("Should restore products and event offsets from a written snapshot")
+    void shouldRestoreProductsAndOffsetsFromSnapshot() throws Exception {
+        // Given
+        CatalogProduct tee = product("Tee", "0", List.of("S", "M"));
+        CatalogProduct cap = product("Cap", null, List.of());
+        cap.setDescription("x".repeat(70_000));
+        catalogService.applyChanges(List.of(upsert(tee), upsert(cap)),
+                List.of(new EventOffset("product-created", 0, 42)));
+        CatalogSnapshotService snapshots = snapshotService(directory.resolve("snapshot/catalog.bin"));
+        snapshots.write();
+
+        // When
+        tearDown();
+        snapshots.load();
+
+        // Then
+        assertTrue(Files.exists(directory.resolve("snapshot/catalog.bin")));
+        assertEquals(2, catalogProductRepository.count());
+        transactionTemplate.executeWithoutResult(status -> {
+            CatalogProduct restored = catalogProductRepository.findById(tee.getId()).orElseThrow();
+            assertEquals(List.of("S", "M"), List.copyOf(restored.getSizes()));
+            assertEquals(0, new BigDecimal("0").compareTo(restored.getDiscount()));
+            assertEquals(70_000, catalogProductRepository.findById(cap.getId()).orElseThrow().getDescription().length());
+        });
+        EventOffset offset = eventOffsetRepository.findAll().get(0);
+        assertEquals("product-created", offset.getTopic());
+        assertEquals(42, offset.getNextOffset());
+    }
+
+    @Test
+    @DisplayName("Should leave the catalog empty when the snapshot is unreadable")
+    void shouldLeaveCatalogEmptyForUnreadableSnapshot() throws Exception {
+        // Given
+        Path path = directory.resolve("catalog.bin");
+        Files.writeString(path, "not a snapshot");
+
+        // When
+        snapshotService(path).load();
+
+        // Then
+        assertEquals(0, catalogProductRepository.count());
+        assertTrue(eventOffsetRepository.findAll().isEmpty());
+    }
+
+    private CatalogSnapshotService snapshotService(Path path) {
+        return new CatalogSnapshotService(snapshotRepository, eventOffsetRepository, batchWriter, catalogVersions,
+                transactionManager, true, path.toString(), Duration.ofMinutes(5));
+    }
+
+    private static ProductEventBatch.Change upsert(CatalogProduct product) {
+        return new ProductEventBatch.Change(product.getId(), product, false, 0);
+    }
+
+    private static CatalogProduct product(String title, String discount, List<String> sizes) {
+        return CatalogProduct.builder()
+                .id(UUID.randomUUID())
+                .title(title)
+                .description("Description of " + title)
+                .price(new BigDecimal("25.00"))
+                .discount(discount == null ? null : new BigDecimal(discount))
+                .category(ProductCategory.TOPS)
+                .subcategory(ProductSubcategory.T_SHIRTS)
+                .gender(Gender.UNISEX)
+                .imageUrls(List.of("https://cdn.example.com/" + title + ".jpg"))
+                .sizes(sizes)
+                .available(true)
+                .build();
+    }
+}
@@ -0,0 +1,116 @@
+package com.teipsum.catalogservice.suggest;
+
+import com.teipsum.catalogservice.dto.ProductSuggestion;
+import com.teipsum.catalogservice.event.CatalogProductChangedEvent;
+import com.teipsum.catalogservice.hot.HotEntries;
+import com.teipsum.catalogservice.model.CatalogProduct;
+import com.teipsum.catalogservice.repository.CatalogSnapshotRepository;
+import com.teipsum.shared.product.enums.ProductSubcategory;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.UUID;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@DisplayName("ProductSuggestions Tests")
+class ProductSuggestionsTest {
+
+    @Mock
+    private CatalogSnapshotRepository snapshotRepository;
+
+    @Mock
+    private HotEntries hotEntries;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private ProductSuggestions suggestions;
+
+    private CatalogProduct hoodie;
+    private CatalogProduct popularHoodie;
+    private CatalogProduct soldOut;
+
+    @BeforeEach
+    void setUp() {
+        hoodie = product("Oversized Hoodie", ProductSubcategory.HOODIES, true);
+        popularHoodie = product("Zip Hoodie", ProductSubcategory.HOODIES, true);
+        soldOut = product("Hooded Parka", ProductSubcategory.PARKAS, false);
+        doAnswer(invocation -> {
+            Consumer<CatalogProduct> consumer = invocation.getArgument(0);
+            List.of(hoodie, popularHoodie, soldOut).forEach(consumer);
+            return null;
+        }).when(snapshotRepository).forEachProduct(any());
+        when(hotEntries.productRequests(any())).thenReturn(0L);
+
+        suggestions = new ProductSuggestions(snapshotRepository, hotEntries, transactionManager,
+                true, 5, Duration.ofSeconds(1), Duration.ofMinutes(1));
+    }
+
+    @Test
+    @DisplayName("Should suggest available titles and subcategories ranked by popularity")
+    void shouldRankByPopularity() {
+        // Given
+        when(hotEntries.productRequests(popularHoodie.getId())).thenReturn(9L);
+
+        // When
+        suggestions.load();
+
+        // Then
+        List<ProductSuggestion> result = suggestions.suggest("  HOO ", 10);
+        assertEquals(List.of("Hoodies", "Zip Hoodie", "Oversized Hoodie"),
+                result.stream().map(ProductSuggestion::text).toList());
+        assertEquals(ProductSuggestion.Type.SUBCATEGORY, result.get(0).type());
+        assertEquals(ProductSubcategory.HOODIES, result.get(0).subcategory());
+        assertEquals(popularHoodie.getId().toString(), result.get(1).productId());
+        assertEquals(2, suggestions.suggest("hoo", 2).size());
+        assertEquals(List.of(), suggestions.suggest(" ", 10));
+    }
+
+    @Test
+    @DisplayName("Should follow renamed, restocked and deleted products after a rebuild")
+    void shouldFollowProductChanges() {
+        // Given
+        suggestions.load();
+        hoodie.setTitle("Relaxed Sweatshirt");
+        soldOut.setAvailable(true);
+
+        // When
+        suggestions.onProductChanged(new CatalogProductChangedEvent(hoodie.getId(), hoodie));
+        suggestions.onProductChanged(new CatalogProductChangedEvent(soldOut.getId(), soldOut));
+        suggestions.onProductChanged(new CatalogProductChangedEvent(popularHoodie.getId(), null));
+        suggestions.rebuild();
+
+        // Then
+        assertEquals(List.of("Hooded Parka"), texts("hood"));
+        assertEquals(List.of("Relaxed Sweatshirt"), texts("sweat"));
+        assertEquals(List.of(), texts("zip"));
+    }
+
+    private List<String> texts(String query) {
+        return suggestions.suggest(query, 10).stream()
+                .filter(suggestion -> suggestion.type() == ProductSuggestion.Type.PRODUCT)
+                .map(ProductSuggestion::text)
+                .toList();
+    }
+
+    private static CatalogProduct product(String title, ProductSubcategory subcategory, boolean available) {
+        return CatalogProduct.builder()
+                .id(UUID.randomUUID())
+                .title(title)
+                .subcategory(subcategory)
+                .available(available)
+                .build();
+    }
+}
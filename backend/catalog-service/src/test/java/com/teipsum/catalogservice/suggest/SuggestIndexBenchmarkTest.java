@@ -0,0 +1,73 @@
+package com.teipsum.catalogservice.suggest;
+
+import com.teipsum.catalogservice.dto.ProductSuggestion;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Build time and lookup latency percentiles over 100k synthetic titles, for prefixes of
+ * one to six characters. Run with
+ * {@code mvn test -Dtest=SuggestIndexBenchmarkTest -Dbenchmark=true}.
+ */
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+@DisplayName("SuggestIndex Benchmark")
+class SuggestIndexBenchmarkTest {
+
+    private static final int TITLES = 100_000;
+    private static final int LOOKUPS = 200_000;
+    private static final String[] WORDS = {
+            "classic", "oversized", "organic", "cotton", "linen", "wool", "denim", "slim", "relaxed", "cropped",
+            "hoodie", "sweater", "jacket", "t-shirt", "jeans", "chinos", "dress", "skirt", "blazer", "cardigan",
+            "black", "white", "navy", "olive", "beige", "striped", "washed", "vintage", "essential", "premium"};
+
+    private final Random random = new Random(42);
+
+    @Test
+    @DisplayName("Should serve completions of 100k titles well under a millisecond at p99")
+    void benchmark() {
+        List<SuggestIndex.Completion> completions = new ArrayList<>(TITLES);
+        for (int i = 0; i < TITLES; i++) {
+            String title = word() + " " + word() + " " + word() + " " + i;
+            completions.add(new SuggestIndex.Completion(
+                    new ProductSuggestion(title, ProductSuggestion.Type.PRODUCT, null, null),
+                    random.nextInt(1000)));
+        }
+
+        long started = System.nanoTime();
+        SuggestIndex index = new SuggestIndex(completions);
+        long buildMillis = (System.nanoTime() - started) / 1_000_000;
+
+        String[] prefixes = new String[LOOKUPS];
+        for (int i = 0; i < LOOKUPS; i++) {
+            String word = word();
+            prefixes[i] = word.substring(0, 1 + random.nextInt(Math.min(6, word.length())));
+        }
+        long[] nanos = new long[LOOKUPS];
+        long returned = 0;
+        for (int i = 0; i < LOOKUPS; i++) {
+            started = System.nanoTime();
+            returned += index.suggest(prefixes[i], 10).size();
+            nanos[i] = System.nanoTime() - started;
+        }
+        Arrays.sort(nanos);
+        long p50 = nanos[LOOKUPS / 2];
+        long p99 = nanos[LOOKUPS * 99 / 100];
+
+        System.out.printf("build: %d ms, lookup p50: %.1f us, p99: %.1f us, max: %.1f us (%d completions returned)%n",
+                buildMillis, p50 / 1_000.0, p99 / 1_000.0, nanos[LOOKUPS - 1] / 1_000.0, returned);
+        assertEquals(10L * LOOKUPS, returned);
+        assertTrue(p99 < 1_000_000, "p99 " + p99 + " ns");
+    }
+
+    private String word() {
+        return WORDS[random.nextInt(WORDS.length)];
+    }
+}
@@ -0,0 +1,66 @@
+package com.teipsum.catalogservice.suggest;
+
+import com.teipsum.catalogservice.dto.ProductSuggestion;
+import com.teipsum.shared.product.enums.ProductSubcategory;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("SuggestIndex Tests")
+class SuggestIndexTest {
+
+    private SuggestIndex index;
+
+    @BeforeEach
+    void setUp() {
+        index = new SuggestIndex(List.of(
+                product("Oversized Hoodie", 5),
+                product("Hooded Rain Jacket", 2),
+                product("Zip Hoodie  Hoodie Edition", 3),
+                product("Classic T-Shirt", 4),
+                subcategory(ProductSubcategory.HOODIES, 10)));
+    }
+
+    @Test
+    @DisplayName("Should match any word of a text, most popular first")
+    void shouldMatchWordPrefixesByWeight() {
+        assertEquals(List.of("Hoodies", "Oversized Hoodie", "Zip Hoodie  Hoodie Edition", "Hooded Rain Jacket"),
+                texts(index.suggest("hood", 10)));
+        assertEquals(List.of("Hoodies", "Oversized Hoodie"), texts(index.suggest("hood", 2)));
+        assertEquals(List.of("Classic T-Shirt"), texts(index.suggest("shirt", 10)));
+    }
+
+    @Test
+    @DisplayName("Should match prefixes spanning several words")
+    void shouldMatchAcrossWords() {
+        assertEquals(List.of("Hooded Rain Jacket"), texts(index.suggest("rain j", 10)));
+        assertEquals(List.of("Zip Hoodie  Hoodie Edition"), texts(index.suggest(SuggestIndex.normalize("Hoodie   Ed"), 10)));
+    }
+
+    @Test
+    @DisplayName("Should return nothing for unknown or empty prefixes")
+    void shouldReturnNothingWithoutMatches() {
+        assertEquals(List.of(), index.suggest("jeans", 10));
+        assertEquals(List.of(), index.suggest("", 10));
+        assertEquals(List.of(), index.suggest("oodie", 10));
+        assertEquals(List.of(), SuggestIndex.EMPTY.suggest("hood", 10));
+    }
+
+    private static List<String> texts(List<ProductSuggestion> suggestions) {
+        return suggestions.stream().map(ProductSuggestion::text).toList();
+    }
+
+    private static SuggestIndex.Completion product(String title, long weight) {
+        return new SuggestIndex.Completion(
+                new ProductSuggestion(title, ProductSuggestion.Type.PRODUCT, null, null), weight);
+    }
+
+    private static SuggestIndex.Completion subcategory(ProductSubcategory subcategory, long weight) {
+        return new SuggestIndex.Completion(new ProductSuggestion(
+                subcategory.getDisplayName(), ProductSuggestion.Type.SUBCATEGORY, null, subcategory), weight);
+    }
+}
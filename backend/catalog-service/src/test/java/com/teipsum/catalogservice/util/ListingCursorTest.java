@@ -0,0 +1,59 @@
+package com.teipsum.catalogservice.util;
+
+import com.teipsum.catalogservice.exception.InvalidPagingException;
+import com.teipsum.catalogservice.model.CatalogProduct;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Sort;
+
+import java.math.BigDecimal;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("ListingCursor Tests")
+class ListingCursorTest {
+
+    @Test
+    @DisplayName("Should round-trip the position after the last row")
+    void shouldRoundTripPositionAfterLastRow() {
+        // Given
+        CatalogProduct last = CatalogProduct.builder()
+                .id(UUID.randomUUID())
+                .title("Zip | Hoodie")
+                .price(new BigDecimal("59.90"))
+                .build();
+
+        // When
+        ListingCursor cursor = ListingCursor.start(Sort.by(Sort.Direction.DESC, "title")).after(last);
+        ListingCursor decoded = ListingCursor.decode(cursor.encode());
+
+        // Then
+        assertEquals(cursor, decoded);
+        assertEquals("Zip | Hoodie", decoded.lastValue());
+        assertFalse(decoded.isStart());
+    }
+
+    @Test
+    @DisplayName("Should order by id alone when unsorted")
+    void shouldOrderByIdAloneWhenUnsorted() {
+        ListingCursor cursor = ListingCursor.start(Sort.unsorted());
+
+        assertNull(cursor.sortBy());
+        assertTrue(cursor.isStart());
+    }
+
+    @Test
+    @DisplayName("Should reject unsupported sorts")
+    void shouldRejectUnsupportedSorts() {
+        assertThrows(InvalidPagingException.class, () -> ListingCursor.start(Sort.by("category")));
+        assertThrows(InvalidPagingException.class, () -> ListingCursor.start(Sort.by("price", "title")));
+    }
+
+    @Test
+    @DisplayName("Should reject malformed tokens")
+    void shouldRejectMalformedTokens() {
+        assertThrows(InvalidPagingException.class, () -> ListingCursor.decode("not-a-cursor"));
+        assertThrows(InvalidPagingException.class, () -> ListingCursor.decode("cHJpY2V8QVNDfHh8eQ"));
+    }
+}
@@ -0,0 +1,134 @@
+package com.teipsum.catalogservice.util;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.teipsum.catalogservice.event.CatalogProductChangedEvent;
+import com.teipsum.catalogservice.model.CatalogProduct;
+import com.teipsum.catalogservice.version.CatalogVersions;
+import com.teipsum.shared.product.enums.Gender;
+import com.teipsum.shared.product.enums.ProductCategory;
+import com.teipsum.shared.product.enums.ProductSubcategory;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.util.unit.DataSize;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("ProductDtoConverter Tests")
+class ProductDtoConverterTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private CatalogVersions catalogVersions;
+    private ProductDtoConverter converter;
+
+    @BeforeEach
+    void setUp() {
+        catalogVersions = new CatalogVersions();
+        converter = new ProductDtoConverter(objectMapper, catalogVersions, DataSize.ofMegabytes(1));
+    }
+
+    @Test
+    @DisplayName("Should assemble a page from fragments identical to serializing the DTO page")
+    void shouldAssemblePageFromFragments() throws Exception {
+        // Given
+        Page<CatalogProduct> page = new PageImpl<>(
+                List.of(product("Basic Tee"), product("Zip \"Hoodie\" \u00fc")), PageRequest.of(0, 2), 5);
+        converter.toJson(page.getContent().get(0), catalogVersions.globalVersion());
+
+        // When
+        byte[] json = converter.toJson(page, catalogVersions.globalVersion());
+
+        // Then
+        assertEquals(objectMapper.readTree(objectMapper.writeValueAsBytes(page.map(converter::convertToDto))),
+                objectMapper.readTree(json));
+    }
+
+    @Test
+    @DisplayName("Should serve cached bytes until the product changes")
+    void shouldServeCachedBytesUntilProductChanges() {
+        // Given
+        CatalogProduct product = product("Basic Tee");
+        byte[] json = converter.toJson(product, catalogVersions.globalVersion());
+
+        // When
+        byte[] cached = converter.cachedJson(product.getId().toString());
+        catalogVersions.onProductChanged(new CatalogProductChangedEvent(product.getId(), product));
+
+        // Then
+        assertSame(json, cached);
+        assertNull(converter.cachedJson(product.getId().toString()));
+    }
+
+    @Test
+    @DisplayName("Should not cache a product read before its last change")
+    void shouldNotCacheStaleRead() {
+        // Given
+        CatalogProduct product = product("Basic Tee");
+        long readVersion = catalogVersions.globalVersion();
+        catalogVersions.onProductChanged(new CatalogProductChangedEvent(product.getId(), product));
+
+        // When
+        converter.toJson(product, readVersion);
+
+        // Then
+        assertNull(converter.cachedJson(product.getId().toString()));
+        converter.toJson(product, catalogVersions.globalVersion());
+        assertNotNull(converter.cachedJson(product.getId().toString()));
+    }
+
+    @Test
+    @DisplayName("Should serialize a changed product again once its version is bumped")
+    void shouldRefreshChangedProductAfterCommit() throws Exception {
+        // Given
+        CatalogProduct product = product("Basic Tee");
+        converter.toJson(product, catalogVersions.globalVersion());
+        product.setTitle("Washed Tee");
+        CatalogProductChangedEvent event = new CatalogProductChangedEvent(product.getId(), product);
+
+        // When
+        converter.onProductChanged(event);
+        catalogVersions.onProductChanged(event);
+        converter.onProductVersioned(event);
+
+        // Then
+        byte[] cached = converter.cachedJson(product.getId().toString());
+        assertNotNull(cached);
+        assertEquals("Washed Tee", objectMapper.readTree(cached).get("title").asText());
+    }
+
+    @Test
+    @DisplayName("Should not serialize a product whose change was rolled back")
+    void shouldNotRefreshRolledBackChange() {
+        // Given
+        CatalogProduct product = product("Basic Tee");
+        CatalogProductChangedEvent event = new CatalogProductChangedEvent(product.getId(), product);
+
+        // When
+        catalogVersions.onProductChanged(event);
+        converter.onProductVersioned(event);
+
+        // Then
+        assertNull(converter.cachedJson(product.getId().toString()));
+    }
+
+    private static CatalogProduct product(String title) {
+        return CatalogProduct.builder()
+                .id(UUID.randomUUID())
+                .title(title)
+                .price(new BigDecimal("19.99"))
+                .category(ProductCategory.TOPS)
+                .subcategory(ProductSubcategory.T_SHIRTS)
+                .gender(Gender.UNISEX)
+                .imageUrls(List.of("url1"))
+                .sizes(List.of("M"))
+                .available(true)
+                .build();
+    }
+}
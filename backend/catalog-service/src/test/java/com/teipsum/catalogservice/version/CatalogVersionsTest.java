@@ -0,0 +1,61 @@
+package com.teipsum.catalogservice.version;
+
+import com.teipsum.catalogservice.event.CatalogProductChangedEvent;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("CatalogVersions Tests")
+class CatalogVersionsTest {
+
+    private final CatalogVersions catalogVersions = new CatalogVersions();
+
+    @Test
+    @DisplayName("Should bump the global version and only the changed product")
+    void shouldBumpGlobalAndChangedProductVersion() {
+        // Given
+        UUID changed = UUID.randomUUID();
+        UUID untouched = UUID.randomUUID();
+        String listingETag = catalogVersions.listingETag();
+        String untouchedETag = catalogVersions.productETag(untouched.toString());
+
+        // When
+        catalogVersions.onProductChanged(new CatalogProductChangedEvent(changed, null));
+        catalogVersions.onProductChanged(new CatalogProductChangedEvent(UUID.randomUUID(), null));
+
+        // Then
+        assertEquals(2, catalogVersions.globalVersion());
+        assertEquals(1, catalogVersions.productVersion(changed));
+        assertNotEquals(listingETag, catalogVersions.listingETag());
+        assertEquals(untouchedETag, catalogVersions.productETag(untouched.toString()));
+    }
+
+    @Test
+    @DisplayName("Should move every product version past the current global version when invalidating all")
+    void shouldInvalidateAllProductVersions() {
+        // Given
+        UUID changed = UUID.randomUUID();
+        catalogVersions.onProductChanged(new CatalogProductChangedEvent(changed, null));
+        long readVersion = catalogVersions.globalVersion();
+
+        // When
+        catalogVersions.invalidateAll();
+
+        // Then
+        assertTrue(catalogVersions.productVersion(changed) > readVersion);
+        assertTrue(catalogVersions.productVersion(UUID.randomUUID()) > readVersion);
+    }
+
+    @Test
+    @DisplayName("Should emit quoted strong ETags and none for malformed ids")
+    void shouldEmitStrongETags() {
+        String etag = catalogVersions.productETag(UUID.randomUUID().toString());
+
+        assertTrue(etag.startsWith("\"") && etag.endsWith("\""));
+        assertFalse(etag.startsWith("W/"));
+        assertNull(catalogVersions.productETag("invalid-uuid"));
+    }
+}
@@ -4,17 +4,22 @@ import com.teipsum.shared.product.enums.*;
 import org.springframework.data.domain.Sort;
 
 import java.math.BigDecimal;
+import java.util.List;
+import java.util.Set;
 
 public record ProductFilterRequest(
         String searchQuery,
-        ProductCategory category,
-        ProductSubcategory subcategory,
-        Gender gender,
+        // Any of the given values matches (category=TOPS&category=OUTERWEAR or category=TOPS,OUTERWEAR)
+        Set<ProductCategory> category,
+        Set<ProductSubcategory> subcategory,
+        Set<Gender> gender,
         BigDecimal minPrice,
         BigDecimal maxPrice,
         BigDecimal minDiscount,
         BigDecimal maxDiscount,
         Boolean available,
+        // Size codes (see ClothingSize); a product matches when it comes in any of them
+        List<String> sizes,
         Sort.Direction sortDirection,
         String sortBy
 ) {}
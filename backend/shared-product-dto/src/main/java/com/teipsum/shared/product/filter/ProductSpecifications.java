@@ -12,6 +12,14 @@ import java.math.BigDecimal;
 public class ProductSpecifications {
 
     public static <T> Specification<T> withFilters(ProductFilterRequest filter) {
+        return withFilters(filter, "price");
+    }
+
+    /**
+     * Same filters with minPrice/maxPrice applied to the given attribute, for entities
+     * that keep a derived price (e.g. after discount) next to the list price.
+     */
+    public static <T> Specification<T> withFilters(ProductFilterRequest filter, String priceAttribute) {
         return (root, query, cb) -> {
             Predicate predicate = cb.conjunction();
 
@@ -23,20 +31,20 @@ public class ProductSpecifications {
                 ));
             }
 
-            if (filter.category() != null)
-                predicate = cb.and(predicate, cb.equal(root.get("category"), filter.category()));
+            if (filter.category() != null && !filter.category().isEmpty())
+                predicate = cb.and(predicate, root.get("category").in(filter.category()));
 
-            if (filter.subcategory() != null)
-                predicate = cb.and(predicate, cb.equal(root.get("subcategory"), filter.subcategory()));
+            if (filter.subcategory() != null && !filter.subcategory().isEmpty())
+                predicate = cb.and(predicate, root.get("subcategory").in(filter.subcategory()));
 
-            if (filter.gender() != null)
-                predicate = cb.and(predicate, cb.equal(root.get("gender"), filter.gender()));
+            if (filter.gender() != null && !filter.gender().isEmpty())
+                predicate = cb.and(predicate, root.get("gender").in(filter.gender()));
 
             if (filter.minPrice() != null)
-                predicate = cb.and(predicate, cb.ge(root.get("price"), filter.minPrice()));
+                predicate = cb.and(predicate, cb.ge(root.get(priceAttribute), filter.minPrice()));
 
             if (filter.maxPrice() != null)
-                predicate = cb.and(predicate, cb.le(root.get("price"), filter.maxPrice()));
+                predicate = cb.and(predicate, cb.le(root.get(priceAttribute), filter.maxPrice()));
 
             if (filter.minDiscount() != null) {
                 predicate = cb.and(predicate, cb.ge(
@@ -55,6 +63,14 @@ public class ProductSpecifications {
             if (filter.available() != null)
                 predicate = cb.and(predicate, cb.equal(root.get("available"), filter.available()));
 
+            if (filter.sizes() != null && !filter.sizes().isEmpty()) {
+                // EXISTS rather than a join, so products in several of the sizes are not repeated
+                Subquery<Integer> inSize = query.subquery(Integer.class);
+                Root<T> product = inSize.correlate(root);
+                inSize.select(cb.literal(1)).where(product.join("sizes").in(filter.sizes()));
+                predicate = cb.and(predicate, cb.exists(inSize));
+            }
+
             if (filter.sortDirection() != null && filter.sortBy() != null) {
                 try {
                     Path<Object> fieldPath = root.get(filter.sortBy());